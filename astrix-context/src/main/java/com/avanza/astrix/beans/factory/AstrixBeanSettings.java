@@ -20,6 +20,7 @@ import com.avanza.astrix.config.DynamicConfig;
 import com.avanza.astrix.config.DynamicIntProperty;
 import com.avanza.astrix.config.DynamicLongProperty;
 import com.avanza.astrix.config.DynamicProperty;
+import com.avanza.astrix.config.DynamicStringProperty;
 
 /**
  *
@@ -44,6 +45,99 @@ public class AstrixBeanSettings {
 	 */
 	public static final IntBeanSetting INITIAL_TIMEOUT = new IntBeanSetting(
 			"faultTolerance.timeout", 1000);
+	
+	/**
+	 * Defines the maximum number of elements sent to a single partition in one request 
+	 * when invoking a partitioned service method (@AstrixPartitionedRouting) on the 
+	 * associated bean. Partitions with more elements are split into several requests
+	 * that are executed in parallel. A value of 0 (default) means no limit.
+	 */
+	public static final IntBeanSetting MAX_PARTITION_BATCH_SIZE = new IntBeanSetting(
+			"remoting.maxPartitionBatchSize", 0);
+	
+	/**
+	 * Defines the minimum number of responses received by a broadcasted or partitioned
+	 * service method on the associated bean for the responses to be unmarshalled in parallel. 
+	 * A value of 0 (default) disables parallel unmarshalling.
+	 */
+	public static final IntBeanSetting PARALLEL_UNMARSHALL_THRESHOLD = new IntBeanSetting(
+			"remoting.parallelUnmarshallThreshold", 0);
+	
+	/**
+	 * Determines whether results from async service methods (Observable, Future etc) on the 
+	 * associated bean should be delivered on a dedicated callback executor, rather than on the 
+	 * transport thread that received the response. Enable it for beans whose results are 
+	 * subject to heavy downstream processing to keep the transport threads free. 
+	 * Defaults to false, i.e results are delivered inline.
+	 */
+	public static final BooleanBeanSetting CALLBACK_EXECUTOR_ENABLED = new BooleanBeanSetting(
+			"remoting.callbackExecutorEnabled", false);
+	
+	/**
+	 * Determines whether results from service methods annotated with @AstrixCached should be 
+	 * cached on the client side for the associated bean. Defaults to true.
+	 */
+	public static final BooleanBeanSetting CACHE_ENABLED = new BooleanBeanSetting(
+			"remoting.cacheEnabled", true);
+	
+	/**
+	 * Overrides the ttl (in milliseconds) defined by @AstrixCached for all cached service 
+	 * methods on the associated bean. A value of 0 (default) means that the ttl defined 
+	 * by the annotation is used.
+	 */
+	public static final LongBeanSetting CACHE_TTL_MILLIS = new LongBeanSetting(
+			"remoting.cacheTtlMillis", 0);
+	
+	/**
+	 * Overrides the max size defined by @AstrixCached for all cached service methods on
+	 * the associated bean. A value of 0 (default) means that the max size defined by
+	 * the annotation is used.
+	 */
+	public static final IntBeanSetting CACHE_MAX_SIZE = new IntBeanSetting(
+			"remoting.cacheMaxSize", 0);
+	
+	/**
+	 * Enables micro batching of routed requests on the associated bean when set to a positive 
+	 * value. Routed requests targeting the same partition are collected for the given number of 
+	 * microseconds (or until remoting.microBatchMaxSize is reached) and sent in a single round trip. 
+	 * A value of 0 (default) disables micro batching.
+	 */
+	public static final LongBeanSetting MICRO_BATCH_WINDOW_MICROS = new LongBeanSetting(
+			"remoting.microBatchWindowMicros", 0);
+	
+	/**
+	 * The maximum number of routed requests sent in a single batch when micro batching is
+	 * enabled for the associated bean.
+	 */
+	public static final IntBeanSetting MICRO_BATCH_MAX_SIZE = new IntBeanSetting(
+			"remoting.microBatchMaxSize", 100);
+	
+	/**
+	 * Overrides the window (in microseconds) defined by @AstrixBatchable for all batchable 
+	 * service methods on the associated bean. A value of 0 (default) means that the window 
+	 * defined by the annotation is used.
+	 */
+	public static final LongBeanSetting BATCHABLE_WINDOW_MICROS = new LongBeanSetting(
+			"remoting.batchableWindowMicros", 0);
+	
+	/**
+	 * Overrides the max batch size defined by @AstrixBatchable for all batchable service 
+	 * methods on the associated bean. A value of 0 (default) means that the max batch size
+	 * defined by the annotation is used.
+	 */
+	public static final IntBeanSetting BATCHABLE_MAX_BATCH_SIZE = new IntBeanSetting(
+			"remoting.batchableMaxBatchSize", 0);
+
+	/**
+	 * Defines the load balancing policy used to distribute invocations on the associated 
+	 * bean among all registered providers of the service. Supported values are 
+	 * "leastOutstandingRequests", "ewmaLatency", "powerOfTwoChoices" or the name of a class 
+	 * implementing {@link com.avanza.astrix.beans.service.LoadBalancingPolicy}. 
+	 * An empty value (default) binds the bean to a single provider at a time.
+	 * Only applies to beans discovered using the service registry.
+	 */
+	public static final StringBeanSetting LOAD_BALANCING_POLICY = new StringBeanSetting(
+			"loadBalancing.policy", "");
 
 	public static abstract class BeanSetting<T extends DynamicProperty<?>> {
 		private String name;
@@ -105,6 +199,22 @@ public class AstrixBeanSettings {
 		}
 	}
 
+	public static class StringBeanSetting extends
+			BeanSetting<DynamicStringProperty> {
+		private final String defaultValue;
+
+		public StringBeanSetting(String name, String defaultValue) {
+			super(name);
+			this.defaultValue = defaultValue;
+		}
+
+		@Override
+		protected DynamicStringProperty getProperty(String name,
+				DynamicConfig config) {
+			return config.getStringProperty(name, defaultValue);
+		}
+	}
+
 	public static class IntBeanSetting extends BeanSetting<DynamicIntProperty> {
 		private final int defaultValue;
 
@@ -30,7 +30,7 @@ import com.avanza.astrix.provider.core.AstrixServiceExport;
 @AstrixServiceExport(AstrixServiceRegistry.class)
 public class AstrixServiceRegistryImpl implements AstrixServiceRegistry {
 	
-	private final Logger log = LoggerFactory.getLogger(AstrixServiceRegistryImpl.class);
+	private static final Logger log = LoggerFactory.getLogger(AstrixServiceRegistryImpl.class);
 	private final ServiceRegistryEntryRepository serviceRegistryEntryRepo;
 	private final AtomicLong serviceCounter = new AtomicLong();
 	
@@ -51,7 +51,7 @@ public class AstrixServiceRegistryImpl implements AstrixServiceRegistry {
 		return activeServices.get((int) (serviceCounter.incrementAndGet() % activeServices.size()));
 	}
 
-	private List<AstrixServiceRegistryEntry> getServiceProvidersForConsumer(List<AstrixServiceRegistryEntry> entries, ServiceConsumerProperties serviceConsumer) {
+	static List<AstrixServiceRegistryEntry> getServiceProvidersForConsumer(List<AstrixServiceRegistryEntry> entries, ServiceConsumerProperties serviceConsumer) {
 		List<AstrixServiceRegistryEntry> activeServices = new ArrayList<>(entries.size());
 		String consumerZone = serviceConsumer.getProperty(ServiceConsumerProperties.CONSUMER_ZONE);
 		for (AstrixServiceRegistryEntry entry : entries) {
@@ -46,9 +46,24 @@ public class ServiceRegistryClient {
 	}
 
 	public <T> List<ServiceProperties> list(AstrixBeanKey<T> beanKey) {
-		List<AstrixServiceRegistryEntry> registeresServices = serviceRegistry.listServices(beanKey.getBeanType().getName(), beanKey.getQualifier());
-		List<ServiceProperties> result = new ArrayList<>(registeresServices.size());
-		for (AstrixServiceRegistryEntry entry : registeresServices) {
+		return toServiceProperties(serviceRegistry.listServices(beanKey.getBeanType().getName(), beanKey.getQualifier()));
+	}
+	
+	/**
+	 * Lists all providers of a given service that are available to this consumer, i.e. the
+	 * providers that {@link #lookup(AstrixBeanKey)} chooses among.
+	 * 
+	 * @param beanKey
+	 * @return
+	 */
+	public <T> List<ServiceProperties> listProviders(AstrixBeanKey<T> beanKey) {
+		List<AstrixServiceRegistryEntry> registeredServices = serviceRegistry.listServices(beanKey.getBeanType().getName(), beanKey.getQualifier());
+		return toServiceProperties(AstrixServiceRegistryImpl.getServiceProvidersForConsumer(registeredServices, consumerProperties));
+	}
+
+	private static List<ServiceProperties> toServiceProperties(List<AstrixServiceRegistryEntry> entries) {
+		List<ServiceProperties> result = new ArrayList<>(entries.size());
+		for (AstrixServiceRegistryEntry entry : entries) {
 			result.add(new ServiceProperties(entry.getServiceProperties()));
 		}
 		return result;
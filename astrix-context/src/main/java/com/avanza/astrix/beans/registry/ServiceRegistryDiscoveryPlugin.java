@@ -15,11 +15,14 @@
  */
 package com.avanza.astrix.beans.registry;
 
+import java.util.List;
+
 import org.kohsuke.MetaInfServices;
 
 import com.avanza.astrix.beans.factory.AstrixBeanKey;
 import com.avanza.astrix.beans.publish.AstrixPublishedBeans;
 import com.avanza.astrix.beans.publish.AstrixPublishedBeansAware;
+import com.avanza.astrix.beans.service.MultiProviderServiceDiscovery;
 import com.avanza.astrix.beans.service.ServiceDiscoveryMetaFactoryPlugin;
 import com.avanza.astrix.beans.service.ServiceProperties;
 import com.avanza.astrix.beans.service.ServiceConsumerProperties;
@@ -50,7 +53,7 @@ public class ServiceRegistryDiscoveryPlugin implements ServiceDiscoveryMetaFacto
 		return new ServiceRegistryDiscovery(key, beans);
 	}
 	
-	private static class ServiceRegistryDiscovery implements ServiceDiscovery {
+	private static class ServiceRegistryDiscovery implements MultiProviderServiceDiscovery {
 	
 		/*
 		 * IMPLEMENTATION NOTE:
@@ -77,7 +80,16 @@ public class ServiceRegistryDiscoveryPlugin implements ServiceDiscoveryMetaFacto
 
 		@Override
 		public ServiceProperties run() {
-			return beans.getBean(AstrixBeanKey.create(ServiceRegistryClient.class, null)).lookup(beanKey);
+			return getServiceRegistryClient().lookup(beanKey);
+		}
+		
+		@Override
+		public List<ServiceProperties> runAll() {
+			return getServiceRegistryClient().listProviders(beanKey);
+		}
+		
+		private ServiceRegistryClient getServiceRegistryClient() {
+			return beans.getBean(AstrixBeanKey.create(ServiceRegistryClient.class, null));
 		}
 		
 	}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.avanza.astrix.beans.factory.AstrixBeanKey;
+import com.avanza.astrix.core.AstrixInvocationTracker;
+import com.avanza.astrix.core.AstrixInvocationTracking;
+import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.core.util.ReflectionUtil;
+/**
+ * Distributes invocations on a service bean among a set of bound providers using a
+ * {@link LoadBalancingPolicy}. <p>
+ * 
+ * Providers are ejected when they fail {@link #CONSECUTIVE_FAILURES_BEFORE_EJECTION} invocations in
+ * a row (i.e. throw {@link ServiceUnavailableException}), or when their latency EWMA exceeds 
+ * {@link #SLOW_PROVIDER_FACTOR} times the latency of the fastest provider. The ejection time
+ * doubles for each consecutive ejection of the same provider. When the ejection time is over 
+ * the provider is re-added gradually: the probability that it's considered for an invocation grows 
+ * linearly during {@link #WARMUP_MILLIS}. At least one provider is always considered, hence if all 
+ * providers are ejected invocations are distributed among all of them. <p>
+ * 
+ * Latency and outstanding requests are measured until the result is available. Providers that
+ * return asynchronous results, i.e. remoting proxies, report when the result of each invocation is
+ * available using {@link AstrixInvocationTracking}. Other invocations are considered complete when
+ * the bound provider returns.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class LoadBalancer implements InvocationHandler {
+	
+	static final int CONSECUTIVE_FAILURES_BEFORE_EJECTION = 5;
+	static final long BASE_EJECTION_MILLIS = 10_000;
+	static final long MAX_EJECTION_MILLIS = 5 * 60_000;
+	static final long WARMUP_MILLIS = 30_000;
+	static final double SLOW_PROVIDER_FACTOR = 3;
+	static final double MIN_SLOW_PROVIDER_LATENCY_MILLIS = 10;
+	static final int MIN_LATENCY_SAMPLES = 20;
+	static final double EWMA_WEIGHT = 0.1;
+
+	private static final Logger log = LoggerFactory.getLogger(LoadBalancer.class);
+	
+	private final AstrixBeanKey<?> beanKey;
+	private volatile LoadBalancingPolicy policy;
+	private volatile List<Provider> providers = Collections.emptyList();
+	
+	LoadBalancer(AstrixBeanKey<?> beanKey, LoadBalancingPolicy policy) {
+		this.beanKey = beanKey;
+		this.policy = policy;
+	}
+	
+	void setPolicy(LoadBalancingPolicy policy) {
+		this.policy = policy;
+	}
+	
+	Map<ServiceProperties, Provider> getProvidersByProperties() {
+		Map<ServiceProperties, Provider> result = new LinkedHashMap<>();
+		for (Provider provider : providers) {
+			result.put(provider.getServiceProperties(), provider);
+		}
+		return result;
+	}
+	
+	void setProviders(List<Provider> providers) {
+		this.providers = Collections.unmodifiableList(new ArrayList<>(providers));
+	}
+	
+	List<Provider> getProviders() {
+		return providers;
+	}
+	
+	void releaseProviders() {
+		List<Provider> released = this.providers;
+		this.providers = Collections.emptyList();
+		for (Provider provider : released) {
+			provider.release();
+		}
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		final Provider provider = select();
+		TrackedInvocation invocation = new TrackedInvocation(provider);
+		AstrixInvocationTracking.Binding binding = AstrixInvocationTracking.bind(provider.bean, new AstrixInvocationTracker() {
+			@Override
+			public Invocation start() {
+				return new TrackedInvocation(provider);
+			}
+		});
+		Object result;
+		try {
+			result = provider.target.invoke(proxy, method, args);
+		} catch (Throwable e) {
+			binding.unbind();
+			invocation.complete(e);
+			throw e;
+		}
+		if (binding.unbind()) {
+			// The outcome is reported by the invocations started by the asynchronous result
+			invocation.abandon();
+		} else {
+			invocation.complete(null);
+		}
+		return result;
+	}
+	
+	private Provider select() {
+		List<Provider> current = this.providers;
+		if (current.isEmpty()) {
+			throw new ServiceUnavailableException("No provider available. bean=" + beanKey);
+		}
+		long now = System.currentTimeMillis();
+		List<Provider> candidates = new ArrayList<>(current.size());
+		for (Provider provider : current) {
+			if (provider.isAvailable(now)) {
+				candidates.add(provider);
+			}
+		}
+		if (candidates.isEmpty()) {
+			candidates = current;
+		}
+		return policy.select(candidates);
+	}
+	
+	/**
+	 * Tracks a single invocation on a provider: counted as outstanding from creation
+	 * until it's completed or abandoned, whichever happens first. 
+	 */
+	private final class TrackedInvocation implements AstrixInvocationTracker.Invocation {
+		
+		private final Provider provider;
+		private final long startNanos = System.nanoTime();
+		private final AtomicBoolean done = new AtomicBoolean();
+		
+		TrackedInvocation(Provider provider) {
+			this.provider = provider;
+			provider.outstandingRequests.incrementAndGet();
+		}
+		
+		@Override
+		public void complete(Throwable exception) {
+			if (!done.compareAndSet(false, true)) {
+				return;
+			}
+			provider.outstandingRequests.decrementAndGet();
+			if (exception instanceof ServiceUnavailableException) {
+				onFailure(provider);
+			} else {
+				// An exception thrown by the service indicates that the provider is alive
+				onResponse(provider, startNanos);
+			}
+		}
+		
+		@Override
+		public void abandon() {
+			if (done.compareAndSet(false, true)) {
+				provider.outstandingRequests.decrementAndGet();
+			}
+		}
+	}
+	
+	private void onResponse(Provider provider, long startNanos) {
+		provider.recordLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos) / 1000d);
+		if (isSlow(provider)) {
+			eject(provider, "slow");
+		}
+	}
+	
+	private void onFailure(Provider provider) {
+		if (provider.recordFailure()) {
+			eject(provider, "failing");
+		}
+	}
+	
+	private boolean isSlow(Provider provider) {
+		if (provider.latencySamples < MIN_LATENCY_SAMPLES || provider.latencyEwmaMillis < MIN_SLOW_PROVIDER_LATENCY_MILLIS) {
+			return false;
+		}
+		double fastestLatency = Double.MAX_VALUE;
+		for (Provider other : providers) {
+			if (other != provider && other.latencySamples >= MIN_LATENCY_SAMPLES) {
+				fastestLatency = Math.min(fastestLatency, other.latencyEwmaMillis);
+			}
+		}
+		return provider.latencyEwmaMillis > SLOW_PROVIDER_FACTOR * fastestLatency;
+	}
+	
+	private void eject(Provider provider, String reason) {
+		long now = System.currentTimeMillis();
+		if (provider.isEjected(now)) {
+			return;
+		}
+		for (Provider other : providers) {
+			if (other != provider && other.isEjectable(now)) {
+				long ejectionMillis = provider.eject(now);
+				log.info(String.format("Ejecting %s service provider. bean=%s provider=%s ejectionMillis=%s", 
+										reason, beanKey, provider.getServiceProperties(), ejectionMillis));
+				return;
+			}
+		}
+		// Never eject the last available provider
+	}
+	
+	static final class Provider implements ServiceProviderStatistics {
+		
+		private final ServiceProperties serviceProperties;
+		private final BoundServiceBeanInstance<?> boundInstance;
+		private final Object bean;
+		private final InvocationHandler target;
+		private final AtomicInteger outstandingRequests = new AtomicInteger();
+		private volatile double latencyEwmaMillis;
+		private volatile int latencySamples;
+		private int consecutiveFailures;
+		private int consecutiveEjections;
+		private volatile long ejectedUntil;
+		
+		Provider(ServiceProperties serviceProperties, BoundServiceBeanInstance<?> boundInstance) {
+			this.serviceProperties = serviceProperties;
+			this.boundInstance = boundInstance;
+			this.bean = boundInstance.get();
+			this.target = ReflectionUtil.delegatingInvocationHandler(bean);
+		}
+		
+		@Override
+		public int getOutstandingRequests() {
+			return outstandingRequests.get();
+		}
+		
+		@Override
+		public double getLatencyEwmaMillis() {
+			return latencyEwmaMillis;
+		}
+		
+		@Override
+		public ServiceProperties getServiceProperties() {
+			return serviceProperties;
+		}
+		
+		BoundServiceBeanInstance<?> getBoundInstance() {
+			return boundInstance;
+		}
+		
+		boolean isEjected(long now) {
+			return now < ejectedUntil;
+		}
+		
+		/*
+		 * A provider that recently returned from ejection only receives a gradually
+		 * increasing share of the invocations.
+		 */
+		boolean isAvailable(long now) {
+			if (isEjected(now)) {
+				return false;
+			}
+			long timeSinceReadmission = now - ejectedUntil;
+			if (timeSinceReadmission >= WARMUP_MILLIS) {
+				return true;
+			}
+			return ThreadLocalRandom.current().nextLong(WARMUP_MILLIS) < timeSinceReadmission;
+		}
+		
+		/*
+		 * Only providers that have completed warmup count as available when 
+		 * deciding whether another provider might be ejected.
+		 */
+		boolean isEjectable(long now) {
+			return now - ejectedUntil >= WARMUP_MILLIS;
+		}
+		
+		synchronized void recordLatency(double latencyMillis) {
+			this.latencyEwmaMillis = latencySamples == 0 ? latencyMillis : EWMA_WEIGHT * latencyMillis + (1 - EWMA_WEIGHT) * latencyEwmaMillis;
+			this.latencySamples++;
+			this.consecutiveFailures = 0;
+			if (isEjectable(System.currentTimeMillis())) {
+				this.consecutiveEjections = 0;
+			}
+		}
+		
+		/**
+		 * @return true if this provider should be ejected
+		 */
+		synchronized boolean recordFailure() {
+			this.consecutiveFailures++;
+			return consecutiveFailures >= CONSECUTIVE_FAILURES_BEFORE_EJECTION;
+		}
+		
+		synchronized long eject(long now) {
+			long ejectionMillis = Math.min(BASE_EJECTION_MILLIS << Math.min(consecutiveEjections, 16), MAX_EJECTION_MILLIS);
+			this.consecutiveEjections++;
+			this.consecutiveFailures = 0;
+			// Start over with fresh latency statistics when re-added
+			this.latencySamples = 0;
+			this.latencyEwmaMillis = 0;
+			this.ejectedUntil = now + ejectionMillis;
+			return ejectionMillis;
+		}
+		
+		void release() {
+			boundInstance.release();
+		}
+		
+		@Override
+		public String toString() {
+			return "Provider[" + serviceProperties + "]";
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.avanza.astrix.core.util.ReflectionUtil;
+
+/**
+ * Built-in {@link LoadBalancingPolicy} implementations. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public final class LoadBalancingPolicies {
+	
+	public static final String LEAST_OUTSTANDING_REQUESTS = "leastOutstandingRequests";
+	public static final String EWMA_LATENCY = "ewmaLatency";
+	public static final String POWER_OF_TWO_CHOICES = "powerOfTwoChoices";
+	
+	private LoadBalancingPolicies() {
+	}
+	
+	/**
+	 * Selects the provider with the fewest outstanding requests. Ties are broken randomly.
+	 * 
+	 * @return
+	 */
+	public static LoadBalancingPolicy leastOutstandingRequests() {
+		return new LeastOutstandingRequests();
+	}
+	
+	/**
+	 * Selects the provider with the lowest expected latency, estimated as the latency EWMA multiplied by 
+	 * the number of outstanding requests (plus one). Providers without latency samples are preferred, 
+	 * which ensures that new providers are probed. Ties are broken randomly.
+	 * 
+	 * @return
+	 */
+	public static LoadBalancingPolicy ewmaLatency() {
+		return new EwmaLatency();
+	}
+	
+	/**
+	 * Picks two providers at random and selects the one with the fewest outstanding requests, using the
+	 * latency EWMA to break ties. Nearly as effective as least outstanding requests, but avoids that all 
+	 * clients pile onto the same lightly loaded provider based on stale information.
+	 * 
+	 * @return
+	 */
+	public static LoadBalancingPolicy powerOfTwoChoices() {
+		return new PowerOfTwoChoices();
+	}
+	
+	/**
+	 * Creates a policy given its name, either one of the built-in policies or the name of a class
+	 * implementing {@link LoadBalancingPolicy} with a public no-argument constructor.
+	 * 
+	 * @param name
+	 * @return
+	 * @throws IllegalArgumentException if no policy could be created for the given name
+	 */
+	public static LoadBalancingPolicy create(String name) {
+		switch (name) {
+		case LEAST_OUTSTANDING_REQUESTS:
+			return leastOutstandingRequests();
+		case EWMA_LATENCY:
+			return ewmaLatency();
+		case POWER_OF_TWO_CHOICES:
+			return powerOfTwoChoices();
+		}
+		Class<?> policyType;
+		try {
+			policyType = ReflectionUtil.classForName(name);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Unknown load balancing policy: " + name, e);
+		}
+		if (!LoadBalancingPolicy.class.isAssignableFrom(policyType)) {
+			throw new IllegalArgumentException("Load balancing policy must implement " + LoadBalancingPolicy.class.getName() + ": " + name);
+		}
+		try {
+			return (LoadBalancingPolicy) ReflectionUtil.newInstance(policyType);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Failed to create load balancing policy: " + name, e);
+		}
+	}
+	
+	private static final class LeastOutstandingRequests implements LoadBalancingPolicy {
+		@Override
+		public <P extends ServiceProviderStatistics> P select(List<P> candidates) {
+			int offset = ThreadLocalRandom.current().nextInt(candidates.size());
+			P result = null;
+			for (int i = 0; i < candidates.size(); i++) {
+				P candidate = candidates.get((offset + i) % candidates.size());
+				if (result == null || candidate.getOutstandingRequests() < result.getOutstandingRequests()) {
+					result = candidate;
+				}
+			}
+			return result;
+		}
+		
+		@Override
+		public String toString() {
+			return LEAST_OUTSTANDING_REQUESTS;
+		}
+	}
+	
+	private static final class EwmaLatency implements LoadBalancingPolicy {
+		@Override
+		public <P extends ServiceProviderStatistics> P select(List<P> candidates) {
+			int offset = ThreadLocalRandom.current().nextInt(candidates.size());
+			P result = null;
+			double lowestCost = Double.MAX_VALUE;
+			for (int i = 0; i < candidates.size(); i++) {
+				P candidate = candidates.get((offset + i) % candidates.size());
+				double cost = candidate.getLatencyEwmaMillis() * (candidate.getOutstandingRequests() + 1);
+				if (result == null || cost < lowestCost) {
+					result = candidate;
+					lowestCost = cost;
+				}
+			}
+			return result;
+		}
+		
+		@Override
+		public String toString() {
+			return EWMA_LATENCY;
+		}
+	}
+	
+	private static final class PowerOfTwoChoices implements LoadBalancingPolicy {
+		@Override
+		public <P extends ServiceProviderStatistics> P select(List<P> candidates) {
+			if (candidates.size() == 1) {
+				return candidates.get(0);
+			}
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = random.nextInt(candidates.size());
+			int second = random.nextInt(candidates.size() - 1);
+			if (second >= first) {
+				second++;
+			}
+			P a = candidates.get(first);
+			P b = candidates.get(second);
+			if (a.getOutstandingRequests() != b.getOutstandingRequests()) {
+				return a.getOutstandingRequests() < b.getOutstandingRequests() ? a : b;
+			}
+			return a.getLatencyEwmaMillis() <= b.getLatencyEwmaMillis() ? a : b;
+		}
+		
+		@Override
+		public String toString() {
+			return POWER_OF_TWO_CHOICES;
+		}
+	}
+
+}
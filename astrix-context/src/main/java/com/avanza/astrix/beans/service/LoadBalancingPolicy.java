@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.service;
+
+import java.util.List;
+
+/**
+ * Strategy used to select the provider of a load balanced service bean to use for a 
+ * given invocation, see {@link LoadBalancingPolicies} for the built-in policies. <p>
+ * 
+ * Implementations must be thread-safe. Custom policies are configured by class name,
+ * hence they must provide a public no-argument constructor.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public interface LoadBalancingPolicy {
+	
+	/**
+	 * Selects a provider for an invocation.
+	 * 
+	 * @param candidates the providers currently accepting invocations, never empty
+	 * @return the selected provider
+	 */
+	<P extends ServiceProviderStatistics> P select(List<P> candidates);
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.service;
+
+import java.util.List;
+
+/**
+ * {@link ServiceDiscovery} that is able to discover all providers of a given service, which
+ * allows a service bean to distribute invocations among several providers, see 
+ * {@link com.avanza.astrix.beans.factory.AstrixBeanSettings#LOAD_BALANCING_POLICY}. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public interface MultiProviderServiceDiscovery extends ServiceDiscovery {
+	
+	/**
+	 * Discovers all providers of the service available to this consumer.
+	 * 
+	 * @return the {@link ServiceProperties} of each provider, or an empty list if no provider is available
+	 */
+	List<ServiceProperties> runAll();
+	
+}
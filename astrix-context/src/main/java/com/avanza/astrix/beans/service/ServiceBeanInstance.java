@@ -18,6 +18,9 @@ package com.avanza.astrix.beans.service;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -30,7 +33,11 @@ import org.slf4j.LoggerFactory;
 
 import com.avanza.astrix.beans.core.AstrixSettings;
 import com.avanza.astrix.beans.factory.AstrixBeanKey;
+import com.avanza.astrix.beans.factory.AstrixBeanSettings;
 import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.DynamicStringProperty;
+import com.avanza.astrix.core.AstrixCacheStatistics;
+import com.avanza.astrix.core.CachingAstrixBean;
 import com.avanza.astrix.core.IllegalServiceMetadataException;
 import com.avanza.astrix.core.ServiceUnavailableException;
 import com.avanza.astrix.core.util.ReflectionUtil;
@@ -41,7 +48,7 @@ import com.avanza.astrix.core.util.ReflectionUtil;
  *
  * @param <T>
  */
-public class ServiceBeanInstance<T> implements StatefulAstrixBean, InvocationHandler {
+public class ServiceBeanInstance<T> implements StatefulAstrixBean, CachingAstrixBean, InvocationHandler {
 	
 	private static final Logger log = LoggerFactory.getLogger(ServiceBeanInstance.class);
 
@@ -67,6 +74,9 @@ public class ServiceBeanInstance<T> implements StatefulAstrixBean, InvocationHan
 	
 	private volatile ServiceProperties currentProperties;
 	private volatile BeanState currentState;
+	private final DynamicStringProperty loadBalancingPolicy;
+	private String resolvedPolicyName = "";
+	private LoadBalancingPolicy resolvedPolicy;
 
 	private ServiceBeanInstance(ServiceDefinition<T> serviceDefinition, 
 								AstrixBeanKey<T> beanKey, 
@@ -77,6 +87,7 @@ public class ServiceBeanInstance<T> implements StatefulAstrixBean, InvocationHan
 		this.serviceDefinition = Objects.requireNonNull(serviceDefinition);
 		this.beanKey = Objects.requireNonNull(beanKey);
 		this.serviceComponents = Objects.requireNonNull(serviceComponents);
+		this.loadBalancingPolicy = AstrixBeanSettings.LOAD_BALANCING_POLICY.getFor(beanKey, config);
 		this.currentState = new Unbound();
 		log.info(String.format("Start managing service bean. currentState=%s bean=%s astrixBeanId=%s", currentState.name(), beanKey, id));
 	}
@@ -92,6 +103,11 @@ public class ServiceBeanInstance<T> implements StatefulAstrixBean, InvocationHan
 	public void renewLease() {
 		beanStateLock.lock();
 		try {
+			LoadBalancingPolicy policy = getLoadBalancingPolicy();
+			if (policy != null) {
+				bindAll(((MultiProviderServiceDiscovery) serviceDiscovery).runAll(), policy);
+				return;
+			}
 			ServiceProperties serviceProperties = serviceDiscovery.run();
 			if (serviceHasChanged(serviceProperties)) {
 				bind(serviceProperties);
@@ -115,6 +131,18 @@ public class ServiceBeanInstance<T> implements StatefulAstrixBean, InvocationHan
 			if (isBound()) {
 				return;
 			}
+			LoadBalancingPolicy policy = getLoadBalancingPolicy();
+			if (policy != null) {
+				List<ServiceProperties> providers = ((MultiProviderServiceDiscovery) serviceDiscovery).runAll();
+				if (providers.isEmpty()) {
+					log.info(String.format(
+						"Failed to discover any service provider using %s. bean=%s astrixBeanId=%s", 
+							serviceDiscovery.description(), getBeanKey(), id));
+					return;
+				}
+				bindAll(providers, policy);
+				return;
+			}
 			ServiceProperties serviceProperties = serviceDiscovery.run();
 			if (serviceProperties == null) {
 				log.info(String.format(
@@ -140,6 +168,41 @@ public class ServiceBeanInstance<T> implements StatefulAstrixBean, InvocationHan
 		this.currentState.bindTo(serviceProperties);
 	}
 	
+	/**
+	 * Attempts to bind this bean to all given providers and distribute invocations among them, 
+	 * see {@link AstrixBeanSettings#LOAD_BALANCING_POLICY}.
+	 */
+	private void bindAll(List<ServiceProperties> providers, LoadBalancingPolicy policy) {
+		this.currentState.bindToAll(providers, policy);
+	}
+	
+	/*
+	 * Returns the configured load balancing policy, or null if this bean should be bound
+	 * to a single provider. The policy is only created when the configured name changes, 
+	 * and an invalid name falls back to single provider binding. Must be invoked while 
+	 * holding the beanStateLock.
+	 */
+	private LoadBalancingPolicy getLoadBalancingPolicy() {
+		if (!(serviceDiscovery instanceof MultiProviderServiceDiscovery)) {
+			return null;
+		}
+		String policyName = loadBalancingPolicy.get();
+		if (policyName.equals(resolvedPolicyName)) {
+			return resolvedPolicy;
+		}
+		resolvedPolicyName = policyName;
+		resolvedPolicy = null;
+		if (!policyName.isEmpty()) {
+			try {
+				resolvedPolicy = LoadBalancingPolicies.create(policyName);
+			} catch (IllegalArgumentException e) {
+				log.warn(String.format("Invalid load balancing policy, falling back to single provider binding. bean=%s astrixBeanId=%s policy=%s", 
+										getBeanKey(), id, policyName), e);
+			}
+		}
+		return resolvedPolicy;
+	}
+	
 	void destroy() {
 		log.info("Destroying service bean. bean={} astrixBeanId={}", getBeanKey(), id);
 		beanStateLock.lock();
@@ -192,11 +255,21 @@ public class ServiceBeanInstance<T> implements StatefulAstrixBean, InvocationHan
 	public AstrixBeanKey<T> getBeanKey() {
 		return beanKey;
 	}
+	
+	@Override
+	public void invalidateCache() {
+		this.currentState.invalidateCache();
+	}
+	
+	@Override
+	public AstrixCacheStatistics getCacheStatistics() {
+		return this.currentState.getCacheStatistics();
+	}
 
 	@Override
 	public Object invoke(Object proxy, Method method, Object[] args)
 			throws Throwable {
-		if (method.getDeclaringClass().equals(StatefulAstrixBean.class)) {
+		if (method.getDeclaringClass().equals(StatefulAstrixBean.class) || method.getDeclaringClass().equals(CachingAstrixBean.class)) {
 			try {
 				return method.invoke(this, args);
 			} catch (InvocationTargetException e) {
@@ -236,6 +309,20 @@ public class ServiceBeanInstance<T> implements StatefulAstrixBean, InvocationHan
 			}
 		}
 
+		protected void bindToAll(List<ServiceProperties> providers, LoadBalancingPolicy policy) {
+			LoadBalanced loadBalanced = new LoadBalanced(policy);
+			loadBalanced.update(providers);
+			if (loadBalanced.hasProviders()) {
+				setState(loadBalanced);
+				// Ensures that the bean is rebound if load balancing is disabled
+				currentProperties = null;
+			} else if (loadBalanced.illegalServiceMetadataMessage != null) {
+				setState(new IllegalServiceMetadataState(loadBalanced.illegalServiceMetadataMessage));
+			} else {
+				transitionToUnboundState();
+			}
+		}
+
 		protected final void transitionToUnboundState() {
 			if (currentState.getClass().equals(Unbound.class)) {
 				return;
@@ -262,25 +349,54 @@ public class ServiceBeanInstance<T> implements StatefulAstrixBean, InvocationHan
 		
 		protected abstract void releaseInstance();
 		
+		protected void invalidateCache() {
+		}
+		
+		protected AstrixCacheStatistics getCacheStatistics() {
+			return AstrixCacheStatistics.empty();
+		}
+		
 	}
 	
 	private class Bound extends BeanState {
 
 		private final BoundServiceBeanInstance<T> serviceBeanInstance;
+		/*
+		 * Service components typically bind to a dynamic proxy (for instance a RemotingProxy), in 
+		 * which case invocations are dispatched directly to the InvocationHandler of the bound 
+		 * proxy, i.e without any reflective method invocation.
+		 */
+		private final InvocationHandler target;
 		
 		public Bound(BoundServiceBeanInstance<T> bean) {
 			this.serviceBeanInstance = bean;
+			this.target = ReflectionUtil.delegatingInvocationHandler(bean.get());
 		}
 
 		@Override
 		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-			return ReflectionUtil.invokeMethod(method, serviceBeanInstance.get(), args);
+			return target.invoke(proxy, method, args);
 		}
 		
 		@Override
 		protected void releaseInstance() {
 			serviceBeanInstance.release();
 		}
+		
+		@Override
+		protected void invalidateCache() {
+			if (serviceBeanInstance.get() instanceof CachingAstrixBean) {
+				CachingAstrixBean.class.cast(serviceBeanInstance.get()).invalidateCache();
+			}
+		}
+		
+		@Override
+		protected AstrixCacheStatistics getCacheStatistics() {
+			if (serviceBeanInstance.get() instanceof CachingAstrixBean) {
+				return CachingAstrixBean.class.cast(serviceBeanInstance.get()).getCacheStatistics();
+			}
+			return AstrixCacheStatistics.empty();
+		}
 
 		@Override
 		protected String name() {
@@ -288,6 +404,103 @@ public class ServiceBeanInstance<T> implements StatefulAstrixBean, InvocationHan
 		}
 	}
 	
+	private class LoadBalanced extends BeanState {
+		
+		private final LoadBalancer loadBalancer;
+		private String illegalServiceMetadataMessage;
+		
+		public LoadBalanced(LoadBalancingPolicy policy) {
+			this.loadBalancer = new LoadBalancer(beanKey, policy);
+		}
+		
+		@Override
+		protected void bindToAll(List<ServiceProperties> providers, LoadBalancingPolicy policy) {
+			loadBalancer.setPolicy(policy);
+			update(providers);
+			if (!hasProviders()) {
+				transitionToUnboundState();
+			}
+		}
+		
+		/*
+		 * Binds newly discovered providers and releases providers that are no longer
+		 * registered. Providers that are still registered keep their statistics.
+		 */
+		private void update(List<ServiceProperties> providers) {
+			Map<ServiceProperties, LoadBalancer.Provider> currentProviders = loadBalancer.getProvidersByProperties();
+			List<LoadBalancer.Provider> result = new ArrayList<>(providers.size());
+			for (ServiceProperties serviceProperties : providers) {
+				LoadBalancer.Provider provider = currentProviders.remove(serviceProperties);
+				if (provider == null) {
+					provider = bindProvider(serviceProperties);
+				}
+				if (provider != null) {
+					result.add(provider);
+				}
+			}
+			loadBalancer.setProviders(result);
+			for (LoadBalancer.Provider removedProvider : currentProviders.values()) {
+				log.info(String.format("Service provider no longer available. bean=%s provider=%s", beanKey, removedProvider.getServiceProperties()));
+				removedProvider.release();
+			}
+		}
+		
+		private LoadBalancer.Provider bindProvider(ServiceProperties serviceProperties) {
+			try {
+				ServiceComponent serviceComponent = getServiceComponent(serviceProperties);
+				if (!serviceComponent.canBindType(beanKey.getBeanType())) {
+					throw new UnsupportedTargetTypeException(serviceComponent.getName(), beanKey.getBeanType());
+				}
+				return new LoadBalancer.Provider(serviceProperties, serviceComponent.bind(serviceDefinition, serviceProperties));
+			} catch (IllegalServiceMetadataException e) {
+				illegalServiceMetadataMessage = e.getMessage();
+				log.warn(String.format("Illegal service metadata for service provider. bean=%s provider=%s message=%s", beanKey, serviceProperties, e.getMessage()));
+			} catch (Exception e) {
+				log.warn(String.format("Failed to bind service provider. bean=%s provider=%s", beanKey, serviceProperties), e);
+			}
+			return null;
+		}
+		
+		private boolean hasProviders() {
+			return !loadBalancer.getProviders().isEmpty();
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			return loadBalancer.invoke(proxy, method, args);
+		}
+		
+		@Override
+		protected void releaseInstance() {
+			loadBalancer.releaseProviders();
+		}
+		
+		@Override
+		protected void invalidateCache() {
+			for (LoadBalancer.Provider provider : loadBalancer.getProviders()) {
+				if (provider.getBoundInstance().get() instanceof CachingAstrixBean) {
+					CachingAstrixBean.class.cast(provider.getBoundInstance().get()).invalidateCache();
+				}
+			}
+		}
+		
+		@Override
+		protected AstrixCacheStatistics getCacheStatistics() {
+			AstrixCacheStatistics result = AstrixCacheStatistics.empty();
+			for (LoadBalancer.Provider provider : loadBalancer.getProviders()) {
+				if (provider.getBoundInstance().get() instanceof CachingAstrixBean) {
+					result = result.add(CachingAstrixBean.class.cast(provider.getBoundInstance().get()).getCacheStatistics());
+				}
+			}
+			return result;
+		}
+		
+		@Override
+		protected String name() {
+			return "LoadBalanced";
+		}
+	}
+	
 	private class Unbound extends BeanState {
 
 		@Override
@@ -15,6 +15,7 @@
  */
 package com.avanza.astrix.beans.service;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Objects;
 
@@ -24,6 +25,8 @@ import com.avanza.astrix.beans.factory.DynamicFactoryBean;
 import com.avanza.astrix.beans.factory.FactoryBean;
 import com.avanza.astrix.beans.factory.StandardFactoryBean;
 import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.core.AstrixCached;
+import com.avanza.astrix.core.CachingAstrixBean;
 
 /**
  * 
@@ -58,10 +61,22 @@ public class ServiceFactory<T> implements DynamicFactoryBean<T> {
 		leaseManager.startManageLease(serviceBeanInstance);
 		return beanKey.getBeanType().cast(
 				Proxy.newProxyInstance(beanKey.getBeanType().getClassLoader(), 
-									   new Class[]{beanKey.getBeanType(), StatefulAstrixBean.class}, 
+									   getProxiedInterfaces(beanKey.getBeanType()), 
 									   serviceBeanInstance));
 	}
 	
+	/*
+	 * Only beans with cached service methods are exposed as CachingAstrixBean
+	 */
+	private static Class<?>[] getProxiedInterfaces(Class<?> beanType) {
+		for (Method method : beanType.getMethods()) {
+			if (method.isAnnotationPresent(AstrixCached.class)) {
+				return new Class[]{beanType, StatefulAstrixBean.class, CachingAstrixBean.class};
+			}
+		}
+		return new Class[]{beanType, StatefulAstrixBean.class};
+	}
+	
 	@Override
 	public Class<T> getType() {
 		return serviceDefinition.getServiceType();
@@ -35,6 +35,7 @@ import com.avanza.astrix.beans.factory.AstrixBeanPostProcessor;
 import com.avanza.astrix.beans.factory.AstrixBeanSettings.BooleanBeanSetting;
 import com.avanza.astrix.beans.factory.AstrixBeanSettings.IntBeanSetting;
 import com.avanza.astrix.beans.factory.AstrixBeanSettings.LongBeanSetting;
+import com.avanza.astrix.beans.factory.AstrixBeanSettings.StringBeanSetting;
 import com.avanza.astrix.beans.factory.AstrixBeans;
 import com.avanza.astrix.beans.factory.AstrixFactoryBeanRegistry;
 import com.avanza.astrix.beans.factory.SimpleAstrixFactoryBeanRegistry;
@@ -353,4 +354,8 @@ public class AstrixConfigurer {
 		set(beanSetting.nameFor(beanKey), value);
 	}
 
+	public void set(StringBeanSetting beanSetting, AstrixBeanKey<?> beanKey, String value) {
+		set(beanSetting.nameFor(beanKey), value);
+	}
+
 }
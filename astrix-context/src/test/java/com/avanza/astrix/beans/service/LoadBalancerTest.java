@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.service;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.avanza.astrix.beans.factory.AstrixBeanKey;
+import com.avanza.astrix.core.AstrixInvocationTracker;
+import com.avanza.astrix.core.AstrixInvocationTracking;
+import com.avanza.astrix.core.ServiceUnavailableException;
+
+public class LoadBalancerTest {
+
+	private final LoadBalancer loadBalancer = new LoadBalancer(AstrixBeanKey.create(Ping.class), LoadBalancingPolicies.leastOutstandingRequests());
+
+	@Test
+	public void slowProvidersAreEjected() throws Exception {
+		LoadBalancer.Provider fast = createProvider("fast", new ConstantPing("fast", 0));
+		LoadBalancer.Provider slow = createProvider("slow", new ConstantPing("slow", 2 * (long) LoadBalancer.MIN_SLOW_PROVIDER_LATENCY_MILLIS));
+		loadBalancer.setProviders(Arrays.asList(fast, slow));
+		Ping ping = createProxy(Ping.class);
+
+		for (int i = 0; i < 10 * LoadBalancer.MIN_LATENCY_SAMPLES && !slow.isEjected(System.currentTimeMillis()); i++) {
+			ping.ping();
+		}
+
+		assertTrue("Expected slow provider to be ejected", slow.isEjected(System.currentTimeMillis()));
+		assertFalse(fast.isEjected(System.currentTimeMillis()));
+		for (int i = 0; i < 20; i++) {
+			assertEquals("fast", ping.ping());
+		}
+	}
+
+	@Test
+	public void ejectedProvidersAreGraduallyReadmittedDuringWarmup() throws Exception {
+		LoadBalancer.Provider provider = createProvider("provider", new ConstantPing("provider", 0));
+		long now = System.currentTimeMillis();
+
+		assertEquals(LoadBalancer.BASE_EJECTION_MILLIS, provider.eject(now));
+		long readmitted = now + LoadBalancer.BASE_EJECTION_MILLIS;
+
+		assertTrue(provider.isEjected(readmitted - 1));
+		assertFalse(provider.isAvailable(readmitted - 1));
+		assertFalse(provider.isEjected(readmitted));
+		assertFalse("Provider in warmup should not be ejectable", provider.isEjectable(readmitted + LoadBalancer.WARMUP_MILLIS / 2));
+		assertEquals(0, countAvailable(provider, readmitted, 1000));
+		assertThat(countAvailable(provider, readmitted + LoadBalancer.WARMUP_MILLIS / 2, 1000), allOf(greaterThan(350), lessThan(650)));
+		assertEquals(1000, countAvailable(provider, readmitted + LoadBalancer.WARMUP_MILLIS, 1000));
+		assertTrue(provider.isEjectable(readmitted + LoadBalancer.WARMUP_MILLIS));
+
+		assertEquals("Ejection time should double for consecutive ejections", 2 * LoadBalancer.BASE_EJECTION_MILLIS, provider.eject(readmitted));
+	}
+
+	@Test
+	public void asyncInvocationIsOutstandingUntilReportedComplete() throws Exception {
+		AsyncPing asyncPing = new AsyncPing();
+		LoadBalancer.Provider provider = createProvider("provider", asyncPing);
+		loadBalancer.setProviders(Collections.singletonList(provider));
+		Ping ping = createProxy(Ping.class);
+
+		assertEquals("pending", ping.ping());
+		assertEquals(1, provider.getOutstandingRequests());
+
+		Thread.sleep(20);
+		asyncPing.invocations.poll().complete(null);
+		assertEquals(0, provider.getOutstandingRequests());
+		assertThat(provider.getLatencyEwmaMillis(), greaterThanOrEqualTo(20d));
+	}
+
+	@Test
+	public void abandonedAsyncInvocationIsNoLongerOutstanding() throws Exception {
+		AsyncPing asyncPing = new AsyncPing();
+		LoadBalancer.Provider provider = createProvider("provider", asyncPing);
+		loadBalancer.setProviders(Collections.singletonList(provider));
+		Ping ping = createProxy(Ping.class);
+
+		ping.ping();
+		assertEquals(1, provider.getOutstandingRequests());
+
+		AstrixInvocationTracker.Invocation invocation = asyncPing.invocations.poll();
+		invocation.abandon();
+		invocation.complete(null);
+		assertEquals(0, provider.getOutstandingRequests());
+		assertEquals("Abandoned invocations should not be sampled", 0, provider.getLatencyEwmaMillis(), 0);
+	}
+
+	@Test
+	public void failedAsyncInvocationsEjectsProvider() throws Exception {
+		AsyncPing failingPing = new AsyncPing();
+		LoadBalancer.Provider failing = createProvider("failing", failingPing);
+		LoadBalancer.Provider other = createProvider("other", new ConstantPing("other", 0));
+		loadBalancer.setProviders(Arrays.asList(failing, other));
+		loadBalancer.setPolicy(new FirstCandidate());
+		Ping ping = createProxy(Ping.class);
+
+		for (int i = 0; i < LoadBalancer.CONSECUTIVE_FAILURES_BEFORE_EJECTION; i++) {
+			assertEquals("pending", ping.ping());
+			failingPing.invocations.poll().complete(new ServiceUnavailableException("Overloaded"));
+		}
+		assertTrue("Expected failing provider to be ejected", failing.isEjected(System.currentTimeMillis()));
+		assertEquals(0, failing.getOutstandingRequests());
+		assertEquals("other", ping.ping());
+	}
+
+	@Test
+	public void invocationIsCompleteWhenProviderReturnsUnlessTrackerIsClaimed() throws Exception {
+		final AtomicReference<AstrixInvocationTracker> claimedByOtherProvider = new AtomicReference<>();
+		LoadBalancer.Provider provider = createProvider("provider", new Ping() {
+			@Override
+			public String ping() {
+				claimedByOtherProvider.set(AstrixInvocationTracking.claim(new Object()));
+				return "pong";
+			}
+		});
+		loadBalancer.setProviders(Collections.singletonList(provider));
+		Ping ping = createProxy(Ping.class);
+
+		assertEquals("pong", ping.ping());
+		assertNull("Tracker should only be claimed by the invoked provider", claimedByOtherProvider.get());
+		assertEquals(0, provider.getOutstandingRequests());
+		assertNull("Tracker should be unbound when provider returns", AstrixInvocationTracking.claim(provider.getBoundInstance().get()));
+	}
+
+	private static int countAvailable(LoadBalancer.Provider provider, long now, int samples) {
+		int available = 0;
+		for (int i = 0; i < samples; i++) {
+			if (provider.isAvailable(now)) {
+				available++;
+			}
+		}
+		return available;
+	}
+
+	private <T> T createProxy(Class<T> type) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, loadBalancer));
+	}
+
+	private static LoadBalancer.Provider createProvider(String id, final Object target) {
+		Map<String, String> properties = new HashMap<>();
+		properties.put("id", id);
+		return new LoadBalancer.Provider(new ServiceProperties(properties), new BoundServiceBeanInstance<Object>() {
+			@Override
+			public Object get() {
+				return target;
+			}
+			@Override
+			public void release() {
+			}
+		});
+	}
+
+	public static class FirstCandidate implements LoadBalancingPolicy {
+		@Override
+		public <P extends ServiceProviderStatistics> P select(List<P> candidates) {
+			return candidates.get(0);
+		}
+	}
+
+	public interface Ping {
+		String ping();
+	}
+
+	public static class ConstantPing implements Ping {
+
+		private final String response;
+		private final long latencyMillis;
+
+		public ConstantPing(String response, long latencyMillis) {
+			this.response = response;
+			this.latencyMillis = latencyMillis;
+		}
+
+		@Override
+		public String ping() {
+			if (latencyMillis > 0) {
+				try {
+					Thread.sleep(latencyMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return response;
+		}
+	}
+
+	/*
+	 * Reports the outcome of each invocation asynchronously, like a remoting proxy
+	 */
+	public static class AsyncPing implements Ping {
+
+		private final Queue<AstrixInvocationTracker.Invocation> invocations = new ConcurrentLinkedQueue<>();
+
+		@Override
+		public String ping() {
+			invocations.add(AstrixInvocationTracking.claim(this).start());
+			return "pending";
+		}
+	}
+
+}
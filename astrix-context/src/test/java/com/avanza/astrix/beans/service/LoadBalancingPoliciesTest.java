@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class LoadBalancingPoliciesTest {
+
+	@Test
+	public void leastOutstandingRequestsSelectsProviderWithFewestOutstandingRequests() throws Exception {
+		FakeProvider busy = new FakeProvider(3, 1);
+		FakeProvider idle = new FakeProvider(1, 5);
+		List<FakeProvider> candidates = Arrays.asList(busy, idle, new FakeProvider(2, 1));
+
+		for (int i = 0; i < 20; i++) {
+			assertSame(idle, LoadBalancingPolicies.leastOutstandingRequests().select(candidates));
+		}
+	}
+
+	@Test
+	public void leastOutstandingRequestsBreaksTiesRandomly() throws Exception {
+		List<FakeProvider> candidates = Arrays.asList(new FakeProvider(0, 1), new FakeProvider(0, 1));
+
+		assertEquals(new HashSet<>(candidates), selectRepeatedly(LoadBalancingPolicies.leastOutstandingRequests(), candidates, 100));
+	}
+
+	@Test
+	public void ewmaLatencySelectsProviderWithLowestExpectedLatency() throws Exception {
+		FakeProvider fastButBusy = new FakeProvider(4, 2); // cost 10
+		FakeProvider slowButIdle = new FakeProvider(0, 8); // cost 8
+		List<FakeProvider> candidates = Arrays.asList(fastButBusy, slowButIdle, new FakeProvider(1, 5));
+
+		for (int i = 0; i < 20; i++) {
+			assertSame(slowButIdle, LoadBalancingPolicies.ewmaLatency().select(candidates));
+		}
+	}
+
+	@Test
+	public void ewmaLatencyPrefersProvidersWithoutLatencySamples() throws Exception {
+		FakeProvider newProvider = new FakeProvider(0, 0);
+		List<FakeProvider> candidates = Arrays.asList(new FakeProvider(0, 1), newProvider);
+
+		assertSame(newProvider, LoadBalancingPolicies.ewmaLatency().select(candidates));
+	}
+
+	@Test
+	public void powerOfTwoChoicesSelectsLeastLoadedOfTwoProviders() throws Exception {
+		FakeProvider busy = new FakeProvider(5, 1);
+		FakeProvider idle = new FakeProvider(0, 1);
+		FakeProvider fastest = new FakeProvider(5, 0.5);
+
+		for (int i = 0; i < 20; i++) {
+			assertSame(idle, LoadBalancingPolicies.powerOfTwoChoices().select(Arrays.asList(busy, idle)));
+			assertSame("Latency should break ties", fastest, LoadBalancingPolicies.powerOfTwoChoices().select(Arrays.asList(busy, fastest)));
+		}
+	}
+
+	@Test
+	public void powerOfTwoChoicesNeverSelectsMostLoadedProvider() throws Exception {
+		FakeProvider mostLoaded = new FakeProvider(10, 1);
+		List<FakeProvider> candidates = Arrays.asList(new FakeProvider(0, 1), new FakeProvider(1, 1), mostLoaded);
+
+		Set<FakeProvider> selected = selectRepeatedly(LoadBalancingPolicies.powerOfTwoChoices(), candidates, 100);
+		assertEquals(2, selected.size());
+		assertFalse(selected.contains(mostLoaded));
+	}
+
+	@Test
+	public void createsBuiltInPoliciesByName() throws Exception {
+		assertEquals(LoadBalancingPolicies.LEAST_OUTSTANDING_REQUESTS, LoadBalancingPolicies.create(LoadBalancingPolicies.LEAST_OUTSTANDING_REQUESTS).toString());
+		assertEquals(LoadBalancingPolicies.EWMA_LATENCY, LoadBalancingPolicies.create(LoadBalancingPolicies.EWMA_LATENCY).toString());
+		assertEquals(LoadBalancingPolicies.POWER_OF_TWO_CHOICES, LoadBalancingPolicies.create(LoadBalancingPolicies.POWER_OF_TWO_CHOICES).toString());
+	}
+
+	@Test
+	public void createsCustomPolicyByClassName() throws Exception {
+		assertEquals(LoadBalancerTest.FirstCandidate.class, LoadBalancingPolicies.create(LoadBalancerTest.FirstCandidate.class.getName()).getClass());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsIllegalArgumentExceptionForUnknownPolicy() throws Exception {
+		LoadBalancingPolicies.create("com.avanza.astrix.NoSuchPolicy");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsIllegalArgumentExceptionForClassNotImplementingLoadBalancingPolicy() throws Exception {
+		LoadBalancingPolicies.create(String.class.getName());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsIllegalArgumentExceptionWhenPolicyCantBeInstantiated() throws Exception {
+		LoadBalancingPolicies.create(LoadBalancingPolicy.class.getName());
+	}
+
+	private static Set<FakeProvider> selectRepeatedly(LoadBalancingPolicy policy, List<FakeProvider> candidates, int selections) {
+		Set<FakeProvider> result = new HashSet<>();
+		for (int i = 0; i < selections; i++) {
+			result.add(policy.select(candidates));
+		}
+		return result;
+	}
+
+	private static class FakeProvider implements ServiceProviderStatistics {
+
+		private final int outstandingRequests;
+		private final double latencyEwmaMillis;
+
+		public FakeProvider(int outstandingRequests, double latencyEwmaMillis) {
+			this.outstandingRequests = outstandingRequests;
+			this.latencyEwmaMillis = latencyEwmaMillis;
+		}
+
+		@Override
+		public int getOutstandingRequests() {
+			return outstandingRequests;
+		}
+
+		@Override
+		public double getLatencyEwmaMillis() {
+			return latencyEwmaMillis;
+		}
+
+		@Override
+		public ServiceProperties getServiceProperties() {
+			return new ServiceProperties();
+		}
+	}
+
+}
@@ -23,14 +23,23 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.hamcrest.CoreMatchers;
+import org.hamcrest.Description;
 import org.junit.After;
 import org.junit.Test;
 
 import com.avanza.astrix.beans.core.AstrixSettings;
+import com.avanza.astrix.beans.factory.AstrixBeanKey;
+import com.avanza.astrix.beans.factory.AstrixBeanSettings;
 import com.avanza.astrix.beans.registry.AstrixServiceRegistryLibraryProvider;
 import com.avanza.astrix.beans.registry.AstrixServiceRegistryServiceProvider;
 import com.avanza.astrix.beans.registry.InMemoryServiceRegistry;
+import com.avanza.astrix.beans.registry.ServiceRegistryExporterClient;
 import com.avanza.astrix.context.AstrixApplicationContext;
 import com.avanza.astrix.context.AstrixContext;
 import com.avanza.astrix.context.TestAstrixConfigurer;
@@ -161,6 +170,136 @@ public class ServiceBeanInstanceTest {
 	}
 	
 	
+	@Test
+	public void loadBalancedBeanDistributesInvocationsAmongAllRegisteredProviders() throws Exception {
+		InMemoryServiceRegistry serviceRegistry = new InMemoryServiceRegistry();
+		registerProvider(serviceRegistry, "instance-1", new ConstantPing("provider-1"));
+		registerProvider(serviceRegistry, "instance-2", new ConstantPing("provider-2"));
+		
+		TestAstrixConfigurer astrixConfigurer = new TestAstrixConfigurer();
+		astrixConfigurer.registerApiProvider(PingApiProvider.class);
+		astrixConfigurer.set(AstrixSettings.SERVICE_LEASE_RENEW_INTERVAL, 5);
+		astrixConfigurer.set(AstrixSettings.SERVICE_REGISTRY_URI, serviceRegistry.getServiceUri());
+		astrixConfigurer.set(AstrixBeanSettings.LOAD_BALANCING_POLICY.nameFor(AstrixBeanKey.create(Ping.class)), LoadBalancingPolicies.LEAST_OUTSTANDING_REQUESTS);
+		astrixContext = astrixConfigurer.configure();
+		
+		final Ping ping = astrixContext.getBean(Ping.class);
+		assertEquals(new HashSet<>(Arrays.asList("provider-1", "provider-2")), invokeRepeatedly(ping, 100));
+		
+		registerProvider(serviceRegistry, "instance-3", new ConstantPing("provider-3"));
+		new Poller(1000, 5).check(new Probe() {
+			private Set<String> lastResponses;
+			@Override
+			public boolean isSatisfied() {
+				return lastResponses != null && lastResponses.contains("provider-3");
+			}
+			@Override
+			public void sample() {
+				lastResponses = invokeRepeatedly(ping, 100);
+			}
+			@Override
+			public void describeFailureTo(Description description) {
+				description.appendText("Expected newly registered provider to be invoked, responses: " + lastResponses);
+			}
+		});
+	}
+	
+	@Test
+	public void failingProvidersAreEjectedFromLoadBalancedBean() throws Exception {
+		InMemoryServiceRegistry serviceRegistry = new InMemoryServiceRegistry();
+		registerProvider(serviceRegistry, "instance-1", new Ping() {
+			@Override
+			public String ping(String msg) {
+				throw new ServiceUnavailableException("Overloaded");
+			}
+		});
+		registerProvider(serviceRegistry, "instance-2", new ConstantPing("provider-2"));
+		
+		TestAstrixConfigurer astrixConfigurer = new TestAstrixConfigurer();
+		astrixConfigurer.registerApiProvider(PingApiProvider.class);
+		astrixConfigurer.set(AstrixSettings.SERVICE_REGISTRY_URI, serviceRegistry.getServiceUri());
+		astrixConfigurer.set(AstrixBeanSettings.LOAD_BALANCING_POLICY.nameFor(AstrixBeanKey.create(Ping.class)), LoadBalancingPolicies.POWER_OF_TWO_CHOICES);
+		astrixContext = astrixConfigurer.configure();
+		
+		Ping ping = astrixContext.getBean(Ping.class);
+		int failures = 0;
+		for (int i = 0; i < 100; i++) {
+			try {
+				assertEquals("provider-2", ping.ping("foo"));
+			} catch (ServiceUnavailableException e) {
+				failures++;
+			}
+		}
+		assertEquals("Failing provider should be ejected after consecutive failures", LoadBalancer.CONSECUTIVE_FAILURES_BEFORE_EJECTION, failures);
+	}
+	
+	@Test
+	public void providersNoLongerRegisteredAreReleasedFromLoadBalancedBeanOnLeaseRenewal() throws Exception {
+		InMemoryServiceRegistry serviceRegistry = new InMemoryServiceRegistry();
+		registerProvider(serviceRegistry, "instance-1", new ConstantPing("provider-1"));
+		registerProvider(serviceRegistry, "instance-2", new ConstantPing("provider-2"));
+
+		TestAstrixConfigurer astrixConfigurer = new TestAstrixConfigurer();
+		astrixConfigurer.registerApiProvider(PingApiProvider.class);
+		astrixConfigurer.set(AstrixSettings.SERVICE_LEASE_RENEW_INTERVAL, 5);
+		astrixConfigurer.set(AstrixSettings.SERVICE_REGISTRY_URI, serviceRegistry.getServiceUri());
+		astrixConfigurer.set(AstrixBeanSettings.LOAD_BALANCING_POLICY.nameFor(AstrixBeanKey.create(Ping.class)), LoadBalancingPolicies.LEAST_OUTSTANDING_REQUESTS);
+		AstrixApplicationContext astrixContext = (AstrixApplicationContext) astrixConfigurer.configure();
+		this.astrixContext = astrixContext;
+		DirectComponent directComponent = astrixContext.getInstance(ServiceComponents.class).getComponent(DirectComponent.class);
+
+		final Ping ping = astrixContext.getBean(Ping.class);
+		assertEquals(new HashSet<>(Arrays.asList("provider-1", "provider-2")), invokeRepeatedly(ping, 100));
+		assertEquals("Expected service registry and both providers to be bound", 3, directComponent.getBoundServices().size());
+
+		serviceRegistry.clear();
+		registerProvider(serviceRegistry, "instance-3", new ConstantPing("provider-3"));
+		new Poller(1000, 5).check(new Probe() {
+			private Set<String> lastResponses;
+			@Override
+			public boolean isSatisfied() {
+				return lastResponses != null && lastResponses.equals(Collections.singleton("provider-3"));
+			}
+			@Override
+			public void sample() {
+				lastResponses = invokeRepeatedly(ping, 100);
+			}
+			@Override
+			public void describeFailureTo(Description description) {
+				description.appendText("Expected only the registered provider to be invoked, responses: " + lastResponses);
+			}
+		});
+		assertEquals("Providers no longer registered should be released", 2, directComponent.getBoundServices().size());
+	}
+
+	@Test
+	public void invalidLoadBalancingPolicyFallsBackToSingleProviderBinding() throws Exception {
+		InMemoryServiceRegistry serviceRegistry = new InMemoryServiceRegistry();
+		registerProvider(serviceRegistry, "instance-1", new ConstantPing("provider-1"));
+
+		TestAstrixConfigurer astrixConfigurer = new TestAstrixConfigurer();
+		astrixConfigurer.registerApiProvider(PingApiProvider.class);
+		astrixConfigurer.set(AstrixSettings.SERVICE_REGISTRY_URI, serviceRegistry.getServiceUri());
+		astrixConfigurer.set(AstrixBeanSettings.LOAD_BALANCING_POLICY.nameFor(AstrixBeanKey.create(Ping.class)), "com.avanza.astrix.NoSuchPolicy");
+		astrixContext = astrixConfigurer.configure();
+
+		Ping ping = astrixContext.getBean(Ping.class);
+		assertEquals("provider-1", ping.ping("foo"));
+	}
+
+	private static void registerProvider(InMemoryServiceRegistry serviceRegistry, String applicationInstanceId, Ping provider) {
+		ServiceRegistryExporterClient exporter = new ServiceRegistryExporterClient(serviceRegistry, "default", applicationInstanceId);
+		exporter.register(Ping.class, DirectComponent.registerAndGetProperties(Ping.class, provider), 60_000);
+	}
+	
+	private static Set<String> invokeRepeatedly(Ping ping, int invocations) {
+		Set<String> responses = new HashSet<>();
+		for (int i = 0; i < invocations; i++) {
+			responses.add(ping.ping("foo"));
+		}
+		return responses;
+	}
+	
 	private void assertEventually(Probe serviceInvocationException)
 			throws InterruptedException {
 		new Poller(100, 1).check(serviceInvocationException);
@@ -285,6 +424,18 @@ public class ServiceBeanInstanceTest {
 		String ping(String msg);
 	}
 	
+	public static class ConstantPing implements Ping {
+		private final String response;
+		
+		public ConstantPing(String response) {
+			this.response = response;
+		}
+		
+		public String ping(String msg) {
+			return response;
+		}
+	}
+	
 	public static class PingImpl implements Ping {
 		public String ping(String msg) {
 			return msg;
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+/**
+ * A {@link RemoteResultReducer} that allows each result to be reduced as soon as 
+ * it's unmarshalled, without first collecting all results into a list. 
+ * Hence the unmarshalled result from each partition can be garbage collected 
+ * as soon as it's accumulated. <p>
+ * 
+ * Astrix remoting uses {@link #newAccumulator(int)} when the reducer implements this interface. 
+ * {@link #reduce(java.util.List)} is typically implemented by feeding all results to a new accumulator. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public interface AccumulatingRemoteResultReducer<T> extends RemoteResultReducer<T> {
+	
+	/**
+	 * Creates a new accumulator for a single service invocation.
+	 * 
+	 * @param expectedResultCount - the number of results that will be accumulated
+	 * @return
+	 */
+	RemoteResultAccumulator<T> newAccumulator(int expectedResultCount);
+
+}
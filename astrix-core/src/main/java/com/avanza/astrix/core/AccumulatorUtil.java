@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+/**
+ * Utilities for implementing {@link RemoteResultAccumulator}'s.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public final class AccumulatorUtil {
+	
+	private AccumulatorUtil() {
+	}
+	
+	/**
+	 * Estimates the total number of elements in all results from a broadcasted or partitioned 
+	 * invocation, assuming all results are roughly the same size as the first one. Used to presize
+	 * the collection holding the reduced result.
+	 * 
+	 * @param firstResultSize - the number of elements in the first result
+	 * @param expectedResultCount - the number of results expected, see {@link AccumulatingRemoteResultReducer#newAccumulator(int)}
+	 * @return
+	 */
+	public static int estimateTotalSize(int firstResultSize, int expectedResultCount) {
+		return (int) Math.min(Integer.MAX_VALUE - 8, (long) firstResultSize * Math.max(1, expectedResultCount));
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Links a single-key service method to its bulk counterpart. Concurrent invocations of the 
+ * single-key method are collected on the client side and dispatched as a single invocation
+ * of the bulk method, whose result is fanned back out to the individual invocations. <p>
+ * 
+ * The single-key method must accept exactly one argument, the key. The bulk method must accept 
+ * exactly one argument, a {@link java.util.Collection} of keys annotated with {@link AstrixPartitionedRouting},
+ * and return a {@link java.util.Map} from key to the result of the single-key method. Typically
+ * {@link com.avanza.astrix.core.util.GenericAstrixMapReducer} is used to reduce the results from all partitions. Keys missing in
+ * the returned map yields a null result. <p>
+ * 
+ * Example:
+ * <pre>
+ * interface PositionService {
+ *     &#64;AstrixBatchable(bulkMethod = "getPositions")
+ *     Position getPosition(Long id);
+ *     
+ *     Map&lt;Long, Position&gt; getPositions(&#64;AstrixPartitionedRouting(reducer = GenericAstrixMapReducer.class) List&lt;Long&gt; ids);
+ * }
+ * </pre>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+@Target(value={ElementType.METHOD})
+@Retention(value=RetentionPolicy.RUNTIME)
+@Documented
+public @interface AstrixBatchable {
+	
+	/**
+	 * Name of the bulk service method.
+	 */
+	String bulkMethod();
+	
+	/**
+	 * The time (in microseconds) invocations are collected before the bulk method is invoked. 
+	 */
+	long windowMicros() default 1000;
+	
+	/**
+	 * The maximum number of keys in a single invocation of the bulk method. The bulk method is 
+	 * invoked as soon as this number of invocations are collected.
+	 */
+	int maxBatchSize() default 100;
+	
+}
@@ -32,4 +32,39 @@ public @interface AstrixBroadcast {
 	@SuppressWarnings("rawtypes")
 	Class<? extends RemoteResultReducer> reducer() default DefaultAstrixRemoteResultReducer.class;
 	
+	/**
+	 * Enables partial results. When set to a positive value the invocation completes when all partitions 
+	 * have responded, or when the given number of milliseconds has passed, whichever comes first. The 
+	 * results received so far are then reduced using {@link PartialRemoteResultReducer#reducePartial(java.util.List, java.util.Set)}, 
+	 * hence the reducer must implement {@link PartialRemoteResultReducer}. Partitions that are unavailable
+	 * are treated as missing as well. <p>
+	 * 
+	 * Defaults to 0, i.e. wait for all partitions. 
+	 */
+	long partialResultDeadlineMillis() default 0;
+	
+	/**
+	 * Enables quorum completion. When set to a positive value the invocation completes as soon as the given 
+	 * number of partitions have responded, and requests to the remaining partitions are unsubscribed. The 
+	 * received results are reduced using {@link RemoteResultReducer#reduce(java.util.List)}. <p>
+	 * 
+	 * See {@link #shortCircuit()} for completing based on the received results. <p>
+	 * 
+	 * Defaults to 0, i.e. wait for all partitions.
+	 */
+	int quorum() default 0;
+	
+	/**
+	 * Enables short circuiting. When true each response is accumulated as soon as it's received, and the invocation 
+	 * completes as soon as the accumulator reports that it's complete. Requests to the remaining partitions are then 
+	 * unsubscribed. The reducer must implement {@link ShortCircuitingRemoteResultReducer}. <p>
+	 * 
+	 * Note that a short circuiting broadcast is sent as one routed request per partition rather than as a single
+	 * broadcast request. <p>
+	 * 
+	 * Defaults to false, i.e. a {@link ShortCircuitingRemoteResultReducer} is used as any other reducer and the 
+	 * invocation waits for all partitions.
+	 */
+	boolean shortCircuit() default false;
+	
 }
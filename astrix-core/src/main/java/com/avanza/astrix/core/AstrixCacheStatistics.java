@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+/**
+ * Immutable snapshot of the statistics of a client side cache, see {@link AstrixCached}. 
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public final class AstrixCacheStatistics {
+	
+	private static final AstrixCacheStatistics EMPTY = new AstrixCacheStatistics(0, 0, 0);
+	
+	private final long hitCount;
+	private final long missCount;
+	private final int size;
+	
+	public AstrixCacheStatistics(long hitCount, long missCount, int size) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.size = size;
+	}
+	
+	public static AstrixCacheStatistics empty() {
+		return EMPTY;
+	}
+	
+	public long getHitCount() {
+		return hitCount;
+	}
+	
+	public long getMissCount() {
+		return missCount;
+	}
+	
+	/**
+	 * The number of cached results, including results that have expired but not yet been evicted.
+	 * 
+	 * @return
+	 */
+	public int getSize() {
+		return size;
+	}
+	
+	public AstrixCacheStatistics add(AstrixCacheStatistics other) {
+		return new AstrixCacheStatistics(hitCount + other.hitCount, missCount + other.missCount, size + other.size);
+	}
+	
+	@Override
+	public String toString() {
+		return "AstrixCacheStatistics [hitCount=" + hitCount + ", missCount=" + missCount + ", size=" + size + "]";
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables client side caching of the results of an idempotent service method. <p>
+ * 
+ * Results are cached per method and (marshalled) arguments. Entries expire after 
+ * the given time to live, and the least recently used entry is evicted when the cache 
+ * is full. Only successful invocations are cached. <p>
+ * 
+ * The cache might be disabled, and the ttl and size overridden, for a given bean 
+ * using the "remoting.cache*" bean settings. See {@link CachingAstrixBean} for
+ * invalidation and hit/miss statistics. 
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+@Target(value={ElementType.METHOD})
+@Retention(value=RetentionPolicy.RUNTIME)
+@Documented
+public @interface AstrixCached {
+	
+	/**
+	 * Time to live in milliseconds for a cached result.
+	 */
+	long ttlMillis() default 60_000;
+	
+	/**
+	 * The maximum number of results cached for the service method.
+	 */
+	int maxSize() default 1000;
+	
+}
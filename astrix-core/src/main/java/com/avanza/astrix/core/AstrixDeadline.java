@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the deadline of the service invocation currently executed by the calling thread. <p>
+ * 
+ * Clients carry the remaining time budget of each invocation, i.e. the time left until the 
+ * client gives up waiting for the response, in the invocation request. The server rejects 
+ * invocations whose deadline has passed before the service is invoked. While the service is 
+ * invoked the deadline is bound to the invoking thread, allowing service implementations to 
+ * skip or abort work the client already gave up on. Remote invocations made from within a
+ * service invocation never get a larger time budget than the remaining budget of the 
+ * current invocation. <p>
+ * 
+ * The deadline is only available on the thread that invokes the service.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public final class AstrixDeadline {
+	
+	/**
+	 * Remaining time returned when no deadline is bound to the current thread.
+	 */
+	public static final long UNBOUNDED = Long.MAX_VALUE;
+	
+	private static final ThreadLocal<Long> deadlineNanos = new ThreadLocal<>();
+	
+	private AstrixDeadline() {
+	}
+	
+	/**
+	 * @return the remaining time (in milliseconds) until the deadline of the current invocation, or 
+	 * 		   {@link #UNBOUNDED} if no deadline is bound to the current thread.
+	 */
+	public static long getRemainingMillis() {
+		Long deadline = deadlineNanos.get();
+		if (deadline == null) {
+			return UNBOUNDED;
+		}
+		return getRemainingMillis(deadline);
+	}
+	
+	/**
+	 * Returns the remaining time until the given deadline, rounded up to whole milliseconds. Hence
+	 * 0 is only returned when the deadline has passed.
+	 * 
+	 * @param deadline the deadline, in terms of {@link System#nanoTime()}
+	 * @return the remaining time (in milliseconds) until the deadline 
+	 */
+	public static long getRemainingMillis(long deadline) {
+		long remainingNanos = deadline - System.nanoTime();
+		if (remainingNanos <= 0) {
+			return 0;
+		}
+		long oneMilli = TimeUnit.MILLISECONDS.toNanos(1);
+		return (remainingNanos + oneMilli - 1) / oneMilli;
+	}
+	
+	/**
+	 * @return true if the deadline of the current invocation has passed
+	 */
+	public static boolean isExpired() {
+		Long deadline = deadlineNanos.get();
+		return deadline != null && System.nanoTime() - deadline >= 0;
+	}
+	
+	/**
+	 * Binds a deadline, in terms of {@link System#nanoTime()}, to the current thread. Used by the
+	 * framework, service implementations should never invoke this method.
+	 * 
+	 * @param deadline
+	 */
+	public static void bind(long deadline) {
+		deadlineNanos.set(deadline);
+	}
+	
+	/**
+	 * Removes the deadline bound to the current thread. Used by the framework, service 
+	 * implementations should never invoke this method.
+	 */
+	public static void clear() {
+		deadlineNanos.remove();
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+/**
+ * Receives the outcome of invocations on a service provider whose result is available 
+ * asynchronously, see {@link AstrixInvocationTracking}. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public interface AstrixInvocationTracker {
+	
+	/**
+	 * Invoked when an invocation is sent to the provider. Each invocation must be either completed
+	 * or abandoned.
+	 * 
+	 * @return
+	 */
+	Invocation start();
+	
+	interface Invocation {
+		
+		/**
+		 * Invoked when the result of the invocation is available. Only the first call to complete
+		 * or abandon has any effect.
+		 * 
+		 * @param exception the exception thrown by the invocation, or null if it was successful
+		 */
+		void complete(Throwable exception);
+		
+		/**
+		 * Invoked when the caller is no longer interested in the result of the invocation,
+		 * i.e. the outcome will never be known.
+		 */
+		void abandon();
+	}
+
+}
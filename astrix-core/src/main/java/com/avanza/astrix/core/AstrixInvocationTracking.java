@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+/**
+ * Allows the component that invokes a service provider to report when an invocation with an 
+ * asynchronous result completes. <p>
+ * 
+ * The caller (typically client side load balancing) binds a {@link AstrixInvocationTracker} for 
+ * the provider to the calling thread while invoking it. A provider that returns an asynchronous 
+ * result, for instance a remoting proxy returning an Observable or a Future, claims the tracker 
+ * on the calling thread and reports the invocations started by the result to it. If the tracker 
+ * isn't claimed the invocation is considered complete when the provider returns. <p>
+ * 
+ * Used by the framework, service implementations should never use this class.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public final class AstrixInvocationTracking {
+	
+	private static final ThreadLocal<Binding> currentBinding = new ThreadLocal<>();
+	
+	private AstrixInvocationTracking() {
+	}
+	
+	/**
+	 * Binds a tracker for invocations on the given provider to the current thread. The
+	 * returned binding must be unbound when the provider returns.
+	 * 
+	 * @param provider
+	 * @param tracker
+	 * @return
+	 */
+	public static Binding bind(Object provider, AstrixInvocationTracker tracker) {
+		Binding binding = new Binding(provider, tracker, currentBinding.get());
+		currentBinding.set(binding);
+		return binding;
+	}
+	
+	/**
+	 * Claims the tracker bound to the current thread for the given provider, if any. 
+	 * 
+	 * @param provider
+	 * @return the tracker, or null if no unclaimed tracker is bound for the given provider
+	 */
+	public static AstrixInvocationTracker claim(Object provider) {
+		Binding binding = currentBinding.get();
+		if (binding == null || binding.provider != provider || binding.claimed) {
+			return null;
+		}
+		binding.claimed = true;
+		return binding.tracker;
+	}
+	
+	public static final class Binding {
+		
+		private final Object provider;
+		private final AstrixInvocationTracker tracker;
+		private final Binding previous;
+		private boolean claimed = false;
+		
+		private Binding(Object provider, AstrixInvocationTracker tracker, Binding previous) {
+			this.provider = provider;
+			this.tracker = tracker;
+			this.previous = previous;
+		}
+		
+		/**
+		 * Removes this binding from the current thread, restoring the binding that was
+		 * current when this binding was created.
+		 * 
+		 * @return true if the tracker was claimed
+		 */
+		public boolean unbind() {
+			if (previous == null) {
+				currentBinding.remove();
+			} else {
+				currentBinding.set(previous);
+			}
+			return claimed;
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a void service method as one-way, i.e. fire-and-forget. <p>
+ * 
+ * The client returns as soon as the request is handed over to the transport, without 
+ * waiting for the service to be invoked. The server does not build a response for the 
+ * invocation. Hence exceptions thrown by the service are never propagated to the client, 
+ * they are only logged on the server side. Transport failures are logged on the client 
+ * side, and recorded by the fault tolerance layer of the transport if any. <p>
+ * 
+ * One-way methods are routed as ordinary service methods. They can't be combined with 
+ * {@link AstrixBroadcast}, {@link AstrixPagedBroadcast} or {@link AstrixPartitionedRouting}. 
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+@Target(value={ElementType.METHOD})
+@Retention(value=RetentionPolicy.RUNTIME)
+@Documented
+public @interface AstrixOneWay {
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of the result from a partition of an {@link AstrixPagedBroadcast} service method. <p>
+ * 
+ * The continuation token is opaque to Astrix, it's passed back to the same partition in the
+ * {@link AstrixPageRequest} for the next page. A null continuation token indicates that this is
+ * the last page. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public final class AstrixPage<T> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	private List<T> elements = new ArrayList<>();
+	private String continuationToken;
+	
+	public AstrixPage() {
+	}
+	
+	public AstrixPage(List<T> elements, String continuationToken) {
+		this.elements = elements;
+		this.continuationToken = continuationToken;
+	}
+	
+	public static <T> AstrixPage<T> of(List<T> elements, String continuationToken) {
+		return new AstrixPage<>(elements, continuationToken);
+	}
+	
+	public static <T> AstrixPage<T> lastPage(List<T> elements) {
+		return new AstrixPage<>(elements, null);
+	}
+	
+	public List<T> getElements() {
+		return elements;
+	}
+	
+	public void setElements(List<T> elements) {
+		this.elements = elements;
+	}
+	
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+	
+	public void setContinuationToken(String continuationToken) {
+		this.continuationToken = continuationToken;
+	}
+	
+	public boolean hasNextPage() {
+		return continuationToken != null;
+	}
+
+	@Override
+	public String toString() {
+		return "AstrixPage [elements=" + elements + ", continuationToken=" + continuationToken + "]";
+	}
+	
+}
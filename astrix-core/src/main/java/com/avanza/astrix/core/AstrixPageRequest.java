@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.io.Serializable;
+
+/**
+ * Requests a page from a partition of an {@link AstrixPagedBroadcast} service method. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public final class AstrixPageRequest implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private int pageSize;
+	private String continuationToken;
+	
+	public AstrixPageRequest() {
+	}
+	
+	public AstrixPageRequest(int pageSize, String continuationToken) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("pageSize must be positive, was: " + pageSize);
+		}
+		this.pageSize = pageSize;
+		this.continuationToken = continuationToken;
+	}
+	
+	public static AstrixPageRequest firstPage(int pageSize) {
+		return new AstrixPageRequest(pageSize, null);
+	}
+	
+	/**
+	 * Creates a request for the page following the given page, using the same page size as this request.
+	 * 
+	 * @param page
+	 * @return
+	 */
+	public AstrixPageRequest next(AstrixPage<?> page) {
+		return new AstrixPageRequest(pageSize, page.getContinuationToken());
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * @return the continuation token returned with the previous page, or null if the first page is requested.
+	 */
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+
+	public void setContinuationToken(String continuationToken) {
+		this.continuationToken = continuationToken;
+	}
+	
+	@Override
+	public String toString() {
+		return "AstrixPageRequest [pageSize=" + pageSize + ", continuationToken=" + continuationToken + "]";
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method as a paged broadcast. A paged broadcast is sent to every partition, but 
+ * instead of returning its entire result each partition returns a bounded {@link AstrixPage} 
+ * holding a continuation token used to fetch the next page from the same partition. <p>
+ * 
+ * The service method must return an {@link AstrixPage} and accept exactly one {@link AstrixPageRequest}
+ * argument, which holds the page size and the continuation token from the previous page returned by 
+ * the partition (null for the first page). <p>
+ * 
+ * On the client side the combined result of all partitions might be consumed incrementally, by 
+ * declaring an {@link java.util.Iterator} (or {@link CloseableIterator}) or an rx.Observable of the 
+ * element type as return type of the method. The partitions are then consumed one at a time, but the
+ * first page is requested in parallel from up to {@link #prefetchedPartitions()} partitions, starting 
+ * with the partition currently consumed. Following pages are fetched from a partition on demand. The Iterator 
+ * stops fetching pages when closed, and the Observable when unsubscribed. A continuation token 
+ * passed in the {@link AstrixPageRequest} resumes the iteration from the page it identifies. <p>
+ * 
+ * When the {@link AstrixPage} return type is used on the client side a single page from one
+ * partition is returned. The continuation token of the returned page identifies both the partition 
+ * and the continuation token returned by that partition, and is passed in the {@link AstrixPageRequest} 
+ * for the following page. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+@Target(value={ElementType.METHOD})
+@Retention(value=RetentionPolicy.RUNTIME)
+@Documented
+public @interface AstrixPagedBroadcast {
+	
+	/**
+	 * Page size used when the client invokes the service without an {@link AstrixPageRequest}.
+	 */
+	int defaultPageSize() default 1000;
+	
+	/**
+	 * The number of partitions the first page is requested from in parallel when the result is consumed 
+	 * using an Iterator or an Observable of the element type.
+	 */
+	int prefetchedPartitions() default 4;
+	
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Assigns a priority class to a remote service method, or to all methods in a service api
+ * when used on the type. An annotation on a method takes precedence over an annotation on
+ * the type. Methods without a priority class belong to {@link AstrixPriorityClass#NORMAL}. <p>
+ * 
+ * Each priority class is dispatched using a separate lane, both on the client side (where
+ * supported by the transport) and on the server side, so that a burst of low priority 
+ * invocations does not add queueing latency to high priority invocations. The capacity 
+ * of each lane is configured per transport.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+@Target(value={ElementType.METHOD, ElementType.TYPE})
+@Retention(value=RetentionPolicy.RUNTIME)
+@Documented
+public @interface AstrixPriority {
+	
+	AstrixPriorityClass value();
+	
+}
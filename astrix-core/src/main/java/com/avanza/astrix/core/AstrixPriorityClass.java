@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+/**
+ * Priority classes for remote service invocations, see {@link AstrixPriority}. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public enum AstrixPriorityClass {
+	
+	/**
+	 * Latency sensitive invocations, for instance interactive user requests.
+	 */
+	HIGH,
+	
+	/**
+	 * Default priority class of all invocations.
+	 */
+	NORMAL,
+	
+	/**
+	 * Throughput oriented invocations that tolerate queueing, for instance batch jobs or reporting.
+	 */
+	LOW;
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+/**
+ * Implemented by Astrix beans that cache results of {@link AstrixCached} service methods. Only 
+ * beans with at least one cached service method implement this interface, hence check with 
+ * instanceof before casting. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public interface CachingAstrixBean {
+	
+	/**
+	 * Removes all cached results.
+	 */
+	void invalidateCache();
+	
+	/**
+	 * Hit/miss statistics for all cached service methods since the bean was bound.
+	 * 
+	 * @return
+	 */
+	AstrixCacheStatistics getCacheStatistics();
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An {@link Iterator} holding resources that should be released when the iterator is no longer
+ * used, for instance the iterator returned from an {@link AstrixPagedBroadcast} service method. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+	
+	/**
+	 * Releases the resources held by this iterator. No more elements are returned
+	 * by this iterator once closed.
+	 */
+	@Override
+	void close();
+
+}
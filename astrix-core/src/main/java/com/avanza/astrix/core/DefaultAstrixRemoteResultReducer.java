@@ -16,24 +16,51 @@
 package com.avanza.astrix.core;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  *
  */
-public class DefaultAstrixRemoteResultReducer<T> implements RemoteResultReducer<List<T>> {
+public class DefaultAstrixRemoteResultReducer<T> implements AccumulatingRemoteResultReducer<List<T>>, PartialRemoteResultReducer<List<T>> {
 
 	@Override
 	public List<T> reduce(List<AstrixRemoteResult<List<T>>> results) {
-		List<T> result = new ArrayList<>();
+		RemoteResultAccumulator<List<T>> accumulator = newAccumulator(results.size());
 		for (AstrixRemoteResult<List<T>> remoteResult : results) {
-			Collection<T> r = remoteResult.getResult();
-			if (result != null) {
+			accumulator.accumulate(remoteResult);
+		}
+		return accumulator.finish();
+	}
+	
+	/**
+	 * Returns the elements from all partitions that responded, ignoring the missing partitions.
+	 */
+	@Override
+	public List<T> reducePartial(List<AstrixRemoteResult<List<T>>> results, Set<Integer> missingPartitions) {
+		return reduce(results);
+	}
+	
+	@Override
+	public RemoteResultAccumulator<List<T>> newAccumulator(final int expectedResultCount) {
+		return new RemoteResultAccumulator<List<T>>() {
+			private List<T> result;
+			@Override
+			public void accumulate(AstrixRemoteResult<List<T>> remoteResult) {
+				List<T> r = remoteResult.getResult();
+				if (r == null) {
+					return;
+				}
+				if (result == null) {
+					result = new ArrayList<>(AccumulatorUtil.estimateTotalSize(r.size(), expectedResultCount));
+				}
 				result.addAll(r);
 			}
-		}
-		return result;
+			@Override
+			public List<T> finish() {
+				return result != null ? result : new ArrayList<T>();
+			}
+		};
 	}
 
 }
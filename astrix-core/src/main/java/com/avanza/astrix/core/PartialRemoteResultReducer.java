@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link RemoteResultReducer} that is able to reduce the results from a broadcasted service
+ * invocation where some partitions didn't respond, see {@link AstrixBroadcast#partialResultDeadlineMillis()}. <p>
+ * 
+ * {@link #reduce(List)} is still used when all partitions respond before the deadline. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public interface PartialRemoteResultReducer<T> extends RemoteResultReducer<T> {
+	
+	/**
+	 * Reduces the results received before the deadline into a (degraded) single result.
+	 * 
+	 * @param results - the results from the partitions that responded before the deadline
+	 * @param missingPartitions - the ids of the partitions that didn't respond before the deadline, 
+	 *        or that were unavailable. Never empty.
+	 * @return
+	 */
+	T reducePartial(List<AstrixRemoteResult<T>> results, Set<Integer> missingPartitions);
+
+}
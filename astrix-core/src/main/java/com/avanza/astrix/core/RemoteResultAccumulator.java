@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+/**
+ * Accumulates the results from a broadcasted or partitioned service invocation. 
+ * A new accumulator is created for each invocation, see {@link AccumulatingRemoteResultReducer}. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public interface RemoteResultAccumulator<T> {
+	
+	/**
+	 * Accumulates the result from a single partition (or cluster member). Invoked
+	 * once for each result, as soon as it's unmarshalled. 
+	 * 
+	 * @param result
+	 */
+	void accumulate(AstrixRemoteResult<T> result);
+	
+	/**
+	 * Invoked when all results are accumulated.
+	 * 
+	 * @return the reduced result
+	 */
+	T finish();
+
+}
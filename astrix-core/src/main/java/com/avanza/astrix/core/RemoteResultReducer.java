@@ -18,6 +18,11 @@ package com.avanza.astrix.core;
 import java.util.List;
 
 /**
+ * Reduces the results from a broadcasted or partitioned service invocation. <p>
+ * 
+ * A new reducer instance is created for each service invocation, hence implementations might 
+ * hold state, and must provide a public no-argument constructor. <p>
+ * 
  * @author Elias Lindholm (elilin)
  */
 public interface RemoteResultReducer<T> {
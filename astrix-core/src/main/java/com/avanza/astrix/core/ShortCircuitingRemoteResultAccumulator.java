@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+/**
+ * A {@link RemoteResultAccumulator} that is able to tell when the accumulated results
+ * are sufficient to produce the final result, see {@link ShortCircuitingRemoteResultReducer}. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public interface ShortCircuitingRemoteResultAccumulator<T> extends RemoteResultAccumulator<T> {
+	
+	/**
+	 * Invoked after each accumulated result. 
+	 * 
+	 * @return true if no more results are required to produce the final result.
+	 */
+	boolean isComplete();
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+/**
+ * An {@link AccumulatingRemoteResultReducer} that might produce the final result before
+ * all partitions have responded, for instance "find any" or existence checks where the 
+ * first non-empty result is enough. <p>
+ * 
+ * A broadcasted invocation declaring {@link AstrixBroadcast#shortCircuit()} accumulates each response as soon 
+ * as it's received, and completes as soon as the accumulator reports that it's complete. Requests to partitions 
+ * that have not yet responded are unsubscribed at that point. Without shortCircuit the reducer is used as any
+ * other {@link AccumulatingRemoteResultReducer}. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public interface ShortCircuitingRemoteResultReducer<T> extends AccumulatingRemoteResultReducer<T> {
+	
+	@Override
+	ShortCircuitingRemoteResultAccumulator<T> newAccumulator(int expectedResultCount);
+
+}
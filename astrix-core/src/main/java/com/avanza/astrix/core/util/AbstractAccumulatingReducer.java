@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import java.util.List;
+
+import com.avanza.astrix.core.AccumulatingRemoteResultReducer;
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.RemoteResultAccumulator;
+
+/**
+ * Base class for {@link AccumulatingRemoteResultReducer}'s that implements 
+ * {@link #reduce(List)} by feeding all results to a new accumulator. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public abstract class AbstractAccumulatingReducer<T> implements AccumulatingRemoteResultReducer<T> {
+
+	@Override
+	public final T reduce(List<AstrixRemoteResult<T>> results) {
+		RemoteResultAccumulator<T> accumulator = newAccumulator(results.size());
+		for (AstrixRemoteResult<T> result : results) {
+			accumulator.accumulate(result);
+		}
+		return accumulator.finish();
+	}
+
+}
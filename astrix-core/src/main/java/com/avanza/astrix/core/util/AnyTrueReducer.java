@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.ShortCircuitingRemoteResultAccumulator;
+import com.avanza.astrix.core.ShortCircuitingRemoteResultReducer;
+
+/**
+ * Reduces the Boolean results from all partitions using logical or, i.e. returns true if 
+ * any partition returns true. Intended for existence checks, a broadcast declaring 
+ * {@link com.avanza.astrix.core.AstrixBroadcast#shortCircuit()} completes as soon as one 
+ * partition returns true. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public class AnyTrueReducer extends AbstractAccumulatingReducer<Boolean> implements ShortCircuitingRemoteResultReducer<Boolean> {
+
+	@Override
+	public ShortCircuitingRemoteResultAccumulator<Boolean> newAccumulator(int expectedResultCount) {
+		return new ShortCircuitingRemoteResultAccumulator<Boolean>() {
+			private boolean anyTrue = false;
+			@Override
+			public void accumulate(AstrixRemoteResult<Boolean> result) {
+				anyTrue |= Boolean.TRUE.equals(result.getResult());
+			}
+			@Override
+			public boolean isComplete() {
+				return anyTrue;
+			}
+			@Override
+			public Boolean finish() {
+				return anyTrue;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.ShortCircuitingRemoteResultAccumulator;
+import com.avanza.astrix.core.ShortCircuitingRemoteResultReducer;
+
+/**
+ * Returns the first non-null result received from any partition, or null if all partitions
+ * return null. A broadcast declaring {@link com.avanza.astrix.core.AstrixBroadcast#shortCircuit()}
+ * completes as soon as a non-null result is received. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public class FirstNonNullReducer<T> extends AbstractAccumulatingReducer<T> implements ShortCircuitingRemoteResultReducer<T> {
+
+	@Override
+	public ShortCircuitingRemoteResultAccumulator<T> newAccumulator(int expectedResultCount) {
+		return new ShortCircuitingRemoteResultAccumulator<T>() {
+			private T first;
+			@Override
+			public void accumulate(AstrixRemoteResult<T> result) {
+				if (first == null) {
+					first = result.getResult();
+				}
+			}
+			@Override
+			public boolean isComplete() {
+				return first != null;
+			}
+			@Override
+			public T finish() {
+				return first;
+			}
+		};
+	}
+
+}
@@ -18,23 +18,55 @@ package com.avanza.astrix.core.util;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import com.avanza.astrix.core.AccumulatingRemoteResultReducer;
+import com.avanza.astrix.core.AccumulatorUtil;
 import com.avanza.astrix.core.AstrixRemoteResult;
-import com.avanza.astrix.core.RemoteResultReducer;
+import com.avanza.astrix.core.PartialRemoteResultReducer;
+import com.avanza.astrix.core.RemoteResultAccumulator;
 
 /**
  * Reduce {@link Map}s into one {@link Map} containing the union of all input data
  * @author joasah
  */
-public class GenericAstrixMapReducer<K, V> implements RemoteResultReducer<Map<K, V>> {
+public class GenericAstrixMapReducer<K, V> implements AccumulatingRemoteResultReducer<Map<K, V>>, PartialRemoteResultReducer<Map<K, V>> {
 
 	@Override
 	public Map<K, V> reduce(List<AstrixRemoteResult<Map<K, V>>> results) {
-		Map<K, V> map = new HashMap<K, V>();
+		RemoteResultAccumulator<Map<K, V>> accumulator = newAccumulator(results.size());
 		for (AstrixRemoteResult<Map<K, V>> result : results) {
-			map.putAll(result.getResult());
+			accumulator.accumulate(result);
 		}
-		return map;
+		return accumulator.finish();
+	}
+	
+	/**
+	 * Returns the union of the maps from all partitions that responded, ignoring the missing partitions.
+	 */
+	@Override
+	public Map<K, V> reducePartial(List<AstrixRemoteResult<Map<K, V>>> results, Set<Integer> missingPartitions) {
+		return reduce(results);
+	}
+	
+	@Override
+	public RemoteResultAccumulator<Map<K, V>> newAccumulator(final int expectedResultCount) {
+		return new RemoteResultAccumulator<Map<K, V>>() {
+			private Map<K, V> map;
+			@Override
+			public void accumulate(AstrixRemoteResult<Map<K, V>> result) {
+				Map<K, V> partial = result.getResult();
+				if (map == null) {
+					int expectedSize = AccumulatorUtil.estimateTotalSize(partial.size(), expectedResultCount);
+					map = new HashMap<K, V>(expectedSize + expectedSize / 3 + 1);
+				}
+				map.putAll(partial);
+			}
+			@Override
+			public Map<K, V> finish() {
+				return map != null ? map : new HashMap<K, V>();
+			}
+		};
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch used to estimate the number of distinct elements across partitions
+ * without transferring the elements themselves. <p>
+ * 
+ * Each partition offers its local elements to a sketch and returns it. The sketches are then
+ * merged by the {@link HyperLogLogReducer} and the distinct count estimated using 
+ * {@link #cardinality()}. All sketches that are merged must use the same precision. <p>
+ * 
+ * Elements are hashed using their {@link Object#hashCode()}, mixed into 64 bits. The relative 
+ * standard error of the estimate is roughly 1.04/sqrt(2^precision). <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public final class HyperLogLog implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	public static final int DEFAULT_PRECISION = 14;
+	public static final int MIN_PRECISION = 4;
+	public static final int MAX_PRECISION = 18;
+	
+	private int precision;
+	private byte[] registers;
+	
+	public HyperLogLog() {
+		this(DEFAULT_PRECISION);
+	}
+	
+	public HyperLogLog(int precision) {
+		if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+			throw new IllegalArgumentException(String.format("precision must be in range [%s, %s], was: %s", MIN_PRECISION, MAX_PRECISION, precision));
+		}
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+	
+	public void offer(Object element) {
+		if (element == null) {
+			return;
+		}
+		long hash = mix(element.hashCode());
+		int index = (int) (hash >>> (64 - precision));
+		int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+		if (rank > registers[index]) {
+			registers[index] = (byte) rank;
+		}
+	}
+	
+	/**
+	 * Merges the registers of another sketch into this sketch. 
+	 * 
+	 * @param other
+	 */
+	public void merge(HyperLogLog other) {
+		if (other.precision != this.precision) {
+			throw new IllegalArgumentException(String.format("Cannot merge sketches with different precision, this=%s other=%s", this.precision, other.precision));
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+	
+	/**
+	 * Returns the estimated number of distinct elements offered to this sketch (and all sketches merged into it).
+	 * 
+	 * @return
+	 */
+	public long cardinality() {
+		int m = registers.length;
+		double sum = 0;
+		int zeroRegisters = 0;
+		for (byte register : registers) {
+			sum += 1D / (1L << register);
+			if (register == 0) {
+				zeroRegisters++;
+			}
+		}
+		double estimate = alpha(m) * m * m / sum;
+		if (estimate <= 2.5 * m && zeroRegisters > 0) {
+			// Small range correction, use linear counting
+			estimate = m * Math.log((double) m / zeroRegisters);
+		}
+		return Math.round(estimate);
+	}
+	
+	private static double alpha(int m) {
+		switch (m) {
+		case 16:
+			return 0.673;
+		case 32:
+			return 0.697;
+		case 64:
+			return 0.709;
+		default:
+			return 0.7213 / (1 + 1.079 / m);
+		}
+	}
+	
+	/*
+	 * Finalization step of MurmurHash3, spreads the bits of the 32-bit hashCode over
+	 * all 64 bits.
+	 */
+	private static long mix(int hashCode) {
+		long h = hashCode;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	public int getPrecision() {
+		return precision;
+	}
+	
+	/**
+	 * Returns a copy of the registers of this sketch.
+	 * 
+	 * @return
+	 */
+	public byte[] getRegisters() {
+		return Arrays.copyOf(registers, registers.length);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * precision + Arrays.hashCode(registers);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		HyperLogLog other = (HyperLogLog) obj;
+		return precision == other.precision && Arrays.equals(registers, other.registers);
+	}
+	
+}
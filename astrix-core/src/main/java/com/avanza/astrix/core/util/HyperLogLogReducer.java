@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.RemoteResultAccumulator;
+
+/**
+ * Merges the {@link HyperLogLog} sketches returned by each partition into a single
+ * sketch. Use {@link HyperLogLog#cardinality()} on the merged sketch to get the estimated 
+ * distinct count across all partitions. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public class HyperLogLogReducer extends AbstractAccumulatingReducer<HyperLogLog> {
+
+	@Override
+	public RemoteResultAccumulator<HyperLogLog> newAccumulator(int expectedResultCount) {
+		return new RemoteResultAccumulator<HyperLogLog>() {
+			private HyperLogLog merged;
+			@Override
+			public void accumulate(AstrixRemoteResult<HyperLogLog> result) {
+				HyperLogLog sketch = result.getResult();
+				if (sketch == null) {
+					return;
+				}
+				if (merged == null) {
+					// Copy to avoid modifying the sketch returned by the partition
+					merged = new HyperLogLog(sketch.getPrecision());
+				}
+				merged.merge(sketch);
+			}
+			@Override
+			public HyperLogLog finish() {
+				return merged;
+			}
+		};
+	}
+
+}
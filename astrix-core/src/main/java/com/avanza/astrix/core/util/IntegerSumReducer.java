@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.RemoteResultAccumulator;
+
+/**
+ * Sums the Integer values returned by each partition. Partitions returning null are ignored. <p>
+ * 
+ * Can also be used to reduce count queries, where each partition returns its local count. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public class IntegerSumReducer extends AbstractAccumulatingReducer<Integer> {
+
+	@Override
+	public RemoteResultAccumulator<Integer> newAccumulator(int expectedResultCount) {
+		return new RemoteResultAccumulator<Integer>() {
+			private int sum = 0;
+			@Override
+			public void accumulate(AstrixRemoteResult<Integer> result) {
+				Integer value = result.getResult();
+				if (value != null) {
+					sum += value.intValue();
+				}
+			}
+			@Override
+			public Integer finish() {
+				return sum;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.RemoteResultAccumulator;
+
+/**
+ * Sums the Long values returned by each partition. Partitions returning null are ignored. <p>
+ * 
+ * Can also be used to reduce count queries, where each partition returns its local count. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public class LongSumReducer extends AbstractAccumulatingReducer<Long> {
+
+	@Override
+	public RemoteResultAccumulator<Long> newAccumulator(int expectedResultCount) {
+		return new RemoteResultAccumulator<Long>() {
+			private long sum = 0L;
+			@Override
+			public void accumulate(AstrixRemoteResult<Long> result) {
+				Long value = result.getResult();
+				if (value != null) {
+					sum += value.longValue();
+				}
+			}
+			@Override
+			public Long finish() {
+				return sum;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.RemoteResultAccumulator;
+
+/**
+ * Reduces the values returned by each partition into the largest value, according 
+ * to the natural ordering of the values. Partitions returning null are ignored, 
+ * and null is returned if all partitions return null. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public class MaxReducer<T extends Comparable<? super T>> extends AbstractAccumulatingReducer<T> {
+
+	@Override
+	public RemoteResultAccumulator<T> newAccumulator(int expectedResultCount) {
+		return new RemoteResultAccumulator<T>() {
+			private T max;
+			@Override
+			public void accumulate(AstrixRemoteResult<T> result) {
+				T value = result.getResult();
+				if (value != null && (max == null || value.compareTo(max) > 0)) {
+					max = value;
+				}
+			}
+			@Override
+			public T finish() {
+				return max;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import java.util.Comparator;
+
+/**
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class ReducerUtil {
+	
+	@SuppressWarnings("rawtypes")
+	private static final Comparator NATURAL_ORDER = new Comparator<Comparable<Object>>() {
+		@Override
+		public int compare(Comparable<Object> o1, Comparable<Object> o2) {
+			return o1.compareTo(o2);
+		}
+	};
+	
+	private ReducerUtil() {
+	}
+	
+	@SuppressWarnings("unchecked")
+	static <T> Comparator<T> naturalOrder() {
+		return NATURAL_ORDER;
+	}
+
+}
@@ -45,6 +45,53 @@ public class ReflectionUtil {
 		}
 	}
 	
+	/**
+	 * Creates an InvocationHandler that delegates each invocation to the given target. <p>
+	 * 
+	 * If the target is a dynamic proxy, then invocations are dispatched directly to the
+	 * InvocationHandler of the target proxy. That avoids a reflective method invocation, and
+	 * the creation of a new argument array, when stacking proxies on top of each other. <p>
+	 * 
+	 * @param target
+	 * @return
+	 */
+	public static InvocationHandler delegatingInvocationHandler(Object target) {
+		if (Proxy.isProxyClass(target.getClass())) {
+			return new ProxyDelegatingInvocationHandler(target, Proxy.getInvocationHandler(target));
+		}
+		return new ReflectiveInvocationHandler(target);
+	}
+	
+	private static final class ProxyDelegatingInvocationHandler implements InvocationHandler {
+		
+		private final Object targetProxy;
+		private final InvocationHandler targetHandler;
+		
+		public ProxyDelegatingInvocationHandler(Object targetProxy, InvocationHandler targetHandler) {
+			this.targetProxy = targetProxy;
+			this.targetHandler = targetHandler;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			return targetHandler.invoke(targetProxy, method, args);
+		}
+	}
+	
+	private static final class ReflectiveInvocationHandler implements InvocationHandler {
+		
+		private final Object target;
+		
+		public ReflectiveInvocationHandler(Object target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			return invokeMethod(method, target, args);
+		}
+	}
+	
 	public static <T> T newInstance(Class<T> type) {
 		try {
 			return type.newInstance();
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.RemoteResultAccumulator;
+
+/**
+ * Merges the sorted lists returned by each partition into a single sorted list using a 
+ * k-way merge. Each partition must return a list sorted according to the same 
+ * ordering as used by the reducer. <p>
+ * 
+ * The natural ordering of the elements is used by default. Subclass and use the 
+ * {@link #SortedMergeReducer(Comparator)} constructor to merge lists sorted using 
+ * another ordering. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public class SortedMergeReducer<T> extends AbstractAccumulatingReducer<List<T>> {
+	
+	private final Comparator<? super T> comparator;
+	
+	public SortedMergeReducer() {
+		this(ReducerUtil.<T>naturalOrder());
+	}
+	
+	protected SortedMergeReducer(Comparator<? super T> comparator) {
+		this.comparator = comparator;
+	}
+
+	@Override
+	public RemoteResultAccumulator<List<T>> newAccumulator(final int expectedResultCount) {
+		return new RemoteResultAccumulator<List<T>>() {
+			private final List<List<T>> sortedLists = new ArrayList<>(expectedResultCount);
+			private int totalSize = 0;
+			
+			@Override
+			public void accumulate(AstrixRemoteResult<List<T>> result) {
+				List<T> sortedList = result.getResult();
+				if (sortedList != null && !sortedList.isEmpty()) {
+					sortedLists.add(sortedList);
+					totalSize += sortedList.size();
+				}
+			}
+
+			@Override
+			public List<T> finish() {
+				return merge(sortedLists, totalSize);
+			}
+		};
+	}
+	
+	private List<T> merge(List<List<T>> sortedLists, int totalSize) {
+		List<T> result = new ArrayList<>(totalSize);
+		PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()), new Comparator<Cursor<T>>() {
+			@Override
+			public int compare(Cursor<T> o1, Cursor<T> o2) {
+				return comparator.compare(o1.head, o2.head);
+			}
+		});
+		for (List<T> sortedList : sortedLists) {
+			heads.add(new Cursor<>(sortedList));
+		}
+		while (!heads.isEmpty()) {
+			Cursor<T> next = heads.poll();
+			result.add(next.head);
+			if (next.advance()) {
+				heads.add(next);
+			}
+		}
+		return result;
+	}
+	
+	private static final class Cursor<T> {
+		private final List<T> list;
+		private int position = 0;
+		private T head;
+		
+		public Cursor(List<T> list) {
+			this.list = list;
+			this.head = list.get(0);
+		}
+		
+		boolean advance() {
+			position++;
+			if (position < list.size()) {
+				head = list.get(position);
+				return true;
+			}
+			return false;
+		}
+	}
+
+}
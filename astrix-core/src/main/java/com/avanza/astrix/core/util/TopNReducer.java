@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.RemoteResultAccumulator;
+
+/**
+ * Reduces the lists returned by each partition into a list holding the N greatest elements, 
+ * sorted in descending order. Only N elements are retained while accumulating the partition 
+ * results. <p>
+ * 
+ * Astrix creates reducers using the no-argument constructor, hence this class must be 
+ * subclassed to define N (and optionally the ordering used), for instance:
+ * 
+ * <pre>
+ * public class Top10Reducer extends TopNReducer&lt;Integer&gt; {
+ * 	public Top10Reducer() {
+ * 		super(10);
+ * 	}
+ * }
+ * </pre>
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public abstract class TopNReducer<T> extends AbstractAccumulatingReducer<List<T>> {
+	
+	private final int n;
+	private final Comparator<? super T> comparator;
+	
+	/**
+	 * Creates a reducer that retains the N greatest elements according to the natural
+	 * ordering of the elements.
+	 * 
+	 * @param n
+	 */
+	protected TopNReducer(int n) {
+		this(n, ReducerUtil.<T>naturalOrder());
+	}
+	
+	protected TopNReducer(int n, Comparator<? super T> comparator) {
+		if (n < 1) {
+			throw new IllegalArgumentException("n must be positive, was: " + n);
+		}
+		this.n = n;
+		this.comparator = comparator;
+	}
+
+	@Override
+	public RemoteResultAccumulator<List<T>> newAccumulator(int expectedResultCount) {
+		return new RemoteResultAccumulator<List<T>>() {
+			// Min-heap holding the N greatest elements seen so far
+			private final PriorityQueue<T> topN = new PriorityQueue<>(n + 1, comparator);
+			
+			@Override
+			public void accumulate(AstrixRemoteResult<List<T>> result) {
+				List<T> elements = result.getResult();
+				if (elements == null) {
+					return;
+				}
+				for (T element : elements) {
+					if (topN.size() < n) {
+						topN.add(element);
+					} else if (comparator.compare(element, topN.peek()) > 0) {
+						topN.poll();
+						topN.add(element);
+					}
+				}
+			}
+
+			@Override
+			public List<T> finish() {
+				List<T> result = new ArrayList<>(topN);
+				Collections.sort(result, Collections.reverseOrder(comparator));
+				return result;
+			}
+		};
+	}
+
+}
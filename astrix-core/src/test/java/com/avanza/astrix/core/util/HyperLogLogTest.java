@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+
+
+public class HyperLogLogTest {
+
+	@Test
+	public void estimatesDistinctCount() throws Exception {
+		HyperLogLog sketch = new HyperLogLog();
+		for (int i = 0; i < 100_000; i++) {
+			sketch.offer("element-" + i);
+			sketch.offer("element-" + i);
+		}
+		assertWithinRelativeError(100_000, sketch.cardinality(), 0.05);
+	}
+	
+	@Test
+	public void smallCardinalitiesAreEstimatedAccurately() throws Exception {
+		HyperLogLog sketch = new HyperLogLog();
+		for (int i = 0; i < 10; i++) {
+			sketch.offer(i);
+		}
+		assertEquals(10, sketch.cardinality());
+	}
+	
+	@Test
+	public void reducerMergesSketchesFromAllPartitions() throws Exception {
+		HyperLogLog partition1 = new HyperLogLog();
+		HyperLogLog partition2 = new HyperLogLog();
+		for (int i = 0; i < 30_000; i++) {
+			partition1.offer("element-" + i);
+		}
+		for (int i = 20_000; i < 50_000; i++) {
+			partition2.offer("element-" + i);
+		}
+		HyperLogLog merged = new HyperLogLogReducer().reduce(Arrays.asList(
+				AstrixRemoteResult.successful(partition1),
+				AstrixRemoteResult.successful(partition2)));
+		assertWithinRelativeError(50_000, merged.cardinality(), 0.05);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void mergingSketchesWithDifferentPrecisionIsNotAllowed() throws Exception {
+		new HyperLogLog(10).merge(new HyperLogLog(12));
+	}
+
+	private static void assertWithinRelativeError(long expected, long actual, double relativeError) {
+		assertTrue("expected: " + expected + " actual: " + actual, Math.abs(expected - actual) <= expected * relativeError);
+	}
+	
+}
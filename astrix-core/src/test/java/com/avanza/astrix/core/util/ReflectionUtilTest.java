@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+
+public class ReflectionUtilTest {
+	
+	@Test
+	public void delegatingInvocationHandler_dispatchesDirectlyToInvocationHandlerOfTargetProxy() throws Throwable {
+		final Object[] invokedProxy = new Object[1];
+		Ping target = ReflectionUtil.newProxy(Ping.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				invokedProxy[0] = proxy;
+				return "proxied-" + args[0];
+			}
+		});
+		InvocationHandler handler = ReflectionUtil.delegatingInvocationHandler(target);
+		
+		assertEquals("proxied-foo", handler.invoke(null, Ping.class.getMethod("ping", String.class), new Object[] { "foo" }));
+		assertSame(target, invokedProxy[0]);
+	}
+	
+	@Test
+	public void delegatingInvocationHandler_invokesNonProxyTargetsReflectively() throws Throwable {
+		InvocationHandler handler = ReflectionUtil.delegatingInvocationHandler(new Ping() {
+			@Override
+			public String ping(String msg) {
+				return "pong-" + msg;
+			}
+		});
+		
+		assertEquals("pong-foo", handler.invoke(null, Ping.class.getMethod("ping", String.class), new Object[] { "foo" }));
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void delegatingInvocationHandler_unwrapsExceptionsThrownByTarget() throws Throwable {
+		InvocationHandler handler = ReflectionUtil.delegatingInvocationHandler(new Ping() {
+			@Override
+			public String ping(String msg) {
+				throw new IllegalStateException();
+			}
+		});
+		handler.invoke(null, Ping.class.getMethod("ping", String.class), new Object[] { "foo" });
+	}
+	
+	public interface Ping {
+		String ping(String msg);
+	}
+
+}
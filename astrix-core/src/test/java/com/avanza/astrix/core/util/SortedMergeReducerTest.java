@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+
+
+public class SortedMergeReducerTest {
+
+	@Test
+	public void reduce_mergesSortedListsIntoOneSortedList() throws Exception {
+		SortedMergeReducer<Integer> reducer = new SortedMergeReducer<>();
+		List<Integer> result = reducer.reduce(Arrays.asList(
+				AstrixRemoteResult.successful(Arrays.asList(1, 4, 7)),
+				AstrixRemoteResult.<List<Integer>>successful(null),
+				AstrixRemoteResult.successful(Arrays.asList(2, 3, 8, 9)),
+				AstrixRemoteResult.successful(Collections.<Integer>emptyList()),
+				AstrixRemoteResult.successful(Arrays.asList(5, 6))));
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9), result);
+	}
+	
+	@Test
+	public void reduce_noResults() throws Exception {
+		SortedMergeReducer<Integer> reducer = new SortedMergeReducer<>();
+		assertEquals(Collections.emptyList(), reducer.reduce(Collections.<AstrixRemoteResult<List<Integer>>>emptyList()));
+	}
+	
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+
+
+public class TopNReducerTest {
+
+	@Test
+	public void reduce_returnsNGreatestElementsInDescendingOrder() throws Exception {
+		Top3Reducer reducer = new Top3Reducer();
+		List<Integer> result = reducer.reduce(Arrays.asList(
+				AstrixRemoteResult.successful(Arrays.asList(5, 1, 9)),
+				AstrixRemoteResult.successful(Arrays.asList(2, 8)),
+				AstrixRemoteResult.successful(Arrays.asList(7, 3, 6))));
+		assertEquals(Arrays.asList(9, 8, 7), result);
+	}
+	
+	@Test
+	public void reduce_fewerElementsThanN() throws Exception {
+		Top3Reducer reducer = new Top3Reducer();
+		List<Integer> result = reducer.reduce(Arrays.asList(
+				AstrixRemoteResult.successful(Arrays.asList(1)),
+				AstrixRemoteResult.successful(Arrays.asList(2))));
+		assertEquals(Arrays.asList(2, 1), result);
+	}
+	
+	public static class Top3Reducer extends TopNReducer<Integer> {
+		public Top3Reducer() {
+			super(3);
+		}
+	}
+	
+}
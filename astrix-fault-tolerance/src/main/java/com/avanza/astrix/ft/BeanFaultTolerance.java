@@ -64,7 +64,7 @@ public class BeanFaultTolerance {
 			return observable.get();
 		}
 		Setter setter = Setter.withGroupKey(getGroupKey())
-				  .andCommandKey(getCommandKey())
+				  .andCommandKey(getCommandKey(settings.getCommandKeySuffix()))
 				  .andCommandPropertiesDefaults(com.netflix.hystrix.HystrixCommandProperties.Setter()
 						  .withExecutionTimeoutInMilliseconds(getTimeoutMillis())
 						  .withExecutionIsolationSemaphoreMaxConcurrentRequests(settings.getSemaphoreMaxConcurrentRequests()));
@@ -94,7 +94,7 @@ public class BeanFaultTolerance {
 						.withCoreSize(settings.getCoreSize());
 
 		return com.netflix.hystrix.HystrixCommand.Setter.withGroupKey(getGroupKey())
-				.andCommandKey(getCommandKey())
+				.andCommandKey(getCommandKey(settings.getCommandKeySuffix()))
 				.andCommandPropertiesDefaults(commandPropertiesDefault)
 				.andThreadPoolPropertiesDefaults(threadPoolPropertiesDefaults);
 	}
@@ -102,9 +102,26 @@ public class BeanFaultTolerance {
 	private <T> boolean faultToleranceEnabled() {
 		return faultToleranceEnabled.get() && faultToleranceEnabledForBean.get();
 	}
+	
+	/**
+	 * Whether fault tolerance, and hence the timeout returned by {@link #getTimeoutMillis()}, is
+	 * currently applied to invocations on the associated bean.
+	 * 
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return faultToleranceEnabled();
+	}
 
 
-	private int getTimeoutMillis() {
+	/**
+	 * Returns the timeout used for invocations on the associated bean. Allows
+	 * blocking invocations run with semaphore isolation to bound the time spent 
+	 * waiting for a response to the same timeout as enforced by hystrix.
+	 * 
+	 * @return
+	 */
+	public int getTimeoutMillis() {
 		return AstrixBeanSettings.INITIAL_TIMEOUT.getFor(getBeanKey(), config).get();
 	}
 
@@ -112,8 +129,8 @@ public class BeanFaultTolerance {
 		return this.beanDefinition.getBeanKey();
 	}
 	
-	HystrixCommandKey getCommandKey() {
-		return HystrixCommandKey.Factory.asKey(commandNamingStrategy.getCommandKeyName(beanDefinition));
+	HystrixCommandKey getCommandKey(String suffix) {
+		return HystrixCommandKey.Factory.asKey(commandNamingStrategy.getCommandKeyName(beanDefinition) + suffix);
 	}
 
 	HystrixCommandGroupKey getGroupKey() {
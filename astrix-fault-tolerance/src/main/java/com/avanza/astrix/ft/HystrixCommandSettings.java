@@ -31,6 +31,7 @@ public class HystrixCommandSettings {
 	private int metricsRollingStatisticalWindowInMilliseconds = 10_000;
 	private int maxQueueSize = 1_000_000;
 	private ExecutionIsolationStrategy executionIsolationStrategy = ExecutionIsolationStrategy.THREAD;
+	private String commandKeySuffix = "";
 	
 	public HystrixCommandSettings() {
 	}
@@ -90,4 +91,18 @@ public class HystrixCommandSettings {
 	public ExecutionIsolationStrategy getExecutionIsolationStrategy() {
 		return executionIsolationStrategy;
 	}
+	
+	/**
+	 * Suffix appended to the command key of the bean. Commands using different suffixes
+	 * get separate circuit breakers, metrics and semaphores.
+	 * 
+	 * @return
+	 */
+	public String getCommandKeySuffix() {
+		return commandKeySuffix;
+	}
+	
+	public void setCommandKeySuffix(String commandKeySuffix) {
+		this.commandKeySuffix = commandKeySuffix;
+	}
 }
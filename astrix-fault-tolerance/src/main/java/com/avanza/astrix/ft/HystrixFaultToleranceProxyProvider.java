@@ -46,23 +46,23 @@ public class HystrixFaultToleranceProxyProvider implements BeanFaultTolerancePro
 	
 	private static class HystrixFaultToleranceProxy implements InvocationHandler {
 
-		private final Object provider;
+		private final InvocationHandler provider;
 		private final BeanFaultTolerance faultTolerance;
 		private final HystrixCommandSettings settings;
 		
 		public HystrixFaultToleranceProxy(Object rawProvider,
 				BeanFaultTolerance faultTolerance, HystrixCommandSettings settings) {
-			this.provider = rawProvider;
+			this.provider = ReflectionUtil.delegatingInvocationHandler(rawProvider);
 			this.faultTolerance = faultTolerance;
 			this.settings = settings;
 		}
 
 		@Override
-		public Object invoke(Object proxy, final Method method, final Object[] args) throws Throwable {
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
 			return faultTolerance.execute(new CheckedCommand<Object>() {
 				@Override
 				public Object call() throws Throwable {
-					return ReflectionUtil.invokeMethod(method, provider, args);
+					return provider.invoke(proxy, method, args);
 				}
 			}, settings);
 		}
@@ -22,6 +22,7 @@ package com.avanza.astrix.ft;
 public class HystrixObservableCommandSettings {
 
 	private int semaphoreMaxConcurrentRequests = 20;
+	private String commandKeySuffix = "";
 
 	public int getSemaphoreMaxConcurrentRequests() {
 		return this.semaphoreMaxConcurrentRequests;
@@ -32,6 +33,20 @@ public class HystrixObservableCommandSettings {
 		this.semaphoreMaxConcurrentRequests = semaprhoreMaxConcurrentRequests;
 	}
 	
+	/**
+	 * Suffix appended to the command key of the bean. Commands using different suffixes
+	 * get separate circuit breakers, metrics and semaphores.
+	 * 
+	 * @return
+	 */
+	public String getCommandKeySuffix() {
+		return commandKeySuffix;
+	}
+	
+	public void setCommandKeySuffix(String commandKeySuffix) {
+		this.commandKeySuffix = commandKeySuffix;
+	}
+	
 	
 	
 }
@@ -16,10 +16,16 @@
 package com.avanza.astrix.gs;
 
 import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.openspaces.core.GigaSpace;
 import org.openspaces.core.executor.DistributedTask;
@@ -30,10 +36,14 @@ import org.slf4j.LoggerFactory;
 import rx.Observable;
 import rx.Observable.OnSubscribe;
 import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
 
 import com.avanza.astrix.config.DynamicConfig;
 import com.avanza.astrix.config.DynamicIntProperty;
 import com.avanza.astrix.config.DynamicPropertyListener;
+import com.avanza.astrix.core.AstrixPriorityClass;
+import com.avanza.astrix.core.ServiceUnavailableException;
 import com.avanza.astrix.core.util.NamedThreadFactory;
 import com.avanza.astrix.remoting.util.GsUtil;
 import com.gigaspaces.async.AsyncFuture;
@@ -54,11 +64,33 @@ public final class SpaceTaskDispatcher {
 	 * resources are available to process the request. In order to ensure a non-blocking programming model
 	 * we associate each clustered proxy with a dedicated thread pool to submit task executions, which ensures
 	 * that a service invocation will never block, see com.avanza.astrix.gs.remoting.GsRemotingTransport
+	 * 
+	 * Each priority class (see com.avanza.astrix.core.AstrixPriority) is dispatched using a separate
+	 * thread pool and queue (a "lane"), which ensures that a burst of low priority tasks does not add
+	 * queueing latency to high priority tasks. The NORMAL lane is configured using the same properties
+	 * as before priority classes were introduced:
+	 * 
+	 * 	astrix.beans.gigaspace.<space>.spaceTaskDispatcher.poolsize
+	 * 	astrix.beans.gigaspace.<space>.spaceTaskDispatcher.queueCapacity
+	 * 
+	 * whereas the other lanes are configured using:
+	 * 
+	 * 	astrix.beans.gigaspace.<space>.spaceTaskDispatcher.<high|low>.poolsize
+	 * 	astrix.beans.gigaspace.<space>.spaceTaskDispatcher.<high|low>.queueCapacity
+	 * 
+	 * The pool size is dynamic whereas the queue capacity is read when the dispatcher is created. Tasks
+	 * submitted to a lane with a full queue are rejected with a ServiceUnavailableException.
+	 * 
+	 * The blocking execute methods don't use the lanes, since the calling thread blocks until the result
+	 * is available anyway.
 	 */
 	
 	private static final Logger log = LoggerFactory.getLogger(SpaceTaskDispatcher.class);
+	private static final int DEFAULT_POOL_SIZE = 10;
+	private static final int UNBOUNDED_QUEUE_CAPACITY = 0;
 	private final GigaSpace gigaSpace;
-	private final ThreadPoolExecutor executorService;
+	private final Map<AstrixPriorityClass, ThreadPoolExecutor> laneByPriority = new EnumMap<>(AstrixPriorityClass.class);
+	private volatile PartitionCount partitionCount;
 
 	public SpaceTaskDispatcher(GigaSpace gigaSpace, DynamicConfig config) {
 		this.gigaSpace = gigaSpace;
@@ -66,24 +98,39 @@ public final class SpaceTaskDispatcher {
 		 * TODO 
 		 * 	(1) Improve configuration mechanism used to configure thread pool. 
 		 */
+		for (AstrixPriorityClass priority : AstrixPriorityClass.values()) {
+			this.laneByPriority.put(priority, createLane(config, priority));
+		}
+	}
+	
+	private ThreadPoolExecutor createLane(DynamicConfig config, final AstrixPriorityClass priority) {
 		String spaceInstanceName = gigaSpace.getName();
-		DynamicIntProperty poolSize = config.getIntProperty("astrix.beans.gigaspace." + spaceInstanceName + ".spaceTaskDispatcher.poolsize", 10);
-		this.executorService = new ThreadPoolExecutor(poolSize.get(), 
+		String propertyPrefix = "astrix.beans.gigaspace." + spaceInstanceName + ".spaceTaskDispatcher";
+		String threadName = String.format("SpaceTaskDispatcher[%s]", spaceInstanceName);
+		if (priority != AstrixPriorityClass.NORMAL) {
+			propertyPrefix += "." + priority.name().toLowerCase();
+			threadName = String.format("SpaceTaskDispatcher[%s,%s]", spaceInstanceName, priority);
+		}
+		DynamicIntProperty poolSize = config.getIntProperty(propertyPrefix + ".poolsize", DEFAULT_POOL_SIZE);
+		int queueCapacity = config.getIntProperty(propertyPrefix + ".queueCapacity", UNBOUNDED_QUEUE_CAPACITY).get();
+		final ThreadPoolExecutor executorService = new ThreadPoolExecutor(poolSize.get(), 
 											 poolSize.get(), 
 											 0, 
 											 TimeUnit.SECONDS,
-											 new LinkedBlockingQueue<Runnable>(),
-											 new NamedThreadFactory(String.format("SpaceTaskDispatcher[%s]", spaceInstanceName)));
+											 queueCapacity > UNBOUNDED_QUEUE_CAPACITY ? new LinkedBlockingQueue<Runnable>(queueCapacity) : new LinkedBlockingQueue<Runnable>(),
+											 new NamedThreadFactory(threadName));
 		poolSize.addListener(new DynamicPropertyListener<Integer>() {
 			@Override
 			public void propertyChanged(Integer newValue) {
-				log.info(String.format("Changing pool-size for SpaceTaskDistpatcher. space=%s newSize=%s, oldSize=%s", 
+				log.info(String.format("Changing pool-size for SpaceTaskDistpatcher. space=%s priority=%s newSize=%s, oldSize=%s", 
 										SpaceTaskDispatcher.this.gigaSpace.getName(), 
+										priority,
 										newValue, executorService.getMaximumPoolSize()));
 				executorService.setCorePoolSize(newValue);
 				executorService.setMaximumPoolSize(newValue);
 			}
 		});
+		return executorService;
 	}
 
 
@@ -91,19 +138,61 @@ public final class SpaceTaskDispatcher {
 		return gigaSpace.getSpace();
 	}
 	
+	/**
+	 * Returns the number of partitions in the target space. <p>
+	 * 
+	 * The clustered proxy replaces its cluster info when the topology of the space changes, hence
+	 * the partition count is cached for the current cluster info and only re-read once the proxy
+	 * holds a new cluster info.
+	 * 
+	 * @return
+	 */
 	public int partitionCount() {
+		SpaceProxyImpl spaceProxy = getClusteredProxy();
+		Object clusterInfo = spaceProxy.getSpaceClusterInfo();
+		PartitionCount current = this.partitionCount;
+		if (current == null || current.clusterInfo != clusterInfo) {
+			current = new PartitionCount(spaceProxy.getSpaceClusterInfo().getNumberOfPartitions(), clusterInfo);
+			this.partitionCount = current;
+		}
+		return current.count;
+	}
+	
+	private SpaceProxyImpl getClusteredProxy() {
 		IJSpace space = this.gigaSpace.getSpace();
 		if (space instanceof SpaceProxyImpl) {
-			return SpaceProxyImpl.class.cast(space).getSpaceClusterInfo().getNumberOfPartitions();
+			return SpaceProxyImpl.class.cast(space);
 		}
 		throw new IllegalStateException("Cant decide cluster topology on clustered proxy: " + this.gigaSpace.getName());
 	}
 
+	/**
+	 * Returns an Observable that submits the task when subscribed to. If the subscriber 
+	 * unsubscribes before the task is submitted to the space (i.e. while it's still queued 
+	 * in the dispatcher) the task is dropped.
+	 * 
+	 * @param task
+	 * @param routingKey
+	 * @return
+	 */
 	public <T extends Serializable> Observable<T> observe(final Task<T> task, final Object routingKey) {
+		return observe(task, routingKey, AstrixPriorityClass.NORMAL);
+	}
+	
+	/**
+	 * Same as {@link #observe(Task, Object)}, but submits the task using the lane for the
+	 * given priority class.
+	 * 
+	 * @param task
+	 * @param routingKey
+	 * @param priority
+	 * @return
+	 */
+	public <T extends Serializable> Observable<T> observe(final Task<T> task, final Object routingKey, final AstrixPriorityClass priority) {
 		return Observable.create(new OnSubscribe<T>() {
 			@Override
 			public void call(final Subscriber<? super T> t1) {
-				executorService.execute(new Runnable() {
+				dispatch(t1, priority, new Runnable() {
 					@Override
 					public void run() {
 						try {
@@ -118,12 +207,103 @@ public final class SpaceTaskDispatcher {
 			}
 		});
 	}
+	
+	private void dispatch(final Subscriber<?> subscriber, AstrixPriorityClass priority, final Runnable submitTask) {
+		final ThreadPoolExecutor executorService = this.laneByPriority.get(priority);
+		/*
+		 * Claimed either by the worker when the task starts, or on unsubscribe if the task hasn't
+		 * started yet. Subscribers are unsubscribed after each completed invocation too, hence
+		 * the queue is only scanned when the task is actually dropped.
+		 */
+		final AtomicBoolean claimed = new AtomicBoolean();
+		final Runnable dispatchedTask = new Runnable() {
+			@Override
+			public void run() {
+				if (!claimed.compareAndSet(false, true) || subscriber.isUnsubscribed()) {
+					// Nobody will read the result
+					return;
+				}
+				submitTask.run();
+			}
+		};
+		subscriber.add(Subscriptions.create(new Action0() {
+			@Override
+			public void call() {
+				if (claimed.compareAndSet(false, true)) {
+					// Drop task since it's still queued
+					executorService.remove(dispatchedTask);
+				}
+			}
+		}));
+		try {
+			executorService.execute(dispatchedTask);
+		} catch (RejectedExecutionException e) {
+			subscriber.onError(new ServiceUnavailableException(String.format("cause=REJECTED space=%s priority=%s", gigaSpace.getName(), priority), e));
+		}
+	}
+
+	/**
+	 * Executes a task and blocks until the result is available, or the given timeout elapses. <p>
+	 * 
+	 * The calling thread blocks until the result is available anyway, hence the task is submitted on 
+	 * the calling thread rather than being handed off to the thread pools used by {@link #observe(Task, Object)}. 
+	 * If the timeout elapses the task is cancelled.
+	 * 
+	 * @param task
+	 * @param routingKey
+	 * @param timeout
+	 * @param unit
+	 * @return
+	 * @throws Exception 
+	 */
+	public <T extends Serializable> T execute(Task<T> task, Object routingKey, long timeout, TimeUnit unit) throws Exception {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		AsyncFuture<T> taskResult = gigaSpace.execute(task, routingKey);
+		try {
+			return taskResult.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			// Nobody will read the result
+			taskResult.cancel(true);
+			throw new ServiceUnavailableException(String.format("cause=TIMEOUT space=%s timeout=%s", gigaSpace.getName(), unit.toMillis(timeout)), e);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+	
+	/**
+	 * Same as {@link #execute(Task, Object, long, TimeUnit)}, but waits for the result without
+	 * any timeout.
+	 * 
+	 * @param task
+	 * @param routingKey
+	 * @return
+	 * @throws Exception
+	 */
+	public <T extends Serializable> T execute(Task<T> task, Object routingKey) throws Exception {
+		AsyncFuture<T> taskResult = gigaSpace.execute(task, routingKey);
+		try {
+			return taskResult.get();
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+	
+	private static Exception unwrap(ExecutionException e) {
+		if (e.getCause() instanceof Exception) {
+			return (Exception) e.getCause();
+		}
+		return e;
+	}
 
 	public <T extends Serializable, R> Observable<R> observe(final DistributedTask<T, R> distributedTask) {
+		return observe(distributedTask, AstrixPriorityClass.NORMAL);
+	}
+	
+	public <T extends Serializable, R> Observable<R> observe(final DistributedTask<T, R> distributedTask, final AstrixPriorityClass priority) {
 		return Observable.create(new OnSubscribe<R>() {
 			@Override
 			public void call(final Subscriber<? super R> t1) {
-				executorService.execute(new Runnable() {
+				dispatch(t1, priority, new Runnable() {
 					@Override
 					public void run() {
 						try {
@@ -141,13 +321,25 @@ public final class SpaceTaskDispatcher {
 	
 	/**
 	 * Destroys the {@link SpaceTaskDispatcher} by shutting down the underlying
-	 * {@link ExecutorService}. <p>
+	 * {@link ExecutorService}s. <p>
 	 */
 	public void destroy() {
-		this.executorService.shutdown();
+		for (ThreadPoolExecutor executorService : this.laneByPriority.values()) {
+			executorService.shutdown();
+		}
 	}
 
 	public String getSpaceName() {
 		return gigaSpace.getName();
 	}
+	
+	private static class PartitionCount {
+		private final int count;
+		private final Object clusterInfo;
+		
+		public PartitionCount(int count, Object clusterInfo) {
+			this.count = count;
+			this.clusterInfo = clusterInfo;
+		}
+	}
 }
\ No newline at end of file
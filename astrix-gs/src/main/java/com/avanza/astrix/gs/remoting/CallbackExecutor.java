@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs.remoting;
+
+/**
+ * Thread pool shared by all gs-remoting beans to deliver results from async service 
+ * methods, see {@link com.avanza.astrix.beans.factory.AstrixBeanSettings#CALLBACK_EXECUTOR_ENABLED}. <p>
+ * 
+ * Keeps heavy processing in user callbacks off the AsyncFutureListener threads of the 
+ * space proxy.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public class CallbackExecutor extends LazyThreadPoolExecutor {
+	
+	public CallbackExecutor() {
+		super("CallbackExecutor", "astrix.remoting.callbackExecutor.poolsize");
+	}
+
+}
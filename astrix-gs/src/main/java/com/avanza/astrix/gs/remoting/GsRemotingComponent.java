@@ -18,13 +18,17 @@ package com.avanza.astrix.gs.remoting;
 import org.kohsuke.MetaInfServices;
 import org.openspaces.core.GigaSpace;
 
+import com.avanza.astrix.beans.factory.AstrixBeanSettings;
 import com.avanza.astrix.beans.inject.AstrixInject;
+import com.avanza.astrix.beans.publish.AstrixConfigAware;
 import com.avanza.astrix.beans.service.AstrixVersioningPlugin;
 import com.avanza.astrix.beans.service.BoundServiceBeanInstance;
 import com.avanza.astrix.beans.service.ServiceComponent;
 import com.avanza.astrix.beans.service.ServiceDefinition;
 import com.avanza.astrix.beans.service.ServiceProperties;
+import com.avanza.astrix.config.DynamicConfig;
 import com.avanza.astrix.core.AstrixObjectSerializer;
+import com.avanza.astrix.core.AstrixPriorityClass;
 import com.avanza.astrix.core.util.ReflectionUtil;
 import com.avanza.astrix.ft.BeanFaultTolerance;
 import com.avanza.astrix.ft.BeanFaultToleranceFactory;
@@ -34,6 +38,7 @@ import com.avanza.astrix.gs.ClusteredProxyCache.GigaSpaceInstance;
 import com.avanza.astrix.gs.GsBinder;
 import com.avanza.astrix.provider.component.AstrixServiceComponentNames;
 import com.avanza.astrix.remoting.client.RemotingProxy;
+import com.avanza.astrix.remoting.client.RemotingProxySettings;
 import com.avanza.astrix.remoting.client.RemotingTransport;
 import com.avanza.astrix.remoting.server.AstrixServiceActivator;
 import com.avanza.astrix.spring.AstrixSpringContext;
@@ -44,7 +49,19 @@ import com.avanza.astrix.spring.AstrixSpringContext;
  *
  */
 @MetaInfServices(ServiceComponent.class)
-public class GsRemotingComponent implements ServiceComponent {
+public class GsRemotingComponent implements ServiceComponent, AstrixConfigAware {
+	
+	/**
+	 * Service property advertising that the server accepts requests with a priority class
+	 * other than NORMAL, see {@link com.avanza.astrix.core.AstrixPriority}.
+	 */
+	public static final String PRIORITY_CLASSES_SUPPORTED_PROPERTY = "priorityClassesSupported";
+	
+	/**
+	 * Service property advertising that the server identifies the target service method using 
+	 * the compact invocation envelope, i.e. without the legacy request headers.
+	 */
+	public static final String COMPACT_ENVELOPE_SUPPORTED_PROPERTY = "compactEnvelopeSupported";
 
 	private GsBinder gsBinder;
 	private BeanFaultToleranceFactory beanFaultToleranceFactory;
@@ -52,6 +69,10 @@ public class GsRemotingComponent implements ServiceComponent {
 	private AstrixServiceActivator serviceActivator;
 	private AstrixVersioningPlugin versioningPlugin;
 	private ClusteredProxyCache proxyCache;
+	private DynamicConfig config;
+	private UnmarshallExecutor unmarshallExecutor;
+	private CallbackExecutor callbackExecutor;
+	private boolean dispatchLanesConfigured = false; // Guarded by "this"
 	
 	@Override
 	public <T> BoundServiceBeanInstance<T> bind(ServiceDefinition<T> serviceDefinition, ServiceProperties serviceProperties) {
@@ -61,9 +82,51 @@ public class GsRemotingComponent implements ServiceComponent {
 		BeanFaultTolerance faultTolerance = beanFaultToleranceFactory.create(serviceDefinition);
 		GsRemotingTransport gsRemotingTransport = new GsRemotingTransport(proxyInstance.getSpaceTaskDispatcher(), faultTolerance);
 		RemotingTransport remotingTransport = RemotingTransport.create(gsRemotingTransport);
+		RemotingProxySettings remotingSettings = new RemotingProxySettings();
+		remotingSettings.setMaxPartitionBatchSize(AstrixBeanSettings.MAX_PARTITION_BATCH_SIZE.getFor(serviceDefinition.getBeanKey(), config));
+		remotingSettings.setParallelUnmarshallThreshold(AstrixBeanSettings.PARALLEL_UNMARSHALL_THRESHOLD.getFor(serviceDefinition.getBeanKey(), config));
+		remotingSettings.setUnmarshallExecutor(unmarshallExecutor);
+		remotingSettings.setCallbackExecutorEnabled(AstrixBeanSettings.CALLBACK_EXECUTOR_ENABLED.getFor(serviceDefinition.getBeanKey(), config));
+		remotingSettings.setCallbackExecutor(callbackExecutor);
+		remotingSettings.setCacheEnabled(AstrixBeanSettings.CACHE_ENABLED.getFor(serviceDefinition.getBeanKey(), config));
+		remotingSettings.setCacheTtlMillis(AstrixBeanSettings.CACHE_TTL_MILLIS.getFor(serviceDefinition.getBeanKey(), config));
+		remotingSettings.setCacheMaxSize(AstrixBeanSettings.CACHE_MAX_SIZE.getFor(serviceDefinition.getBeanKey(), config));
+		remotingSettings.setMicroBatchWindowMicros(AstrixBeanSettings.MICRO_BATCH_WINDOW_MICROS.getFor(serviceDefinition.getBeanKey(), config));
+		remotingSettings.setMicroBatchMaxSize(AstrixBeanSettings.MICRO_BATCH_MAX_SIZE.getFor(serviceDefinition.getBeanKey(), config));
+		remotingSettings.setBatchableWindowMicros(AstrixBeanSettings.BATCHABLE_WINDOW_MICROS.getFor(serviceDefinition.getBeanKey(), config));
+		remotingSettings.setBatchableMaxBatchSize(AstrixBeanSettings.BATCHABLE_MAX_BATCH_SIZE.getFor(serviceDefinition.getBeanKey(), config));
+		// Servers predating priority classes can't deserialize requests carrying a non NORMAL priority
+		remotingSettings.setPriorityClassesSupported(Boolean.parseBoolean(serviceProperties.getProperty(PRIORITY_CLASSES_SUPPORTED_PROPERTY)));
+		// Servers predating the compact envelope identifies the target service using the request headers
+		remotingSettings.setCompactEnvelopeSupported(Boolean.parseBoolean(serviceProperties.getProperty(COMPACT_ENVELOPE_SUPPORTED_PROPERTY)));
 		T proxy = RemotingProxy.create(serviceDefinition.getServiceType(), ReflectionUtil.classForName(serviceProperties.getProperty(ServiceProperties.API))
-				, remotingTransport, objectSerializer, new GsRoutingStrategy());
-		return BoundProxyServiceBeanInstance.create(proxy, proxyInstance);
+				, remotingTransport, objectSerializer, new GsRoutingStrategy(), remotingSettings);
+		return new BoundRemotingProxy<>(proxy, BoundProxyServiceBeanInstance.create(proxy, proxyInstance));
+	}
+	
+	/*
+	 * Releases the resources held by the remoting proxy along with the space proxy.
+	 */
+	private static class BoundRemotingProxy<T> implements BoundServiceBeanInstance<T> {
+		
+		private final T proxy;
+		private final BoundServiceBeanInstance<T> spaceProxyInstance;
+		
+		public BoundRemotingProxy(T proxy, BoundServiceBeanInstance<T> spaceProxyInstance) {
+			this.proxy = proxy;
+			this.spaceProxyInstance = spaceProxyInstance;
+		}
+
+		@Override
+		public T get() {
+			return proxy;
+		}
+
+		@Override
+		public void release() {
+			RemotingProxy.destroy(proxy);
+			spaceProxyInstance.release();
+		}
 	}
 	
 	@Override
@@ -75,6 +138,8 @@ public class GsRemotingComponent implements ServiceComponent {
 	public <T> ServiceProperties createServiceProperties(ServiceDefinition<T> serviceDefinition) {
 		GigaSpace space = gsBinder.getEmbeddedSpace(astrixSpringContext.getApplicationContext());
 		ServiceProperties serviceProperties = gsBinder.createProperties(space);
+		serviceProperties.setProperty(PRIORITY_CLASSES_SUPPORTED_PROPERTY, Boolean.TRUE.toString());
+		serviceProperties.setProperty(COMPACT_ENVELOPE_SUPPORTED_PROPERTY, Boolean.TRUE.toString());
 		return serviceProperties;
 	}
 	
@@ -91,9 +156,26 @@ public class GsRemotingComponent implements ServiceComponent {
 	@Override
 	public <T> void exportService(Class<T> providedApi, T provider, ServiceDefinition<T> serviceDefinition) {
 		AstrixObjectSerializer objectSerializer = versioningPlugin.create(serviceDefinition.getObjectSerializerDefinition()); 
+		configureDispatchLanes();
 		this.serviceActivator.register(provider, objectSerializer, providedApi);
 	}
 	
+	/*
+	 * The dispatch lanes are shared by all services exported by the activator, hence they
+	 * are only configured once.
+	 */
+	private synchronized void configureDispatchLanes() {
+		if (this.dispatchLanesConfigured) {
+			return;
+		}
+		for (AstrixPriorityClass priority : AstrixPriorityClass.values()) {
+			// Unbounded unless configured
+			this.serviceActivator.setMaxConcurrentInvocations(priority, 
+					config.getIntProperty("astrix.remoting.server." + priority.name().toLowerCase() + ".maxConcurrentInvocations", 0));
+		}
+		this.dispatchLanesConfigured = true;
+	}
+	
 	@Override
 	public boolean requiresProviderInstance() {
 		return true;
@@ -131,4 +213,19 @@ public class GsRemotingComponent implements ServiceComponent {
 		this.versioningPlugin = versioningPlugin;
 	}
 	
+	@AstrixInject
+	public void setUnmarshallExecutor(UnmarshallExecutor unmarshallExecutor) {
+		this.unmarshallExecutor = unmarshallExecutor;
+	}
+	
+	@AstrixInject
+	public void setCallbackExecutor(CallbackExecutor callbackExecutor) {
+		this.callbackExecutor = callbackExecutor;
+	}
+	
+	@Override
+	public void setConfig(DynamicConfig config) {
+		this.config = config;
+	}
+	
 }
@@ -15,31 +15,39 @@
  */
 package com.avanza.astrix.gs.remoting;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
+import rx.exceptions.Exceptions;
 import rx.functions.Func1;
 
+import com.avanza.astrix.core.AstrixPriorityClass;
 import com.avanza.astrix.core.function.Supplier;
 import com.avanza.astrix.ft.BeanFaultTolerance;
+import com.avanza.astrix.ft.CheckedCommand;
+import com.avanza.astrix.ft.HystrixCommandSettings;
 import com.avanza.astrix.ft.HystrixObservableCommandSettings;
 import com.avanza.astrix.gs.SpaceTaskDispatcher;
+import com.avanza.astrix.remoting.client.AbstractRemotingTransportSpi;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
-import com.avanza.astrix.remoting.client.RemotingTransportSpi;
+import com.avanza.astrix.remoting.client.BatchingRemotingTransportSpi;
 import com.avanza.astrix.remoting.client.RoutedServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.RoutingKey;
 import com.avanza.astrix.remoting.util.GsUtil;
 import com.gigaspaces.async.AsyncResult;
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
 /**
  * RemotingTransport implementation based on GigaSpaces task execution. <p> 
  * 
  * @author Elias Lindholm
  *
  */
-public class GsRemotingTransport implements RemotingTransportSpi {
+public class GsRemotingTransport extends AbstractRemotingTransportSpi implements BatchingRemotingTransportSpi {
 
 	private final SpaceTaskDispatcher spaceTaskDispatcher;
 	private final BeanFaultTolerance faultTolerance;
@@ -51,12 +59,68 @@ public class GsRemotingTransport implements RemotingTransportSpi {
 	
 	@Override
 	public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(final AstrixServiceInvocationRequest request, final RoutingKey routingKey) {
+		setTimeBudget(request);
 		return faultTolerance.observe(new Supplier<Observable<AstrixServiceInvocationResponse>>() {
 			@Override
 			public Observable<AstrixServiceInvocationResponse> get() {
 				return observeRoutedRequest(request, routingKey);
 			}
-		}, new HystrixObservableCommandSettings());
+		}, createObservableSettings(request.getPriority()));
+	}
+
+	@Override
+	public AstrixServiceInvocationResponse invokeRoutedRequest(final AstrixServiceInvocationRequest request, final RoutingKey routingKey) {
+		setTimeBudget(request);
+		try {
+			return faultTolerance.execute(new CheckedCommand<AstrixServiceInvocationResponse>() {
+				@Override
+				public AstrixServiceInvocationResponse call() throws Throwable {
+					if (!faultTolerance.isEnabled()) {
+						return spaceTaskDispatcher.execute(new AstrixServiceInvocationTask(request), routingKey);
+					}
+					return spaceTaskDispatcher.execute(new AstrixServiceInvocationTask(request), routingKey, faultTolerance.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+				}
+			}, createBlockingInvocationSettings(request.getPriority()));
+		} catch (Throwable e) {
+			throw Exceptions.propagate(e);
+		}
+	}
+
+	/*
+	 * Carries the time the client waits for the response in the request, allowing the server
+	 * to skip requests the client already gave up on. The request already carries the remaining
+	 * budget of the service invocation executed by the calling thread, if any (see RemotingProxy), 
+	 * which is never extended. Invoked before the fault tolerance layer, which might execute the 
+	 * request on another thread.
+	 */
+	private void setTimeBudget(AstrixServiceInvocationRequest request) {
+		if (faultTolerance.isEnabled()) {
+			request.limitTimeBudget(faultTolerance.getTimeoutMillis());
+		}
+	}
+
+	private HystrixCommandSettings createBlockingInvocationSettings(AstrixPriorityClass priority) {
+		// Use same isolation as the observable invocations, the invoking thread is protected by the bounded wait in SpaceTaskDispatcher
+		HystrixCommandSettings settings = new HystrixCommandSettings();
+		settings.setExecutionIsolationStrategy(ExecutionIsolationStrategy.SEMAPHORE);
+		settings.setSemaphoreMaxConcurrentRequests(new HystrixObservableCommandSettings().getSemaphoreMaxConcurrentRequests());
+		settings.setCommandKeySuffix(getCommandKeySuffix(priority));
+		return settings;
+	}
+	
+	private static HystrixObservableCommandSettings createObservableSettings(AstrixPriorityClass priority) {
+		HystrixObservableCommandSettings settings = new HystrixObservableCommandSettings();
+		settings.setCommandKeySuffix(getCommandKeySuffix(priority));
+		return settings;
+	}
+	
+	/*
+	 * Each priority class uses a command key of its own, hence a burst of low priority invocations
+	 * never exhausts the semaphore permits, or trips the circuit breaker, used by high priority 
+	 * invocations. NORMAL priority invocations keep using the command key of the bean.
+	 */
+	private static String getCommandKeySuffix(AstrixPriorityClass priority) {
+		return priority == AstrixPriorityClass.NORMAL ? "" : "_" + priority.name();
 	}
 
 	@Override
@@ -64,40 +128,81 @@ public class GsRemotingTransport implements RemotingTransportSpi {
 		if (requests.isEmpty()) {
 			return Observable.just(Collections.<AstrixServiceInvocationResponse>emptyList());
 		}
+		for (RoutedServiceInvocationRequest request : requests) {
+			setTimeBudget(request.getRequest());
+		}
 		return faultTolerance.observe(new Supplier<Observable<List<AstrixServiceInvocationResponse>>>() {
 			@Override
 			public Observable<List<AstrixServiceInvocationResponse>> get() {
 				return observeRoutedReqeuests(requests);
 			}
-		}, new HystrixObservableCommandSettings());
+		}, createObservableSettings(requests.iterator().next().getRequest().getPriority()));
 	}
 	
 	
+	@Override
+	public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequestBatch(final List<AstrixServiceInvocationRequest> requests, final RoutingKey routingKey) {
+		for (AstrixServiceInvocationRequest request : requests) {
+			setTimeBudget(request);
+		}
+		return faultTolerance.observe(new Supplier<Observable<List<AstrixServiceInvocationResponse>>>() {
+			@Override
+			public Observable<List<AstrixServiceInvocationResponse>> get() {
+				return observeRoutedRequestBatch(requests, routingKey);
+			}
+		}, createObservableSettings(highestPriority(requests)));
+	}
+	
 	@Override
 	public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(final AstrixServiceInvocationRequest request) {
+		setTimeBudget(request);
 		return faultTolerance.observe(new Supplier<Observable<List<AstrixServiceInvocationResponse>>>() {
 			@Override
 			public Observable<List<AstrixServiceInvocationResponse>> get() {
 				return observeBroadcastRequest(request);
 			}
-		}, new HystrixObservableCommandSettings());
+		}, createObservableSettings(request.getPriority()));
 	}
 	
 	private Observable<AstrixServiceInvocationResponse> observeRoutedRequest(AstrixServiceInvocationRequest request,
 																			  RoutingKey routingKey) {
-		return spaceTaskDispatcher.observe(new AstrixServiceInvocationTask(request), routingKey);
+		return spaceTaskDispatcher.observe(new AstrixServiceInvocationTask(request), routingKey, request.getPriority());
+	}
+	
+	private Observable<List<AstrixServiceInvocationResponse>> observeRoutedRequestBatch(List<AstrixServiceInvocationRequest> requests, RoutingKey routingKey) {
+		Observable<ArrayList<AstrixServiceInvocationResponse>> responses = spaceTaskDispatcher.observe(new AstrixServiceInvocationBatchTask(requests), routingKey, highestPriority(requests));
+		return responses.map(new Func1<ArrayList<AstrixServiceInvocationResponse>, List<AstrixServiceInvocationResponse>>() {
+			@Override
+			public List<AstrixServiceInvocationResponse> call(ArrayList<AstrixServiceInvocationResponse> t1) {
+				return t1;
+			}
+		});
+	}
+	
+	/*
+	 * A micro-batch might contain requests from several priority classes, in which case
+	 * it's dispatched using the lane of the most urgent request.
+	 */
+	private static AstrixPriorityClass highestPriority(List<AstrixServiceInvocationRequest> requests) {
+		AstrixPriorityClass result = AstrixPriorityClass.LOW;
+		for (AstrixServiceInvocationRequest request : requests) {
+			if (request.getPriority().compareTo(result) < 0) {
+				result = request.getPriority();
+			}
+		}
+		return result;
 	}
 	
 	private Observable<List<AstrixServiceInvocationResponse>> observeRoutedReqeuests(Collection<RoutedServiceInvocationRequest> requests) {
 		Observable<AstrixServiceInvocationResponse> result = Observable.empty();
 		for (RoutedServiceInvocationRequest request : requests) {
-			result = result.mergeWith(spaceTaskDispatcher.observe(new AstrixServiceInvocationTask(request.getRequest()), request.getRoutingkey()));
+			result = result.mergeWith(spaceTaskDispatcher.observe(new AstrixServiceInvocationTask(request.getRequest()), request.getRoutingkey(), request.getRequest().getPriority()));
 		}
 		return result.toList();
 	}
 	
 	private Observable<List<AstrixServiceInvocationResponse>> observeBroadcastRequest(AstrixServiceInvocationRequest request) {
-		Observable<List<AsyncResult<AstrixServiceInvocationResponse>>> responses = spaceTaskDispatcher.observe(new AstrixDistributedServiceInvocationTask(request));
+		Observable<List<AsyncResult<AstrixServiceInvocationResponse>>> responses = spaceTaskDispatcher.observe(new AstrixDistributedServiceInvocationTask(request), request.getPriority());
 		Func1<List<AsyncResult<AstrixServiceInvocationResponse>>, Observable<AstrixServiceInvocationResponse>> listToObservable = 
 				GsUtil.asyncResultListToObservable();
 		Observable<AstrixServiceInvocationResponse> responseStream = responses.flatMap(listToObservable);
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs.remoting;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.avanza.astrix.beans.publish.AstrixConfigAware;
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.DynamicPropertyListener;
+import com.avanza.astrix.core.util.NamedThreadFactory;
+/**
+ * Fixed size thread pool shared by all gs-remoting beans. The pool size is read
+ * from the given configuration property and may be changed at runtime. <p>
+ * 
+ * The underlying thread pool is created on first use. 
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public abstract class LazyThreadPoolExecutor implements Executor, AstrixConfigAware {
+	
+	private static final Logger log = LoggerFactory.getLogger(LazyThreadPoolExecutor.class);
+	private final Lock executorStateLock = new ReentrantLock();
+	private final String name;
+	private final String poolSizeProperty;
+	private volatile ThreadPoolExecutor executor;
+	private DynamicConfig config;
+	
+	protected LazyThreadPoolExecutor(String name, String poolSizeProperty) {
+		this.name = name;
+		this.poolSizeProperty = poolSizeProperty;
+	}
+	
+	@Override
+	public void execute(Runnable command) {
+		getExecutor().execute(command);
+	}
+	
+	private ThreadPoolExecutor getExecutor() {
+		ThreadPoolExecutor result = this.executor;
+		if (result != null) {
+			return result;
+		}
+		executorStateLock.lock();
+		try {
+			if (this.executor == null) {
+				this.executor = createExecutor();
+			}
+			return this.executor;
+		} finally {
+			executorStateLock.unlock();
+		}
+	}
+
+	private ThreadPoolExecutor createExecutor() {
+		DynamicIntProperty poolSize = config.getIntProperty(poolSizeProperty, Runtime.getRuntime().availableProcessors());
+		final ThreadPoolExecutor result = new ThreadPoolExecutor(poolSize.get(), 
+																 poolSize.get(), 
+																 0, 
+																 TimeUnit.SECONDS,
+																 new LinkedBlockingQueue<Runnable>(),
+																 new NamedThreadFactory(name));
+		poolSize.addListener(new DynamicPropertyListener<Integer>() {
+			@Override
+			public void propertyChanged(Integer newValue) {
+				log.info(String.format("Changing pool-size for %s. newSize=%s, oldSize=%s", name, newValue, result.getMaximumPoolSize()));
+				if (newValue > result.getMaximumPoolSize()) {
+					result.setMaximumPoolSize(newValue);
+					result.setCorePoolSize(newValue);
+				} else {
+					result.setCorePoolSize(newValue);
+					result.setMaximumPoolSize(newValue);
+				}
+			}
+		});
+		return result;
+	}
+	
+	@PreDestroy
+	public void destroy() {
+		ThreadPoolExecutor executor = this.executor;
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	@Override
+	public void setConfig(DynamicConfig config) {
+		this.config = config;
+	}
+
+}
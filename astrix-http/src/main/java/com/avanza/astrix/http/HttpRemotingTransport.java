@@ -21,6 +21,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -36,11 +38,14 @@ import org.apache.http.impl.nio.client.HttpAsyncClients;
 import rx.Observable;
 import rx.Observable.OnSubscribe;
 import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
 
 import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.remoting.client.AbstractRemotingTransportSpi;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
-import com.avanza.astrix.remoting.client.RemotingTransportSpi;
 import com.avanza.astrix.remoting.client.RoutedServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.RoutingKey;
 /**
@@ -48,7 +53,7 @@ import com.avanza.astrix.remoting.client.RoutingKey;
  * @author Elias Lindholm
  *
  */
-public final class HttpRemotingTransport implements RemotingTransportSpi {
+public final class HttpRemotingTransport extends AbstractRemotingTransportSpi {
 
 	private final CloseableHttpAsyncClient httpclient = HttpAsyncClients.createDefault();
 	private final Map<Integer, ClusterMember> clusterMembers = new ConcurrentHashMap<>();
@@ -67,17 +72,25 @@ public final class HttpRemotingTransport implements RemotingTransportSpi {
 		ClusterMember clusterMember = getTargetMember(routingKey);
 		final HttpPost postRequest = new HttpPost(clusterMember.getRemoteEndpointUri());
 		postRequest.setEntity(new SerializableEntity(request));
-		return Observable.create(new OnSubscribe<AstrixServiceInvocationResponse>() {
-			@Override
-			public void call(final Subscriber<? super AstrixServiceInvocationResponse> t1) {
-				try {
-					httpclient.execute(postRequest, serviceResponseCallback(t1));
-				} catch (Exception e) {
-					t1.onError(e);
-				}
-			}
-
-		});
+		return observe(postRequest);
+	}
+	
+	@Override
+	public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+		ClusterMember clusterMember = getTargetMember(routingKey);
+		HttpPost postRequest = new HttpPost(clusterMember.getRemoteEndpointUri());
+		postRequest.setEntity(new SerializableEntity(request));
+		Future<HttpResponse> response = httpclient.execute(postRequest, null);
+		try {
+			return getResponse(response.get());
+		} catch (ExecutionException e) {
+			throw Exceptions.propagate(e.getCause());
+		} catch (InterruptedException e) {
+			// Abort the exchange, nobody will read the response
+			response.cancel(true);
+			Thread.currentThread().interrupt();
+			throw Exceptions.propagate(e);
+		}
 	}
 	
 	@Override
@@ -97,17 +110,7 @@ public final class HttpRemotingTransport implements RemotingTransportSpi {
 		for (ClusterMember clusterMember : getAllClusterMembers()) {
 			final HttpPost postRequest = new HttpPost(clusterMember.getRemoteEndpointUri());
 			postRequest.setEntity(new SerializableEntity(request));
-			result = result.mergeWith(Observable.create(new OnSubscribe<AstrixServiceInvocationResponse>() {
-				@Override
-				public void call(final Subscriber<? super AstrixServiceInvocationResponse> t1) {
-					try {
-						httpclient.execute(postRequest, serviceResponseCallback(t1));
-					} catch (Exception e) {
-						t1.onError(e);
-					}
-				}
-
-			}));
+			result = result.mergeWith(observe(postRequest));
 		}
 		return result.toList();
 	}
@@ -117,7 +120,7 @@ public final class HttpRemotingTransport implements RemotingTransportSpi {
 	}
 	
 	private ClusterMember getTargetMember(RoutingKey routingKey) {
-		int targetPartition = routingKey.hashCode() % partitionCount();
+		int targetPartition = RoutingKey.partitionOf(routingKey.hashCode(), partitionCount());
 		ClusterMember target = this.clusterMembers.get(targetPartition);
 		if (target == null) {
 			throw new ServiceUnavailableException("Failed to find cluster member with id: " + targetPartition);
@@ -125,6 +128,29 @@ public final class HttpRemotingTransport implements RemotingTransportSpi {
 		return target;
 	}
 
+	/*
+	 * The request is sent when the returned Observable is subscribed to. Unsubscribing
+	 * before the response is received aborts the exchange.
+	 */
+	private Observable<AstrixServiceInvocationResponse> observe(final HttpPost postRequest) {
+		return Observable.create(new OnSubscribe<AstrixServiceInvocationResponse>() {
+			@Override
+			public void call(final Subscriber<? super AstrixServiceInvocationResponse> t1) {
+				try {
+					final Future<HttpResponse> response = httpclient.execute(postRequest, serviceResponseCallback(t1));
+					t1.add(Subscriptions.create(new Action0() {
+						@Override
+						public void call() {
+							response.cancel(true);
+						}
+					}));
+				} catch (Exception e) {
+					t1.onError(e);
+				}
+			}
+		});
+	}
+
 	private FutureCallback<HttpResponse> serviceResponseCallback(
 			final Subscriber<? super AstrixServiceInvocationResponse> t1) {
 		return new FutureCallback<HttpResponse>() {
@@ -140,7 +166,9 @@ public final class HttpRemotingTransport implements RemotingTransportSpi {
 				t1.onError(ex);
 			}
 			public void cancelled() {
-				t1.onError(new RuntimeException("Request cancelled"));
+				if (!t1.isUnsubscribed()) {
+					t1.onError(new RuntimeException("Request cancelled"));
+				}
 			}
 		};
 	}
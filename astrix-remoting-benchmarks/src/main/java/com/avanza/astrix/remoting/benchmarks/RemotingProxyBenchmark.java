@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import rx.Observable;
+
+import com.avanza.astrix.core.AstrixObjectSerializer;
+import com.avanza.astrix.remoting.client.AbstractRemotingTransportSpi;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.client.RemotingProxy;
+import com.avanza.astrix.remoting.client.RemotingProxySettings;
+import com.avanza.astrix.remoting.client.RemotingTransport;
+import com.avanza.astrix.remoting.client.RoutedServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.Router;
+import com.avanza.astrix.remoting.client.RoutingKey;
+import com.avanza.astrix.remoting.client.RoutingStrategy;
+
+/**
+ * Measures the client side overhead of invoking a remote service through a java.lang.reflect.Proxy
+ * compared to a stub generated by astrix-remoting-stubs. The transport returns a constant response 
+ * without serialization, so only the invocation path on the client is measured. 
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RemotingProxyBenchmark {
+	
+	private PingService jdkProxy;
+	private PingService generatedStub;
+	
+	@Setup
+	public void setup() {
+		jdkProxy = createProxy(false);
+		generatedStub = createProxy(true);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		RemotingProxy.destroy(jdkProxy);
+		RemotingProxy.destroy(generatedStub);
+	}
+	
+	@Benchmark
+	public String jdkProxy() {
+		return jdkProxy.ping("foo");
+	}
+	
+	@Benchmark
+	public String generatedStub() {
+		return generatedStub.ping("foo");
+	}
+	
+	private static PingService createProxy(boolean generatedStubsEnabled) {
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.setGeneratedStubsEnabled(generatedStubsEnabled);
+		return RemotingProxy.create(PingService.class, PingService.class, RemotingTransport.create(new ConstantResponseTransport()), 
+				new AstrixObjectSerializer.NoVersioningSupport(), new ConstantRoutingStrategy(), settings);
+	}
+	
+	public interface PingService {
+		String ping(String msg);
+	}
+	
+	private static class ConstantRoutingStrategy implements RoutingStrategy {
+		@Override
+		public Router create(Method serviceMethod) {
+			return new Router() {
+				@Override
+				public RoutingKey getRoutingKey(Object... args) throws Exception {
+					return RoutingKey.create(1);
+				}
+			};
+		}
+	}
+	
+	private static class ConstantResponseTransport extends AbstractRemotingTransportSpi {
+		
+		private final AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+		
+		public ConstantResponseTransport() {
+			response.setResponseBody("pong");
+		}
+		
+		@Override
+		public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+			return response;
+		}
+		
+		@Override
+		public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+			return Observable.just(response);
+		}
+		
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public int partitionCount() {
+			return 1;
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.java8;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.kohsuke.MetaInfServices;
+
+import rx.Observable;
+import rx.Subscription;
+
+import com.avanza.astrix.remoting.client.AsyncResultAdapter;
+
+/**
+ * Allows service methods to return a {@link CompletableFuture}. The future is completed 
+ * from the callback of the remote invocation, and cancelling the future unsubscribes
+ * from the invocation. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+@MetaInfServices(AsyncResultAdapter.class)
+public class CompletableFutureResultAdapter implements AsyncResultAdapter {
+
+	@Override
+	public Class<?> getResultType() {
+		return CompletableFuture.class;
+	}
+
+	@Override
+	public <T> Object adapt(Observable<T> result) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		Subscription subscription = result.subscribe(future::complete, future::completeExceptionally);
+		future.whenComplete((value, exception) -> {
+			if (future.isCancelled()) {
+				subscription.unsubscribe();
+			}
+		});
+		return future;
+	}
+
+}
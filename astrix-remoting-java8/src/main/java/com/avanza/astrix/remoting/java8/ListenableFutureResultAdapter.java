@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.java8;
+
+import org.kohsuke.MetaInfServices;
+
+import rx.Observable;
+import rx.Subscription;
+
+import com.avanza.astrix.remoting.client.AsyncResultAdapter;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Allows service methods to return a guava {@link ListenableFuture}. The future is completed 
+ * from the callback of the remote invocation, and cancelling the future unsubscribes
+ * from the invocation. <p>
+ * 
+ * This adapter is ignored when guava is not available on the classpath. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+@MetaInfServices(AsyncResultAdapter.class)
+public class ListenableFutureResultAdapter implements AsyncResultAdapter {
+
+	@Override
+	public Class<?> getResultType() {
+		return ListenableFuture.class;
+	}
+
+	@Override
+	public <T> Object adapt(Observable<T> result) {
+		SettableFuture<T> future = SettableFuture.create();
+		Subscription subscription = result.subscribe(future::set, future::setException);
+		// Runs the listener in the thread completing the future, i.e. the semantics of MoreExecutors.directExecutor(),
+		// which isn't available in all guava versions
+		future.addListener(() -> {
+			if (future.isCancelled()) {
+				subscription.unsubscribe();
+			}
+		}, Runnable::run);
+		return future;
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.java8;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.Observable;
+
+import com.avanza.astrix.context.JavaSerializationSerializer;
+import com.avanza.astrix.core.AstrixObjectSerializer;
+import com.avanza.astrix.core.AstrixRouting;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.client.DefaultAstrixRoutingStrategy;
+import com.avanza.astrix.remoting.client.RemotingProxy;
+import com.avanza.astrix.remoting.client.RemotingTransport;
+import com.avanza.astrix.remoting.client.RemotingTransportSpi;
+import com.avanza.astrix.remoting.client.RoutedServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.RoutingKey;
+import com.avanza.astrix.remoting.server.AstrixServiceActivator;
+import com.google.common.util.concurrent.ListenableFuture;
+
+public class AsyncResultAdapterTest {
+	
+	private final AstrixObjectSerializer objectSerializer = new JavaSerializationSerializer(1);
+	private final AstrixServiceActivator serviceActivator = new AstrixServiceActivator();
+	private final AtomicBoolean unsubscribed = new AtomicBoolean(false);
+	private volatile boolean respond = true;
+	
+	@Before
+	public void setup() {
+		serviceActivator.register(new PingService() {
+			@Override
+			public String ping(String msg) {
+				return "pong-" + msg;
+			}
+		}, objectSerializer, PingService.class);
+	}
+	
+	@Test
+	public void completableFutureIsCompletedWithResultOfInvocation() throws Exception {
+		PingServiceCompletable pingService = createProxy(PingServiceCompletable.class);
+		CompletableFuture<String> result = pingService.ping("foo");
+		assertEquals("pong-foo!", result.thenApply(s -> s + "!").get());
+	}
+	
+	@Test
+	public void cancellingCompletableFutureUnsubscribesFromInvocation() throws Exception {
+		respond = false;
+		PingServiceCompletable pingService = createProxy(PingServiceCompletable.class);
+		CompletableFuture<String> result = pingService.ping("foo");
+		assertTrue(result.cancel(true));
+		assertTrue(unsubscribed.get());
+	}
+	
+	@Test
+	public void listenableFutureIsCompletedWithResultOfInvocation() throws Exception {
+		PingServiceListenable pingService = createProxy(PingServiceListenable.class);
+		ListenableFuture<String> result = pingService.ping("foo");
+		assertEquals("pong-foo", result.get());
+	}
+	
+	@Test
+	public void cancellingListenableFutureUnsubscribesFromInvocation() throws Exception {
+		respond = false;
+		PingServiceListenable pingService = createProxy(PingServiceListenable.class);
+		ListenableFuture<String> result = pingService.ping("foo");
+		assertTrue(result.cancel(true));
+		assertTrue(unsubscribed.get());
+	}
+	
+	private <T> T createProxy(Class<T> proxyApi) {
+		return RemotingProxy.create(proxyApi, PingService.class, RemotingTransport.create(new DirectTransport()), objectSerializer, new DefaultAstrixRoutingStrategy());
+	}
+	
+	public interface PingService {
+		String ping(@AstrixRouting String msg);
+	}
+	
+	public interface PingServiceCompletable {
+		CompletableFuture<String> ping(@AstrixRouting String msg);
+	}
+	
+	public interface PingServiceListenable {
+		ListenableFuture<String> ping(@AstrixRouting String msg);
+	}
+	
+	private class DirectTransport implements RemotingTransportSpi {
+		
+		@Override
+		public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+			Observable<AstrixServiceInvocationResponse> response = respond ? Observable.just(serviceActivator.invokeService(request)) 
+																		   : Observable.<AstrixServiceInvocationResponse>never();
+			return response.doOnUnsubscribe(() -> unsubscribed.set(true));
+		}
+		
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public int partitionCount() {
+			return 1;
+		}
+	}
+
+}
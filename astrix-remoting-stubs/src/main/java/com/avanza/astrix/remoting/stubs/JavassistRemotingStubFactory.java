@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.stubs;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+import org.kohsuke.MetaInfServices;
+
+import com.avanza.astrix.remoting.client.ProxiedMethod;
+import com.avanza.astrix.remoting.client.RemotingProxy;
+import com.avanza.astrix.remoting.client.RemotingStub;
+import com.avanza.astrix.remoting.client.RemotingStubFactory;
+
+/**
+ * Generates a stub class for each service API using javassist. The stub holds the {@link ProxiedMethod} 
+ * for each method of the service API in a field, and each method is implemented by invoking it directly: <p>
+ * 
+ * <pre>
+ * public HelloResponse hello(HelloRequest request) {
+ *     return (HelloResponse) m0.invoke(this, new Object[] { request });
+ * }
+ * </pre>
+ * 
+ * Checked exceptions not declared by the service API are wrapped in an {@link java.lang.reflect.UndeclaredThrowableException}, 
+ * as for a java.lang.reflect.Proxy. <p>
+ * 
+ * The stub class is defined in the same package and class loader as the service API, which allows 
+ * service APIs that are not public. The class is created the first time a stub is created for a given 
+ * service API, and reused for all stubs for that service API. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+@MetaInfServices(RemotingStubFactory.class)
+public class JavassistRemotingStubFactory implements RemotingStubFactory {
+	
+	private static final String STUB_CLASS_SUFFIX = "$$AstrixStub";
+	
+	private static final Comparator<Method> METHOD_ORDER = new Comparator<Method>() {
+		@Override
+		public int compare(Method m1, Method m2) {
+			int result = m1.getName().compareTo(m2.getName());
+			if (result != 0) {
+				return result;
+			}
+			return parameterTypeNames(m1).compareTo(parameterTypeNames(m2));
+		}
+	};
+	
+	@Override
+	public RemotingStub createStub(RemotingProxy remotingProxy, Class<?>[] interfaces, Map<Method, ProxiedMethod> proxiedMethods) {
+		List<Method> stubbedMethods = getStubbedMethods(interfaces);
+		ProxiedMethod[] methods = new ProxiedMethod[stubbedMethods.size()];
+		for (int i = 0; i < methods.length; i++) {
+			methods[i] = proxiedMethods.get(stubbedMethods.get(i));
+			if (methods[i] == null) {
+				throw new IllegalArgumentException("No ProxiedMethod found for: " + stubbedMethods.get(i));
+			}
+		}
+		Class<?> stubClass = getStubClass(interfaces, stubbedMethods);
+		try {
+			return (RemotingStub) stubClass.getConstructor(RemotingProxy.class, ProxiedMethod[].class).newInstance(remotingProxy, methods);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Failed to instantiate stub: " + stubClass.getName(), e);
+		}
+	}
+	
+	/*
+	 * The methods of the interfaces in a deterministic order, which defines the index of the 
+	 * ProxiedMethod for each method in the array passed to the constructor of the stub.
+	 */
+	private static List<Method> getStubbedMethods(Class<?>[] interfaces) {
+		Map<String, Method> methodsBySignature = new LinkedHashMap<>();
+		for (Class<?> stubbedInterface : interfaces) {
+			for (Method method : stubbedInterface.getMethods()) {
+				String signature = method.getName() + parameterTypeNames(method);
+				if (!Modifier.isStatic(method.getModifiers()) && !methodsBySignature.containsKey(signature)) {
+					methodsBySignature.put(signature, method);
+				}
+			}
+		}
+		List<Method> result = new ArrayList<>(methodsBySignature.values());
+		Collections.sort(result, METHOD_ORDER);
+		return result;
+	}
+	
+	private synchronized Class<?> getStubClass(Class<?>[] interfaces, List<Method> stubbedMethods) {
+		Class<?> serviceApi = interfaces[0];
+		String stubClassName = serviceApi.getName() + (interfaces.length > 1 ? "$$Caching" : "") + STUB_CLASS_SUFFIX;
+		ClassLoader classLoader = serviceApi.getClassLoader();
+		try {
+			return Class.forName(stubClassName, false, classLoader);
+		} catch (ClassNotFoundException e) {
+			// Not created yet
+		}
+		try {
+			return generateStubClass(stubClassName, interfaces, stubbedMethods).toClass(classLoader, serviceApi.getProtectionDomain());
+		} catch (NotFoundException | CannotCompileException e) {
+			throw new RuntimeException("Failed to generate stub for: " + serviceApi.getName(), e);
+		}
+	}
+
+	private static CtClass generateStubClass(String stubClassName, Class<?>[] interfaces, List<Method> stubbedMethods) throws NotFoundException, CannotCompileException {
+		ClassPool classPool = new ClassPool(true);
+		classPool.appendClassPath(new LoaderClassPath(interfaces[0].getClassLoader()));
+		classPool.appendClassPath(new LoaderClassPath(RemotingStub.class.getClassLoader()));
+		CtClass stubClass = classPool.makeClass(stubClassName, classPool.get(RemotingStub.class.getName()));
+		stubClass.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
+		for (Class<?> stubbedInterface : interfaces) {
+			stubClass.addInterface(classPool.get(stubbedInterface.getName()));
+		}
+		StringBuilder constructorBody = new StringBuilder("{ super($1);");
+		for (int i = 0; i < stubbedMethods.size(); i++) {
+			stubClass.addField(CtField.make("private final " + ProxiedMethod.class.getName() + " m" + i + ";", stubClass));
+			constructorBody.append(" m").append(i).append(" = $2[").append(i).append("];");
+		}
+		constructorBody.append(" }");
+		CtConstructor constructor = new CtConstructor(new CtClass[] { classPool.get(RemotingProxy.class.getName()), classPool.get(ProxiedMethod.class.getName() + "[]") }, stubClass);
+		constructor.setBody(constructorBody.toString());
+		stubClass.addConstructor(constructor);
+		for (int i = 0; i < stubbedMethods.size(); i++) {
+			stubClass.addMethod(generateStubMethod(classPool, stubClass, stubbedMethods.get(i), "m" + i));
+		}
+		return stubClass;
+	}
+	
+	private static CtMethod generateStubMethod(ClassPool classPool, CtClass stubClass, Method method, String proxiedMethodField) throws NotFoundException, CannotCompileException {
+		CtMethod stubMethod = new CtMethod(classPool.get(typeName(method.getReturnType())), method.getName(), getCtClasses(classPool, method.getParameterTypes()), stubClass);
+		CtClass[] declaredExceptions = getCtClasses(classPool, method.getExceptionTypes());
+		stubMethod.setExceptionTypes(declaredExceptions);
+		stubMethod.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
+		if (method.getReturnType().equals(Void.TYPE)) {
+			stubMethod.setBody("{ " + proxiedMethodField + ".invoke(this, $args); }");
+		} else {
+			stubMethod.setBody("{ return ($r) " + proxiedMethodField + ".invoke(this, $args); }");
+		}
+		// A handler added by addCatch also covers the previously added handlers, hence a single handler
+		StringBuilder exceptionHandler = new StringBuilder("{ if ($e instanceof java.lang.RuntimeException || $e instanceof java.lang.Error");
+		for (Class<?> declaredException : method.getExceptionTypes()) {
+			exceptionHandler.append(" || $e instanceof ").append(declaredException.getName());
+		}
+		exceptionHandler.append(") { throw $e; } throw new java.lang.reflect.UndeclaredThrowableException($e); }");
+		stubMethod.addCatch(exceptionHandler.toString(), classPool.get(Throwable.class.getName()));
+		return stubMethod;
+	}
+	
+	private static CtClass[] getCtClasses(ClassPool classPool, Class<?>[] types) throws NotFoundException {
+		CtClass[] result = new CtClass[types.length];
+		for (int i = 0; i < types.length; i++) {
+			result[i] = classPool.get(typeName(types[i]));
+		}
+		return result;
+	}
+	
+	private static String typeName(Class<?> type) {
+		if (type.isArray()) {
+			return typeName(type.getComponentType()) + "[]";
+		}
+		return type.getName();
+	}
+	
+	private static String parameterTypeNames(Method method) {
+		return Arrays.toString(method.getParameterTypes());
+	}
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.stubs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.Observable;
+
+import com.avanza.astrix.context.JavaSerializationSerializer;
+import com.avanza.astrix.core.AstrixCached;
+import com.avanza.astrix.core.AstrixObjectSerializer;
+import com.avanza.astrix.core.CachingAstrixBean;
+import com.avanza.astrix.core.RemoteServiceInvocationException;
+import com.avanza.astrix.remoting.client.AbstractRemotingTransportSpi;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.client.RemotingProxy;
+import com.avanza.astrix.remoting.client.RemotingProxySettings;
+import com.avanza.astrix.remoting.client.RemotingStub;
+import com.avanza.astrix.remoting.client.RemotingTransport;
+import com.avanza.astrix.remoting.client.RoutedServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.Router;
+import com.avanza.astrix.remoting.client.RoutingKey;
+import com.avanza.astrix.remoting.client.RoutingStrategy;
+import com.avanza.astrix.remoting.server.AstrixServiceActivator;
+
+public class JavassistRemotingStubFactoryTest {
+	
+	private final AstrixObjectSerializer objectSerializer = new JavaSerializationSerializer(1);
+	private final AstrixServiceActivator serviceActivator = new AstrixServiceActivator();
+	
+	@Before
+	public void setup() {
+		serviceActivator.register(new CalculatorService() {
+			@Override
+			public int add(int a, int b) {
+				return a + b;
+			}
+			@Override
+			public long sum(long[] values) {
+				long sum = 0;
+				for (long value : values) {
+					sum += value;
+				}
+				return sum;
+			}
+			@Override
+			public String describe() {
+				return "calculator";
+			}
+			@Override
+			public void reset() {
+			}
+			@Override
+			public int divide(int a, int b) {
+				return a / b;
+			}
+		}, objectSerializer, CalculatorService.class);
+		serviceActivator.register(new CachedCalculatorService() {
+			@Override
+			public int add(int a, int b) {
+				return a + b;
+			}
+		}, objectSerializer, CachedCalculatorService.class);
+	}
+	
+	@Test
+	public void invokesServiceUsingGeneratedStub() throws Exception {
+		CalculatorService calculator = createProxy(CalculatorService.class);
+		
+		assertTrue(calculator instanceof RemotingStub);
+		assertFalse(Proxy.isProxyClass(calculator.getClass()));
+		assertEquals(5, calculator.add(2, 3));
+		assertEquals(6L, calculator.sum(new long[] { 1, 2, 3 }));
+		assertEquals("calculator", calculator.describe());
+		calculator.reset();
+	}
+	
+	@Test
+	public void asyncResultsAreAdaptedToReturnTypeOfStubbedMethod() throws Exception {
+		CalculatorServiceAsync calculator = createProxy(CalculatorServiceAsync.class);
+		
+		Future<Integer> result = calculator.add(2, 3);
+		assertEquals(Integer.valueOf(5), result.get());
+	}
+	
+	@Test
+	public void stubsForNonPublicServiceApisAreSupported() throws Exception {
+		ObservableCalculatorService calculator = createProxy(ObservableCalculatorService.class);
+		
+		assertTrue(calculator instanceof RemotingStub);
+		assertEquals(Integer.valueOf(5), calculator.add(2, 3).toBlocking().first());
+	}
+	
+	@Test
+	public void stubClassIsReusedForAllStubsForSameServiceApi() throws Exception {
+		CalculatorService calculator1 = createProxy(CalculatorService.class);
+		CalculatorService calculator2 = createProxy(CalculatorService.class);
+		
+		assertSame(calculator1.getClass(), calculator2.getClass());
+		assertEquals(3, calculator1.add(1, 2));
+		assertEquals(7, calculator2.add(3, 4));
+	}
+	
+	@Test
+	public void exceptionsThrownByServiceArePropagated() throws Exception {
+		CalculatorService calculator = createProxy(CalculatorService.class);
+		
+		try {
+			calculator.divide(1, 0);
+			fail("Expected exception to be thrown");
+		} catch (RemoteServiceInvocationException e) {
+			assertEquals(ArithmeticException.class.getName(), e.getExceptionType());
+		}
+	}
+	
+	@Test
+	public void objectMethodsAreInvokedOnRemotingProxy() throws Exception {
+		CalculatorService calculator = createProxy(CalculatorService.class);
+		CalculatorService jdkProxy = createProxy(CalculatorService.class, false);
+		
+		assertEquals(jdkProxy.toString(), calculator.toString());
+	}
+	
+	@Test
+	public void stubsImplementCachingAstrixBeanForServicesWithCachedMethods() throws Exception {
+		CachedCalculatorService calculator = createProxy(CachedCalculatorService.class);
+		
+		assertTrue(calculator instanceof CachingAstrixBean);
+		assertEquals(5, calculator.add(2, 3));
+		assertEquals(5, calculator.add(2, 3));
+		assertEquals(1, CachingAstrixBean.class.cast(calculator).getCacheStatistics().getHitCount());
+		CachingAstrixBean.class.cast(calculator).invalidateCache();
+		assertEquals(0, CachingAstrixBean.class.cast(calculator).getCacheStatistics().getSize());
+	}
+	
+	@Test
+	public void usesJdkProxyWhenGeneratedStubsAreDisabled() throws Exception {
+		CalculatorService calculator = createProxy(CalculatorService.class, false);
+		
+		assertTrue(Proxy.isProxyClass(calculator.getClass()));
+		assertEquals(5, calculator.add(2, 3));
+	}
+	
+	@Test
+	public void destroyingStubReleasesRemotingProxy() throws Exception {
+		CalculatorService calculator = createProxy(CalculatorService.class);
+		RemotingProxy.destroy(calculator);
+		
+		assertEquals("Invocations should still be served after destroy", 5, calculator.add(2, 3));
+	}
+	
+	private <T> T createProxy(Class<T> proxyApi) {
+		return createProxy(proxyApi, true);
+	}
+	
+	private <T> T createProxy(Class<T> proxyApi, boolean generatedStubsEnabled) {
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.setGeneratedStubsEnabled(generatedStubsEnabled);
+		Class<?> targetApi = proxyApi.equals(CachedCalculatorService.class) ? CachedCalculatorService.class : CalculatorService.class;
+		return RemotingProxy.create(proxyApi, targetApi, RemotingTransport.create(new DirectTransport()), objectSerializer, new ConstantRoutingStrategy(), settings);
+	}
+	
+	public interface CalculatorService {
+		int add(int a, int b);
+		long sum(long[] values);
+		String describe();
+		void reset();
+		int divide(int a, int b);
+	}
+	
+	public interface CalculatorServiceAsync {
+		Future<Integer> add(int a, int b);
+	}
+	
+	interface ObservableCalculatorService {
+		Observable<Integer> add(int a, int b);
+	}
+	
+	public interface CachedCalculatorService {
+		@AstrixCached
+		int add(int a, int b);
+	}
+	
+	private static class ConstantRoutingStrategy implements RoutingStrategy {
+		@Override
+		public Router create(Method serviceMethod) {
+			return new Router() {
+				@Override
+				public RoutingKey getRoutingKey(Object... args) throws Exception {
+					return RoutingKey.create(1);
+				}
+			};
+		}
+	}
+	
+	private class DirectTransport extends AbstractRemotingTransportSpi {
+		
+		@Override
+		public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+			return Observable.just(serviceActivator.invokeService(request));
+		}
+		
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public int partitionCount() {
+			return 1;
+		}
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+/**
+ * Base class for RemotingTransportSpi implementations. <p>
+ * 
+ * Provides a default implementation of {@link #invokeRoutedRequest(AstrixServiceInvocationRequest, RoutingKey)}
+ * based on {@link #submitRoutedRequest(AstrixServiceInvocationRequest, RoutingKey)}. Transports that are able to 
+ * send a request and wait for the response without creating an Observable should override it. <p>
+ * 
+ * Transports implementing {@link RemotingTransportSpi} directly are invoked using the Observable path 
+ * for all service invocations.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public abstract class AbstractRemotingTransportSpi implements RemotingTransportSpi {
+	
+	/**
+	 * Sends a single routed invocation request to the target cluster member and blocks
+	 * until the response is received. <p>
+	 * 
+	 * Used for service methods with a non reactive return type, i.e. neither
+	 * an Observable nor a Future. Implementations should apply the same fault tolerance 
+	 * and timeout semantics as {@link #submitRoutedRequest(AstrixServiceInvocationRequest, RoutingKey)}, 
+	 * but avoid the overhead of creating an Observable for each invocation. Checked exceptions
+	 * are propagated wrapped in a RuntimeException.
+	 * 
+	 * @param request
+	 * @param routingKey
+	 * @return the response from the given invocation request.
+	 */
+	public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+		return submitRoutedRequest(request, routingKey).toBlocking().first();
+	}
+
+}
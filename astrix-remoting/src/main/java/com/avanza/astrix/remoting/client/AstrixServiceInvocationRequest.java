@@ -15,10 +15,19 @@
  */
 package com.avanza.astrix.remoting.client;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.avanza.astrix.core.AstrixDeadline;
+import com.avanza.astrix.core.AstrixPriorityClass;
+import com.avanza.astrix.remoting.util.ServiceMethodIndex;
 /**
  * 
  * @author Elias Lindholm (elilin)
@@ -28,8 +37,67 @@ public class AstrixServiceInvocationRequest implements Serializable {
 	
 	private static final long serialVersionUID = 1L;
 	
-	private final Map<String, String> headers = new HashMap<>();
+	/*
+	 * The target service and method are carried in dedicated fields rather than in the header 
+	 * map. The serviceMethodId is resolved when the client is bound (see ServiceMethodIndex) and 
+	 * allows the server to locate the target method without any lookups by signature. The signature 
+	 * is always sent along, and used whenever the serviceApiChecksum does not match the method table 
+	 * on the server side.
+	 * 
+	 * The header map is only allocated when a header is set, and it's shared with requests created 
+	 * from a template until a header is set on the copy. Requests sent by clients predating the compact 
+	 * envelope carry the target service in the headers only, see AstrixServiceInvocationRequestHeaders. 
+	 * The client only writes those headers when the server predates the compact envelope, see 
+	 * RemotingProxySettings.isCompactEnvelopeSupported.
+	 */
+	private int apiVersion;
+	private String serviceApi;
+	private String serviceMethodSignature;
+	private int serviceMethodId = ServiceMethodIndex.UNDEFINED_METHOD_ID;
+	private int serviceApiChecksum;
+	private Map<String, String> headers;
+	private transient boolean sharedHeaders;
 	private Object[] arguments;
+	/*
+	 * null for NORMAL priority, which keeps the request compact and readable by servers
+	 * predating priority classes.
+	 */
+	private AstrixPriorityClass priority;
+	/*
+	 * The deadline is measured using System.nanoTime, hence it is only meaningful within a
+	 * single jvm. On the wire it is carried as the remaining time budget at the time the request 
+	 * is serialized, which the receiver turns into a local deadline when the request is deserialized.
+	 * That way the deadline is independent of clock skew between client and server, and time spent
+	 * in queues on either side is accounted for. Requests from clients predating deadline
+	 * propagation are read with hasTimeBudget=false. timeBudgetMillis is only read when the request 
+	 * is deserialized, it's computed from the deadline each time the request is serialized.
+	 */
+	private transient long deadlineNanos;
+	private boolean hasTimeBudget;
+	private long timeBudgetMillis;
+	
+	public AstrixServiceInvocationRequest() {
+	}
+	
+	/**
+	 * Creates a new request targeting the same service method as the given request. The
+	 * arguments are not copied. The headers are shared with the given request, which 
+	 * must not be modified once used as a template.
+	 * 
+	 * @param target
+	 */
+	public AstrixServiceInvocationRequest(AstrixServiceInvocationRequest target) {
+		this.apiVersion = target.apiVersion;
+		this.serviceApi = target.serviceApi;
+		this.serviceMethodSignature = target.serviceMethodSignature;
+		this.serviceMethodId = target.serviceMethodId;
+		this.serviceApiChecksum = target.serviceApiChecksum;
+		this.headers = target.headers;
+		this.sharedHeaders = target.headers != null;
+		this.priority = target.priority;
+		this.deadlineNanos = target.deadlineNanos;
+		this.hasTimeBudget = target.hasTimeBudget;
+	}
 	
 	public void setArguments(Object[] requestBody) {
 		this.arguments = requestBody;
@@ -38,27 +106,146 @@ public class AstrixServiceInvocationRequest implements Serializable {
 	public Object[] getArguments() {
 		return arguments;
 	}
+	
+	public int getApiVersion() {
+		return apiVersion;
+	}
+	
+	public void setApiVersion(int apiVersion) {
+		this.apiVersion = apiVersion;
+	}
+	
+	public String getServiceApi() {
+		return serviceApi;
+	}
+	
+	public void setServiceApi(String serviceApi) {
+		this.serviceApi = serviceApi;
+	}
+	
+	public String getServiceMethodSignature() {
+		return serviceMethodSignature;
+	}
+	
+	public void setServiceMethodSignature(String serviceMethodSignature) {
+		this.serviceMethodSignature = serviceMethodSignature;
+	}
+	
+	public int getServiceMethodId() {
+		return serviceMethodId;
+	}
+	
+	public int getServiceApiChecksum() {
+		return serviceApiChecksum;
+	}
+	
+	public void setServiceMethodId(int serviceMethodId, int serviceApiChecksum) {
+		this.serviceMethodId = serviceMethodId;
+		this.serviceApiChecksum = serviceApiChecksum;
+	}
 
 	public void setHeader(String name, String value) {
+		if (this.headers == null) {
+			this.headers = new HashMap<>();
+		} else if (this.sharedHeaders) {
+			this.headers = new HashMap<>(this.headers);
+			this.sharedHeaders = false;
+		}
 		this.headers.put(name, value);
 	}
 	
 	public String getHeader(String name) {
+		if (this.headers == null) {
+			return null;
+		}
 		return this.headers.get(name);
 	}
 	
-	@Override
-	public String toString() {
-		return "Invocation Request. headers=" + this.headers.toString() + ", arguments=" + Arrays.toString(arguments);
-	}
-
 	public Map<String, String> getHeaders() {
-		return this.headers;
+		if (this.headers == null) {
+			return Collections.emptyMap();
+		}
+		return Collections.unmodifiableMap(this.headers);
 	}
-
-	public void setAllHeaders(Map<String, String> headers) {
-		this.headers.putAll(headers);
+	
+	public AstrixPriorityClass getPriority() {
+		return this.priority != null ? this.priority : AstrixPriorityClass.NORMAL;
+	}
+	
+	public void setPriority(AstrixPriorityClass priority) {
+		this.priority = priority == AstrixPriorityClass.NORMAL ? null : priority;
+	}
+	
+	/**
+	 * Sets the time budget for this request, i.e. the time the client waits for a response. 
+	 * 
+	 * @param timeBudgetMillis
+	 */
+	public void setTimeBudget(long timeBudgetMillis) {
+		this.hasTimeBudget = true;
+		this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeBudgetMillis));
+	}
+	
+	/**
+	 * Sets the time budget for this request unless it already has a smaller remaining budget.
+	 * 
+	 * @param timeBudgetMillis
+	 */
+	public void limitTimeBudget(long timeBudgetMillis) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeBudgetMillis));
+		if (!hasDeadline() || deadline - this.deadlineNanos < 0) {
+			this.hasTimeBudget = true;
+			this.deadlineNanos = deadline;
+		}
+	}
+	
+	public boolean hasDeadline() {
+		return this.hasTimeBudget;
+	}
+	
+	/**
+	 * The deadline for this request in terms of System.nanoTime in the current jvm. Only
+	 * defined if {@link #hasDeadline()} returns true.
+	 * 
+	 * @return
+	 */
+	public long getDeadlineNanos() {
+		return deadlineNanos;
+	}
+	
+	public boolean isExpired() {
+		return hasDeadline() && System.nanoTime() - deadlineNanos >= 0;
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("apiVersion", apiVersion);
+		fields.put("serviceApi", serviceApi);
+		fields.put("serviceMethodSignature", serviceMethodSignature);
+		fields.put("serviceMethodId", serviceMethodId);
+		fields.put("serviceApiChecksum", serviceApiChecksum);
+		fields.put("headers", headers);
+		fields.put("arguments", arguments);
+		fields.put("priority", priority);
+		fields.put("hasTimeBudget", hasTimeBudget);
+		fields.put("timeBudgetMillis", hasDeadline() ? AstrixDeadline.getRemainingMillis(deadlineNanos) : 0L);
+		out.writeFields();
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (hasDeadline()) {
+			this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "Invocation Request. serviceApi=" + this.serviceApi 
+				+ ", serviceMethodSignature=" + this.serviceMethodSignature 
+				+ ", apiVersion=" + this.apiVersion 
+				+ ", headers=" + this.headers 
+				+ ", arguments=" + Arrays.toString(arguments);
 	}
-
 	
 }
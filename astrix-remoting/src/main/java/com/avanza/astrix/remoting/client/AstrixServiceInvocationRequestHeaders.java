@@ -14,7 +14,14 @@
  * limitations under the License.
  */
 package com.avanza.astrix.remoting.client;
-
+/**
+ * Headers used to identify the target service by clients and servers predating the compact
+ * invocation envelope, see {@link AstrixServiceInvocationRequest}. Always written by the client 
+ * in order to be served by such servers, and read by the server in order to serve such clients.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
 public class AstrixServiceInvocationRequestHeaders {
 	
 	public static final String API_VERSION = "apiVersion";
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import rx.Observable;
+
+/**
+ * Extension point used to support additional asynchronous return types on service methods, 
+ * for instance CompletableFuture. <p>
+ * 
+ * The {@link RemotingProxy} uses an AsyncResultAdapter for all proxied methods whose return type
+ * is equal to {@link #getResultType()}. The result should be completed directly from the callback of
+ * the Observable, without blocking a thread while the invocation is in progress. <p>
+ * 
+ * Implementations are discovered using the {@link java.util.ServiceLoader} mechanism. Providers 
+ * that fail to load, typically since the result type is not available on the classpath, are ignored. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public interface AsyncResultAdapter {
+	
+	/**
+	 * @return the return type of the proxied methods supported by this adapter.
+	 */
+	Class<?> getResultType();
+	
+	/**
+	 * Adapts the result of a remote service invocation to an instance of {@link #getResultType()}. The Observable 
+	 * emits a single item, or an error. 
+	 * 
+	 * @param result
+	 * @return
+	 */
+	<T> Object adapt(Observable<T> result);
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the {@link AsyncResultAdapter}'s discovered on the classpath. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class AsyncResultAdapters {
+	
+	private static final Logger log = LoggerFactory.getLogger(AsyncResultAdapters.class);
+	
+	private static final List<AsyncResultAdapter> DISCOVERED_ADAPTERS = discover();
+	
+	private AsyncResultAdapters() {
+	}
+	
+	static AsyncResultAdapter getAdapter(Class<?> returnType) {
+		for (AsyncResultAdapter adapter : DISCOVERED_ADAPTERS) {
+			if (adapter.getResultType().equals(returnType)) {
+				return adapter;
+			}
+		}
+		return null;
+	}
+
+	private static List<AsyncResultAdapter> discover() {
+		List<AsyncResultAdapter> result = new ArrayList<>();
+		Iterator<AsyncResultAdapter> adapters = ServiceLoader.load(AsyncResultAdapter.class, AsyncResultAdapter.class.getClassLoader()).iterator();
+		while (adapters.hasNext()) {
+			try {
+				AsyncResultAdapter adapter = adapters.next();
+				log.debug("Discovered AsyncResultAdapter, resultType={} adapterType={}", adapter.getResultType().getName(), adapter.getClass().getName());
+				result.add(adapter);
+			} catch (ServiceConfigurationError | LinkageError e) {
+				log.debug("Ignoring AsyncResultAdapter that failed to load", e);
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+}
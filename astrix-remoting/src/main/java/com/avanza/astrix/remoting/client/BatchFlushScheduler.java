@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+
+/**
+ * Schedules the flushing of client side batches, see {@link RoutedRequestBatcher} and
+ * {@link BatchableRemoteServiceMethod}. <p>
+ * 
+ * The underlying worker is created on first use, hence proxies that never batch any requests 
+ * don't hold a worker. The worker is released when the {@link RemotingEngine} is destroyed, 
+ * and batches scheduled after that are flushed immediately by the calling thread.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class BatchFlushScheduler {
+	
+	private Scheduler.Worker worker; // Guarded by "this"
+	private boolean destroyed = false; // Guarded by "this"
+	
+	void schedule(Action0 flush, long delay, TimeUnit unit) {
+		Scheduler.Worker worker = getWorker();
+		if (worker == null) {
+			flush.call();
+			return;
+		}
+		worker.schedule(flush, delay, unit);
+	}
+	
+	private synchronized Scheduler.Worker getWorker() {
+		if (this.worker == null && !this.destroyed) {
+			this.worker = Schedulers.computation().createWorker();
+		}
+		return this.worker;
+	}
+	
+	synchronized void destroy() {
+		this.destroyed = true;
+		if (this.worker != null) {
+			this.worker.unsubscribe();
+			this.worker = null;
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.DynamicLongProperty;
+import com.avanza.astrix.core.AstrixBatchable;
+import com.avanza.astrix.core.util.ReflectionUtil;
+
+/**
+ * Remote service method for {@link AstrixBatchable} service methods. Invocations are collected 
+ * and dispatched as a single invocation of the (partitioned) bulk service method, whose result
+ * is fanned back out to each invocation. <p>
+ * 
+ * A batch is dispatched when the batch window has passed since the first invocation was added 
+ * to it, or as soon as it reaches the max batch size. Invocations with equal keys share the 
+ * same key in the bulk invocation. The window and max batch size defined by {@link AstrixBatchable}
+ * may be overridden using {@link RemotingProxySettings}.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class BatchableRemoteServiceMethod implements RemoteServiceMethod {
+	
+	private final String signature;
+	private final RemoteServiceMethod bulkMethod;
+	private final AstrixServiceInvocationRequest bulkRequestTemplate;
+	private final Class<? extends Collection<Object>> keyCollectionFactory;
+	private final AstrixBatchable batchable;
+	private final DynamicLongProperty windowMicros;
+	private final DynamicIntProperty maxBatchSize;
+	private final BatchFlushScheduler flushScheduler;
+	private final Action0 flush = new Action0() {
+		@Override
+		public void call() {
+			dispatch(drain());
+		}
+	};
+	private List<PendingInvocation> pending = new ArrayList<>(); // Guarded by "this"
+	
+	BatchableRemoteServiceMethod(String signature, 
+								 RemoteServiceMethod bulkMethod, 
+								 AstrixServiceInvocationRequest bulkRequestTemplate, 
+								 Class<? extends Collection<Object>> keyCollectionFactory,
+								 AstrixBatchable batchable,
+								 RemotingProxySettings settings,
+								 BatchFlushScheduler flushScheduler) {
+		this.signature = signature;
+		this.bulkMethod = bulkMethod;
+		this.bulkRequestTemplate = bulkRequestTemplate;
+		this.keyCollectionFactory = keyCollectionFactory;
+		this.batchable = batchable;
+		this.windowMicros = settings.getBatchableWindowMicros();
+		this.maxBatchSize = settings.getBatchableMaxBatchSize();
+		this.flushScheduler = flushScheduler;
+	}
+
+	@Override
+	public String getSignature() {
+		return signature;
+	}
+
+	@Override
+	public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, final Object[] args) throws Exception {
+		return Observable.create(new Observable.OnSubscribe<Object>() {
+			@Override
+			public void call(Subscriber<? super Object> subscriber) {
+				add(new PendingInvocation(args[0], subscriber));
+			}
+		});
+	}
+
+	@Override
+	public Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		return invoke(invocationRequest, args).toBlocking().first();
+	}
+	
+	private void add(PendingInvocation invocation) {
+		List<PendingInvocation> fullBatch = null;
+		boolean firstInBatch;
+		int max = maxBatchSize.get() > 0 ? maxBatchSize.get() : batchable.maxBatchSize();
+		synchronized (this) {
+			pending.add(invocation);
+			firstInBatch = pending.size() == 1;
+			if (pending.size() >= max) {
+				fullBatch = pending;
+				pending = new ArrayList<>();
+			}
+		}
+		if (fullBatch != null) {
+			dispatch(fullBatch);
+		} else if (firstInBatch) {
+			long window = windowMicros.get() > 0 ? windowMicros.get() : batchable.windowMicros();
+			flushScheduler.schedule(flush, window, TimeUnit.MICROSECONDS);
+		}
+	}
+	
+	private synchronized List<PendingInvocation> drain() {
+		List<PendingInvocation> result = pending;
+		pending = new ArrayList<>();
+		return result;
+	}
+
+	private void dispatch(List<PendingInvocation> batch) {
+		final Map<Object, List<Subscriber<? super Object>>> subscribersByKey = new LinkedHashMap<>();
+		for (PendingInvocation invocation : batch) {
+			if (invocation.subscriber.isUnsubscribed()) {
+				continue;
+			}
+			List<Subscriber<? super Object>> subscribers = subscribersByKey.get(invocation.key);
+			if (subscribers == null) {
+				subscribers = new ArrayList<>(1);
+				subscribersByKey.put(invocation.key, subscribers);
+			}
+			subscribers.add(invocation.subscriber);
+		}
+		if (subscribersByKey.isEmpty()) {
+			return;
+		}
+		Collection<Object> keys = ReflectionUtil.newInstance(keyCollectionFactory);
+		keys.addAll(subscribersByKey.keySet());
+		Observable<?> bulkResult;
+		try {
+			bulkResult = bulkMethod.invoke(new AstrixServiceInvocationRequest(bulkRequestTemplate), new Object[] { keys });
+		} catch (Exception e) {
+			bulkResult = Observable.error(e);
+		}
+		bulkResult.subscribe(new Subscriber<Object>() {
+			@Override
+			public void onCompleted() {
+				for (List<Subscriber<? super Object>> subscribers : subscribersByKey.values()) {
+					for (Subscriber<? super Object> subscriber : subscribers) {
+						subscriber.onCompleted();
+					}
+				}
+			}
+			@Override
+			public void onError(Throwable e) {
+				for (List<Subscriber<? super Object>> subscribers : subscribersByKey.values()) {
+					for (Subscriber<? super Object> subscriber : subscribers) {
+						subscriber.onError(e);
+					}
+				}
+			}
+			@Override
+			public void onNext(Object result) {
+				Map<?, ?> resultByKey = (Map<?, ?>) result;
+				for (Map.Entry<Object, List<Subscriber<? super Object>>> keySubscribers : subscribersByKey.entrySet()) {
+					Object keyResult = resultByKey != null ? resultByKey.get(keySubscribers.getKey()) : null;
+					for (Subscriber<? super Object> subscriber : keySubscribers.getValue()) {
+						subscriber.onNext(keyResult);
+					}
+				}
+			}
+		});
+	}
+	
+	private static class PendingInvocation {
+		private final Object key;
+		private final Subscriber<? super Object> subscriber;
+		
+		public PendingInvocation(Object key, Subscriber<? super Object> subscriber) {
+			this.key = key;
+			this.subscriber = subscriber;
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.List;
+
+import rx.Observable;
+
+/**
+ * Optional extension of {@link RemotingTransportSpi} for transports that are able to send several
+ * invocation requests to the same cluster member in a single round trip. <p>
+ * 
+ * Used to coalesce concurrent routed requests targeting the same partition, see 
+ * {@link RemotingProxySettings#getMicroBatchWindowMicros()}.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public interface BatchingRemotingTransportSpi extends RemotingTransportSpi {
+	
+	/**
+	 * Sends a batch of invocation requests to the cluster member identified by the given routing key. 
+	 * The requests are invoked in order on the server side, see {@link com.avanza.astrix.remoting.server.AstrixServiceActivator#invokeServices(List)}.
+	 * 
+	 * @param requests
+	 * @param routingKey
+	 * @return an Observable that will emit one item with the responses to all requests, in the same order as the requests.
+	 */
+	Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequestBatch(List<AstrixServiceInvocationRequest> requests, RoutingKey routingKey);
+
+}
@@ -18,13 +18,22 @@ package com.avanza.astrix.remoting.client;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import rx.Observable;
+import rx.functions.Func0;
 import rx.functions.Func1;
 
-import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.PartialRemoteResultReducer;
 import com.avanza.astrix.core.RemoteResultReducer;
-import com.avanza.astrix.core.util.ReflectionUtil;
+import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.core.ShortCircuitingRemoteResultAccumulator;
+import com.avanza.astrix.core.ShortCircuitingRemoteResultReducer;
 
 /**
  * 
@@ -35,38 +44,75 @@ import com.avanza.astrix.core.util.ReflectionUtil;
 public class BroadcastedRemoteServiceMethod implements RemoteServiceMethod {
 	
 	private final String signature;
-	private final Class<? extends RemoteResultReducer> reducer;
+	private final RemoteResultReducerFactory reducerFactory;
 	private final RemotingEngine remotingEngine;
 	private final Type returnType;
+	private final long partialResultDeadlineMillis;
+	private final int quorum;
+	private final boolean shortCircuit;
 	
 	public BroadcastedRemoteServiceMethod(String signature,
 			Class<? extends RemoteResultReducer> reducer,
 			RemotingEngine remotingEngine, 
 			Type returnType) {
+		this(signature, reducer, remotingEngine, returnType, 0, 0, false);
+	}
+	
+	/**
+	 * @param partialResultDeadlineMillis - deadline for partial results, or 0 to wait for all partitions.
+	 *        When positive the reducer must implement {@link PartialRemoteResultReducer}.
+	 * @param quorum - number of responses required to complete the invocation, or 0 to wait for all partitions.
+	 * @param shortCircuit - whether to complete as soon as the accumulator of the reducer is complete. When 
+	 *        true the reducer must implement {@link ShortCircuitingRemoteResultReducer}.
+	 */
+	public BroadcastedRemoteServiceMethod(String signature,
+			Class<? extends RemoteResultReducer> reducer,
+			RemotingEngine remotingEngine, 
+			Type returnType,
+			long partialResultDeadlineMillis,
+			int quorum,
+			boolean shortCircuit) {
 		this.signature = signature;
-		this.reducer = reducer;
+		this.reducerFactory = RemoteResultReducerFactory.create(reducer);
 		this.remotingEngine = remotingEngine;
 		this.returnType = returnType;
+		this.partialResultDeadlineMillis = partialResultDeadlineMillis;
+		this.quorum = quorum;
+		this.shortCircuit = shortCircuit;
+		if (partialResultDeadlineMillis > 0 && !PartialRemoteResultReducer.class.isAssignableFrom(reducer)) {
+			throw new IncompatibleRemoteResultReducerException(String.format(
+					"Broadcasted service method with partial results must use a PartialRemoteResultReducer. serviceMethod=%s reducerType=%s", 
+					signature, reducer.getName()));
+		}
+		if (shortCircuit && !ShortCircuitingRemoteResultReducer.class.isAssignableFrom(reducer)) {
+			throw new IncompatibleRemoteResultReducerException(String.format(
+					"Short circuiting broadcasted service method must use a ShortCircuitingRemoteResultReducer. serviceMethod=%s reducerType=%s", 
+					signature, reducer.getName()));
+		}
 	}
 
 	public String getSignature() {
 		return signature;
 	}
 	
-	private RemoteResultReducer<?> newReducer() {
-		return ReflectionUtil.newInstance(this.reducer);
-	}
-
 	@Override
 	public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
 		return submitBroadcastRequest(invocationRequest, args);
 	}
 	
+	@Override
+	public Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		return invoke(invocationRequest, args).toBlocking().first();
+	}
+	
 	private <T> Observable<T> submitBroadcastRequest(
 			AstrixServiceInvocationRequest request, Object[] args) throws InstantiationException,
 			IllegalAccessException {
 		request.setArguments(remotingEngine.marshall(args));
-		final RemoteResultReducer<T> reducer = (RemoteResultReducer<T>) newReducer();
+		if (partialResultDeadlineMillis > 0 || quorum > 0 || shortCircuit) {
+			return submitStreamedBroadcastRequest(request);
+		}
+		final RemoteResultReducer<T> reducer = reducerFactory.getReducer();
 		Observable<List<AstrixServiceInvocationResponse>> responesObservable = remotingEngine.submitBroadcastRequest(request);
 		if (returnType.equals(Void.TYPE)) {
 			return responesObservable.map(new Func1<List<AstrixServiceInvocationResponse>, T>() {
@@ -79,14 +125,150 @@ public class BroadcastedRemoteServiceMethod implements RemoteServiceMethod {
 		return responesObservable.map(new Func1<List<AstrixServiceInvocationResponse>, T>() {
 			@Override
 			public T call(List<AstrixServiceInvocationResponse> t1) {
-				List<AstrixRemoteResult<T>> unmarshalledResponses = new ArrayList<>();
-				for (AstrixServiceInvocationResponse response : t1) {
-					AstrixRemoteResult<T> result = remotingEngine.toRemoteResult(response, returnType);
-					unmarshalledResponses.add(result);
-				}
-				return reducer.reduce(unmarshalledResponses);
+				return remotingEngine.reduce(t1, reducer, returnType);
+			}
+		});
+	}
+	
+	/*
+	 * The broadcast is sent as one routed request per partition, since the responses from a 
+	 * broadcast request are only emitted when all partitions have responded, and don't tell 
+	 * which partition each response originates from.
+	 */
+	private <T> Observable<T> submitStreamedBroadcastRequest(final AstrixServiceInvocationRequest request) {
+		return Observable.defer(new Func0<Observable<T>>() {
+			@Override
+			public Observable<T> call() {
+				return new StreamedBroadcast<T>(remotingEngine.partitionCount()).submit(request);
 			}
 		});
 	}
 	
+	/*
+	 * Holds the state of a single streamed broadcast invocation.
+	 */
+	private class StreamedBroadcast<T> {
+		
+		private final int partitionCount;
+		private final RemoteResultReducer<T> reducer;
+		private final ShortCircuitingRemoteResultAccumulator<T> accumulator;
+		private final Queue<Throwable> partitionFailures = new ConcurrentLinkedQueue<>();
+		
+		@SuppressWarnings("unchecked")
+		public StreamedBroadcast(int partitionCount) {
+			this.partitionCount = partitionCount;
+			this.reducer = reducerFactory.getReducer();
+			if (shortCircuit && !returnType.equals(Void.TYPE)) {
+				this.accumulator = ((ShortCircuitingRemoteResultReducer<T>) reducer).newAccumulator(partitionCount);
+			} else {
+				this.accumulator = null;
+			}
+		}
+		
+		Observable<T> submit(AstrixServiceInvocationRequest request) {
+			List<Observable<PartitionResponse>> responses = new ArrayList<>(partitionCount);
+			for (int partition = 0; partition < partitionCount; partition++) {
+				final int responsePartition = partition;
+				responses.add(remotingEngine.submitRoutedRequest(request, RoutingKey.create(partition)).map(new Func1<AstrixServiceInvocationResponse, PartitionResponse>() {
+					@Override
+					public PartitionResponse call(AstrixServiceInvocationResponse response) {
+						return new PartitionResponse(responsePartition, response);
+					}
+				}).onErrorResumeNext(new Func1<Throwable, Observable<PartitionResponse>>() {
+					@Override
+					public Observable<PartitionResponse> call(Throwable t) {
+						if (isPartitionUnavailable(t)) {
+							// Unavailable partitions are treated as missing
+							partitionFailures.add(t);
+							return Observable.empty();
+						}
+						return Observable.error(t);
+					}
+				}));
+			}
+			Observable<PartitionResponse> receivedResponses = Observable.merge(responses);
+			if (accumulator != null) {
+				// Each response is accumulated as soon as it's received
+				receivedResponses = receivedResponses.takeUntil(new Func1<PartitionResponse, Boolean>() {
+					@Override
+					public Boolean call(PartitionResponse partitionResponse) {
+						accumulator.accumulate(remotingEngine.<T>toRemoteResult(partitionResponse.response, returnType));
+						return accumulator.isComplete();
+					}
+				});
+			}
+			if (quorum > 0) {
+				receivedResponses = receivedResponses.take(quorum);
+			}
+			if (partialResultDeadlineMillis > 0) {
+				receivedResponses = receivedResponses.takeUntil(Observable.timer(partialResultDeadlineMillis, TimeUnit.MILLISECONDS));
+			}
+			// Unsubscribing from the merged responses unsubscribes the requests to partitions that have not responded yet
+			return receivedResponses.toList().map(new Func1<List<PartitionResponse>, T>() {
+				@Override
+				public T call(List<PartitionResponse> partitionResponses) {
+					return reduce(partitionResponses);
+				}
+			});
+		}
+		
+		@SuppressWarnings("unchecked")
+		private T reduce(List<PartitionResponse> partitionResponses) {
+			if (partitionResponses.isEmpty() && partitionCount > 0) {
+				throw withPartitionFailures(new ServiceUnavailableException(String.format("No partition responded: service=%s", signature)));
+			}
+			if (returnType.equals(Void.TYPE)) {
+				return null;
+			}
+			Set<Integer> missingPartitions = new TreeSet<>();
+			for (int partition = 0; partition < partitionCount; partition++) {
+				missingPartitions.add(partition);
+			}
+			List<AstrixServiceInvocationResponse> receivedResponses = new ArrayList<>(partitionResponses.size());
+			for (PartitionResponse partitionResponse : partitionResponses) {
+				receivedResponses.add(partitionResponse.response);
+				missingPartitions.remove(partitionResponse.partition);
+			}
+			boolean sufficientResponses = missingPartitions.isEmpty() || (quorum > 0 && receivedResponses.size() >= quorum);
+			if (accumulator != null && (accumulator.isComplete() || sufficientResponses)) {
+				return accumulator.finish();
+			}
+			if (sufficientResponses) {
+				return remotingEngine.reduce(receivedResponses, reducer, returnType);
+			}
+			if (partialResultDeadlineMillis > 0) {
+				return remotingEngine.reducePartial(receivedResponses, (PartialRemoteResultReducer<T>) reducer, returnType, missingPartitions);
+			}
+			throw withPartitionFailures(new ServiceUnavailableException(String.format("Partitions did not respond: service=%s partitions=%s", signature, missingPartitions)));
+		}
+		
+		/*
+		 * The first partition failure is used as cause, and the remaining are added as suppressed exceptions.
+		 */
+		private ServiceUnavailableException withPartitionFailures(ServiceUnavailableException e) {
+			for (Throwable partitionFailure : partitionFailures) {
+				if (e.getCause() == null) {
+					e.initCause(partitionFailure);
+				} else {
+					e.addSuppressed(partitionFailure);
+				}
+			}
+			return e;
+		}
+	}
+	
+	private static boolean isPartitionUnavailable(Throwable t) {
+		return t instanceof ServiceUnavailableException || t instanceof TimeoutException;
+	}
+	
+	private static class PartitionResponse {
+		private final int partition;
+		private final AstrixServiceInvocationResponse response;
+		
+		public PartitionResponse(int partition, AstrixServiceInvocationResponse response) {
+			this.partition = partition;
+			this.response = response;
+		}
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.functions.Action1;
+
+import com.avanza.astrix.config.DynamicBooleanProperty;
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.DynamicLongProperty;
+import com.avanza.astrix.core.AstrixCacheStatistics;
+import com.avanza.astrix.core.AstrixCached;
+
+/**
+ * Caches the results of an {@link AstrixCached} service method, keyed on the marshalled 
+ * arguments of each invocation. <p>
+ * 
+ * Results are cached in marshalled form and unmarshalled on each hit, hence callers never 
+ * share a result instance. <p>
+ * 
+ * The cache is bounded and evicts entries using the CLOCK approximation of least recently used, 
+ * i.e. an entry that has been read since it was last considered for eviction gets a second 
+ * chance. Expired entries are evicted when read, or when swept from the eviction queue which
+ * is bounded to twice the max size of the cache. The ttl and max size are read from the 
+ * {@link RemotingProxySettings} on each write, with the values from the {@link AstrixCached} 
+ * annotation used as defaults. 
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class CachingRemoteServiceMethod implements RemoteServiceMethod {
+	
+	private final RemoteServiceMethod target;
+	private final RemotingEngine remotingEngine;
+	private final Type resultType;
+	private final DynamicBooleanProperty enabled;
+	private final DynamicLongProperty ttlMillis;
+	private final DynamicIntProperty maxSize;
+	private final AstrixCached cached;
+	private final ConcurrentMap<MarshalledArgumentsKey, CacheEntry> entries = new ConcurrentHashMap<>();
+	/*
+	 * The entries in insertion order, i.e. the candidates for eviction. Might contain entries
+	 * that are already removed from the cache. Entries are only added without holding the
+	 * monitor of this instance, all removals are done while holding it.
+	 */
+	private final Queue<CacheEntry> evictionQueue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger evictionQueueSize = new AtomicInteger();
+	/*
+	 * Incremented on each invalidation. Results from invocations started before an invalidation
+	 * are not cached, since they might be stale.
+	 */
+	private final AtomicLong generation = new AtomicLong();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	CachingRemoteServiceMethod(RemoteServiceMethod target, RemotingEngine remotingEngine, Type resultType, AstrixCached cached, RemotingProxySettings settings) {
+		this.target = target;
+		this.remotingEngine = remotingEngine;
+		this.resultType = resultType;
+		this.cached = cached;
+		this.enabled = settings.getCacheEnabled();
+		this.ttlMillis = settings.getCacheTtlMillis();
+		this.maxSize = settings.getCacheMaxSize();
+	}
+
+	@Override
+	public String getSignature() {
+		return target.getSignature();
+	}
+
+	@Override
+	public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		if (!enabled.get()) {
+			return target.invoke(invocationRequest, args);
+		}
+		final MarshalledArgumentsKey key = MarshalledArgumentsKey.create(remotingEngine, args);
+		CacheEntry entry = get(key);
+		if (entry != null) {
+			return Observable.just(entry.unmarshall());
+		}
+		final long invocationGeneration = generation.get();
+		return target.invoke(invocationRequest, args).doOnNext(new Action1<Object>() {
+			@Override
+			public void call(Object result) {
+				put(key, result, invocationGeneration);
+			}
+		});
+	}
+
+	@Override
+	public Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		if (!enabled.get()) {
+			return target.invokeBlocking(invocationRequest, args);
+		}
+		MarshalledArgumentsKey key = MarshalledArgumentsKey.create(remotingEngine, args);
+		CacheEntry entry = get(key);
+		if (entry != null) {
+			return entry.unmarshall();
+		}
+		long invocationGeneration = generation.get();
+		Object result = target.invokeBlocking(invocationRequest, args);
+		put(key, result, invocationGeneration);
+		return result;
+	}
+	
+	private CacheEntry get(MarshalledArgumentsKey key) {
+		CacheEntry entry = entries.get(key);
+		if (entry != null && entry.isExpired(System.nanoTime())) {
+			entries.remove(key, entry);
+			entry = null;
+		}
+		if (entry == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		entry.referenced = true;
+		hitCount.incrementAndGet();
+		return entry;
+	}
+	
+	private void put(MarshalledArgumentsKey key, Object result, long invocationGeneration) {
+		long ttl = ttlMillis.get() > 0 ? ttlMillis.get() : cached.ttlMillis();
+		CacheEntry entry = new CacheEntry(key, remotingEngine.marshallArgument(result), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl));
+		entries.put(key, entry);
+		evictionQueue.add(entry);
+		evictionQueueSize.incrementAndGet();
+		if (generation.get() != invocationGeneration) {
+			// Invalidated while the invocation was in flight
+			entries.remove(key, entry);
+			return;
+		}
+		evict();
+	}
+	
+	/*
+	 * The max size might have been decreased at runtime, hence evict until the cache fits
+	 */
+	private synchronized void evict() {
+		int max = maxSize.get() > 0 ? maxSize.get() : cached.maxSize();
+		while (entries.size() > max) {
+			CacheEntry candidate = pollEvictionQueue();
+			if (candidate == null) {
+				return;
+			}
+			if (entries.get(candidate.key) != candidate) {
+				// Already removed or replaced
+				continue;
+			}
+			if (candidate.referenced) {
+				// Second chance
+				candidate.referenced = false;
+				evictionQueue.add(candidate);
+				evictionQueueSize.incrementAndGet();
+				continue;
+			}
+			entries.remove(candidate.key, candidate);
+		}
+		/*
+		 * Expired and replaced entries are dropped from the cache without being removed from
+		 * the queue, which would grow without bounds if the cache never fills up.
+		 */
+		long now = System.nanoTime();
+		CacheEntry head;
+		while ((head = evictionQueue.peek()) != null && removeIfStale(head, now)) {
+			pollEvictionQueue();
+		}
+		if (evictionQueueSize.get() > 2 * max) {
+			Iterator<CacheEntry> queuedEntries = evictionQueue.iterator();
+			while (queuedEntries.hasNext()) {
+				if (removeIfStale(queuedEntries.next(), now)) {
+					queuedEntries.remove();
+					evictionQueueSize.decrementAndGet();
+				}
+			}
+		}
+	}
+	
+	private boolean removeIfStale(CacheEntry entry, long nowNanos) {
+		if (entries.get(entry.key) != entry) {
+			return true;
+		}
+		if (entry.isExpired(nowNanos)) {
+			entries.remove(entry.key, entry);
+			return true;
+		}
+		return false;
+	}
+	
+	private CacheEntry pollEvictionQueue() {
+		CacheEntry result = evictionQueue.poll();
+		if (result != null) {
+			evictionQueueSize.decrementAndGet();
+		}
+		return result;
+	}
+	
+	synchronized void invalidate() {
+		generation.incrementAndGet();
+		entries.clear();
+		while (pollEvictionQueue() != null) {
+			// Drain queue while keeping the size consistent with concurrent puts
+		}
+	}
+	
+	int getEvictionQueueSize() {
+		return evictionQueueSize.get();
+	}
+	
+	AstrixCacheStatistics getStatistics() {
+		return new AstrixCacheStatistics(hitCount.get(), missCount.get(), entries.size());
+	}
+	
+	private final class CacheEntry {
+		private final MarshalledArgumentsKey key;
+		private final Object marshalledResult;
+		private final long expiresAtNanos;
+		private volatile boolean referenced = false;
+		
+		public CacheEntry(MarshalledArgumentsKey key, Object marshalledResult, long expiresAtNanos) {
+			this.key = key;
+			this.marshalledResult = marshalledResult;
+			this.expiresAtNanos = expiresAtNanos;
+		}
+		
+		Object unmarshall() {
+			return remotingEngine.unmarshallResult(marshalledResult, resultType);
+		}
+		
+		boolean isExpired(long nowNanos) {
+			return nowNanos - expiresAtNanos >= 0;
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.concurrent.Executor;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import com.avanza.astrix.config.DynamicBooleanProperty;
+
+/**
+ * Delivers the result of an async invocation on the callback executor, see 
+ * {@link RemotingProxySettings#getCallbackExecutor()}, rather than on the transport 
+ * thread that received the response. <p>
+ * 
+ * Blocking invocations are delegated as is since the result is handed over to the
+ * invoking thread anyway.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class CallbackExecutorRemoteServiceMethod implements RemoteServiceMethod {
+	
+	private final RemoteServiceMethod target;
+	private final DynamicBooleanProperty enabled;
+	private final Scheduler callbackScheduler;
+	
+	private CallbackExecutorRemoteServiceMethod(RemoteServiceMethod target, DynamicBooleanProperty enabled, Executor callbackExecutor) {
+		this.target = target;
+		this.enabled = enabled;
+		this.callbackScheduler = Schedulers.from(callbackExecutor);
+	}
+
+	static RemoteServiceMethod wrap(RemoteServiceMethod target, RemotingProxySettings settings) {
+		if (settings.getCallbackExecutor() == null) {
+			return target;
+		}
+		return new CallbackExecutorRemoteServiceMethod(target, settings.getCallbackExecutorEnabled(), settings.getCallbackExecutor());
+	}
+
+	@Override
+	public String getSignature() {
+		return target.getSignature();
+	}
+
+	@Override
+	public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		Observable<?> result = target.invoke(invocationRequest, args);
+		if (!enabled.get()) {
+			return result;
+		}
+		return result.observeOn(callbackScheduler);
+	}
+
+	@Override
+	public Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		return target.invokeBlocking(invocationRequest, args);
+	}
+
+}
@@ -15,34 +15,52 @@
  */
 package com.avanza.astrix.remoting.client;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import rx.Observable;
+import rx.Subscription;
 import rx.functions.Action1;
 
+/**
+ * Adapts an Observable to a Future. Cancelling the Future unsubscribes from the 
+ * underlying Observable, which allows the transport to drop requests that have
+ * not yet been sent, and abort requests that are in flight. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
 class FutureAdapter<T> implements Future<T> {
 	
 	private final CountDownLatch done = new CountDownLatch(1);
+	private final AtomicBoolean completed = new AtomicBoolean(false);
+	private final Subscription subscription;
 	private volatile T result;
 	private volatile Throwable exception;
+	private volatile boolean cancelled = false;
 	
 	public FutureAdapter(Observable<T> obs) {
-		obs.subscribe(new Action1<T>() {
+		this.subscription = obs.subscribe(new Action1<T>() {
 			@Override
 			public void call(T t1) {
-				result = t1;
-				done.countDown();
+				if (completed.compareAndSet(false, true)) {
+					result = t1;
+					done.countDown();
+				}
 			}
 		}, new Action1<Throwable>() {
 
 			@Override
 			public void call(Throwable t1) {
-				exception = t1;
-				done.countDown();
+				if (completed.compareAndSet(false, true)) {
+					exception = t1;
+					done.countDown();
+				}
 			}
 			
 		});
@@ -50,12 +68,18 @@ class FutureAdapter<T> implements Future<T> {
 
 	@Override
 	public boolean cancel(boolean mayInterruptIfRunning) {
-		return false;
+		if (!completed.compareAndSet(false, true)) {
+			return false;
+		}
+		cancelled = true;
+		done.countDown();
+		subscription.unsubscribe();
+		return true;
 	}
 	
 	@Override
 	public boolean isCancelled() {
-		return false;
+		return cancelled;
 	}
 
 	@Override
@@ -78,10 +102,13 @@ class FutureAdapter<T> implements Future<T> {
 	}
 
 	private T getResult() throws ExecutionException {
+		if (cancelled) {
+			throw new CancellationException();
+		}
 		if (exception != null) {
 			throw new ExecutionException(exception);
 		}
 		return result;		
 	}
 	
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.Arrays;
+
+/**
+ * Identifies the arguments of an invocation of a given service method by their marshalled form. <p>
+ * 
+ * Marshalled arguments might be arrays (for instance byte[]), hence deep equality is used.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class MarshalledArgumentsKey {
+	
+	private final Object[] marshalledArguments;
+	private final int hashCode;
+	
+	private MarshalledArgumentsKey(Object[] marshalledArguments) {
+		this.marshalledArguments = marshalledArguments;
+		this.hashCode = Arrays.deepHashCode(marshalledArguments);
+	}
+	
+	static MarshalledArgumentsKey create(RemotingEngine remotingEngine, Object[] args) {
+		return new MarshalledArgumentsKey(remotingEngine.marshall(args));
+	}
+	
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof MarshalledArgumentsKey)) {
+			return false;
+		}
+		return Arrays.deepEquals(marshalledArguments, ((MarshalledArgumentsKey) obj).marshalledArguments);
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import rx.Observable;
+import rx.Observable.OnSubscribe;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+import com.avanza.astrix.core.AstrixInvocationTracker;
+
+/**
+ * Reports the outcome of remote service invocations to an {@link AstrixInvocationTracker}. <p>
+ * 
+ * The Observable returned from the transport sends a request for each subscription, hence
+ * an invocation is started for each subscription. The invocation completes when the first 
+ * notification is received, and is abandoned if the subscriber unsubscribes before that.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class ObservableInvocationTracking {
+	
+	private ObservableInvocationTracking() {
+	}
+	
+	static <T> Observable<T> track(final Observable<T> result, final AstrixInvocationTracker invocationTracker) {
+		return Observable.create(new OnSubscribe<T>() {
+			@Override
+			public void call(final Subscriber<? super T> subscriber) {
+				final AstrixInvocationTracker.Invocation invocation = invocationTracker.start();
+				subscriber.add(Subscriptions.create(new Action0() {
+					@Override
+					public void call() {
+						invocation.abandon();
+					}
+				}));
+				result.unsafeSubscribe(new Subscriber<T>(subscriber) {
+					@Override
+					public void onNext(T t) {
+						invocation.complete(null);
+						subscriber.onNext(t);
+					}
+					@Override
+					public void onCompleted() {
+						invocation.complete(null);
+						subscriber.onCompleted();
+					}
+					@Override
+					public void onError(Throwable e) {
+						invocation.complete(e);
+						subscriber.onError(e);
+					}
+				});
+			}
+		});
+	}
+
+}
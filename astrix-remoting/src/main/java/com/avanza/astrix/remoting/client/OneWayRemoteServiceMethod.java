@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rx.Observable;
+import rx.Subscriber;
+
+import com.avanza.astrix.core.AstrixOneWay;
+
+/**
+ * Remote service method for {@link AstrixOneWay} service methods. The request is submitted
+ * to the transport and the invocation returns immediately, without waiting for the 
+ * service to be invoked. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public class OneWayRemoteServiceMethod implements RemoteServiceMethod {
+
+	private static final Logger log = LoggerFactory.getLogger(OneWayRemoteServiceMethod.class);
+	
+	private final String signature;
+	private final Router router;
+	private final RemotingEngine remotingEngine;
+
+	public OneWayRemoteServiceMethod(String signature, Router router, RemotingEngine remotingEngine) {
+		this.signature = signature;
+		this.router = router;
+		this.remotingEngine = remotingEngine;
+	}
+
+	@Override
+	public String getSignature() {
+		return signature;
+	}
+
+	@Override
+	public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		submit(invocationRequest, args);
+		return Observable.just(null);
+	}
+
+	@Override
+	public Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		submit(invocationRequest, args);
+		return null;
+	}
+
+	private void submit(final AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		invocationRequest.setArguments(remotingEngine.marshall(args));
+		RoutingKey routingKey = router.getRoutingKey(args);
+		if (routingKey == null) {
+			throw new IllegalStateException(String.format("Service method is routed but the defined remotingKey value was null: method=%s", signature));
+		}
+		remotingEngine.submitRoutedRequest(invocationRequest, routingKey).subscribe(new Subscriber<AstrixServiceInvocationResponse>() {
+			@Override
+			public void onCompleted() {
+			}
+			@Override
+			public void onError(Throwable e) {
+				log.warn(String.format("One-way service invocation failed. method=%s", signature), e);
+			}
+			@Override
+			public void onNext(AstrixServiceInvocationResponse response) {
+				if (response.isServiceUnavailable()) {
+					log.warn(String.format("One-way service invocation failed, service unavailable. method=%s correlationId=%s", signature, response.getCorrelationId()));
+				}
+			}
+		});
+	}
+	
+}
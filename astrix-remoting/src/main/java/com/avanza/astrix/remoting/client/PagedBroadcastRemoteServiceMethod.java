@@ -0,0 +1,416 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import rx.Observable;
+import rx.Observable.OnSubscribe;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.exceptions.Exceptions;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.subjects.ReplaySubject;
+import rx.subscriptions.CompositeSubscription;
+
+import com.avanza.astrix.core.AstrixPage;
+import com.avanza.astrix.core.AstrixPageRequest;
+import com.avanza.astrix.core.AstrixPagedBroadcast;
+import com.avanza.astrix.core.CloseableIterator;
+
+/**
+ * Invokes a {@link AstrixPagedBroadcast} service method. The partitions are consumed one at a time, and
+ * the next page is requested from a partition when all elements from the previous page of that partition 
+ * are consumed. The first page is prefetched in parallel from a bounded number of partitions, see 
+ * {@link AstrixPagedBroadcast#prefetchedPartitions()}. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public class PagedBroadcastRemoteServiceMethod implements RemoteServiceMethod {
+	
+	/**
+	 * Defines how the result is consumed by the proxied method.
+	 */
+	public enum ResultType {
+		/**
+		 * Each element is emitted by the Observable returned from {@link RemoteServiceMethod#invoke(AstrixServiceInvocationRequest, Object[])}.
+		 */
+		ELEMENTS,
+		/**
+		 * Elements are consumed using a {@link CloseableIterator}.
+		 */
+		ITERATOR,
+		/**
+		 * A single page is returned, holding a continuation token for the following page. 
+		 */
+		PAGE;
+	}
+	
+	private final String signature;
+	private final int pageRequestArgumentIndex;
+	private final int defaultPageSize;
+	private final int prefetchedPartitions;
+	private final RemotingEngine remotingEngine;
+	private final Type pageType;
+	private final ResultType resultType;
+	
+	/**
+	 * @param signature
+	 * @param pageRequestArgumentIndex - index of the {@link AstrixPageRequest} argument
+	 * @param defaultPageSize - page size used when no {@link AstrixPageRequest} is passed by the client
+	 * @param prefetchedPartitions - number of partitions the first page is requested from in parallel
+	 * @param remotingEngine
+	 * @param pageType - generic return type of the target service method, i.e AstrixPage&lt;T&gt;
+	 * @param resultType
+	 */
+	public PagedBroadcastRemoteServiceMethod(String signature,
+											 int pageRequestArgumentIndex,
+											 int defaultPageSize,
+											 int prefetchedPartitions,
+											 RemotingEngine remotingEngine,
+											 Type pageType,
+											 ResultType resultType) {
+		this.signature = signature;
+		this.pageRequestArgumentIndex = pageRequestArgumentIndex;
+		this.defaultPageSize = defaultPageSize;
+		this.prefetchedPartitions = Math.max(1, prefetchedPartitions);
+		this.remotingEngine = remotingEngine;
+		this.pageType = pageType;
+		this.resultType = resultType;
+	}
+
+	@Override
+	public String getSignature() {
+		return signature;
+	}
+
+	@Override
+	public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		final PagedBroadcast pagedBroadcast = new PagedBroadcast(invocationRequest, args);
+		switch (resultType) {
+		case ELEMENTS:
+			return pagedBroadcast.elements();
+		case ITERATOR:
+			return Observable.defer(new Func0<Observable<CloseableIterator<Object>>>() {
+				@Override
+				public Observable<CloseableIterator<Object>> call() {
+					return Observable.just(pagedBroadcast.iterator());
+				}
+			});
+		default:
+			return pagedBroadcast.page();
+		}
+	}
+
+	@Override
+	public Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		if (resultType == ResultType.ITERATOR) {
+			return new PagedBroadcast(invocationRequest, args).iterator();
+		}
+		return invoke(invocationRequest, args).toBlocking().first();
+	}
+	
+	/*
+	 * The continuation token of a page returned to the client identifies the partition to request
+	 * the page from, and the continuation token returned by that partition (if any):
+	 * 
+	 * 	<partition>[:<partition continuation token>]
+	 */
+	static String toContinuationToken(int partition, String partitionContinuationToken) {
+		if (partitionContinuationToken == null) {
+			return Integer.toString(partition);
+		}
+		return partition + ":" + partitionContinuationToken;
+	}
+	
+	static int getPartition(String continuationToken) {
+		if (continuationToken == null) {
+			return 0;
+		}
+		int separator = continuationToken.indexOf(':');
+		try {
+			return Integer.parseInt(separator < 0 ? continuationToken : continuationToken.substring(0, separator));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Illegal continuation token: " + continuationToken, e);
+		}
+	}
+	
+	static String getPartitionContinuationToken(String continuationToken) {
+		if (continuationToken == null) {
+			return null;
+		}
+		int separator = continuationToken.indexOf(':');
+		return separator < 0 ? null : continuationToken.substring(separator + 1);
+	}
+	
+	private class PagedBroadcast {
+		
+		private final AstrixServiceInvocationRequest requestTemplate;
+		private final Object[] marshalledSharedArguments;
+		private final AstrixPageRequest firstPageRequest;
+		
+		public PagedBroadcast(AstrixServiceInvocationRequest requestTemplate, Object[] args) {
+			this.requestTemplate = requestTemplate;
+			this.marshalledSharedArguments = new Object[args.length];
+			for (int i = 0; i < args.length; i++) {
+				if (i != pageRequestArgumentIndex) {
+					this.marshalledSharedArguments[i] = remotingEngine.marshallArgument(args[i]);
+				}
+			}
+			AstrixPageRequest pageRequest = (AstrixPageRequest) args[pageRequestArgumentIndex];
+			this.firstPageRequest = pageRequest != null ? pageRequest : AstrixPageRequest.firstPage(defaultPageSize);
+		}
+		
+		/*
+		 * The partitions are concatenated rather than merged, hence all elements from a partition 
+		 * are emitted before the elements from the next partition. Apart from the prefetched first pages,
+		 * a page is only requested when the subscriber has consumed all elements emitted before it. 
+		 * No more pages are requested, and pending prefetches are cancelled, once the subscriber unsubscribes.
+		 */
+		Observable<Object> elements() {
+			return Observable.create(new OnSubscribe<Object>() {
+				@Override
+				public void call(Subscriber<? super Object> subscriber) {
+					final FirstPagePrefetcher prefetcher = new FirstPagePrefetcher();
+					subscriber.add(prefetcher);
+					Observable.range(prefetcher.startPartition, Math.max(0, prefetcher.partitionCount - prefetcher.startPartition)).concatMap(new Func1<Integer, Observable<Object>>() {
+						@Override
+						public Observable<Object> call(Integer partition) {
+							return elements(partition, prefetcher.firstPageRequest(partition), prefetcher.firstPage(partition));
+						}
+					}).unsafeSubscribe(subscriber);
+				}
+			});
+		}
+		
+		private Observable<Object> elements(final int partition, final AstrixPageRequest pageRequest, Observable<AstrixPage<Object>> page) {
+			return page.concatMap(new Func1<AstrixPage<Object>, Observable<Object>>() {
+				@Override
+				public Observable<Object> call(final AstrixPage<Object> page) {
+					Observable<Object> elements = Observable.from(page.getElements());
+					if (!page.hasNextPage()) {
+						return elements;
+					}
+					final AstrixPageRequest nextPageRequest = pageRequest.next(page);
+					return elements.concatWith(Observable.defer(new Func0<Observable<Object>>() {
+						@Override
+						public Observable<Object> call() {
+							return elements(partition, nextPageRequest, fetchPage(partition, nextPageRequest));
+						}
+					}));
+				}
+			});
+		}
+		
+		/*
+		 * Empty pages are skipped, hence each page returned to the client holds at least one
+		 * element unless it's the last page.
+		 */
+		Observable<AstrixPage<Object>> page() {
+			String continuationToken = firstPageRequest.getContinuationToken();
+			return page(getPartition(continuationToken), 
+						new AstrixPageRequest(firstPageRequest.getPageSize(), getPartitionContinuationToken(continuationToken)));
+		}
+		
+		private Observable<AstrixPage<Object>> page(final int partition, final AstrixPageRequest pageRequest) {
+			final int partitionCount = remotingEngine.partitionCount();
+			if (partition >= partitionCount) {
+				return Observable.just(AstrixPage.lastPage(Collections.emptyList()));
+			}
+			return fetchPage(partition, pageRequest).concatMap(new Func1<AstrixPage<Object>, Observable<AstrixPage<Object>>>() {
+				@Override
+				public Observable<AstrixPage<Object>> call(AstrixPage<Object> page) {
+					if (page.hasNextPage()) {
+						if (page.getElements().isEmpty()) {
+							return page(partition, pageRequest.next(page));
+						}
+						return Observable.just(AstrixPage.of(page.getElements(), toContinuationToken(partition, page.getContinuationToken())));
+					}
+					if (partition + 1 >= partitionCount) {
+						return Observable.just(AstrixPage.lastPage(page.getElements()));
+					}
+					if (page.getElements().isEmpty()) {
+						return page(partition + 1, AstrixPageRequest.firstPage(pageRequest.getPageSize()));
+					}
+					return Observable.just(AstrixPage.of(page.getElements(), toContinuationToken(partition + 1, null)));
+				}
+			});
+		}
+		
+		CloseableIterator<Object> iterator() {
+			return new PagedIterator(new FirstPagePrefetcher());
+		}
+		
+		private Observable<AstrixPage<Object>> fetchPage(int partition, AstrixPageRequest pageRequest) {
+			AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest(requestTemplate);
+			Object[] arguments = Arrays.copyOf(marshalledSharedArguments, marshalledSharedArguments.length);
+			arguments[pageRequestArgumentIndex] = remotingEngine.marshallArgument(pageRequest);
+			request.setArguments(arguments);
+			return remotingEngine.submitRoutedRequest(request, RoutingKey.create(partition)).map(new Func1<AstrixServiceInvocationResponse, AstrixPage<Object>>() {
+				@Override
+				public AstrixPage<Object> call(AstrixServiceInvocationResponse response) {
+					AstrixPage<Object> page = remotingEngine.<AstrixPage<Object>>toRemoteResult(response, pageType).getResult();
+					return page != null ? page : AstrixPage.lastPage(Collections.emptyList());
+				}
+			});
+		}
+		
+		/*
+		 * Requests the first page from the partitions ahead of the partition currently consumed, 
+		 * keeping at most prefetchedPartitions partitions prefetched. A continuation token in the
+		 * page request passed by the client identifies the partition to start from, and the 
+		 * continuation token to pass to that partition, see toContinuationToken. 
+		 */
+		private class FirstPagePrefetcher implements Subscription {
+			
+			private final CompositeSubscription pendingRequests = new CompositeSubscription();
+			private final int partitionCount = remotingEngine.partitionCount();
+			private final int startPartition = getPartition(firstPageRequest.getContinuationToken());
+			private final Map<Integer, Observable<AstrixPage<Object>>> prefetchedPages = new HashMap<>();
+			private int prefetchedPartitionCount = startPartition; // Guarded by "this"
+			
+			public FirstPagePrefetcher() {
+				prefetch(startPartition);
+			}
+			
+			AstrixPageRequest firstPageRequest(int partition) {
+				if (partition == startPartition) {
+					return new AstrixPageRequest(firstPageRequest.getPageSize(), getPartitionContinuationToken(firstPageRequest.getContinuationToken()));
+				}
+				return AstrixPageRequest.firstPage(firstPageRequest.getPageSize());
+			}
+			
+			synchronized Observable<AstrixPage<Object>> firstPage(int partition) {
+				prefetch(partition);
+				return prefetchedPages.remove(partition);
+			}
+			
+			private synchronized void prefetch(int partition) {
+				int lastPrefetchedPartition = Math.min(partitionCount, partition + prefetchedPartitions);
+				for (; prefetchedPartitionCount < lastPrefetchedPartition; prefetchedPartitionCount++) {
+					ReplaySubject<AstrixPage<Object>> page = ReplaySubject.create();
+					pendingRequests.add(fetchPage(prefetchedPartitionCount, firstPageRequest(prefetchedPartitionCount)).subscribe(page));
+					prefetchedPages.put(prefetchedPartitionCount, page);
+				}
+			}
+			
+			@Override
+			public void unsubscribe() {
+				pendingRequests.unsubscribe();
+			}
+			
+			@Override
+			public boolean isUnsubscribed() {
+				return pendingRequests.isUnsubscribed();
+			}
+		}
+		
+		/*
+		 * Consumes the partitions one at a time. Apart from the prefetched first pages, a page 
+		 * is requested when all elements from the previous page are consumed.
+		 */
+		private class PagedIterator implements CloseableIterator<Object> {
+			
+			private final FirstPagePrefetcher prefetcher;
+			private int partition;
+			private AstrixPageRequest nextPageRequest;
+			private Observable<AstrixPage<Object>> prefetchedPage;
+			private Iterator<Object> currentPage = Collections.emptyIterator();
+			private volatile Future<AstrixPage<Object>> nextPage;
+			private volatile boolean closed = false;
+			
+			public PagedIterator(FirstPagePrefetcher prefetcher) {
+				this.prefetcher = prefetcher;
+				this.partition = prefetcher.startPartition;
+				this.nextPageRequest = prefetcher.firstPageRequest(partition);
+				this.prefetchedPage = prefetcher.partitionCount > partition ? prefetcher.firstPage(partition) : null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				while (!closed && !currentPage.hasNext()) {
+					if (nextPageRequest == null) {
+						// All pages of current partition consumed
+						partition++;
+						if (partition < prefetcher.partitionCount) {
+							nextPageRequest = prefetcher.firstPageRequest(partition);
+							prefetchedPage = prefetcher.firstPage(partition);
+						}
+					}
+					if (partition >= prefetcher.partitionCount) {
+						return false;
+					}
+					Observable<AstrixPage<Object>> pageResult = prefetchedPage != null ? prefetchedPage : fetchPage(partition, nextPageRequest);
+					prefetchedPage = null;
+					nextPage = pageResult.toBlocking().toFuture();
+					AstrixPage<Object> page = await(nextPage);
+					nextPage = null;
+					currentPage = page.getElements().iterator();
+					nextPageRequest = page.hasNextPage() ? nextPageRequest.next(page) : null;
+				}
+				return !closed;
+			}
+
+			@Override
+			public Object next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return currentPage.next();
+			}
+			
+			@Override
+			public void close() {
+				this.closed = true;
+				this.prefetcher.unsubscribe();
+				Future<AstrixPage<Object>> pendingPage = this.nextPage;
+				if (pendingPage != null) {
+					pendingPage.cancel(true);
+				}
+				this.currentPage = Collections.emptyIterator();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}
+	}
+	
+	private static <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw Exceptions.propagate(e.getCause());
+		} catch (InterruptedException e) {
+			// Nobody will read the page
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw Exceptions.propagate(e);
+		}
+	}
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import com.avanza.astrix.core.util.ReflectionUtil;
+
+/**
+ * Splits the argument annotated with @AstrixPartitionedRouting into one container per 
+ * target partition. <p>
+ * 
+ * Partitioning is done in two passes over the elements. The first pass computes the target
+ * partition for each element and the size of each partition, and the second pass copies 
+ * the elements into exactly sized containers. int[] and long[] arguments are partitioned 
+ * without boxing the elements, and arrays of reference types (for instance String[]) are 
+ * partitioned without reflective element access. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+abstract class PartitionedArgumentContainer {
+	
+	private PartitionedArgumentContainer() {
+	}
+	
+	/**
+	 * Splits the given container into one container per partition. <p>
+	 * 
+	 * @param container
+	 * @param router
+	 * @param partitionCount
+	 * @return an array indexed by partition, holding null for each partition that no element is routed to.
+	 */
+	abstract Object[] partition(Object container, PartitionedRouter router, int partitionCount);
+	
+	abstract Class<?> getElementType();
+	
+	/**
+	 * Splits a container into chunks holding at most maxChunkSize elements.<p>
+	 * 
+	 * @param container
+	 * @param maxChunkSize
+	 * @return
+	 */
+	abstract List<Object> chunk(Object container, int maxChunkSize);
+	
+	abstract int size(Object container);
+	
+	public static PartitionedArgumentContainer array(Class<?> elementType) {
+		if (elementType.equals(int.class)) {
+			return new IntArray();
+		}
+		if (elementType.equals(long.class)) {
+			return new LongArray();
+		}
+		if (elementType.isPrimitive()) {
+			return new PrimitiveArray(elementType);
+		}
+		return new ReferenceArray(elementType);
+	}
+	
+	public static PartitionedArgumentContainer collection(Class<? extends Collection<?>> collectionFactory, Class<?> elementType) {
+		return new CollectionContainer(collectionFactory, elementType);
+	}
+	
+	private static final class PartitionIndex {
+		
+		private final int[] targetPartitionByElement;
+		private final int[] partitionSizes;
+		
+		public PartitionIndex(int elementCount, int partitionCount) {
+			this.targetPartitionByElement = new int[elementCount];
+			this.partitionSizes = new int[partitionCount];
+		}
+		
+		void assign(int element, int routingHash) {
+			int targetPartition = RoutingKey.partitionOf(routingHash, partitionSizes.length);
+			targetPartitionByElement[element] = targetPartition;
+			partitionSizes[targetPartition]++;
+		}
+		
+		int targetPartition(int element) {
+			return targetPartitionByElement[element];
+		}
+		
+		int partitionSize(int partition) {
+			return partitionSizes[partition];
+		}
+	}
+	
+	private static abstract class ArrayContainer extends PartitionedArgumentContainer {
+		@Override
+		final int size(Object container) {
+			return Array.getLength(container);
+		}
+		
+		@Override
+		final List<Object> chunk(Object container, int maxChunkSize) {
+			int length = Array.getLength(container);
+			List<Object> result = new ArrayList<>(length / maxChunkSize + 1);
+			for (int chunkStart = 0; chunkStart < length; chunkStart += maxChunkSize) {
+				int chunkLength = Math.min(maxChunkSize, length - chunkStart);
+				Object chunk = Array.newInstance(getElementType(), chunkLength);
+				System.arraycopy(container, chunkStart, chunk, 0, chunkLength);
+				result.add(chunk);
+			}
+			return result;
+		}
+	}
+	
+	private static class IntArray extends ArrayContainer {
+		@Override
+		Object[] partition(Object container, PartitionedRouter router, int partitionCount) {
+			int[] elements = (int[]) container;
+			PartitionIndex index = new PartitionIndex(elements.length, partitionCount);
+			for (int i = 0; i < elements.length; i++) {
+				// Same hash as Integer.hashCode
+				index.assign(i, elements[i]);
+			}
+			int[][] result = new int[partitionCount][];
+			int[] nextIndex = new int[partitionCount];
+			for (int i = 0; i < elements.length; i++) {
+				int partition = index.targetPartition(i);
+				if (result[partition] == null) {
+					result[partition] = new int[index.partitionSize(partition)];
+				}
+				result[partition][nextIndex[partition]++] = elements[i];
+			}
+			return result;
+		}
+		
+		@Override
+		Class<?> getElementType() {
+			return int.class;
+		}
+	}
+	
+	private static class LongArray extends ArrayContainer {
+		@Override
+		Object[] partition(Object container, PartitionedRouter router, int partitionCount) {
+			long[] elements = (long[]) container;
+			PartitionIndex index = new PartitionIndex(elements.length, partitionCount);
+			for (int i = 0; i < elements.length; i++) {
+				// Same hash as Long.hashCode
+				long element = elements[i];
+				index.assign(i, (int) (element ^ (element >>> 32)));
+			}
+			long[][] result = new long[partitionCount][];
+			int[] nextIndex = new int[partitionCount];
+			for (int i = 0; i < elements.length; i++) {
+				int partition = index.targetPartition(i);
+				if (result[partition] == null) {
+					result[partition] = new long[index.partitionSize(partition)];
+				}
+				result[partition][nextIndex[partition]++] = elements[i];
+			}
+			return result;
+		}
+		
+		@Override
+		Class<?> getElementType() {
+			return long.class;
+		}
+	}
+	
+	private static class ReferenceArray extends ArrayContainer {
+		
+		private final Class<?> elementType;
+		
+		public ReferenceArray(Class<?> elementType) {
+			this.elementType = Objects.requireNonNull(elementType);
+		}
+
+		@Override
+		Object[] partition(Object container, PartitionedRouter router, int partitionCount) {
+			Object[] elements = (Object[]) container;
+			PartitionIndex index = new PartitionIndex(elements.length, partitionCount);
+			for (int i = 0; i < elements.length; i++) {
+				index.assign(i, router.getRoutingKey(elements[i]).hashCode());
+			}
+			Object[] result = new Object[partitionCount];
+			int[] nextIndex = new int[partitionCount];
+			for (int i = 0; i < elements.length; i++) {
+				int partition = index.targetPartition(i);
+				if (result[partition] == null) {
+					result[partition] = Array.newInstance(elementType, index.partitionSize(partition));
+				}
+				((Object[]) result[partition])[nextIndex[partition]++] = elements[i];
+			}
+			return result;
+		}
+		
+		@Override
+		Class<?> getElementType() {
+			return elementType;
+		}
+	}
+	
+	/**
+	 * Arrays of the remaining primitive types are partitioned using reflective element access.
+	 */
+	private static class PrimitiveArray extends ArrayContainer {
+		
+		private final Class<?> elementType;
+		
+		public PrimitiveArray(Class<?> elementType) {
+			this.elementType = Objects.requireNonNull(elementType);
+		}
+		
+		@Override
+		Object[] partition(Object container, PartitionedRouter router, int partitionCount) {
+			int length = Array.getLength(container);
+			PartitionIndex index = new PartitionIndex(length, partitionCount);
+			for (int i = 0; i < length; i++) {
+				index.assign(i, router.getRoutingKey(Array.get(container, i)).hashCode());
+			}
+			Object[] result = new Object[partitionCount];
+			int[] nextIndex = new int[partitionCount];
+			for (int i = 0; i < length; i++) {
+				int partition = index.targetPartition(i);
+				if (result[partition] == null) {
+					result[partition] = Array.newInstance(elementType, index.partitionSize(partition));
+				}
+				Array.set(result[partition], nextIndex[partition]++, Array.get(container, i));
+			}
+			return result;
+		}
+		
+		@Override
+		Class<?> getElementType() {
+			return elementType;
+		}
+	}
+	
+	private static class CollectionContainer extends PartitionedArgumentContainer {
+		
+		private final Class<?> elementType;
+		private final Class<? extends Collection<?>> collectionFactory;
+		private final Constructor<? extends Collection<?>> presizingConstructor;
+		private final boolean hashBased;
+		
+		public CollectionContainer(Class<? extends Collection<?>> collectionFactory, Class<?> elementType) {
+			this.collectionFactory = Objects.requireNonNull(collectionFactory);
+			this.elementType = Objects.requireNonNull(elementType);
+			this.presizingConstructor = getPresizingConstructor(collectionFactory);
+			this.hashBased = Set.class.isAssignableFrom(collectionFactory);
+		}
+
+		private static Constructor<? extends Collection<?>> getPresizingConstructor(Class<? extends Collection<?>> collectionFactory) {
+			try {
+				// ArrayList, HashSet etc. accepts the initial capacity as constructor argument
+				return collectionFactory.getConstructor(int.class);
+			} catch (NoSuchMethodException e) {
+				return null;
+			}
+		}
+		
+		@Override
+		Object[] partition(Object container, PartitionedRouter router, int partitionCount) {
+			// Boxed elements, for instance a List<Long>, are reused as is in the partitioned collections
+			Object[] elements = ((Collection<?>) container).toArray();
+			PartitionIndex index = new PartitionIndex(elements.length, partitionCount);
+			for (int i = 0; i < elements.length; i++) {
+				index.assign(i, router.getRoutingKey(elements[i]).hashCode());
+			}
+			Object[] result = new Object[partitionCount];
+			for (int i = 0; i < elements.length; i++) {
+				int partition = index.targetPartition(i);
+				if (result[partition] == null) {
+					result[partition] = newCollection(index.partitionSize(partition));
+				}
+				((Collection<? super Object>) result[partition]).add(elements[i]);
+			}
+			return result;
+		}
+
+		@Override
+		int size(Object container) {
+			return ((Collection<?>) container).size();
+		}
+		
+		@Override
+		List<Object> chunk(Object container, int maxChunkSize) {
+			Collection<?> elements = (Collection<?>) container;
+			List<Object> result = new ArrayList<>(elements.size() / maxChunkSize + 1);
+			Collection<? super Object> chunk = null;
+			for (Object element : elements) {
+				if (chunk == null || chunk.size() == maxChunkSize) {
+					chunk = newCollection(Math.min(maxChunkSize, elements.size() - result.size() * maxChunkSize));
+					result.add(chunk);
+				}
+				chunk.add(element);
+			}
+			return result;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Collection<? super Object> newCollection(int size) {
+			if (presizingConstructor == null) {
+				return (Collection<? super Object>) ReflectionUtil.newInstance(this.collectionFactory);
+			}
+			int initialCapacity = hashBased ? size + size / 3 + 1 : size;
+			try {
+				return (Collection<? super Object>) presizingConstructor.newInstance(initialCapacity);
+			} catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+				throw new RuntimeException("Failed to instantiate class: " + collectionFactory.getName(), e);
+			}
+		}
+		
+		@Override
+		Class<?> getElementType() {
+			return elementType;
+		}
+	}
+
+}
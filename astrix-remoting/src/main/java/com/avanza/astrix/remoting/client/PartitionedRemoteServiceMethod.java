@@ -16,24 +16,20 @@
 package com.avanza.astrix.remoting.client;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
 
 import rx.Observable;
 import rx.functions.Func1;
 
+import com.avanza.astrix.config.DynamicIntProperty;
 import com.avanza.astrix.core.AstrixPartitionedRouting;
-import com.avanza.astrix.core.AstrixRemoteResult;
 import com.avanza.astrix.core.RemoteResultReducer;
-import com.avanza.astrix.core.function.Consumer;
 import com.avanza.astrix.core.util.ReflectionUtil;
 /**
  * 
@@ -46,29 +42,32 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 	private final String methodSignature;
 	private final RemotingEngine remotingEngine;
 	private final Type targetReturnType;
-	private final Class<? extends RemoteResultReducer<?>> reducerType;
-	private final ContainerType partitionedArgumentContainerType;
+	private final RemoteResultReducerFactory reducerFactory;
+	private final PartitionedArgumentContainer partitionedArgumentContainer;
 	private final PartitionedRouter router;
 	private final Method proxiedMethod;
+	private final DynamicIntProperty maxPartitionBatchSize;
 
 	public PartitionedRemoteServiceMethod(int partitionedArgumentIndex,
 										  Method proxiedMethod,
 										  String methodSignature, 
 										  RemotingEngine remotingEngine,
-										  Type targetReturnType) {
+										  Type targetReturnType,
+										  DynamicIntProperty maxPartitionBatchSize) {
 		this.partitionedArgumentIndex = partitionedArgumentIndex;
 		this.proxiedMethod = proxiedMethod;
 		this.methodSignature = methodSignature;
 		this.remotingEngine = remotingEngine;
 		this.targetReturnType = targetReturnType;
+		this.maxPartitionBatchSize = maxPartitionBatchSize;
 		AstrixPartitionedRouting partitionedRouting = getPartitionedRoutingAnnotation(proxiedMethod, partitionedArgumentIndex);
-		this.reducerType = getReducer(partitionedRouting, proxiedMethod);
-		this.partitionedArgumentContainerType = getPartititonedArgumentContainerType(proxiedMethod, partitionedRouting);
+		this.reducerFactory = RemoteResultReducerFactory.create(getReducer(partitionedRouting, proxiedMethod));
+		this.partitionedArgumentContainer = getPartititonedArgumentContainer(proxiedMethod, partitionedRouting);
 		this.router = createRouter(partitionedRouting);
 	}
 
 	private PartitionedRouter createRouter(AstrixPartitionedRouting partitionedRouting) {
-		Class<?> elementType = this.partitionedArgumentContainerType.getElementType();
+		Class<?> elementType = this.partitionedArgumentContainer.getElementType();
 		if (!partitionedRouting.routingMethod().isEmpty()) {
 			Method routingMethod;
 			try {
@@ -83,10 +82,10 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 		return PartitionedRouter.identity();
 	}
 
-	private ContainerType getPartititonedArgumentContainerType(Method proxiedMethod, AstrixPartitionedRouting partitionBy) {
+	private PartitionedArgumentContainer getPartititonedArgumentContainer(Method proxiedMethod, AstrixPartitionedRouting partitionBy) {
 		Class<?> partitionedArgumentType = proxiedMethod.getParameterTypes()[partitionedArgumentIndex];
 		if (partitionedArgumentType.isArray()) {
-			return new ArrayContainerType(partitionedArgumentType.getComponentType());
+			return PartitionedArgumentContainer.array(partitionedArgumentType.getComponentType());
 		}
 		Class<? extends Collection<?>> collectionFactory = (Class<? extends Collection<?>>) partitionBy.collectionFactory();
 		if (!proxiedMethod.getParameterTypes()[partitionedArgumentIndex].isAssignableFrom(collectionFactory)) {
@@ -100,13 +99,13 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 			throw new IllegalArgumentException("Illegal service method: " + ReflectionUtil.fullMethodName(proxiedMethod) + ".\nWhen defining a routingMethod for @AstrixPartitionedRouting the target Collection type must not be a raw type. \nwas: " + rawType);
 		}
 		ParameterizedType partitionedArgumentTypeParameters = (ParameterizedType) rawType;
-		return new CollectionContainerType(collectionFactory, (Class<?>)partitionedArgumentTypeParameters.getActualTypeArguments()[0]);
+		return PartitionedArgumentContainer.collection(collectionFactory, (Class<?>)partitionedArgumentTypeParameters.getActualTypeArguments()[0]);
 	}
 
 	private Class<? extends RemoteResultReducer<?>> getReducer(
 			AstrixPartitionedRouting partitionBy, Method targetServiceMethod) {
 		Class<? extends RemoteResultReducer<?>> reducerType = (Class<? extends RemoteResultReducer<?>>) partitionBy.reducer();
-		RemotingProxyUtil.validateRemoteResultReducer(targetServiceMethod, reducerType);
+		RemotingProxyUtil.validateRemoteResultReducer(targetServiceMethod, targetReturnType, reducerType);
 		return reducerType;
 	}
 
@@ -131,12 +130,17 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 		 * 2. Marshall arguments
 		 * 3. Execute requests
 		 */
-		ServiceInvocationPartitioner serviceInvocationPartitioner = new ServiceInvocationPartitioner();
+		ServiceInvocationPartitioner serviceInvocationPartitioner = new ServiceInvocationPartitioner(remotingEngine.partitionCount());
 		List<RoutedServiceInvocationRequest> partitionInvocationRequest = serviceInvocationPartitioner.partitionInvocationRequest(invocationRequest, args);
 		Observable<List<AstrixServiceInvocationResponse>> serviceInvocationResponses = remotingEngine.submitRoutedRequests(partitionInvocationRequest);
 		return reduce(serviceInvocationResponses);
 	}
 
+	@Override
+	public Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		return invoke(invocationRequest, args).toBlocking().first();
+	}
+	
 	private <T> Observable<T> reduce(Observable<List<AstrixServiceInvocationResponse>> responses) {
 		if (targetReturnType.equals(Void.TYPE)) {
 			return responses.map(new Func1<List<AstrixServiceInvocationResponse>, T>() {
@@ -146,204 +150,76 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 				}
 			});
 		}
-		final RemoteResultReducer<T> reducer = newRemoteResultReducer();
+		final RemoteResultReducer<T> reducer = reducerFactory.getReducer();
 		return responses.map(new Func1<List<AstrixServiceInvocationResponse>, T>() {
 			@Override
 			public T call(List<AstrixServiceInvocationResponse> t1) {
-				List<AstrixRemoteResult<T>> unmarshalledResponses = new ArrayList<>(t1.size());
-				for (AstrixServiceInvocationResponse response : t1) {
-					AstrixRemoteResult<T> result = remotingEngine.toRemoteResult(response, targetReturnType);
-					unmarshalledResponses.add(result);
-				}
-				return reducer.reduce(unmarshalledResponses);
+				return remotingEngine.reduce(t1, reducer, targetReturnType);
 			}
 		});
 		
 	}
 
-	@SuppressWarnings("unchecked")
-	private <T> RemoteResultReducer<T> newRemoteResultReducer() {
-		return (RemoteResultReducer<T>) ReflectionUtil.newInstance(this.reducerType);
-	}
-
-	private ContainerBuilder newCollectionInstance() {
-		return partitionedArgumentContainerType.newInstance();
-	}
-
-	private class RoutedServiceInvocationRequestBuilder {
-		private final ContainerBuilder routingKeys;
-		private final RoutingKey targetPartitionRoutingKey;
-
-		public RoutedServiceInvocationRequestBuilder(ContainerBuilder keys, int targetPartition) {
-			this.routingKeys = keys;
-			this.targetPartitionRoutingKey = RoutingKey.create(targetPartition);
-		}
-
-		public void addKey(Object requestedKey) {
-			this.routingKeys.add(requestedKey);
-		}
-		
-		private RoutedServiceInvocationRequest createInvocationRequest(
-				AstrixServiceInvocationRequest invocationRequest,
-				Object[] unpartitionedArguments) {
-			AstrixServiceInvocationRequest partitionedRequest = new AstrixServiceInvocationRequest();
-			partitionedRequest.setAllHeaders(invocationRequest.getHeaders());
-			Object[] requestForPartition = Arrays.copyOf(unpartitionedArguments, unpartitionedArguments.length);
-			requestForPartition[partitionedArgumentIndex] = this.routingKeys.buildTarget();
-			partitionedRequest.setArguments(remotingEngine.marshall(requestForPartition));
-			return new RoutedServiceInvocationRequest(partitionedRequest, targetPartitionRoutingKey);
-		}
-	}
-	
 	private class ServiceInvocationPartitioner {
-		private final RoutedServiceInvocationRequestBuilder[] requests;
 		
-		public ServiceInvocationPartitioner() {
-			this.requests = new RoutedServiceInvocationRequestBuilder[remotingEngine.partitionCount()];
+		private final int partitionCount;
+		
+		public ServiceInvocationPartitioner(int partitionCount) {
+			this.partitionCount = partitionCount;
 		}
 
 		public List<RoutedServiceInvocationRequest> partitionInvocationRequest(AstrixServiceInvocationRequest invocationRequest, Object[] args) {
-			partitionedArgumentContainerType.iterateContainer(getContainerInstance(args), new Consumer<Object>() {
-				@Override
-				public void accept(Object element) {
-					addElement(element);
+			Object[] containerByPartition = partitionedArgumentContainer.partition(getContainerInstance(args), router, partitionCount);
+			Object[] marshalledSharedArguments = marshallSharedArguments(args);
+			int maxBatchSize = maxPartitionBatchSize.get();
+			List<RoutedServiceInvocationRequest> result = new ArrayList<>(partitionCount);
+			for (int partition = 0; partition < containerByPartition.length; partition++) {
+				Object partitionContainer = containerByPartition[partition];
+				if (partitionContainer == null) {
+					continue;
 				}
-			});
-			List<RoutedServiceInvocationRequest> result = new LinkedList<>();
-			for (RoutedServiceInvocationRequestBuilder routedInvocationReqeustBuilder : requests) {
-				if (routedInvocationReqeustBuilder != null) {
-					result.add(routedInvocationReqeustBuilder.createInvocationRequest(invocationRequest, args));
+				if (maxBatchSize <= RemotingProxySettings.UNLIMITED_PARTITION_BATCH_SIZE || partitionedArgumentContainer.size(partitionContainer) <= maxBatchSize) {
+					result.add(createInvocationRequest(invocationRequest, marshalledSharedArguments, partitionContainer, partition));
+					continue;
+				}
+				// Oversized partitions are split into several requests that are executed in parallel
+				for (Object batch : partitionedArgumentContainer.chunk(partitionContainer, maxBatchSize)) {
+					result.add(createInvocationRequest(invocationRequest, marshalledSharedArguments, batch, partition));
 				}
 			}
 			return result;
 		}
 		
-		private Object getContainerInstance(Object[] args) {
-			return args[partitionedArgumentIndex];
-		}
-
-		public void addElement(Object element) {
-			Object routingKey = router.getRoutingKey(element);
-			int targetPartition = routingKey.hashCode() % requests.length;
-			RoutedServiceInvocationRequestBuilder invocationRequestBuilderForPartition = this.requests[targetPartition];
-			if (invocationRequestBuilderForPartition == null) {
-				invocationRequestBuilderForPartition = new RoutedServiceInvocationRequestBuilder(newCollectionInstance(), targetPartition);
-				this.requests[targetPartition] = invocationRequestBuilderForPartition;
-				
-			}
-			invocationRequestBuilderForPartition.addKey(element);
-		}
-
-	}
-	
-	private interface ContainerType {
-		ContainerBuilder newInstance();
-		void iterateContainer(Object container, Consumer<Object> consumer);
-		Class<?> getElementType();
-	}
-	
-	private static class CollectionContainerType implements ContainerType {
-		private final Class<?> elementType;
-		private final Class<? extends Collection<?>> collectionFactory;
-		
-		public CollectionContainerType(Class<? extends Collection<?>> collectionFactory, Class<?> elementType) {
-			this.collectionFactory = Objects.requireNonNull(collectionFactory);
-			this.elementType = Objects.requireNonNull(elementType);
-		}
-
-		@Override
-		public ContainerBuilder newInstance() {
-			return new CollectionContainerBuilder((Collection<? super Object>) ReflectionUtil.newInstance(this.collectionFactory));
-		}
-
-		@Override
-		public void iterateContainer(Object container, Consumer<Object> consumer) {
-			for (Object element : (Collection<? extends Object>) container) {
-				consumer.accept(element);
-			}
-		}
-		
-		@Override
-		public Class<?> getElementType() {
-			return elementType;
+		private RoutedServiceInvocationRequest createInvocationRequest(
+				AstrixServiceInvocationRequest invocationRequest,
+				Object[] marshalledSharedArguments, 
+				Object partitionedArgument,
+				int targetPartition) {
+			AstrixServiceInvocationRequest partitionedRequest = new AstrixServiceInvocationRequest(invocationRequest);
+			Object[] argumentsForPartition = Arrays.copyOf(marshalledSharedArguments, marshalledSharedArguments.length);
+			argumentsForPartition[partitionedArgumentIndex] = remotingEngine.marshallArgument(partitionedArgument);
+			partitionedRequest.setArguments(argumentsForPartition);
+			return new RoutedServiceInvocationRequest(partitionedRequest, RoutingKey.create(targetPartition));
 		}
-	}
-	
-	private static class ArrayContainerType implements ContainerType {
-		
-		private final Class<?> elementType;
 		
-		public ArrayContainerType(Class<?> elementType) {
-			this.elementType = elementType;
-		}
-
-		@Override
-		public ContainerBuilder newInstance() {
-			return new ArrayContainerBuilder(elementType);
-		}
-
-		@Override
-		public void iterateContainer(Object container, Consumer<Object> consumer) {
-			for (int i = 0; i < Array.getLength(container); i++) {
-				consumer.accept(Array.get(container, i));
+		/*
+		 * All arguments except the partitioned argument are identical in each partition request,
+		 * hence they are only marshalled once per invocation.
+		 */
+		private Object[] marshallSharedArguments(Object[] args) {
+			Object[] result = new Object[args.length];
+			for (int i = 0; i < args.length; i++) {
+				if (i != partitionedArgumentIndex) {
+					result[i] = remotingEngine.marshallArgument(args[i]);
+				}
 			}
+			return result;
 		}
 		
-		@Override
-		public Class<?> getElementType() {
-			return this.elementType;
-		}
-	}
-	
-	private static class ArrayContainerBuilder extends ContainerBuilder {
-		
-		private final Class<?> elementType;
-		private final List<Object> elements = new ArrayList<>();
-		
-		public ArrayContainerBuilder(Class<?> elementType) {
-			this.elementType = elementType;
-		}
-		
-		@Override
-		void add(Object element) {
-			elements.add(element);
-		}
-		
-		@Override
-		Object buildTarget() {
-			Object array = Array.newInstance(elementType, elements.size());
-			int nextIndex = 0;
-			for (Object element : elements) {
-				Array.set(array, nextIndex, element);
-				nextIndex++;
-			}
-			return array;
+		private Object getContainerInstance(Object[] args) {
+			return args[partitionedArgumentIndex];
 		}
-	}
-	
-	private static abstract class ContainerBuilder {
-		
-		abstract void add(Object element);
-		
-		abstract Object buildTarget();
-	}
-	
-	private static class CollectionContainerBuilder extends ContainerBuilder {
-		private Collection<? super Object> collection;
 
-		public CollectionContainerBuilder(Collection<? super Object> collection) {
-			this.collection = collection;
-		}
-		
-		@Override
-		void add(Object element) {
-			this.collection.add(element);
-		}
-		
-		@Override
-		Object buildTarget() {
-			return collection;
-		}
 	}
 	
 }
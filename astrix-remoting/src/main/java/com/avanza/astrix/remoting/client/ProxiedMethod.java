@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+/**
+ * Invokes a single method of a proxy created by {@link RemotingProxy}. Everything that can be decided 
+ * about a proxied method, i.e. the target service method, and how to adapt the result to the return type 
+ * of the proxied method, is resolved when the proxy is created. <p>
+ * 
+ * Stubs generated by a {@link RemotingStubFactory} hold one ProxiedMethod for each method of the 
+ * service API, and invokes it directly. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public abstract class ProxiedMethod {
+	
+	ProxiedMethod() {
+	}
+	
+	/**
+	 * @param proxy - the proxy, or stub, the method was invoked on
+	 * @param args - the arguments passed to the method, null if the method has no parameters
+	 * @return
+	 * @throws Throwable
+	 */
+	public abstract Object invoke(Object proxy, Object[] args) throws Throwable;
+
+}
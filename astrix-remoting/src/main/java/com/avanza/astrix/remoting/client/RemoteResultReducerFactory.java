@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+import com.avanza.astrix.core.AccumulatingRemoteResultReducer;
+import com.avanza.astrix.core.AstrixStatelessReducer;
+import com.avanza.astrix.core.RemoteResultReducer;
+
+/**
+ * Provides the {@link RemoteResultReducer} used for each invocation of a service method. Reducers
+ * might hold state for a single invocation, hence a new reducer is created for each invocation
+ * unless the reducer is an {@link AccumulatingRemoteResultReducer} or annotated with 
+ * {@link AstrixStatelessReducer}, in which case a single instance is shared by all invocations. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class RemoteResultReducerFactory {
+	
+	private final Constructor<? extends RemoteResultReducer> constructor;
+	private final RemoteResultReducer<?> sharedReducer;
+	
+	private RemoteResultReducerFactory(Class<? extends RemoteResultReducer> reducerType) {
+		try {
+			this.constructor = reducerType.getDeclaredConstructor();
+			this.constructor.setAccessible(true);
+		} catch (NoSuchMethodException | SecurityException e) {
+			throw new IllegalArgumentException("Failed to find no-argument constructor of reducer: " + reducerType.getName(), e);
+		}
+		boolean stateless = AccumulatingRemoteResultReducer.class.isAssignableFrom(reducerType) 
+							|| reducerType.isAnnotationPresent(AstrixStatelessReducer.class);
+		this.sharedReducer = stateless ? createReducer() : null;
+	}
+	
+	static RemoteResultReducerFactory create(Class<? extends RemoteResultReducer> reducerType) {
+		return new RemoteResultReducerFactory(reducerType);
+	}
+	
+	@SuppressWarnings("unchecked")
+	<T> RemoteResultReducer<T> getReducer() {
+		if (sharedReducer != null) {
+			return (RemoteResultReducer<T>) sharedReducer;
+		}
+		return createReducer();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> RemoteResultReducer<T> createReducer() {
+		try {
+			return constructor.newInstance();
+		} catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+			throw new RuntimeException("Failed to instantiate class: " + constructor.getDeclaringClass().getName(), e);
+		}
+	}
+
+}
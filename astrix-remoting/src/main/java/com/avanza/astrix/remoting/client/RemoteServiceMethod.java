@@ -25,4 +25,10 @@ import rx.Observable;
 public interface RemoteServiceMethod {
 	String getSignature();
 	Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception;
+	
+	/**
+	 * Invokes the remote service method and blocks until the result is available. Used
+	 * for service methods with a non reactive return type.
+	 */
+	Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception;
 }
\ No newline at end of file
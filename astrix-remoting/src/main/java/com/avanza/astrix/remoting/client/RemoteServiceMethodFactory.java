@@ -17,10 +17,20 @@ package com.avanza.astrix.remoting.client;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.concurrent.Future;
+
+import rx.Observable;
 
 import com.avanza.astrix.core.AstrixBroadcast;
+import com.avanza.astrix.core.AstrixOneWay;
+import com.avanza.astrix.core.AstrixPage;
+import com.avanza.astrix.core.AstrixPageRequest;
+import com.avanza.astrix.core.AstrixPagedBroadcast;
 import com.avanza.astrix.core.AstrixPartitionedRouting;
+import com.avanza.astrix.core.CloseableIterator;
 import com.avanza.astrix.core.RemoteResultReducer;
 import com.avanza.astrix.core.util.ReflectionUtil;
 /**
@@ -32,28 +42,96 @@ public class RemoteServiceMethodFactory {
 
 	private final RemotingEngine remotingEngine;
 	private final RoutingStrategy routingStrategy;
+	private final RemotingProxySettings settings;
 	
 	public RemoteServiceMethodFactory(RemotingEngine remotingEngine,
-			RoutingStrategy routingStrategy) {
+			RoutingStrategy routingStrategy, RemotingProxySettings settings) {
 		this.remotingEngine = remotingEngine;
 		this.routingStrategy = routingStrategy;
+		this.settings = settings;
 	}
 
 	public RemoteServiceMethod createRemoteServiceMethod(
 			Class<?> targetServiceType, Method proxiedMethod, Type targetReturnType) {
 		String methodSignature = ReflectionUtil.methodSignatureWithoutReturnType(proxiedMethod);
+		if (getTargetServiceMethod(proxiedMethod, targetServiceType).isAnnotationPresent(AstrixOneWay.class)) {
+			return createOneWayRemoteServiceMethod(targetServiceType, proxiedMethod, methodSignature);
+		}
 		if (proxiedMethod.isAnnotationPresent(AstrixBroadcast.class)) {
+			AstrixBroadcast broadcast = getTargetServiceMethod(proxiedMethod, targetServiceType).getAnnotation(AstrixBroadcast.class);
 			return new BroadcastedRemoteServiceMethod(methodSignature,
 					getRemoteResultReducerClass(proxiedMethod, targetServiceType),
-					remotingEngine, targetReturnType);
+					remotingEngine, targetReturnType, broadcast.partialResultDeadlineMillis(), broadcast.quorum(), broadcast.shortCircuit());
+		}
+		if (proxiedMethod.isAnnotationPresent(AstrixPagedBroadcast.class)) {
+			return createPagedBroadcastRemoteServiceMethod(targetServiceType, proxiedMethod, methodSignature);
 		}
 		int partitionedByArgumentIndex = getPartitionedByAnnotation(proxiedMethod);
 		if (partitionedByArgumentIndex >= 0) {
-			return new PartitionedRemoteServiceMethod(partitionedByArgumentIndex, proxiedMethod, methodSignature, remotingEngine, targetReturnType);
+			return new PartitionedRemoteServiceMethod(partitionedByArgumentIndex, proxiedMethod, methodSignature, remotingEngine, targetReturnType, settings.getMaxPartitionBatchSize());
 		}
 		return new RoutedRemoteServiceMethod(methodSignature, routingStrategy.create(proxiedMethod), remotingEngine, targetReturnType);
 	}
 	
+	private OneWayRemoteServiceMethod createOneWayRemoteServiceMethod(Class<?> targetServiceType, Method proxiedMethod, String methodSignature) {
+		Method targetServiceMethod = getTargetServiceMethod(proxiedMethod, targetServiceType);
+		if (!targetServiceMethod.getReturnType().equals(Void.TYPE)) {
+			throw new IllegalArgumentException("A @AstrixOneWay service method must return void: " + ReflectionUtil.fullMethodName(targetServiceMethod));
+		}
+		if (targetServiceMethod.isAnnotationPresent(AstrixBroadcast.class) 
+				|| targetServiceMethod.isAnnotationPresent(AstrixPagedBroadcast.class) 
+				|| getPartitionedByAnnotation(targetServiceMethod) >= 0) {
+			throw new IllegalArgumentException("A @AstrixOneWay service method must be routed: " + ReflectionUtil.fullMethodName(targetServiceMethod));
+		}
+		return new OneWayRemoteServiceMethod(methodSignature, routingStrategy.create(proxiedMethod), remotingEngine);
+	}
+	
+	private PagedBroadcastRemoteServiceMethod createPagedBroadcastRemoteServiceMethod(Class<?> targetServiceType, Method proxiedMethod, String methodSignature) {
+		Method targetServiceMethod = getTargetServiceMethod(proxiedMethod, targetServiceType);
+		if (!AstrixPage.class.equals(targetServiceMethod.getReturnType())) {
+			throw new IllegalArgumentException("A @AstrixPagedBroadcast service method must return an AstrixPage: " + ReflectionUtil.fullMethodName(targetServiceMethod));
+		}
+		int pageRequestArgumentIndex = -1;
+		Class<?>[] parameterTypes = proxiedMethod.getParameterTypes();
+		for (int argumentIndex = 0; argumentIndex < parameterTypes.length; argumentIndex++) {
+			if (!parameterTypes[argumentIndex].equals(AstrixPageRequest.class)) {
+				continue;
+			}
+			if (pageRequestArgumentIndex >= 0) {
+				throw new IllegalArgumentException("Ambigous service method signature. Multiple AstrixPageRequest arguments found: " + ReflectionUtil.fullMethodName(proxiedMethod));
+			}
+			pageRequestArgumentIndex = argumentIndex;
+		}
+		if (pageRequestArgumentIndex < 0) {
+			throw new IllegalArgumentException("A @AstrixPagedBroadcast service method must accept an AstrixPageRequest argument: " + ReflectionUtil.fullMethodName(proxiedMethod));
+		}
+		AstrixPagedBroadcast pagedBroadcast = proxiedMethod.getAnnotation(AstrixPagedBroadcast.class);
+		return new PagedBroadcastRemoteServiceMethod(methodSignature, 
+													 pageRequestArgumentIndex, 
+													 pagedBroadcast.defaultPageSize(),
+													 pagedBroadcast.prefetchedPartitions(),
+													 remotingEngine, 
+													 targetServiceMethod.getGenericReturnType(), 
+													 getPagedResultType(proxiedMethod));
+	}
+
+	private PagedBroadcastRemoteServiceMethod.ResultType getPagedResultType(Method proxiedMethod) {
+		if (Observable.class.isAssignableFrom(proxiedMethod.getReturnType())) {
+			return PagedBroadcastRemoteServiceMethod.ResultType.ELEMENTS;
+		}
+		Type resultType = proxiedMethod.getGenericReturnType();
+		if (Future.class.isAssignableFrom(proxiedMethod.getReturnType()) && resultType instanceof ParameterizedType) {
+			resultType = ((ParameterizedType) resultType).getActualTypeArguments()[0];
+		}
+		if (resultType instanceof ParameterizedType) {
+			resultType = ((ParameterizedType) resultType).getRawType();
+		}
+		if (Iterator.class.equals(resultType) || CloseableIterator.class.equals(resultType)) {
+			return PagedBroadcastRemoteServiceMethod.ResultType.ITERATOR;
+		}
+		return PagedBroadcastRemoteServiceMethod.ResultType.PAGE;
+	}
+	
 	public static int getPartitionedByAnnotation(Method m) {
 		int partitionedByIndex = -1;
 		for (int argumentIndex = 0; argumentIndex < m.getParameterTypes().length; argumentIndex++) {
@@ -72,7 +150,7 @@ public class RemoteServiceMethodFactory {
 
 	private Class<? extends RemoteResultReducer<?>> getRemoteResultReducerClass(
 			Method proxyServiceMethod, Class<?> targetServiceType) {
-		Method targetServiceMethod = ReflectionUtil.getMethod(targetServiceType, proxyServiceMethod.getName(),proxyServiceMethod.getParameterTypes()); 
+		Method targetServiceMethod = getTargetServiceMethod(proxyServiceMethod, targetServiceType);
 		AstrixBroadcast broadcast = targetServiceMethod
 				.getAnnotation(AstrixBroadcast.class);
 		Class<? extends RemoteResultReducer<?>> reducerType = (Class<? extends RemoteResultReducer<?>>) broadcast.reducer();
@@ -80,4 +158,8 @@ public class RemoteServiceMethodFactory {
 		return (Class<? extends RemoteResultReducer<?>>) reducerType;
 	}
 
+	private Method getTargetServiceMethod(Method proxyServiceMethod, Class<?> targetServiceType) {
+		return ReflectionUtil.getMethod(targetServiceType, proxyServiceMethod.getName(), proxyServiceMethod.getParameterTypes());
+	}
+
 }
@@ -16,13 +16,29 @@
 package com.avanza.astrix.remoting.client;
 
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import rx.Observable;
+import rx.exceptions.Exceptions;
 
+import com.avanza.astrix.core.AccumulatingRemoteResultReducer;
 import com.avanza.astrix.core.AstrixObjectSerializer;
 import com.avanza.astrix.core.AstrixRemoteResult;
 import com.avanza.astrix.core.CorrelationId;
+import com.avanza.astrix.core.PartialRemoteResultReducer;
+import com.avanza.astrix.core.RemoteResultAccumulator;
+import com.avanza.astrix.core.RemoteResultReducer;
 import com.avanza.astrix.core.RemoteServiceInvocationException;
 import com.avanza.astrix.core.ServiceInvocationException;
 
@@ -33,11 +49,31 @@ public final class RemotingEngine {
 	private final RemotingTransport serviceTransport;
 	private final AstrixObjectSerializer objectSerializer;
 	private final int apiVersion;
+	private final RemotingProxySettings settings;
+	private final BatchFlushScheduler batchFlushScheduler = new BatchFlushScheduler();
+	private final RoutedRequestBatcher routedRequestBatcher;
 	
 	public RemotingEngine(RemotingTransport serviceTransport, AstrixObjectSerializer objectSerializer, int apiVersion) {
+		this(serviceTransport, objectSerializer, apiVersion, new RemotingProxySettings());
+	}
+	
+	public RemotingEngine(RemotingTransport serviceTransport, AstrixObjectSerializer objectSerializer, int apiVersion, RemotingProxySettings settings) {
 		this.serviceTransport = serviceTransport;
 		this.objectSerializer = objectSerializer;
 		this.apiVersion = apiVersion;
+		this.settings = settings;
+		this.routedRequestBatcher = new RoutedRequestBatcher(serviceTransport, settings, batchFlushScheduler);
+	}
+	
+	/**
+	 * Releases the resources held by this engine, i.e. the worker used to flush batches if any. 
+	 */
+	public void destroy() {
+		this.batchFlushScheduler.destroy();
+	}
+	
+	BatchFlushScheduler getBatchFlushScheduler() {
+		return this.batchFlushScheduler;
 	}
 
 	protected final <T> AstrixRemoteResult<T> toRemoteResult(AstrixServiceInvocationResponse response, Type returnType) {
@@ -55,6 +91,180 @@ public final class RemotingEngine {
 		return AstrixRemoteResult.successful(result);
 	}
 	
+	/**
+	 * Unmarshalls and reduces the responses from a broadcasted or partitioned invocation. When the
+	 * reducer is an {@link AccumulatingRemoteResultReducer} each response is accumulated as soon as it's
+	 * unmarshalled, without collecting all unmarshalled results in a list. <p>
+	 * 
+	 * The responses are unmarshalled in parallel using the unmarshall executor when the number of 
+	 * responses reaches the parallel unmarshall threshold, see {@link RemotingProxySettings}.
+	 */
+	protected final <T> T reduce(List<AstrixServiceInvocationResponse> responses, RemoteResultReducer<T> reducer, Type returnType) {
+		Unmarshaller<T> results = unmarshall(responses, returnType);
+		try {
+			if (reducer instanceof AccumulatingRemoteResultReducer) {
+				RemoteResultAccumulator<T> accumulator = ((AccumulatingRemoteResultReducer<T>) reducer).newAccumulator(responses.size());
+				while (results.hasNext()) {
+					accumulator.accumulate(results.next());
+				}
+				return accumulator.finish();
+			}
+			List<AstrixRemoteResult<T>> unmarshalledResponses = new ArrayList<>(responses.size());
+			while (results.hasNext()) {
+				unmarshalledResponses.add(results.next());
+			}
+			return reducer.reduce(unmarshalledResponses);
+		} finally {
+			// Cancels unmarshalling of remaining responses if reduction failed
+			results.cancel();
+		}
+	}
+	
+	/**
+	 * Unmarshalls and reduces the responses from a broadcasted invocation where some partitions
+	 * didn't respond.
+	 */
+	protected final <T> T reducePartial(List<AstrixServiceInvocationResponse> responses, PartialRemoteResultReducer<T> reducer, Type returnType, Set<Integer> missingPartitions) {
+		Unmarshaller<T> results = unmarshall(responses, returnType);
+		try {
+			List<AstrixRemoteResult<T>> unmarshalledResponses = new ArrayList<>(responses.size());
+			while (results.hasNext()) {
+				unmarshalledResponses.add(results.next());
+			}
+			return reducer.reducePartial(unmarshalledResponses, missingPartitions);
+		} finally {
+			results.cancel();
+		}
+	}
+	
+	private <T> Unmarshaller<T> unmarshall(List<AstrixServiceInvocationResponse> responses, Type returnType) {
+		Executor unmarshallExecutor = settings.getUnmarshallExecutor();
+		int threshold = settings.getParallelUnmarshallThreshold().get();
+		int maxParallelTasks = settings.getMaxParallelUnmarshallTasks().get();
+		if (unmarshallExecutor == null || threshold <= 0 || responses.size() < threshold || maxParallelTasks <= 0) {
+			return new SequentialUnmarshaller<>(responses.iterator(), returnType);
+		}
+		return new ParallelUnmarshaller<>(responses.iterator(), returnType, unmarshallExecutor, maxParallelTasks);
+	}
+	
+	/*
+	 * Unmarshalls responses in response order.
+	 */
+	private abstract static class Unmarshaller<T> implements Iterator<AstrixRemoteResult<T>> {
+		
+		/**
+		 * Cancels unmarshalling of all responses not read yet.
+		 */
+		abstract void cancel();
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	private class SequentialUnmarshaller<T> extends Unmarshaller<T> {
+		
+		private final Iterator<AstrixServiceInvocationResponse> responses;
+		private final Type returnType;
+		
+		public SequentialUnmarshaller(Iterator<AstrixServiceInvocationResponse> responses, Type returnType) {
+			this.responses = responses;
+			this.returnType = returnType;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return responses.hasNext();
+		}
+
+		@Override
+		public AstrixRemoteResult<T> next() {
+			return toRemoteResult(responses.next(), returnType);
+		}
+		
+		@Override
+		void cancel() {
+		}
+	}
+	
+	/*
+	 * The current thread unmarshalls the response it reads unless the executor already started it, 
+	 * whereas the following responses are submitted to the executor. At most maxParallelTasks 
+	 * responses are submitted ahead of the response currently read, hence the number of unmarshalled 
+	 * results held at any time is bounded, and a saturated executor never stalls the invocation.
+	 */
+	private class ParallelUnmarshaller<T> extends Unmarshaller<T> {
+		
+		private final Iterator<AstrixServiceInvocationResponse> responses;
+		private final Type returnType;
+		private final Executor executor;
+		private final int maxParallelTasks;
+		private final Deque<FutureTask<AstrixRemoteResult<T>>> submittedTasks = new ArrayDeque<>();
+		
+		public ParallelUnmarshaller(Iterator<AstrixServiceInvocationResponse> responses, Type returnType, Executor executor, int maxParallelTasks) {
+			this.responses = responses;
+			this.returnType = returnType;
+			this.executor = executor;
+			this.maxParallelTasks = maxParallelTasks;
+		}
+		
+		private FutureTask<AstrixRemoteResult<T>> createUnmarshallTask(final AstrixServiceInvocationResponse response) {
+			return new FutureTask<>(new Callable<AstrixRemoteResult<T>>() {
+				@Override
+				public AstrixRemoteResult<T> call() throws Exception {
+					return toRemoteResult(response, returnType);
+				}
+			});
+		}
+		
+		private void submitTasks() {
+			while (submittedTasks.size() < maxParallelTasks && responses.hasNext()) {
+				FutureTask<AstrixRemoteResult<T>> unmarshallTask = createUnmarshallTask(responses.next());
+				submittedTasks.add(unmarshallTask);
+				try {
+					executor.execute(unmarshallTask);
+				} catch (RejectedExecutionException e) {
+					// Task will be executed on current thread
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !submittedTasks.isEmpty() || responses.hasNext();
+		}
+
+		@Override
+		public AstrixRemoteResult<T> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			FutureTask<AstrixRemoteResult<T>> unmarshallTask = submittedTasks.isEmpty() ? createUnmarshallTask(responses.next()) : submittedTasks.poll();
+			submitTasks();
+			// Executes the task on current thread unless already started by the executor
+			unmarshallTask.run();
+			try {
+				return unmarshallTask.get();
+			} catch (ExecutionException e) {
+				cancel();
+				throw Exceptions.propagate(e.getCause());
+			} catch (InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+				throw Exceptions.propagate(e);
+			}
+		}
+		
+		@Override
+		void cancel() {
+			for (FutureTask<AstrixRemoteResult<T>> unmarshallTask : submittedTasks) {
+				unmarshallTask.cancel(false);
+			}
+			submittedTasks.clear();
+		}
+	}
+	
 	protected final Object[] marshall(Object[] elements) {
 		if (elements == null) {
 			// No argument method
@@ -62,10 +272,18 @@ public final class RemotingEngine {
 		}
 		Object[] result = new Object[elements.length];
 		for (int i = 0; i < result.length; i++) {
-			result[i] = this.objectSerializer.serialize(elements[i], apiVersion);
+			result[i] = marshallArgument(elements[i]);
 		}
 		return result;
 	}
+	
+	protected final Object marshallArgument(Object element) {
+		return this.objectSerializer.serialize(element, apiVersion);
+	}
+
+	protected final <T> T unmarshallResult(Object marshalledResult, Type returnType) {
+		return objectSerializer.deserialize(marshalledResult, returnType, apiVersion);
+	}
 
 	private <T> T unmarshall(AstrixServiceInvocationResponse response, Type returnType, int version) {
 		return objectSerializer.deserialize(response.getResponseBody(), returnType, version);
@@ -82,9 +300,20 @@ public final class RemotingEngine {
 	}
 	
 	final Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+		if (routedRequestBatcher.isEnabled()) {
+			return routedRequestBatcher.submit(request, routingKey);
+		}
 		return this.serviceTransport.submitRoutedRequest(request, routingKey);
 	}
 	
+	final AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+		if (routedRequestBatcher.isEnabled()) {
+			// Blocking invocations are batched as well, the invoking thread waits for the batch to complete
+			return routedRequestBatcher.submit(request, routingKey).toBlocking().first();
+		}
+		return this.serviceTransport.invokeRoutedRequest(request, routingKey);
+	}
+	
 	final Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(List<RoutedServiceInvocationRequest> requests) {
 		return this.serviceTransport.submitRoutedRequests(requests);
 	}
@@ -15,19 +15,35 @@
  */
 package com.avanza.astrix.remoting.client;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
 
 import rx.Observable;
 
+import com.avanza.astrix.core.AstrixBatchable;
+import com.avanza.astrix.core.AstrixCached;
+import com.avanza.astrix.core.AstrixDeadline;
+import com.avanza.astrix.core.AstrixInvocationTracker;
+import com.avanza.astrix.core.AstrixInvocationTracking;
 import com.avanza.astrix.core.AstrixObjectSerializer;
+import com.avanza.astrix.core.AstrixOneWay;
+import com.avanza.astrix.core.AstrixPagedBroadcast;
+import com.avanza.astrix.core.AstrixPartitionedRouting;
+import com.avanza.astrix.core.AstrixPriority;
+import com.avanza.astrix.core.AstrixPriorityClass;
+import com.avanza.astrix.core.AstrixSingleFlight;
+import com.avanza.astrix.core.CachingAstrixBean;
 import com.avanza.astrix.core.util.ReflectionUtil;
+import com.avanza.astrix.remoting.util.ServiceMethodIndex;
 /**
  * 
  * @author Elias Lindholm (elilin)
@@ -37,24 +53,58 @@ public class RemotingProxy implements InvocationHandler {
 	
 	private final int apiVersion;
 	private final String serviceApi;
-	private final ConcurrentMap<Method, RemoteServiceMethod> remoteServiceMethodByMethod = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Method, ProxiedMethod> proxiedMethodByMethod = new ConcurrentHashMap<>();
 	private final RemoteServiceMethodFactory remoteServiceMethodFactory;
+	private final RemotingProxyCache cache = new RemotingProxyCache();
+	private final RemotingEngine remotingEngine;
+	private final boolean priorityClassesSupported;
+	private final boolean compactEnvelopeSupported;
 
 	public static <T> T create(Class<T> proxyApi, Class<?> targetApi, RemotingTransport transport, AstrixObjectSerializer objectSerializer, RoutingStrategy routingStrategy) {
-		RemotingProxy handler = new RemotingProxy(proxyApi, targetApi, objectSerializer, transport, routingStrategy);
-		T serviceProxy = (T) Proxy.newProxyInstance(RemotingProxy.class.getClassLoader(), new Class[]{proxyApi}, handler);
+		return create(proxyApi, targetApi, transport, objectSerializer, routingStrategy, new RemotingProxySettings());
+	}
+	
+	public static <T> T create(Class<T> proxyApi, Class<?> targetApi, RemotingTransport transport, AstrixObjectSerializer objectSerializer, RoutingStrategy routingStrategy, RemotingProxySettings settings) {
+		RemotingProxy handler = new RemotingProxy(proxyApi, targetApi, objectSerializer, transport, routingStrategy, settings);
+		Class<?>[] proxiedInterfaces = handler.cache.isEmpty() ? new Class[]{proxyApi} : new Class[]{proxyApi, CachingAstrixBean.class};
+		if (settings.isGeneratedStubsEnabled()) {
+			RemotingStub stub = RemotingStubFactories.createStub(handler, proxiedInterfaces, handler.proxiedMethodByMethod);
+			if (stub != null) {
+				return proxyApi.cast(stub);
+			}
+		}
+		T serviceProxy = (T) Proxy.newProxyInstance(RemotingProxy.class.getClassLoader(), proxiedInterfaces, handler);
 		return serviceProxy;
 	}
 	
+	/**
+	 * Releases the resources held by a proxy created using this class. Invocations
+	 * on the proxy are still served after it's destroyed, but batches are flushed 
+	 * immediately rather than after the micro batch window.
+	 * 
+	 * @param proxy
+	 */
+	public static void destroy(Object proxy) {
+		if (proxy instanceof RemotingStub) {
+			RemotingStub.class.cast(proxy).getRemotingProxy().remotingEngine.destroy();
+		}
+		if (Proxy.isProxyClass(proxy.getClass()) && Proxy.getInvocationHandler(proxy) instanceof RemotingProxy) {
+			RemotingProxy.class.cast(Proxy.getInvocationHandler(proxy)).remotingEngine.destroy();
+		}
+	}
+	
 	private RemotingProxy(Class<?> proxiedServiceApi,
 						  Class<?> targetServiceApi,
 							    AstrixObjectSerializer objectSerializer,
 							    RemotingTransport AstrixServiceTransport,
-							    RoutingStrategy routingStrategy) {
+							    RoutingStrategy routingStrategy,
+							    RemotingProxySettings settings) {
 		this.serviceApi = targetServiceApi.getName();
 		this.apiVersion = objectSerializer.version();
-		RemotingEngine remotingEngine = new RemotingEngine(AstrixServiceTransport, objectSerializer, apiVersion);
-		this.remoteServiceMethodFactory = new RemoteServiceMethodFactory(remotingEngine, routingStrategy);
+		this.priorityClassesSupported = settings.isPriorityClassesSupported();
+		this.compactEnvelopeSupported = settings.isCompactEnvelopeSupported();
+		this.remotingEngine = new RemotingEngine(AstrixServiceTransport, objectSerializer, apiVersion, settings);
+		this.remoteServiceMethodFactory = new RemoteServiceMethodFactory(remotingEngine, routingStrategy, settings);
 		/*
 		 * For each of the following services the "targetServiceType" resolves to MyService:
 		 *  - MyService
@@ -62,11 +112,166 @@ public class RemotingProxy implements InvocationHandler {
 		 *  - ObservableMyService
 		 */
 		Class<?> targetServiceType = ReflectionUtil.classForName(this.serviceApi);
+		ServiceMethodIndex serviceMethodIndex = ServiceMethodIndex.create(targetServiceType);
 		for (Method proxiedMethod : proxiedServiceApi.getMethods()) {
-			Type returnType = getReturnType(proxiedMethod);
-			RemoteServiceMethod remoteServiceMethod = this.remoteServiceMethodFactory.createRemoteServiceMethod(targetServiceType, proxiedMethod, returnType);
-			remoteServiceMethodByMethod.put(proxiedMethod, remoteServiceMethod);
+			Method targetServiceMethod = ReflectionUtil.getMethod(targetServiceType, proxiedMethod.getName(), proxiedMethod.getParameterTypes());
+			RemoteServiceMethod remoteServiceMethod = decorate(
+					createRemoteServiceMethod(targetServiceType, serviceMethodIndex, proxiedMethod, targetServiceMethod, settings), 
+					targetServiceMethod, 
+					getReturnType(proxiedMethod),
+					remotingEngine, 
+					settings);
+			AstrixServiceInvocationRequest requestTemplate = createRequestTemplate(remoteServiceMethod.getSignature(), serviceMethodIndex, getPriority(targetServiceType, targetServiceMethod));
+			proxiedMethodByMethod.put(proxiedMethod, createProxiedMethod(proxiedMethod, remoteServiceMethod, requestTemplate));
+		}
+		for (Method objectMethod : Object.class.getMethods()) {
+			proxiedMethodByMethod.put(objectMethod, new ObjectMethod(objectMethod, this));
+		}
+		if (!cache.isEmpty()) {
+			for (Method cachingBeanMethod : CachingAstrixBean.class.getMethods()) {
+				proxiedMethodByMethod.put(cachingBeanMethod, new ObjectMethod(cachingBeanMethod, cache));
+			}
+		}
+	}
+	
+	private AstrixServiceInvocationRequest createRequestTemplate(String methodSignature, ServiceMethodIndex serviceMethodIndex, AstrixPriorityClass priority) {
+		AstrixServiceInvocationRequest requestTemplate = new AstrixServiceInvocationRequest();
+		requestTemplate.setApiVersion(this.apiVersion);
+		requestTemplate.setServiceApi(this.serviceApi);
+		requestTemplate.setServiceMethodSignature(methodSignature);
+		requestTemplate.setServiceMethodId(serviceMethodIndex.getMethodId(methodSignature), serviceMethodIndex.getChecksum());
+		requestTemplate.setPriority(this.priorityClassesSupported ? priority : AstrixPriorityClass.NORMAL);
+		if (!this.compactEnvelopeSupported) {
+			// Servers predating the compact envelope only reads the headers
+			requestTemplate.setHeader(AstrixServiceInvocationRequestHeaders.API_VERSION, Integer.toString(this.apiVersion));
+			requestTemplate.setHeader(AstrixServiceInvocationRequestHeaders.SERVICE_API, this.serviceApi);
+			requestTemplate.setHeader(AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE, methodSignature);
+		}
+		return requestTemplate;
+	}
+	
+	private static AstrixPriorityClass getPriority(Class<?> targetServiceType, Method targetServiceMethod) {
+		AstrixPriority priority = targetServiceMethod.getAnnotation(AstrixPriority.class);
+		if (priority == null) {
+			priority = targetServiceType.getAnnotation(AstrixPriority.class);
+		}
+		return priority != null ? priority.value() : AstrixPriorityClass.NORMAL;
+	}
+	
+	private RemoteServiceMethod createRemoteServiceMethod(Class<?> targetServiceType, ServiceMethodIndex serviceMethodIndex, Method proxiedMethod, Method targetServiceMethod, RemotingProxySettings settings) {
+		AstrixBatchable batchable = targetServiceMethod.getAnnotation(AstrixBatchable.class);
+		if (batchable == null) {
+			return this.remoteServiceMethodFactory.createRemoteServiceMethod(targetServiceType, proxiedMethod, getReturnType(proxiedMethod));
+		}
+		if (proxiedMethod.getParameterTypes().length != 1) {
+			throw new IllegalArgumentException("A @AstrixBatchable service method must accept exactly one argument: " + ReflectionUtil.fullMethodName(targetServiceMethod));
+		}
+		Method bulkMethod = getBulkMethod(targetServiceType, targetServiceMethod, batchable);
+		RemoteServiceMethod bulkRemoteServiceMethod = this.remoteServiceMethodFactory.createRemoteServiceMethod(targetServiceType, bulkMethod, bulkMethod.getGenericReturnType());
+		@SuppressWarnings("unchecked")
+		Class<? extends Collection<Object>> keyCollectionFactory = (Class<? extends Collection<Object>>) getPartitionedRouting(bulkMethod).collectionFactory();
+		return new BatchableRemoteServiceMethod(ReflectionUtil.methodSignatureWithoutReturnType(proxiedMethod), 
+												bulkRemoteServiceMethod, 
+												createRequestTemplate(bulkRemoteServiceMethod.getSignature(), serviceMethodIndex, getPriority(targetServiceType, targetServiceMethod)), 
+												keyCollectionFactory, 
+												batchable,
+												settings,
+												remotingEngine.getBatchFlushScheduler());
+	}
+
+	private static Method getBulkMethod(Class<?> targetServiceType, Method targetServiceMethod, AstrixBatchable batchable) {
+		for (Method candidate : targetServiceType.getMethods()) {
+			if (!candidate.getName().equals(batchable.bulkMethod()) 
+					|| candidate.getParameterTypes().length != 1
+					|| !Map.class.isAssignableFrom(candidate.getReturnType()) 
+					|| !Collection.class.isAssignableFrom(candidate.getParameterTypes()[0]) 
+					|| getPartitionedRouting(candidate) == null) {
+				continue;
+			}
+			assertBulkResultCompatible(targetServiceMethod, candidate);
+			return candidate;
+		}
+		throw new IllegalArgumentException("Failed to find bulk method for @AstrixBatchable service method: " + ReflectionUtil.fullMethodName(targetServiceMethod) 
+										 + "\n@AstrixBatchable.bulkMethod: " + batchable.bulkMethod()
+										 + "\nThe bulk method must return a Map and accept a Collection annotated with @AstrixPartitionedRouting");
+	}
+	
+	private static void assertBulkResultCompatible(Method targetServiceMethod, Method bulkMethod) {
+		Class<?> resultType = targetServiceMethod.getReturnType();
+		Class<?> bulkResultValueType = getMapValueType(bulkMethod.getGenericReturnType());
+		if (resultType.isPrimitive() || !resultType.isAssignableFrom(bulkResultValueType)) {
+			throw new IllegalArgumentException("The values returned by the bulk method of a @AstrixBatchable service method must be assignable to "
+											 + "the (non primitive) return type of the service method: " + ReflectionUtil.fullMethodName(targetServiceMethod)
+											 + "\nbulkMethod: " + ReflectionUtil.fullMethodName(bulkMethod));
+		}
+	}
+	
+	private static Class<?> getMapValueType(Type mapType) {
+		if (mapType instanceof ParameterizedType) {
+			ParameterizedType parameterizedType = (ParameterizedType) mapType;
+			Type[] typeArguments = parameterizedType.getActualTypeArguments();
+			if (typeArguments.length == 2 && Map.class.isAssignableFrom((Class<?>) parameterizedType.getRawType())) {
+				Type valueType = typeArguments[1];
+				if (valueType instanceof Class) {
+					return (Class<?>) valueType;
+				}
+				if (valueType instanceof ParameterizedType) {
+					return (Class<?>) ((ParameterizedType) valueType).getRawType();
+				}
+			}
+		}
+		return Object.class;
+	}
+	
+	private static AstrixPartitionedRouting getPartitionedRouting(Method bulkMethod) {
+		for (Annotation a : bulkMethod.getParameterAnnotations()[0]) {
+			if (a instanceof AstrixPartitionedRouting) {
+				return (AstrixPartitionedRouting) a;
+			}
+		}
+		return null;
+	}
+	
+	/*
+	 * Client side features applied on top of the remote service method, from the innermost to the outermost:
+	 *  - callback executor
+	 *  - single flight
+	 *  - cache
+	 */
+	private RemoteServiceMethod decorate(RemoteServiceMethod remoteServiceMethod, Method targetServiceMethod, Type resultType, RemotingEngine remotingEngine, RemotingProxySettings settings) {
+		RemoteServiceMethod result = CallbackExecutorRemoteServiceMethod.wrap(remoteServiceMethod, settings);
+		if (targetServiceMethod.isAnnotationPresent(AstrixSingleFlight.class)) {
+			assertNotOneWayOrPaged(targetServiceMethod, AstrixSingleFlight.class);
+			result = new SingleFlightRemoteServiceMethod(result, remotingEngine);
+		}
+		AstrixCached cached = targetServiceMethod.getAnnotation(AstrixCached.class);
+		if (cached != null) {
+			assertNotOneWayOrPaged(targetServiceMethod, AstrixCached.class);
+			CachingRemoteServiceMethod cachingRemoteServiceMethod = new CachingRemoteServiceMethod(result, remotingEngine, resultType, cached, settings);
+			this.cache.add(cachingRemoteServiceMethod);
+			result = cachingRemoteServiceMethod;
 		}
+		return result;
+	}
+	
+	private static void assertNotOneWayOrPaged(Method targetServiceMethod, Class<?> annotation) {
+		if (targetServiceMethod.isAnnotationPresent(AstrixOneWay.class) || targetServiceMethod.isAnnotationPresent(AstrixPagedBroadcast.class)) {
+			throw new IllegalArgumentException("@" + annotation.getSimpleName() + " can't be combined with @AstrixOneWay or @AstrixPagedBroadcast: " + ReflectionUtil.fullMethodName(targetServiceMethod));
+		}
+	}
+	
+	private ProxiedMethod createProxiedMethod(Method proxiedMethod, RemoteServiceMethod remoteServiceMethod, AstrixServiceInvocationRequest requestTemplate) {
+		AsyncResultAdapter asyncResultAdapter = AsyncResultAdapters.getAdapter(proxiedMethod.getReturnType());
+		if (asyncResultAdapter != null) {
+			return new AdaptedResultMethod(remoteServiceMethod, requestTemplate, asyncResultAdapter);
+		}
+		if (isObservableType(proxiedMethod.getReturnType())) {
+			return new ObservableResultMethod(remoteServiceMethod, requestTemplate);
+		}
+		if (isFutureType(proxiedMethod.getReturnType())) {
+			return new FutureResultMethod(remoteServiceMethod, requestTemplate);
+		}
+		return new BlockingResultMethod(remoteServiceMethod, requestTemplate);
 	}
 
 	@Override
@@ -76,29 +281,11 @@ public class RemotingProxy implements InvocationHandler {
 	
 	@Override
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-		if (method.getDeclaringClass().equals(Object.class)) {
-			return ReflectionUtil.invokeMethod(method, this, args);
-		}
-		RemoteServiceMethod remoteServiceMethod = this.remoteServiceMethodByMethod.get(method);
-		
-		AstrixServiceInvocationRequest invocationRequest = new AstrixServiceInvocationRequest();
-		
-		invocationRequest.setHeader("apiVersion", Integer.toString(this.apiVersion));
-		invocationRequest.setHeader("serviceMethodSignature", remoteServiceMethod.getSignature());
-		invocationRequest.setHeader("serviceApi", this.serviceApi);
-		
-		Observable<?> result = remoteServiceMethod.invoke(invocationRequest, args);
-		if (isObservableType(method.getReturnType())) {
-			return result;
-		}
-		if (isFutureType(method.getReturnType())) {
-			return new FutureAdapter<>(result);
-		}
-		return result.toBlocking().first();
+		return this.proxiedMethodByMethod.get(method).invoke(proxy, args);
 	}
 	
 	private Type getReturnType(Method method) {
-		if (isObservableOrFutureType(method.getReturnType())) {
+		if (isObservableOrFutureType(method.getReturnType()) || AsyncResultAdapters.getAdapter(method.getReturnType()) != null) {
 			return ParameterizedType.class.cast(method.getGenericReturnType()).getActualTypeArguments()[0];
 		}
 		return method.getGenericReturnType();
@@ -116,4 +303,115 @@ public class RemotingProxy implements InvocationHandler {
 		return Future.class.isAssignableFrom(returnType);
 	}
 	
+	private static abstract class RemoteMethod extends ProxiedMethod {
+		
+		private final RemoteServiceMethod remoteServiceMethod;
+		/*
+		 * Holds the target service and method resolved when the proxy was created. A
+		 * copy is used for each invocation.
+		 */
+		private final AstrixServiceInvocationRequest requestTemplate;
+		
+		public RemoteMethod(RemoteServiceMethod remoteServiceMethod, AstrixServiceInvocationRequest requestTemplate) {
+			this.remoteServiceMethod = remoteServiceMethod;
+			this.requestTemplate = requestTemplate;
+		}
+		
+		@Override
+		public final Object invoke(Object proxy, Object[] args) throws Throwable {
+			AstrixServiceInvocationRequest invocationRequest = new AstrixServiceInvocationRequest(requestTemplate);
+			// The deadline is bound to the calling thread, requests might be sent from another thread 
+			long remainingMillis = AstrixDeadline.getRemainingMillis();
+			if (remainingMillis != AstrixDeadline.UNBOUNDED) {
+				invocationRequest.setTimeBudget(remainingMillis);
+			}
+			return invoke(proxy, remoteServiceMethod, invocationRequest, args);
+		}
+		
+		abstract Object invoke(Object proxy, RemoteServiceMethod remoteServiceMethod, AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception;
+	}
+	
+	/*
+	 * The invocation is tracked on the Observable from the transport, before it's adapted to
+	 * the return type of the proxied method, see AstrixInvocationTracking.
+	 */
+	private static abstract class AsyncResultMethod extends RemoteMethod {
+		public AsyncResultMethod(RemoteServiceMethod remoteServiceMethod, AstrixServiceInvocationRequest requestTemplate) {
+			super(remoteServiceMethod, requestTemplate);
+		}
+		@Override
+		final Object invoke(Object proxy, RemoteServiceMethod remoteServiceMethod, AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+			Observable<?> result = remoteServiceMethod.invoke(invocationRequest, args);
+			AstrixInvocationTracker invocationTracker = AstrixInvocationTracking.claim(proxy);
+			if (invocationTracker != null) {
+				result = ObservableInvocationTracking.track(result, invocationTracker);
+			}
+			return adapt(result);
+		}
+		
+		abstract Object adapt(Observable<?> result);
+	}
+	
+	private static class ObservableResultMethod extends AsyncResultMethod {
+		public ObservableResultMethod(RemoteServiceMethod remoteServiceMethod, AstrixServiceInvocationRequest requestTemplate) {
+			super(remoteServiceMethod, requestTemplate);
+		}
+		@Override
+		Object adapt(Observable<?> result) {
+			return result;
+		}
+	}
+	
+	private static class FutureResultMethod extends AsyncResultMethod {
+		public FutureResultMethod(RemoteServiceMethod remoteServiceMethod, AstrixServiceInvocationRequest requestTemplate) {
+			super(remoteServiceMethod, requestTemplate);
+		}
+		@Override
+		Object adapt(Observable<?> result) {
+			return new FutureAdapter<>(result);
+		}
+	}
+	
+	private static class AdaptedResultMethod extends AsyncResultMethod {
+		private final AsyncResultAdapter asyncResultAdapter;
+		public AdaptedResultMethod(RemoteServiceMethod remoteServiceMethod, AstrixServiceInvocationRequest requestTemplate, AsyncResultAdapter asyncResultAdapter) {
+			super(remoteServiceMethod, requestTemplate);
+			this.asyncResultAdapter = asyncResultAdapter;
+		}
+		@Override
+		Object adapt(Observable<?> result) {
+			return asyncResultAdapter.adapt(result);
+		}
+	}
+	
+	private static class BlockingResultMethod extends RemoteMethod {
+		public BlockingResultMethod(RemoteServiceMethod remoteServiceMethod, AstrixServiceInvocationRequest requestTemplate) {
+			super(remoteServiceMethod, requestTemplate);
+		}
+		@Override
+		Object invoke(Object proxy, RemoteServiceMethod remoteServiceMethod, AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+			return remoteServiceMethod.invokeBlocking(invocationRequest, args);
+		}
+	}
+	
+	/**
+	 * Methods defined in java.lang.Object and CachingAstrixBean are not delegated to the 
+	 * remote service, they are invoked on the RemotingProxy itself, respectively its cache.
+	 */
+	private static class ObjectMethod extends ProxiedMethod {
+		
+		private final Method method;
+		private final Object target;
+		
+		public ObjectMethod(Method method, Object target) {
+			this.method = method;
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Object[] args) throws Throwable {
+			return ReflectionUtil.invokeMethod(method, target, args);
+		}
+	}
+	
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.avanza.astrix.core.AstrixCacheStatistics;
+import com.avanza.astrix.core.CachingAstrixBean;
+
+/**
+ * Holds the caches of all {@link com.avanza.astrix.core.AstrixCached} service methods on a 
+ * remoting proxy. A remoting proxy only implements {@link CachingAstrixBean} if it has at 
+ * least one cached service method. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class RemotingProxyCache implements CachingAstrixBean {
+	
+	private final List<CachingRemoteServiceMethod> cachedMethods = new CopyOnWriteArrayList<>();
+	
+	void add(CachingRemoteServiceMethod cachedMethod) {
+		this.cachedMethods.add(cachedMethod);
+	}
+	
+	boolean isEmpty() {
+		return cachedMethods.isEmpty();
+	}
+
+	@Override
+	public void invalidateCache() {
+		for (CachingRemoteServiceMethod cachedMethod : cachedMethods) {
+			cachedMethod.invalidate();
+		}
+	}
+	
+	@Override
+	public AstrixCacheStatistics getCacheStatistics() {
+		AstrixCacheStatistics result = AstrixCacheStatistics.empty();
+		for (CachingRemoteServiceMethod cachedMethod : cachedMethods) {
+			result = result.add(cachedMethod.getStatistics());
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.concurrent.Executor;
+
+import com.avanza.astrix.config.DynamicBooleanProperty;
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.DynamicLongProperty;
+
+/**
+ * Contains settings for a remoting proxy. The initial values of the fields are used as defaults. <p>
+ * 
+ * The settings are dynamic, i.e changes are picked up by the proxy at runtime.
+ * 
+ * @author Elias Lindholm (elilin)
+ */
+public class RemotingProxySettings {
+	
+	/**
+	 * Disables splitting of partition requests.
+	 */
+	public static final int UNLIMITED_PARTITION_BATCH_SIZE = 0;
+	
+	/**
+	 * Disables parallel unmarshalling of responses.
+	 */
+	public static final int PARALLEL_UNMARSHALL_DISABLED = 0;
+	
+	/**
+	 * Disables micro batching of routed requests.
+	 */
+	public static final long MICRO_BATCHING_DISABLED = 0;
+	
+	private DynamicIntProperty maxPartitionBatchSize = new DynamicIntProperty(UNLIMITED_PARTITION_BATCH_SIZE);
+	private DynamicIntProperty parallelUnmarshallThreshold = new DynamicIntProperty(PARALLEL_UNMARSHALL_DISABLED);
+	private DynamicIntProperty maxParallelUnmarshallTasks = new DynamicIntProperty(Runtime.getRuntime().availableProcessors());
+	private Executor unmarshallExecutor;
+	private DynamicBooleanProperty callbackExecutorEnabled = new DynamicBooleanProperty(false);
+	private Executor callbackExecutor;
+	private DynamicBooleanProperty cacheEnabled = new DynamicBooleanProperty(true);
+	private DynamicLongProperty cacheTtlMillis = new DynamicLongProperty(0);
+	private DynamicIntProperty cacheMaxSize = new DynamicIntProperty(0);
+	private DynamicLongProperty microBatchWindowMicros = new DynamicLongProperty(MICRO_BATCHING_DISABLED);
+	private DynamicIntProperty microBatchMaxSize = new DynamicIntProperty(100);
+	private DynamicLongProperty batchableWindowMicros = new DynamicLongProperty(0);
+	private DynamicIntProperty batchableMaxBatchSize = new DynamicIntProperty(0);
+	private boolean priorityClassesSupported = true;
+	private boolean compactEnvelopeSupported = true;
+	private boolean generatedStubsEnabled = true;
+
+	/**
+	 * The maximum number of elements sent in a single request by a partitioned service method. Partitions
+	 * with more elements are split into several requests that are executed in parallel against the 
+	 * same partition.
+	 * 
+	 * @return
+	 */
+	public DynamicIntProperty getMaxPartitionBatchSize() {
+		return maxPartitionBatchSize;
+	}
+	
+	public void setMaxPartitionBatchSize(DynamicIntProperty maxPartitionBatchSize) {
+		this.maxPartitionBatchSize = maxPartitionBatchSize;
+	}
+	
+	/**
+	 * The minimum number of responses received by a broadcasted or partitioned service method
+	 * for the responses to be unmarshalled in parallel using the unmarshall executor. 
+	 * 
+	 * @return
+	 */
+	public DynamicIntProperty getParallelUnmarshallThreshold() {
+		return parallelUnmarshallThreshold;
+	}
+	
+	public void setParallelUnmarshallThreshold(DynamicIntProperty parallelUnmarshallThreshold) {
+		this.parallelUnmarshallThreshold = parallelUnmarshallThreshold;
+	}
+	
+	/**
+	 * The maximum number of responses from a single invocation that are submitted to the unmarshall 
+	 * executor ahead of the response currently read by the invoking thread. Defaults to the number
+	 * of available processors.
+	 * 
+	 * @return
+	 */
+	public DynamicIntProperty getMaxParallelUnmarshallTasks() {
+		return maxParallelUnmarshallTasks;
+	}
+	
+	public void setMaxParallelUnmarshallTasks(DynamicIntProperty maxParallelUnmarshallTasks) {
+		this.maxParallelUnmarshallTasks = maxParallelUnmarshallTasks;
+	}
+	
+	/**
+	 * The executor used to unmarshall responses in parallel, or null if parallel
+	 * unmarshalling is not supported.
+	 * 
+	 * @return
+	 */
+	public Executor getUnmarshallExecutor() {
+		return unmarshallExecutor;
+	}
+	
+	public void setUnmarshallExecutor(Executor unmarshallExecutor) {
+		this.unmarshallExecutor = unmarshallExecutor;
+	}
+	
+	/**
+	 * Whether results from async service methods (Observable, Future etc) should be 
+	 * delivered on the callback executor. When disabled (default), results are 
+	 * delivered inline on the thread that received the response from the transport. 
+	 * 
+	 * @return
+	 */
+	public DynamicBooleanProperty getCallbackExecutorEnabled() {
+		return callbackExecutorEnabled;
+	}
+	
+	public void setCallbackExecutorEnabled(DynamicBooleanProperty callbackExecutorEnabled) {
+		this.callbackExecutorEnabled = callbackExecutorEnabled;
+	}
+	
+	/**
+	 * The executor used to deliver results from async service methods when the callback
+	 * executor is enabled, or null if results should always be delivered inline.
+	 * 
+	 * @return
+	 */
+	public Executor getCallbackExecutor() {
+		return callbackExecutor;
+	}
+	
+	public void setCallbackExecutor(Executor callbackExecutor) {
+		this.callbackExecutor = callbackExecutor;
+	}
+	
+	/**
+	 * Whether results from {@link com.avanza.astrix.core.AstrixCached} service methods 
+	 * should be cached.
+	 * 
+	 * @return
+	 */
+	public DynamicBooleanProperty getCacheEnabled() {
+		return cacheEnabled;
+	}
+	
+	public void setCacheEnabled(DynamicBooleanProperty cacheEnabled) {
+		this.cacheEnabled = cacheEnabled;
+	}
+	
+	/**
+	 * Overrides the ttl defined by {@link com.avanza.astrix.core.AstrixCached} for all cached 
+	 * service methods when set to a positive value.
+	 * 
+	 * @return
+	 */
+	public DynamicLongProperty getCacheTtlMillis() {
+		return cacheTtlMillis;
+	}
+	
+	public void setCacheTtlMillis(DynamicLongProperty cacheTtlMillis) {
+		this.cacheTtlMillis = cacheTtlMillis;
+	}
+	
+	/**
+	 * Overrides the max size defined by {@link com.avanza.astrix.core.AstrixCached} for all cached 
+	 * service methods when set to a positive value.
+	 * 
+	 * @return
+	 */
+	public DynamicIntProperty getCacheMaxSize() {
+		return cacheMaxSize;
+	}
+	
+	public void setCacheMaxSize(DynamicIntProperty cacheMaxSize) {
+		this.cacheMaxSize = cacheMaxSize;
+	}
+	
+	/**
+	 * The time (in microseconds) routed requests targeting the same partition are collected 
+	 * before they are sent as a single batch. Only used when supported by the transport, see 
+	 * {@link BatchingRemotingTransportSpi}.
+	 * 
+	 * @return
+	 */
+	public DynamicLongProperty getMicroBatchWindowMicros() {
+		return microBatchWindowMicros;
+	}
+	
+	public void setMicroBatchWindowMicros(DynamicLongProperty microBatchWindowMicros) {
+		this.microBatchWindowMicros = microBatchWindowMicros;
+	}
+	
+	/**
+	 * The maximum number of routed requests sent in a single batch when micro batching 
+	 * is enabled. A batch is sent as soon as it reaches this size.
+	 * 
+	 * @return
+	 */
+	public DynamicIntProperty getMicroBatchMaxSize() {
+		return microBatchMaxSize;
+	}
+	
+	public void setMicroBatchMaxSize(DynamicIntProperty microBatchMaxSize) {
+		this.microBatchMaxSize = microBatchMaxSize;
+	}
+	
+	/**
+	 * Overrides the window defined by {@link com.avanza.astrix.core.AstrixBatchable} for all batchable 
+	 * service methods when set to a positive value.
+	 * 
+	 * @return
+	 */
+	public DynamicLongProperty getBatchableWindowMicros() {
+		return batchableWindowMicros;
+	}
+	
+	public void setBatchableWindowMicros(DynamicLongProperty batchableWindowMicros) {
+		this.batchableWindowMicros = batchableWindowMicros;
+	}
+	
+	/**
+	 * Overrides the max batch size defined by {@link com.avanza.astrix.core.AstrixBatchable} for all 
+	 * batchable service methods when set to a positive value.
+	 * 
+	 * @return
+	 */
+	public DynamicIntProperty getBatchableMaxBatchSize() {
+		return batchableMaxBatchSize;
+	}
+	
+	public void setBatchableMaxBatchSize(DynamicIntProperty batchableMaxBatchSize) {
+		this.batchableMaxBatchSize = batchableMaxBatchSize;
+	}
+	
+	/**
+	 * Whether the server accepts requests with a priority class other than NORMAL, see 
+	 * {@link com.avanza.astrix.core.AstrixPriority}. When not supported all requests are
+	 * sent with NORMAL priority.
+	 * 
+	 * @return
+	 */
+	public boolean isPriorityClassesSupported() {
+		return priorityClassesSupported;
+	}
+	
+	public void setPriorityClassesSupported(boolean priorityClassesSupported) {
+		this.priorityClassesSupported = priorityClassesSupported;
+	}
+	
+	/**
+	 * Whether the server identifies the target service method using the compact invocation envelope, 
+	 * see {@link AstrixServiceInvocationRequest}. When not supported each request also carries the
+	 * target service in the headers defined by {@link AstrixServiceInvocationRequestHeaders}.
+	 * 
+	 * @return
+	 */
+	public boolean isCompactEnvelopeSupported() {
+		return compactEnvelopeSupported;
+	}
+	
+	public void setCompactEnvelopeSupported(boolean compactEnvelopeSupported) {
+		this.compactEnvelopeSupported = compactEnvelopeSupported;
+	}
+	
+	/**
+	 * Whether to create a stub using the {@link RemotingStubFactory} discovered on the classpath, if any, 
+	 * rather than a java.lang.reflect.Proxy.
+	 * 
+	 * @return
+	 */
+	public boolean isGeneratedStubsEnabled() {
+		return generatedStubsEnabled;
+	}
+	
+	public void setGeneratedStubsEnabled(boolean generatedStubsEnabled) {
+		this.generatedStubsEnabled = generatedStubsEnabled;
+	}
+	
+}
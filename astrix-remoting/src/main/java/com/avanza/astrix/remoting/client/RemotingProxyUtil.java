@@ -16,40 +16,132 @@
 package com.avanza.astrix.remoting.client;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.avanza.astrix.core.RemoteResultReducer;
 import com.avanza.astrix.core.util.ReflectionUtil;
 
 final class RemotingProxyUtil {
 	
+	private static final Map<Class<?>, Class<?>> WRAPPER_TYPE_BY_PRIMITIVE_TYPE = new HashMap<>();
+	
+	static {
+		WRAPPER_TYPE_BY_PRIMITIVE_TYPE.put(Boolean.TYPE, Boolean.class);
+		WRAPPER_TYPE_BY_PRIMITIVE_TYPE.put(Byte.TYPE, Byte.class);
+		WRAPPER_TYPE_BY_PRIMITIVE_TYPE.put(Character.TYPE, Character.class);
+		WRAPPER_TYPE_BY_PRIMITIVE_TYPE.put(Short.TYPE, Short.class);
+		WRAPPER_TYPE_BY_PRIMITIVE_TYPE.put(Integer.TYPE, Integer.class);
+		WRAPPER_TYPE_BY_PRIMITIVE_TYPE.put(Long.TYPE, Long.class);
+		WRAPPER_TYPE_BY_PRIMITIVE_TYPE.put(Float.TYPE, Float.class);
+		WRAPPER_TYPE_BY_PRIMITIVE_TYPE.put(Double.TYPE, Double.class);
+	}
+	
 	static void validateRemoteResultReducer(Method targetServiceMethod,
 			Class<? extends RemoteResultReducer<?>> reducerType) {
-		validateRemoteResultReducerReturnType(targetServiceMethod, reducerType);
+		validateRemoteResultReducer(targetServiceMethod, targetServiceMethod.getReturnType(), reducerType);
+	}
+	
+	/**
+	 * @param serviceMethod
+	 * @param serviceReturnType - the type returned by the service method, i.e. the type argument for service methods 
+	 *        returning an Observable or a Future.
+	 * @param reducerType
+	 */
+	static void validateRemoteResultReducer(Method serviceMethod, Type serviceReturnType,
+			Class<? extends RemoteResultReducer<?>> reducerType) {
+		validateRemoteResultReducerReturnType(serviceMethod, getRawType(serviceReturnType), reducerType);
 	}
 	
 	private static void validateRemoteResultReducerReturnType(
 			Method targetServiceMethod,
+			Class<?> returnType,
 			Class<? extends RemoteResultReducer<?>> reducerType) {
-		Method reduceMethod = ReflectionUtil.getMethod(reducerType, "reduce", List.class);
-		Class<?> returnType = targetServiceMethod.getReturnType();
-		if (returnType.equals(Void.TYPE)) {
+		if (returnType == null || returnType.equals(Void.TYPE)) {
 			return;
 		}
-		if (TypeVariable.class.isAssignableFrom(reduceMethod
-				.getGenericReturnType().getClass())) {
-			return;
+		Method reduceMethod = ReflectionUtil.getMethod(reducerType, "reduce", List.class);
+		Class<?> reducerReturnType = reduceMethod.getReturnType();
+		if (TypeVariable.class.isAssignableFrom(reduceMethod.getGenericReturnType().getClass())) {
+			// Return type declared by a generic super type, e.g. LongSumReducer extends AbstractAccumulatingReducer<Long>
+			reducerReturnType = getReducedType(reducerType);
+			if (reducerReturnType == null) {
+				// Reducer is generic in its return type
+				return;
+			}
 		}
-		if (!returnType.isAssignableFrom(reduceMethod.getReturnType())) {
+		if (!wrap(returnType).isAssignableFrom(wrap(reducerReturnType))) {
 			throw new IncompatibleRemoteResultReducerException(
 					String.format(
 							"Return type of RemoteResultReducer must be same as (or subtype) of the one returned by the service method. "
 									+ "serviceMethod=%s reducerType=%s reducerReturnType=%s serviceMethodReturnType=%s",
-							targetServiceMethod, reducerType, returnType.getName(), reduceMethod.getReturnType().getName()));
+							targetServiceMethod, reducerType, reducerReturnType.getName(), returnType.getName()));
 		}
 	}
-
 	
+	/**
+	 * Resolves the type argument to {@link RemoteResultReducer} for the given reducer type.
+	 * 
+	 * @param reducerType
+	 * @return the type reduced by the given reducer, or null if the reducer is generic in the reduced type.
+	 */
+	static Class<?> getReducedType(Class<?> reducerType) {
+		return getReducedType(reducerType, Collections.<TypeVariable<?>, Type>emptyMap());
+	}
+	
+	private static Class<?> getReducedType(Class<?> type, Map<TypeVariable<?>, Type> typeArguments) {
+		List<Type> superTypes = new ArrayList<>(Arrays.asList(type.getGenericInterfaces()));
+		if (type.getGenericSuperclass() != null) {
+			superTypes.add(type.getGenericSuperclass());
+		}
+		for (Type superType : superTypes) {
+			Class<?> rawSuperType = getRawType(superType);
+			if (rawSuperType == null || !RemoteResultReducer.class.isAssignableFrom(rawSuperType)) {
+				continue;
+			}
+			Map<TypeVariable<?>, Type> superTypeArguments = new HashMap<>();
+			if (superType instanceof ParameterizedType) {
+				TypeVariable<?>[] typeParameters = rawSuperType.getTypeParameters();
+				Type[] actualTypeArguments = ((ParameterizedType) superType).getActualTypeArguments();
+				for (int i = 0; i < typeParameters.length; i++) {
+					Type typeArgument = actualTypeArguments[i];
+					if (typeArguments.containsKey(typeArgument)) {
+						typeArgument = typeArguments.get(typeArgument);
+					}
+					superTypeArguments.put(typeParameters[i], typeArgument);
+				}
+			}
+			if (rawSuperType.equals(RemoteResultReducer.class)) {
+				return getRawType(superTypeArguments.get(RemoteResultReducer.class.getTypeParameters()[0]));
+			}
+			Class<?> reducedType = getReducedType(rawSuperType, superTypeArguments);
+			if (reducedType != null) {
+				return reducedType;
+			}
+		}
+		return null;
+	}
+	
+	private static Class<?> getRawType(Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		}
+		if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		}
+		return null;
+	}
+	
+	private static Class<?> wrap(Class<?> type) {
+		Class<?> wrapperType = WRAPPER_TYPE_BY_PRIMITIVE_TYPE.get(type);
+		return wrapperType != null ? wrapperType : type;
+	}
 
 }
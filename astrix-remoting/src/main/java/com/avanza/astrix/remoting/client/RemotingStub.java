@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+/**
+ * Base class for stubs created by a {@link RemotingStubFactory}. The methods defined in java.lang.Object
+ * are invoked on the RemotingProxy, in the same way as for a proxy created by {@link RemotingProxy}. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public abstract class RemotingStub {
+	
+	private final RemotingProxy remotingProxy;
+	
+	protected RemotingStub(RemotingProxy remotingProxy) {
+		this.remotingProxy = remotingProxy;
+	}
+	
+	final RemotingProxy getRemotingProxy() {
+		return remotingProxy;
+	}
+	
+	@Override
+	public String toString() {
+		return remotingProxy.toString();
+	}
+	
+	@Override
+	public int hashCode() {
+		return remotingProxy.hashCode();
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		return remotingProxy.equals(obj);
+	}
+
+}
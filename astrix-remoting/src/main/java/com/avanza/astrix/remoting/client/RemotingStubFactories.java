@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the {@link RemotingStubFactory} discovered on the classpath, if any. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class RemotingStubFactories {
+	
+	private static final Logger log = LoggerFactory.getLogger(RemotingStubFactories.class);
+	
+	private static final RemotingStubFactory DISCOVERED_FACTORY = discover();
+	
+	private RemotingStubFactories() {
+	}
+	
+	/**
+	 * Creates a stub using the discovered {@link RemotingStubFactory}.
+	 * 
+	 * @return the stub, or null if no RemotingStubFactory is available or the stub can't be created
+	 */
+	static RemotingStub createStub(RemotingProxy remotingProxy, Class<?>[] interfaces, Map<Method, ProxiedMethod> proxiedMethods) {
+		if (DISCOVERED_FACTORY == null) {
+			return null;
+		}
+		try {
+			return DISCOVERED_FACTORY.createStub(remotingProxy, interfaces, Collections.unmodifiableMap(proxiedMethods));
+		} catch (RuntimeException | LinkageError e) {
+			log.warn(String.format("Failed to create stub, falling back to java.lang.reflect.Proxy. serviceApi=%s stubFactory=%s", 
+					interfaces[0].getName(), DISCOVERED_FACTORY.getClass().getName()), e);
+			return null;
+		}
+	}
+
+	private static RemotingStubFactory discover() {
+		Iterator<RemotingStubFactory> factories = ServiceLoader.load(RemotingStubFactory.class, RemotingStubFactory.class.getClassLoader()).iterator();
+		while (factories.hasNext()) {
+			try {
+				RemotingStubFactory factory = factories.next();
+				log.debug("Discovered RemotingStubFactory, factoryType={}", factory.getClass().getName());
+				return factory;
+			} catch (ServiceConfigurationError | LinkageError e) {
+				log.debug("Ignoring RemotingStubFactory that failed to load", e);
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Extension point used to replace the {@link java.lang.reflect.Proxy} created by {@link RemotingProxy} 
+ * with a class generated for each service API. <p>
+ * 
+ * A stub implements each method of the service API by invoking the {@link ProxiedMethod} for 
+ * that method, held in a field of the stub, directly. Unlike a java.lang.reflect.Proxy there is 
+ * no reflective dispatch, and no lookup of the ProxiedMethod for each invocation, hence the 
+ * JIT compiler is able to inline the client side invocation path. <p>
+ * 
+ * Implementations are discovered using the {@link java.util.ServiceLoader} mechanism, and are used 
+ * unless disabled using {@link RemotingProxySettings#setGeneratedStubsEnabled(boolean)}. The 
+ * RemotingProxy falls back to a java.lang.reflect.Proxy if the stub can't be created. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public interface RemotingStubFactory {
+	
+	/**
+	 * Creates a stub that extends {@link RemotingStub} and implements the given interfaces.
+	 * 
+	 * @param remotingProxy - the RemotingProxy passed to the constructor of {@link RemotingStub}
+	 * @param interfaces - the interfaces implemented by the stub, the service API first
+	 * @param proxiedMethods - the ProxiedMethod to invoke for each method of the given interfaces
+	 * @return
+	 */
+	RemotingStub createStub(RemotingProxy remotingProxy, Class<?>[] interfaces, Map<Method, ProxiedMethod> proxiedMethods);
+
+}
@@ -39,10 +39,28 @@ public class RemotingTransport {
 		return impl.submitRoutedRequest(request, routingKey);
 	}
 	
+	public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+		if (impl instanceof AbstractRemotingTransportSpi) {
+			return AbstractRemotingTransportSpi.class.cast(impl).invokeRoutedRequest(request, routingKey);
+		}
+		return impl.submitRoutedRequest(request, routingKey).toBlocking().first();
+	}
+	
 	public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(List<RoutedServiceInvocationRequest> requests) {
 		return impl.submitRoutedRequests(requests);
 	}
 	
+	public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequestBatch(List<AstrixServiceInvocationRequest> requests, RoutingKey routingKey) {
+		if (!supportsRequestBatching()) {
+			throw new UnsupportedOperationException("Transport does not support request batching: " + impl.getClass().getName());
+		}
+		return BatchingRemotingTransportSpi.class.cast(impl).submitRoutedRequestBatch(requests, routingKey);
+	}
+	
+	public boolean supportsRequestBatching() {
+		return impl instanceof BatchingRemotingTransportSpi;
+	}
+	
 	public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
 		return impl.submitBroadcastRequest(request);
 	}
@@ -47,12 +47,24 @@ public class RoutedRemoteServiceMethod implements RemoteServiceMethod {
 	
 	@Override
 	public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		RoutingKey routingKey = prepareRequest(invocationRequest, args);
+		return submitRoutedRequest(invocationRequest, routingKey);
+	}
+	
+	@Override
+	public Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		RoutingKey routingKey = prepareRequest(invocationRequest, args);
+		AstrixServiceInvocationResponse response = remotingEngine.invokeRoutedRequest(invocationRequest, routingKey);
+		return remotingEngine.toRemoteResult(response, returnType).getResult();
+	}
+
+	private RoutingKey prepareRequest(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
 		invocationRequest.setArguments(remotingEngine.marshall(args));
 		RoutingKey routingKey = router.getRoutingKey(args);
 		if (routingKey == null) {
 			throw new IllegalStateException(String.format("Service method is routed but the defined remotingKey value was null: method=%s", signature));
 		}
-		return submitRoutedRequest(invocationRequest, routingKey);
+		return routingKey;
 	}
 	
 	protected Observable<Object> submitRoutedRequest(AstrixServiceInvocationRequest request,
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.DynamicLongProperty;
+import com.avanza.astrix.core.ServiceUnavailableException;
+
+/**
+ * Coalesces concurrent routed requests targeting the same partition into batches that are sent 
+ * in a single round trip using {@link RemotingTransport#submitRoutedRequestBatch(List, RoutingKey)}. <p>
+ * 
+ * A batch is sent when the micro batch window has passed since the first request was added to it, 
+ * or as soon as it reaches the max batch size. Each request still completes individually. Requests 
+ * that are unsubscribed before their batch is sent are dropped from the batch.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class RoutedRequestBatcher {
+	
+	private final RemotingTransport transport;
+	private final DynamicLongProperty windowMicros;
+	private final DynamicIntProperty maxBatchSize;
+	private final BatchFlushScheduler flushScheduler;
+	/*
+	 * Lazily created when the partition count is known. 
+	 */
+	private volatile PartitionBatch[] batchByPartition = new PartitionBatch[0];
+	
+	RoutedRequestBatcher(RemotingTransport transport, RemotingProxySettings settings, BatchFlushScheduler flushScheduler) {
+		this.transport = transport;
+		this.flushScheduler = flushScheduler;
+		this.windowMicros = settings.getMicroBatchWindowMicros();
+		this.maxBatchSize = settings.getMicroBatchMaxSize();
+	}
+	
+	boolean isEnabled() {
+		return windowMicros.get() > 0 && transport.supportsRequestBatching();
+	}
+	
+	Observable<AstrixServiceInvocationResponse> submit(final AstrixServiceInvocationRequest request, final RoutingKey routingKey) {
+		return Observable.create(new Observable.OnSubscribe<AstrixServiceInvocationResponse>() {
+			@Override
+			public void call(Subscriber<? super AstrixServiceInvocationResponse> subscriber) {
+				int partitionCount = transport.partitionCount();
+				getBatch(RoutingKey.partitionOf(routingKey.hashCode(), partitionCount), partitionCount).add(new PendingRequest(request, routingKey, subscriber));
+			}
+		});
+	}
+	
+	private PartitionBatch getBatch(int partition, int partitionCount) {
+		PartitionBatch[] batches = this.batchByPartition;
+		if (batches.length != partitionCount) {
+			synchronized (this) {
+				batches = this.batchByPartition;
+				if (batches.length != partitionCount) {
+					batches = new PartitionBatch[partitionCount];
+					for (int i = 0; i < partitionCount; i++) {
+						batches[i] = new PartitionBatch(i);
+					}
+					this.batchByPartition = batches;
+				}
+			}
+		}
+		return batches[partition];
+	}
+	
+	private class PartitionBatch {
+		
+		private final int partition;
+		private List<PendingRequest> pending = new ArrayList<>(); // Guarded by "this"
+		private final Action0 flush = new Action0() {
+			@Override
+			public void call() {
+				send(drain());
+			}
+		};
+		
+		public PartitionBatch(int partition) {
+			this.partition = partition;
+		}
+
+		void add(PendingRequest request) {
+			List<PendingRequest> fullBatch = null;
+			boolean firstInBatch;
+			synchronized (this) {
+				pending.add(request);
+				firstInBatch = pending.size() == 1;
+				if (pending.size() >= maxBatchSize.get()) {
+					fullBatch = pending;
+					pending = new ArrayList<>();
+				}
+			}
+			if (fullBatch != null) {
+				send(fullBatch);
+			} else if (firstInBatch) {
+				flushScheduler.schedule(flush, windowMicros.get(), TimeUnit.MICROSECONDS);
+			}
+		}
+		
+		private synchronized List<PendingRequest> drain() {
+			List<PendingRequest> result = pending;
+			pending = new ArrayList<>();
+			return result;
+		}
+		
+		private void send(List<PendingRequest> batch) {
+			final List<PendingRequest> requests = new ArrayList<>(batch.size());
+			for (PendingRequest request : batch) {
+				if (!request.subscriber.isUnsubscribed()) {
+					requests.add(request);
+				}
+			}
+			if (requests.isEmpty()) {
+				return;
+			}
+			if (requests.size() == 1) {
+				PendingRequest request = requests.get(0);
+				transport.submitRoutedRequest(request.request, request.routingKey).subscribe(request.subscriber);
+				return;
+			}
+			List<AstrixServiceInvocationRequest> invocationRequests = new ArrayList<>(requests.size());
+			for (PendingRequest request : requests) {
+				invocationRequests.add(request.request);
+			}
+			transport.submitRoutedRequestBatch(invocationRequests, RoutingKey.create(partition)).subscribe(new Subscriber<List<AstrixServiceInvocationResponse>>() {
+				private boolean responded = false;
+				@Override
+				public void onCompleted() {
+				}
+				@Override
+				public void onError(Throwable e) {
+					if (responded) {
+						return;
+					}
+					for (PendingRequest request : requests) {
+						request.onError(e);
+					}
+				}
+				@Override
+				public void onNext(List<AstrixServiceInvocationResponse> responses) {
+					// Each caller completes as soon as its own response is handed over
+					responded = true;
+					for (int i = 0; i < requests.size(); i++) {
+						AstrixServiceInvocationResponse response = i < responses.size() ? responses.get(i) : null;
+						if (response == null) {
+							requests.get(i).onError(new ServiceUnavailableException(String.format("Missing response in batch. partition=%s", partition)));
+						} else {
+							requests.get(i).onResponse(response);
+						}
+					}
+				}
+			});
+		}
+	}
+	
+	private static class PendingRequest {
+		private final AstrixServiceInvocationRequest request;
+		private final RoutingKey routingKey;
+		private final Subscriber<? super AstrixServiceInvocationResponse> subscriber;
+		
+		public PendingRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey, Subscriber<? super AstrixServiceInvocationResponse> subscriber) {
+			this.request = request;
+			this.routingKey = routingKey;
+			this.subscriber = subscriber;
+		}
+		
+		void onResponse(AstrixServiceInvocationResponse response) {
+			if (subscriber.isUnsubscribed()) {
+				return;
+			}
+			subscriber.onNext(response);
+			subscriber.onCompleted();
+		}
+		
+		void onError(Throwable e) {
+			if (subscriber.isUnsubscribed()) {
+				return;
+			}
+			subscriber.onError(e);
+		}
+	}
+
+}
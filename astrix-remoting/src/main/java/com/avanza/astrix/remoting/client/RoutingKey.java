@@ -39,6 +39,21 @@ public final class RoutingKey implements Serializable {
 		return new RoutingKey(hash);
 	}
 	
+	/**
+	 * Maps a routing hash to a partition in a cluster with the given number of partitions. <p>
+	 * 
+	 * Uses the same mapping as the GigaSpaces router, i.e. the absolute value of the hash
+	 * modulo the partition count, which ensures that negative hashes are mapped to a valid 
+	 * partition. 
+	 * 
+	 * @param hash
+	 * @param partitionCount
+	 * @return the target partition, in the range [0, partitionCount)
+	 */
+	public static int partitionOf(int hash, int partitionCount) {
+		return Math.abs(hash % partitionCount);
+	}
+	
 	@Override
 	public int hashCode() {
 		return this.hash;
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+
+import com.avanza.astrix.core.AstrixSingleFlight;
+
+/**
+ * Lets concurrent invocations of an {@link AstrixSingleFlight} service method with equal 
+ * (marshalled) arguments share a single outstanding request. <p>
+ * 
+ * The first invocation submits the request, and invocations arriving while it is in flight 
+ * receive the same result, or exception, without submitting a request of their own. Since 
+ * the result is shared, unsubscribing from it does not abort the outstanding request. <p>
+ * 
+ * Blocking invocations use the async path in order to share the request with async invocations. 
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class SingleFlightRemoteServiceMethod implements RemoteServiceMethod {
+	
+	private final RemoteServiceMethod target;
+	private final RemotingEngine remotingEngine;
+	private final ConcurrentMap<MarshalledArgumentsKey, Observable<?>> inFlight = new ConcurrentHashMap<>();
+
+	SingleFlightRemoteServiceMethod(RemoteServiceMethod target, RemotingEngine remotingEngine) {
+		this.target = target;
+		this.remotingEngine = remotingEngine;
+	}
+
+	@Override
+	public String getSignature() {
+		return target.getSignature();
+	}
+
+	@Override
+	public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		final MarshalledArgumentsKey key = MarshalledArgumentsKey.create(remotingEngine, args);
+		Observable<?> outstanding = inFlight.get(key);
+		if (outstanding != null) {
+			return outstanding;
+		}
+		Observable<?> result = target.invoke(invocationRequest, args).doOnTerminate(new Action0() {
+			@Override
+			public void call() {
+				// Only the invocation that won the race is ever subscribed to, hence no other request can be in flight for the key
+				inFlight.remove(key);
+			}
+		}).cache();
+		outstanding = inFlight.putIfAbsent(key, result);
+		if (outstanding != null) {
+			// Lost race against concurrent invocation
+			return outstanding;
+		}
+		// Submit request eagerly, subsequent invocations might subscribe at any time
+		result.subscribe(new Subscriber<Object>() {
+			@Override
+			public void onCompleted() {
+			}
+			@Override
+			public void onError(Throwable e) {
+				// Propagated to subscribers of the shared result
+			}
+			@Override
+			public void onNext(Object t) {
+			}
+		});
+		return result;
+	}
+
+	@Override
+	public Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		return invoke(invocationRequest, args).toBlocking().first();
+	}
+
+}
@@ -19,8 +19,13 @@ package com.avanza.astrix.remoting.server;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -28,12 +33,18 @@ import java.util.concurrent.ConcurrentMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.core.AstrixDeadline;
 import com.avanza.astrix.core.AstrixObjectSerializer;
+import com.avanza.astrix.core.AstrixOneWay;
+import com.avanza.astrix.core.AstrixPriorityClass;
 import com.avanza.astrix.core.ServiceInvocationException;
 import com.avanza.astrix.core.util.ReflectionUtil;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequestHeaders;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
 import com.avanza.astrix.remoting.client.MissingServiceMethodException;
+import com.avanza.astrix.remoting.util.ServiceMethodIndex;
 /**
  * Server side component used to invoke exported services. <p> 
  * 
@@ -43,20 +54,39 @@ import com.avanza.astrix.remoting.client.MissingServiceMethodException;
 public class AstrixServiceActivator {
 	
 	private static final Logger logger = LoggerFactory.getLogger(AstrixServiceActivator.class);
+	/*
+	 * Shared empty response returned for all one-way invocations. It's never modified.
+	 */
+	private static final AstrixServiceInvocationResponse ONE_WAY_RESPONSE = new AstrixServiceInvocationResponse();
 	private final ConcurrentMap<String, PublishedService<?>> serviceByType = new ConcurrentHashMap<>();
+	private final Map<AstrixPriorityClass, DispatchLane> laneByPriority = new EnumMap<>(AstrixPriorityClass.class);
+	
+	public AstrixServiceActivator() {
+		for (AstrixPriorityClass priority : AstrixPriorityClass.values()) {
+			this.laneByPriority.put(priority, new DispatchLane(priority));
+		}
+	}
 	
 	static class PublishedService<T> {
 
 		private final T service;
 		private final Map<String, Method> methodBySignature = new HashMap<>();
+		private final ServiceMethodIndex methodIndex;
+		private final Method[] methodById;
+		private final Set<Method> oneWayMethods = new HashSet<>();
 		private final AstrixObjectSerializer objectSerializer;
 
-		public PublishedService(T service, AstrixObjectSerializer serializer, Class<?>... providedApis) {
+		public PublishedService(T service, AstrixObjectSerializer serializer, Class<?> providedApi) {
 			this.service = service;
 			this.objectSerializer = serializer;
-			for (Class<?> api : providedApis) {
-				for (Method m : api.getMethods()) {
-					methodBySignature.put(ReflectionUtil.methodSignatureWithoutReturnType(m), m);
+			this.methodIndex = ServiceMethodIndex.create(providedApi);
+			this.methodById = new Method[methodIndex.size()];
+			for (Method m : providedApi.getMethods()) {
+				String signature = ReflectionUtil.methodSignatureWithoutReturnType(m);
+				methodBySignature.put(signature, m);
+				methodById[methodIndex.getMethodId(signature)] = m;
+				if (m.isAnnotationPresent(AstrixOneWay.class)) {
+					oneWayMethods.add(m);
 				}
 			}
 		}
@@ -66,8 +96,12 @@ public class AstrixServiceActivator {
 		}
 		
 		private AstrixServiceInvocationResponse invoke(AstrixServiceInvocationRequest request, int version, String serviceApi) {
+			Method serviceMethod = getServiceMethod(request);
+			if (oneWayMethods.contains(serviceMethod)) {
+				return invokeOneWay(serviceMethod, request, version);
+			}
 			try {
-				return invokeService(request, version, serviceApi);
+				return invokeService(serviceMethod, request, version, serviceApi);
 			} catch (Exception e) {
 				Throwable exceptionThrownByService = resolveException(e);
 				AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
@@ -83,14 +117,25 @@ public class AstrixServiceActivator {
 			}
 		}
 
+		/*
+		 * Nobody awaits the outcome of a one-way invocation, hence no response is built
+		 * regardless of the outcome.
+		 */
+		private AstrixServiceInvocationResponse invokeOneWay(Method serviceMethod, AstrixServiceInvocationRequest request, int version) {
+			try {
+				serviceMethod.invoke(service, unmarshal(request.getArguments(), serviceMethod.getGenericParameterTypes(), version));
+			} catch (Exception e) {
+				logger.warn(String.format("One-way service invocation ended with exception. request=%s", request), resolveException(e));
+			}
+			return ONE_WAY_RESPONSE;
+		}
+
 		private AstrixServiceInvocationResponse invokeService(
-				AstrixServiceInvocationRequest request, int version,
-				String serviceApi) throws IllegalAccessException,
+				Method serviceMethod, AstrixServiceInvocationRequest request, 
+				int version, String serviceApi) throws IllegalAccessException,
 				InvocationTargetException {
-			String serviceMethodSignature = request.getHeader("serviceMethodSignature");
-			Method serviceMethod = methodBySignature.get(serviceMethodSignature);
 			if (serviceMethod == null) {
-				throw new MissingServiceMethodException(String.format("Missing service method: service=%s method=%s", serviceApi, serviceMethodSignature));
+				throw new MissingServiceMethodException(String.format("Missing service method: service=%s method=%s", serviceApi, request.getServiceMethodSignature()));
 			}
 			Object[] arguments = unmarshal(request.getArguments(), serviceMethod.getGenericParameterTypes(), version);
 			Object result = serviceMethod.invoke(service, arguments);
@@ -101,6 +146,22 @@ public class AstrixServiceActivator {
 			return invocationResponse;
 		}
 
+		private Method getServiceMethod(AstrixServiceInvocationRequest request) {
+			if (request.getServiceApiChecksum() == methodIndex.getChecksum()) {
+				int methodId = request.getServiceMethodId();
+				/*
+				 * The checksum might collide for different method tables, hence the method id is only
+				 * trusted when it identifies a method with the requested signature.
+				 */
+				String signature = methodIndex.getSignature(methodId);
+				if (signature != null && signature.equals(request.getServiceMethodSignature())) {
+					return methodById[methodId];
+				}
+			}
+			// Client is bound to another version of the service api
+			return methodBySignature.get(request.getServiceMethodSignature());
+		}
+
 		private Object[] unmarshal(Object[] elements, Type[] types, int version) {
 			Object[] result = new Object[elements.length];
 			for (int i = 0; i < result.length; i++) {
@@ -124,10 +185,12 @@ public class AstrixServiceActivator {
 	 * @return
 	 */
 	public AstrixServiceInvocationResponse invokeService(AstrixServiceInvocationRequest request) {
-		PublishedService<?> publishedService = null;
-		int version = Integer.parseInt(request.getHeader("apiVersion"));
-		String serviceApi = request.getHeader("serviceApi");
-		publishedService = this.serviceByType.get(serviceApi);
+		if (request.getServiceApi() == null) {
+			readLegacyHeaders(request);
+		}
+		int version = request.getApiVersion();
+		String serviceApi = request.getServiceApi();
+		PublishedService<?> publishedService = this.serviceByType.get(serviceApi);
 		if (publishedService == null) {
 			/*
 			 * Service not available. This might happen in rare conditions when a processing unit
@@ -140,7 +203,104 @@ public class AstrixServiceActivator {
 			logger.info(String.format("Service not available. request=%s correlationId=%s", request, invocationResponse.getCorrelationId()));
 			return invocationResponse;
 		}
-		return publishedService.invoke(request, version, serviceApi);
+		if (request.isExpired()) {
+			/*
+			 * The client already gave up waiting for the response, typically since the request has been
+			 * queued for too long. Skip unmarshalling and invoking the service to save capacity for requests
+			 * that are still awaited.
+			 */
+			AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
+			invocationResponse.setServiceUnavailable(true);
+			invocationResponse.setExceptionMsg("Deadline exceeded before service was invoked: " + serviceApi);
+			invocationResponse.setCorrelationId(UUID.randomUUID().toString());
+			logger.debug("Deadline exceeded. request={} correlationId={}", request, invocationResponse.getCorrelationId());
+			return invocationResponse;
+		}
+		DispatchLane lane = this.laneByPriority.get(request.getPriority());
+		if (!lane.tryEnter()) {
+			AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
+			invocationResponse.setServiceUnavailable(true);
+			invocationResponse.setExceptionMsg("Dispatch lane full, service not invoked: " + serviceApi + " lane=" + lane);
+			invocationResponse.setCorrelationId(UUID.randomUUID().toString());
+			logger.debug(String.format("Dispatch lane full. request=%s lane=%s correlationId=%s", request, lane, invocationResponse.getCorrelationId()));
+			return invocationResponse;
+		}
+		try {
+			return invokeWithinDeadline(publishedService, request, version, serviceApi);
+		} finally {
+			lane.exit();
+		}
+	}
+	
+	private AstrixServiceInvocationResponse invokeWithinDeadline(PublishedService<?> publishedService, AstrixServiceInvocationRequest request, int version, String serviceApi) {
+		if (!request.hasDeadline()) {
+			return publishedService.invoke(request, version, serviceApi);
+		}
+		AstrixDeadline.bind(request.getDeadlineNanos());
+		try {
+			return publishedService.invoke(request, version, serviceApi);
+		} finally {
+			AstrixDeadline.clear();
+		}
+	}
+	
+	/**
+	 * Sets the maximum number of concurrent service invocations in a given priority class, 
+	 * see {@link com.avanza.astrix.core.AstrixPriority}. Invocations beyond the limit are rejected
+	 * immediately, and result in a ServiceUnavailableException on the client side. A value less 
+	 * than or equal to zero means no limit, which is the default.
+	 * 
+	 * @param priority
+	 * @param maxConcurrentInvocations
+	 */
+	public void setMaxConcurrentInvocations(AstrixPriorityClass priority, DynamicIntProperty maxConcurrentInvocations) {
+		this.laneByPriority.get(priority).setMaxConcurrentInvocations(maxConcurrentInvocations);
+	}
+	
+	/**
+	 * Invokes a batch of requests in order, see {@link com.avanza.astrix.remoting.client.BatchingRemotingTransportSpi}. 
+	 * Each request is invoked independently, i.e. it gets its own response regardless of the outcome of 
+	 * the other requests in the batch.
+	 * 
+	 * @param requests
+	 * @return the responses, in the same order as the requests
+	 */
+	public List<AstrixServiceInvocationResponse> invokeServices(List<AstrixServiceInvocationRequest> requests) {
+		List<AstrixServiceInvocationResponse> responses = new ArrayList<>(requests.size());
+		for (AstrixServiceInvocationRequest request : requests) {
+			responses.add(invokeBatchedService(request));
+		}
+		return responses;
+	}
+	
+	/*
+	 * The requests in a batch are independent of each other, hence a failure to invoke one of them
+	 * only fails the corresponding response.
+	 */
+	private AstrixServiceInvocationResponse invokeBatchedService(AstrixServiceInvocationRequest request) {
+		try {
+			return invokeService(request);
+		} catch (RuntimeException e) {
+			AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
+			invocationResponse.setServiceUnavailable(true);
+			invocationResponse.setExceptionMsg("Failed to invoke batched request: " + e.getMessage());
+			invocationResponse.setCorrelationId(UUID.randomUUID().toString());
+			logger.warn(String.format("Failed to invoke batched request. request=%s correlationId=%s", request, invocationResponse.getCorrelationId()), e);
+			return invocationResponse;
+		}
+	}
+
+	/*
+	 * Clients predating the compact invocation envelope identify the target service
+	 * using headers only.
+	 */
+	private static void readLegacyHeaders(AstrixServiceInvocationRequest request) {
+		String apiVersion = request.getHeader(AstrixServiceInvocationRequestHeaders.API_VERSION);
+		if (apiVersion != null) {
+			request.setApiVersion(Integer.parseInt(apiVersion));
+		}
+		request.setServiceApi(request.getHeader(AstrixServiceInvocationRequestHeaders.SERVICE_API));
+		request.setServiceMethodSignature(request.getHeader(AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE));
 	}
 
 	private static Throwable resolveException(Exception e) {
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.core.AstrixPriorityClass;
+/**
+ * Server side dispatch lane for a given {@link AstrixPriorityClass}. <p>
+ * 
+ * Service invocations are executed on threads owned by the transport, hence a lane can't
+ * reorder requests. Instead each lane bounds the number of invocations in its priority class
+ * that might execute concurrently, which ensures that a burst of low priority invocations
+ * never occupies all threads serving the transport. Invocations beyond the capacity of the lane
+ * are rejected immediately, since waiting for a free slot would occupy the transport thread. <p>
+ * 
+ * Lanes are unbounded unless configured.
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+final class DispatchLane {
+	
+	static final int UNBOUNDED = 0;
+	
+	private final AstrixPriorityClass priority;
+	private final AtomicInteger activeInvocations = new AtomicInteger();
+	private volatile DynamicIntProperty maxConcurrentInvocations = new DynamicIntProperty(UNBOUNDED);
+	
+	DispatchLane(AstrixPriorityClass priority) {
+		this.priority = priority;
+	}
+	
+	void setMaxConcurrentInvocations(DynamicIntProperty maxConcurrentInvocations) {
+		this.maxConcurrentInvocations = maxConcurrentInvocations;
+	}
+	
+	/**
+	 * Attempts to enter this lane. Each successful call must be followed by a call to {@link #exit()}.
+	 * 
+	 * @return false if the lane is full
+	 */
+	boolean tryEnter() {
+		while (true) {
+			int active = activeInvocations.get();
+			int capacity = maxConcurrentInvocations.get();
+			if (capacity > UNBOUNDED && active >= capacity) {
+				return false;
+			}
+			if (activeInvocations.compareAndSet(active, active + 1)) {
+				return true;
+			}
+		}
+	}
+	
+	void exit() {
+		activeInvocations.decrementAndGet();
+	}
+	
+	@Override
+	public String toString() {
+		return "DispatchLane[priority=" + priority + ", maxConcurrentInvocations=" + maxConcurrentInvocations.get() + "]";
+	}
+
+}
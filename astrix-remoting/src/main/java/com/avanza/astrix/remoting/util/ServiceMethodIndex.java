@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.util;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.avanza.astrix.core.util.ReflectionUtil;
+/**
+ * Assigns a compact integer id to each method on a service api. <p>
+ * 
+ * Ids are assigned in signature order, which allows the client and the server to
+ * resolve the same id for a given method without any coordination as long as both
+ * sides are bound to the same version of the api. The checksum identifies the method
+ * table as a whole, which allows the server to detect clients bound to another version
+ * of the api and fall back to resolving the target method by its signature. <p>
+ * 
+ * @author Elias Lindholm (elilin)
+ *
+ */
+public final class ServiceMethodIndex {
+	
+	public static final int UNDEFINED_METHOD_ID = -1;
+	
+	private final String[] signatures;
+	private final int checksum;
+	
+	private ServiceMethodIndex(String[] signatures) {
+		this.signatures = signatures;
+		this.checksum = Arrays.hashCode(signatures);
+	}
+	
+	public static ServiceMethodIndex create(Class<?> serviceApi) {
+		SortedSet<String> signatures = new TreeSet<>();
+		for (Method m : serviceApi.getMethods()) {
+			signatures.add(ReflectionUtil.methodSignatureWithoutReturnType(m));
+		}
+		return new ServiceMethodIndex(signatures.toArray(new String[signatures.size()]));
+	}
+	
+	/**
+	 * @param signature
+	 * @return the id of the method with the given signature, or {@link #UNDEFINED_METHOD_ID} if no such method exists
+	 */
+	public int getMethodId(String signature) {
+		int id = Arrays.binarySearch(signatures, signature);
+		if (id < 0) {
+			return UNDEFINED_METHOD_ID;
+		}
+		return id;
+	}
+	
+	/**
+	 * @param methodId
+	 * @return the signature of the method with the given id, or null if no such method exists
+	 */
+	public String getSignature(int methodId) {
+		if (methodId < 0 || methodId >= signatures.length) {
+			return null;
+		}
+		return signatures[methodId];
+	}
+	
+	public int getChecksum() {
+		return checksum;
+	}
+	
+	public int size() {
+		return signatures.length;
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import rx.Observable;
+
+import com.avanza.astrix.core.AstrixCached;
+import com.avanza.astrix.core.AstrixObjectSerializer;
+
+public class CachingRemoteServiceMethodTest {
+
+	private static final int MAX_SIZE = 10;
+
+	private final AtomicInteger invocationCount = new AtomicInteger();
+	private final RemotingProxySettings settings = new RemotingProxySettings();
+	private final RemotingEngine remotingEngine = new RemotingEngine(null, new AstrixObjectSerializer.NoVersioningSupport(), 1, settings);
+
+	@Test
+	public void evictionQueueStaysBoundedWhenEntriesExpireBelowMaxSize() throws Exception {
+		settings.getCacheEnabled().set(true);
+		settings.getCacheTtlMillis().set(1);
+		CachingRemoteServiceMethod cachingMethod = createCachingMethod();
+
+		for (int i = 0; i < 200; i++) {
+			cachingMethod.invokeBlocking(null, new Object[] { "key-" + (i % 3) });
+			Thread.sleep(2);
+			assertThat(cachingMethod.getEvictionQueueSize(), lessThanOrEqualTo(2 * MAX_SIZE + 1));
+		}
+		assertEquals("Expired entries should be refetched", 200, invocationCount.get());
+		assertThat(cachingMethod.getStatistics().getSize(), lessThanOrEqualTo(MAX_SIZE));
+	}
+
+	@Test
+	public void evictionQueueIsEmptiedOnInvalidation() throws Exception {
+		settings.getCacheEnabled().set(true);
+		CachingRemoteServiceMethod cachingMethod = createCachingMethod();
+
+		cachingMethod.invokeBlocking(null, new Object[] { "foo" });
+		cachingMethod.invokeBlocking(null, new Object[] { "bar" });
+		assertEquals(2, cachingMethod.getEvictionQueueSize());
+
+		cachingMethod.invalidate();
+		assertEquals(0, cachingMethod.getEvictionQueueSize());
+		assertEquals(0, cachingMethod.getStatistics().getSize());
+	}
+
+	private CachingRemoteServiceMethod createCachingMethod() throws NoSuchMethodException {
+		settings.getCacheMaxSize().set(MAX_SIZE);
+		AstrixCached cached = LookupService.class.getMethod("lookup", String.class).getAnnotation(AstrixCached.class);
+		return new CachingRemoteServiceMethod(new LookupServiceMethod(), remotingEngine, String.class, cached, settings);
+	}
+
+	public interface LookupService {
+		@AstrixCached
+		String lookup(String key);
+	}
+
+	private class LookupServiceMethod implements RemoteServiceMethod {
+
+		@Override
+		public String getSignature() {
+			return "lookup(java.lang.String)";
+		}
+
+		@Override
+		public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+			return Observable.just(invokeBlocking(invocationRequest, args));
+		}
+
+		@Override
+		public Object invokeBlocking(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+			invocationCount.incrementAndGet();
+			return "value-" + args[0];
+		}
+	}
+
+}
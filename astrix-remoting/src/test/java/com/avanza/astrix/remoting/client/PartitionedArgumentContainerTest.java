@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PartitionedArgumentContainerTest {
+	
+	@Test
+	public void partitionsIntArrayUsingSameRoutingAsBoxedElements() throws Exception {
+		int[] elements = new int[]{1, 2, 3, -4, -5, Integer.MIN_VALUE};
+		Object[] partitions = PartitionedArgumentContainer.array(int.class).partition(elements, PartitionedRouter.identity(), 3);
+		
+		assertArrayEquals(new int[]{3}, (int[]) partitions[0]);
+		assertArrayEquals(new int[]{1, -4}, (int[]) partitions[1]);
+		assertArrayEquals(new int[]{2, -5, Integer.MIN_VALUE}, (int[]) partitions[2]);
+	}
+	
+	@Test
+	public void partitionsLongArrayUsingSameRoutingAsBoxedElements() throws Exception {
+		long[] elements = new long[]{1L, Long.MAX_VALUE, -7L};
+		Object[] partitions = PartitionedArgumentContainer.array(long.class).partition(elements, PartitionedRouter.identity(), 4);
+		
+		for (long element : elements) {
+			long[] partition = (long[]) partitions[RoutingKey.partitionOf(Long.valueOf(element).hashCode(), 4)];
+			assertEquals(1, countOccurrences(partition, element));
+		}
+	}
+	
+	@Test
+	public void partitionsArraysOfReferenceTypesIntoArraysOfSameComponentType() throws Exception {
+		String[] elements = new String[]{"a", "b", "c", "d"};
+		Object[] partitions = PartitionedArgumentContainer.array(String.class).partition(elements, PartitionedRouter.identity(), 2);
+
+		assertArrayEquals(new String[]{"b", "d"}, (String[]) partitions[0]);
+		assertArrayEquals(new String[]{"a", "c"}, (String[]) partitions[1]);
+	}
+	
+	@Test
+	public void partitionsCollectionIntoCollectionsOfGivenType() throws Exception {
+		List<Long> elements = Arrays.asList(1L, 3L, 5L);
+		Object[] partitions = PartitionedArgumentContainer.collection(listFactory(), Long.class).partition(elements, PartitionedRouter.identity(), 2);
+		
+		assertNull(partitions[0]);
+		assertEquals(ArrayList.class, partitions[1].getClass());
+		assertEquals(elements, partitions[1]);
+	}
+	
+	@Test
+	public void chunksContainersIntoContainersOfMaxChunkSize() throws Exception {
+		List<Object> arrayChunks = PartitionedArgumentContainer.array(int.class).chunk(new int[]{1, 2, 3, 4, 5}, 2);
+		assertEquals(3, arrayChunks.size());
+		assertArrayEquals(new int[]{1, 2}, (int[]) arrayChunks.get(0));
+		assertArrayEquals(new int[]{3, 4}, (int[]) arrayChunks.get(1));
+		assertArrayEquals(new int[]{5}, (int[]) arrayChunks.get(2));
+		
+		List<Object> collectionChunks = PartitionedArgumentContainer.collection(listFactory(), Long.class).chunk(Arrays.asList(1L, 2L, 3L), 2);
+		assertEquals(Arrays.<Object>asList(Arrays.asList(1L, 2L), Arrays.asList(3L)), collectionChunks);
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Class<? extends Collection<?>> listFactory() {
+		return (Class) ArrayList.class;
+	}
+	
+	private static int countOccurrences(long[] partition, long element) {
+		int result = 0;
+		for (long l : partition) {
+			if (l == element) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.AstrixStatelessReducer;
+import com.avanza.astrix.core.DefaultAstrixRemoteResultReducer;
+import com.avanza.astrix.core.RemoteResultReducer;
+
+public class RemoteResultReducerFactoryTest {
+	
+	@Test
+	public void accumulatingReducersAreSharedByAllInvocations() throws Exception {
+		RemoteResultReducerFactory reducerFactory = RemoteResultReducerFactory.create(DefaultAstrixRemoteResultReducer.class);
+		
+		assertSame(reducerFactory.getReducer(), reducerFactory.getReducer());
+	}
+	
+	@Test
+	public void statelessReducersAreSharedByAllInvocations() throws Exception {
+		RemoteResultReducerFactory reducerFactory = RemoteResultReducerFactory.create(StatelessReducer.class);
+		
+		assertSame(reducerFactory.getReducer(), reducerFactory.getReducer());
+	}
+	
+	@Test
+	public void newReducerIsCreatedForEachInvocationUnlessStateless() throws Exception {
+		RemoteResultReducerFactory reducerFactory = RemoteResultReducerFactory.create(StatefulReducer.class);
+		
+		assertNotSame(reducerFactory.getReducer(), reducerFactory.getReducer());
+	}
+	
+	@AstrixStatelessReducer
+	public static class StatelessReducer implements RemoteResultReducer<String> {
+		@Override
+		public String reduce(List<AstrixRemoteResult<String>> results) {
+			return results.get(0).getResult();
+		}
+	}
+	
+	public static class StatefulReducer implements RemoteResultReducer<String> {
+		private String result;
+		@Override
+		public String reduce(List<AstrixRemoteResult<String>> results) {
+			result = results.get(0).getResult();
+			return result;
+		}
+	}
+
+}
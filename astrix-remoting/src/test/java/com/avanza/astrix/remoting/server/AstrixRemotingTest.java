@@ -17,51 +17,106 @@ package com.avanza.astrix.remoting.server;
 
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import rx.Observable;
 import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.subjects.PublishSubject;
+import rx.subjects.ReplaySubject;
 
+import com.avanza.astrix.config.DynamicIntProperty;
 import com.avanza.astrix.context.JavaSerializationSerializer;
+import com.avanza.astrix.core.AccumulatingRemoteResultReducer;
+import com.avanza.astrix.core.AstrixBatchable;
 import com.avanza.astrix.core.AstrixBroadcast;
+import com.avanza.astrix.core.AstrixCacheStatistics;
+import com.avanza.astrix.core.AstrixCached;
+import com.avanza.astrix.core.AstrixDeadline;
+import com.avanza.astrix.core.AstrixInvocationTracker;
+import com.avanza.astrix.core.AstrixInvocationTracking;
 import com.avanza.astrix.core.AstrixObjectSerializer;
+import com.avanza.astrix.core.AstrixOneWay;
+import com.avanza.astrix.core.AstrixPage;
+import com.avanza.astrix.core.AstrixPageRequest;
+import com.avanza.astrix.core.AstrixPagedBroadcast;
 import com.avanza.astrix.core.AstrixPartitionedRouting;
+import com.avanza.astrix.core.AstrixPriority;
+import com.avanza.astrix.core.AstrixPriorityClass;
 import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.AstrixSingleFlight;
+import com.avanza.astrix.core.CachingAstrixBean;
+import com.avanza.astrix.core.CloseableIterator;
+import com.avanza.astrix.core.PartialRemoteResultReducer;
+import com.avanza.astrix.core.RemoteResultAccumulator;
 import com.avanza.astrix.core.RemoteResultReducer;
 import com.avanza.astrix.core.RemoteServiceInvocationException;
 import com.avanza.astrix.core.ServiceInvocationException;
 import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.core.util.AnyTrueReducer;
+import com.avanza.astrix.core.util.GenericAstrixMapReducer;
+import com.avanza.astrix.core.util.LongSumReducer;
+import com.avanza.astrix.remoting.client.AbstractRemotingTransportSpi;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequestHeaders;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.client.BatchingRemotingTransportSpi;
 import com.avanza.astrix.remoting.client.DefaultAstrixRoutingStrategy;
 import com.avanza.astrix.remoting.client.IncompatibleRemoteResultReducerException;
 import com.avanza.astrix.remoting.client.RemotingProxy;
+import com.avanza.astrix.remoting.client.RemotingProxySettings;
 import com.avanza.astrix.remoting.client.RemotingTransport;
 import com.avanza.astrix.remoting.client.RemotingTransportSpi;
 import com.avanza.astrix.remoting.client.RoutedServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.Router;
 import com.avanza.astrix.remoting.client.RoutingKey;
 import com.avanza.astrix.remoting.client.RoutingStrategy;
+import com.avanza.astrix.remoting.util.ServiceMethodIndex;
 
 /**
  * 
@@ -119,6 +174,81 @@ public class AstrixRemotingTest {
 		return RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partitions)));
 	}
 	
+	private static RemotingTransport directTransportWithUnresponsivePartition(final int unresponsivePartition, AstrixServiceActivator... partitions) {
+		return RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partitions)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				if (RoutingKey.partitionOf(routingKey.hashCode(), partitionCount()) == unresponsivePartition) {
+					return Observable.never();
+				}
+				return super.submitRoutedRequest(request, routingKey);
+			}
+		});
+	}
+	
+	private static RemotingTransport directTransportWithFailingPartitions(final Throwable failure, final Collection<Integer> failingPartitions, AstrixServiceActivator... partitions) {
+		return RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partitions)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				if (failingPartitions.contains(RoutingKey.partitionOf(routingKey.hashCode(), partitionCount()))) {
+					return Observable.error(failure);
+				}
+				return super.submitRoutedRequest(request, routingKey);
+			}
+		});
+	}
+	
+	@Test
+	public void blockingServiceMethodsAreInvokedWithoutCreatingAnObservableInTransport() throws Exception {
+		TestService impl = new TestService() {
+			@Override
+			public HelloResponse hello(HelloRequest message) {
+				return new HelloResponse("reply-" + message.getMesssage());
+			}
+			@Override
+			public String hello(HelloRequest message, String greeting) {
+				return "overload-" + message.getMesssage();
+			}
+		};
+		partition1.register(impl, objectSerializer, TestService.class);
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				throw new AssertionError("Blocking service method should not be invoked using submitRoutedRequest");
+			}
+		});
+		TestService testService = RemotingProxy.create(TestService.class, TestService.class, transport, objectSerializer, new NoRoutingStrategy());
+
+		assertEquals("reply-kalle", testService.hello(new HelloRequest("kalle")).getGreeting());
+	}
+	
+	@Test
+	public void blockingServiceMethodsAreInvokedUsingObservableOfTransportsNotExtendingAbstractRemotingTransportSpi() throws Exception {
+		partition1.register(new TestServiceImpl(), objectSerializer, TestService.class);
+		final PartitionedDirectTransport target = new PartitionedDirectTransport(Arrays.asList(partition1));
+		RemotingTransport transport = RemotingTransport.create(new RemotingTransportSpi() {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				return target.submitRoutedRequest(request, routingKey);
+			}
+			@Override
+			public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+				return target.submitRoutedRequests(requests);
+			}
+			@Override
+			public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
+				return target.submitBroadcastRequest(request);
+			}
+			@Override
+			public int partitionCount() {
+				return target.partitionCount();
+			}
+		});
+		TestService testService = RemotingProxy.create(TestService.class, TestService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		assertEquals("reply-kalle", testService.hello(new HelloRequest("kalle")).getGreeting());
+	}
+	
 	@Test
 	public void supportsServiceMethodsWithMultipleArguments() throws Exception {
 		TestService impl = new TestService() {
@@ -233,6 +363,391 @@ public class AstrixRemotingTest {
 		assertEquals("foo", replys.get(1));
 	}
 	
+	@Test
+	public void broadcastRequest_createsNewReducerForEachInvocation() throws Exception {
+		partition1.register(new StatefulBroadcastService() {
+			@Override
+			public String broadcast(String msg) {
+				return msg;
+			}
+		}, objectSerializer, StatefulBroadcastService.class);
+		
+		StatefulBroadcastService broadcastService = RemotingProxy.create(StatefulBroadcastService.class, StatefulBroadcastService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		assertEquals("foo", broadcastService.broadcast("foo"));
+		assertEquals("bar", broadcastService.broadcast("bar"));
+	}
+	
+	@Test
+	public void broadcastRequest_accumulatesEachResultWhenReducerIsAccumulating() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		CountingPingService impl = new CountingPingService() {
+			@Override
+			public Integer ping(String msg) {
+				return msg.length();
+			}
+		};
+		partition1.register(impl, objectSerializer, CountingPingService.class);
+		partition2.register(impl, objectSerializer, CountingPingService.class);
+
+		CountingPingService broadcastService = RemotingProxy.create(CountingPingService.class, CountingPingService.class, directTransport(partition1, partition2), objectSerializer, new NoRoutingStrategy());
+		assertEquals(Integer.valueOf(6), broadcastService.ping("foo"));
+	}
+	
+	@Test
+	public void pagedBroadcast_iteratorPrefetchesFirstPageAndFetchesFollowingPagesOnDemand() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		PagedNumberServiceImpl partition1Numbers = new PagedNumberServiceImpl(1, 2, 3, 4, 5);
+		PagedNumberServiceImpl partition2Numbers = new PagedNumberServiceImpl(6, 7, 8);
+		partition1.register(partition1Numbers, objectSerializer, PagedNumberService.class);
+		partition2.register(partition2Numbers, objectSerializer, PagedNumberService.class);
+
+		IteratingPagedNumberService numberService = RemotingProxy.create(IteratingPagedNumberService.class, PagedNumberService.class, directTransport(partition1, partition2), objectSerializer, new NoRoutingStrategy());
+		CloseableIterator<Integer> numbers = numberService.numbersGreaterThan(0, AstrixPageRequest.firstPage(2));
+
+		List<Integer> result = new ArrayList<>();
+		result.add(numbers.next());
+		result.add(numbers.next());
+		assertEquals("Next page should not be requested until current page is consumed", 1, partition1Numbers.pageRequestCount.get());
+		assertEquals("First page should be prefetched from following partitions", 1, partition2Numbers.pageRequestCount.get());
+		while (numbers.hasNext()) {
+			result.add(numbers.next());
+		}
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), result);
+		assertEquals(3, partition1Numbers.pageRequestCount.get());
+		assertEquals(2, partition2Numbers.pageRequestCount.get());
+	}
+	
+	@Test
+	public void pagedBroadcast_closedIteratorDoesNotFetchMorePages() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		PagedNumberServiceImpl partition1Numbers = new PagedNumberServiceImpl(1, 2, 3, 4, 5);
+		PagedNumberServiceImpl partition2Numbers = new PagedNumberServiceImpl(6, 7, 8);
+		partition1.register(partition1Numbers, objectSerializer, PagedNumberService.class);
+		partition2.register(partition2Numbers, objectSerializer, PagedNumberService.class);
+
+		IteratingPagedNumberService numberService = RemotingProxy.create(IteratingPagedNumberService.class, PagedNumberService.class, directTransport(partition1, partition2), objectSerializer, new NoRoutingStrategy());
+		CloseableIterator<Integer> numbers = numberService.numbersGreaterThan(0, AstrixPageRequest.firstPage(2));
+		assertEquals(Integer.valueOf(1), numbers.next());
+		numbers.close();
+		
+		assertFalse(numbers.hasNext());
+		assertEquals(1, partition1Numbers.pageRequestCount.get());
+		assertEquals("Only the prefetched first page should be requested", 1, partition2Numbers.pageRequestCount.get());
+	}
+	
+	@Test
+	public void pagedBroadcast_boundsNumberOfPrefetchedPartitions() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		AstrixServiceActivator partition3 = new AstrixServiceActivator();
+		PagedNumberServiceImpl partition1Numbers = new PagedNumberServiceImpl(1, 2, 3);
+		PagedNumberServiceImpl partition2Numbers = new PagedNumberServiceImpl(4, 5);
+		PagedNumberServiceImpl partition3Numbers = new PagedNumberServiceImpl(6);
+		partition1.register(partition1Numbers, objectSerializer, PagedNumberService.class);
+		partition2.register(partition2Numbers, objectSerializer, PagedNumberService.class);
+		partition3.register(partition3Numbers, objectSerializer, PagedNumberService.class);
+		
+		BoundedPrefetchPagedNumberService numberService = RemotingProxy.create(BoundedPrefetchPagedNumberService.class, PagedNumberService.class, directTransport(partition1, partition2, partition3), objectSerializer, new NoRoutingStrategy());
+		CloseableIterator<Integer> numbers = numberService.numbersGreaterThan(0, AstrixPageRequest.firstPage(2));
+		assertEquals(Integer.valueOf(1), numbers.next());
+		assertEquals(1, partition2Numbers.pageRequestCount.get());
+		assertEquals("Only one partition ahead should be prefetched", 0, partition3Numbers.pageRequestCount.get());
+		
+		List<Integer> result = new ArrayList<>(Arrays.asList(1));
+		while (numbers.hasNext()) {
+			result.add(numbers.next());
+		}
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), result);
+		assertEquals(1, partition3Numbers.pageRequestCount.get());
+	}
+	
+	@Test
+	public void pagedBroadcast_iteratorResumesFromContinuationTokenOfPage() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		PagedNumberServiceImpl partition1Numbers = new PagedNumberServiceImpl(1, 2, 3, 4, 5);
+		PagedNumberServiceImpl partition2Numbers = new PagedNumberServiceImpl(6, 7, 8, 9);
+		partition1.register(partition1Numbers, objectSerializer, PagedNumberService.class);
+		partition2.register(partition2Numbers, objectSerializer, PagedNumberService.class);
+		RemotingTransport transport = directTransport(partition1, partition2);
+		PagedNumberService pagedNumberService = RemotingProxy.create(PagedNumberService.class, PagedNumberService.class, transport, objectSerializer, new NoRoutingStrategy());
+		IteratingPagedNumberService numberService = RemotingProxy.create(IteratingPagedNumberService.class, PagedNumberService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		AstrixPage<Integer> page = pagedNumberService.numbersGreaterThan(0, AstrixPageRequest.firstPage(3));
+		page = pagedNumberService.numbersGreaterThan(0, new AstrixPageRequest(3, page.getContinuationToken()));
+		page = pagedNumberService.numbersGreaterThan(0, new AstrixPageRequest(3, page.getContinuationToken()));
+		assertEquals(Arrays.asList(6, 7, 8), page.getElements());
+		partition1Numbers.pageRequestCount.set(0);
+		
+		CloseableIterator<Integer> numbers = numberService.numbersGreaterThan(0, new AstrixPageRequest(3, page.getContinuationToken()));
+		List<Integer> result = new ArrayList<>();
+		while (numbers.hasNext()) {
+			result.add(numbers.next());
+		}
+		assertEquals(Arrays.asList(9), result);
+		assertEquals("Partitions before the continuation token should not be requested", 0, partition1Numbers.pageRequestCount.get());
+	}
+	
+	@Test
+	public void pagedBroadcast_observableEmitsElementsFromAllPagesOfAllPartitions() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		partition1.register(new PagedNumberServiceImpl(1, 2, 3, 4, 5), objectSerializer, PagedNumberService.class);
+		partition2.register(new PagedNumberServiceImpl(6, 7, 8), objectSerializer, PagedNumberService.class);
+
+		ObservablePagedNumberService numberService = RemotingProxy.create(ObservablePagedNumberService.class, PagedNumberService.class, directTransport(partition1, partition2), objectSerializer, new NoRoutingStrategy());
+		List<Integer> result = numberService.numbersGreaterThan(2, AstrixPageRequest.firstPage(2)).toList().toBlocking().first();
+		assertEquals(Arrays.asList(3, 4, 5, 6, 7, 8), result);
+	}
+	
+	@Test
+	public void pagedBroadcast_observableStopsFetchingPagesWhenUnsubscribed() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		PagedNumberServiceImpl partition1Numbers = new PagedNumberServiceImpl(1, 2, 3, 4, 5);
+		PagedNumberServiceImpl partition2Numbers = new PagedNumberServiceImpl(6, 7, 8);
+		partition1.register(partition1Numbers, objectSerializer, PagedNumberService.class);
+		partition2.register(partition2Numbers, objectSerializer, PagedNumberService.class);
+
+		ObservablePagedNumberService numberService = RemotingProxy.create(ObservablePagedNumberService.class, PagedNumberService.class, directTransport(partition1, partition2), objectSerializer, new NoRoutingStrategy());
+		List<Integer> result = numberService.numbersGreaterThan(0, AstrixPageRequest.firstPage(2)).take(3).toList().toBlocking().first();
+		
+		assertEquals(Arrays.asList(1, 2, 3), result);
+		assertEquals(2, partition1Numbers.pageRequestCount.get());
+		assertEquals("Only the prefetched first page should be requested", 1, partition2Numbers.pageRequestCount.get());
+	}
+	
+	@Test
+	public void pagedBroadcast_observableResumesFromContinuationTokenOfPage() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		partition1.register(new PagedNumberServiceImpl(1, 2, 3, 4, 5), objectSerializer, PagedNumberService.class);
+		partition2.register(new PagedNumberServiceImpl(6, 7, 8), objectSerializer, PagedNumberService.class);
+		RemotingTransport transport = directTransport(partition1, partition2);
+		PagedNumberService pagedNumberService = RemotingProxy.create(PagedNumberService.class, PagedNumberService.class, transport, objectSerializer, new NoRoutingStrategy());
+		ObservablePagedNumberService numberService = RemotingProxy.create(ObservablePagedNumberService.class, PagedNumberService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		AstrixPage<Integer> page = pagedNumberService.numbersGreaterThan(0, AstrixPageRequest.firstPage(3));
+		List<Integer> result = numberService.numbersGreaterThan(0, new AstrixPageRequest(2, page.getContinuationToken())).toList().toBlocking().first();
+		assertEquals(Arrays.asList(4, 5, 6, 7, 8), result);
+	}
+	
+	@Test
+	public void pagedBroadcast_pageReturnTypeOnClientReturnsOnePageAtATimeUsingDefaultPageSize() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		PagedNumberServiceImpl partition1Numbers = new PagedNumberServiceImpl(1, 2, 3, 4, 5);
+		PagedNumberServiceImpl partition2Numbers = new PagedNumberServiceImpl(6, 7, 8);
+		partition1.register(partition1Numbers, objectSerializer, PagedNumberService.class);
+		partition2.register(partition2Numbers, objectSerializer, PagedNumberService.class);
+
+		PagedNumberService numberService = RemotingProxy.create(PagedNumberService.class, PagedNumberService.class, directTransport(partition1, partition2), objectSerializer, new NoRoutingStrategy());
+		AstrixPage<Integer> page = numberService.numbersGreaterThan(0, null);
+		assertEquals(Arrays.asList(1, 2, 3), page.getElements());
+		assertTrue(page.hasNextPage());
+		assertEquals(1, partition1Numbers.pageRequestCount.get());
+		assertEquals(0, partition2Numbers.pageRequestCount.get());
+		
+		List<Integer> result = new ArrayList<>(page.getElements());
+		while (page.hasNextPage()) {
+			page = numberService.numbersGreaterThan(0, new AstrixPageRequest(3, page.getContinuationToken()));
+			assertThat(page.getElements().size(), lessThanOrEqualTo(3));
+			result.addAll(page.getElements());
+		}
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), result);
+		assertEquals(2, partition1Numbers.pageRequestCount.get());
+		assertEquals(1, partition2Numbers.pageRequestCount.get());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void pagedBroadcast_throwsIllegalArgumentExceptionForMalformedContinuationToken() throws Exception {
+		partition1.register(new PagedNumberServiceImpl(1, 2, 3), objectSerializer, PagedNumberService.class);
+
+		PagedNumberService numberService = RemotingProxy.create(PagedNumberService.class, PagedNumberService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		numberService.numbersGreaterThan(0, new AstrixPageRequest(3, "foo"));
+	}
+	
+	@Test
+	public void broadcastRequest_partialResults_reducesResponsesReceivedBeforeDeadline() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		AstrixServiceActivator partition3 = new AstrixServiceActivator();
+		PartialPingService impl = new PartialPingService() {
+			@Override
+			public List<String> ping(String msg) {
+				return Arrays.asList(msg);
+			}
+		};
+		partition1.register(impl, objectSerializer, PartialPingService.class);
+		partition2.register(impl, objectSerializer, PartialPingService.class);
+		partition3.register(impl, objectSerializer, PartialPingService.class);
+
+		PartialPingService broadcastService = RemotingProxy.create(PartialPingService.class, PartialPingService.class, 
+				directTransportWithUnresponsivePartition(1, partition1, partition2, partition3), objectSerializer, new NoRoutingStrategy());
+		assertEquals(Arrays.asList("foo", "foo", "missing:[1]"), broadcastService.ping("foo"));
+	}
+	
+	@Test
+	public void broadcastRequest_partialResults_usesReduceWhenAllPartitionsRespondBeforeDeadline() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		PartialPingService impl = new PartialPingService() {
+			@Override
+			public List<String> ping(String msg) {
+				return Arrays.asList(msg);
+			}
+		};
+		partition1.register(impl, objectSerializer, PartialPingService.class);
+		partition2.register(impl, objectSerializer, PartialPingService.class);
+
+		PartialPingService broadcastService = RemotingProxy.create(PartialPingService.class, PartialPingService.class, directTransport(partition1, partition2), objectSerializer, new NoRoutingStrategy());
+		assertEquals(Arrays.asList("foo", "foo"), broadcastService.ping("foo"));
+	}
+	
+	@Test
+	public void broadcastRequest_partialResults_treatsUnavailablePartitionAsMissing() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		AstrixServiceActivator partition3 = new AstrixServiceActivator();
+		PartialPingService impl = new PartialPingService() {
+			@Override
+			public List<String> ping(String msg) {
+				return Arrays.asList(msg);
+			}
+		};
+		partition1.register(impl, objectSerializer, PartialPingService.class);
+		partition2.register(impl, objectSerializer, PartialPingService.class);
+		partition3.register(impl, objectSerializer, PartialPingService.class);
+
+		PartialPingService broadcastService = RemotingProxy.create(PartialPingService.class, PartialPingService.class, 
+				directTransportWithFailingPartitions(new ServiceUnavailableException("partition down"), Arrays.asList(1), partition1, partition2, partition3), objectSerializer, new NoRoutingStrategy());
+		assertEquals(Arrays.asList("foo", "foo", "missing:[1]"), broadcastService.ping("foo"));
+	}
+	
+	@Test(expected = ServiceUnavailableException.class)
+	public void broadcastRequest_partialResults_failsWhenAllPartitionsAreUnavailable() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		PartialPingService impl = new PartialPingService() {
+			@Override
+			public List<String> ping(String msg) {
+				return Arrays.asList(msg);
+			}
+		};
+		partition1.register(impl, objectSerializer, PartialPingService.class);
+		partition2.register(impl, objectSerializer, PartialPingService.class);
+
+		PartialPingService broadcastService = RemotingProxy.create(PartialPingService.class, PartialPingService.class, 
+				directTransportWithFailingPartitions(new ServiceUnavailableException("partition down"), Arrays.asList(0, 1), partition1, partition2), objectSerializer, new NoRoutingStrategy());
+		broadcastService.ping("foo");
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void broadcastRequest_partialResults_failsWhenPartitionFailsWithOtherErrorThanUnavailable() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		PartialPingService impl = new PartialPingService() {
+			@Override
+			public List<String> ping(String msg) {
+				return Arrays.asList(msg);
+			}
+		};
+		partition1.register(impl, objectSerializer, PartialPingService.class);
+		partition2.register(impl, objectSerializer, PartialPingService.class);
+
+		PartialPingService broadcastService = RemotingProxy.create(PartialPingService.class, PartialPingService.class, 
+				directTransportWithFailingPartitions(new IllegalStateException("broken transport"), Arrays.asList(1), partition1, partition2), objectSerializer, new NoRoutingStrategy());
+		broadcastService.ping("foo");
+	}
+	
+	@Test(expected = IncompatibleRemoteResultReducerException.class)
+	public void broadcastRequest_partialResults_throwsExceptionOnProxyCreationIfReducerDoesNotSupportPartialResults() throws Exception {
+		RemotingProxy.create(PartialBroadcastServiceWithIllegalReducer.class, PartialBroadcastServiceWithIllegalReducer.class, 
+				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+	}
+	
+	@Test(timeout = 5000)
+	public void broadcastRequest_shortCircuitingReducer_completesWithoutWaitingForRemainingPartitions() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		partition1.register(new ExistsService() {
+			@Override
+			public Boolean exists(String key) {
+				return true;
+			}
+		}, objectSerializer, ExistsService.class);
+		partition2.register(new ExistsService() {
+			@Override
+			public Boolean exists(String key) {
+				return false;
+			}
+		}, objectSerializer, ExistsService.class);
+
+		ExistsService existsService = RemotingProxy.create(ExistsService.class, ExistsService.class, 
+				directTransportWithUnresponsivePartition(1, partition1, partition2), objectSerializer, new NoRoutingStrategy());
+		assertTrue(existsService.exists("foo"));
+	}
+	
+	@Test
+	public void broadcastRequest_shortCircuitingReducer_isSentAsBroadcastRequestUnlessShortCircuitIsDeclared() throws Exception {
+		partition1.register(new NonShortCircuitingExistsService() {
+			@Override
+			public Boolean exists(String key) {
+				return true;
+			}
+		}, objectSerializer, NonShortCircuitingExistsService.class);
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				throw new AssertionError("Broadcast without shortCircuit should not be sent as routed requests");
+			}
+		});
+
+		NonShortCircuitingExistsService existsService = RemotingProxy.create(NonShortCircuitingExistsService.class, NonShortCircuitingExistsService.class, 
+				transport, objectSerializer, new NoRoutingStrategy());
+		assertTrue(existsService.exists("foo"));
+	}
+	
+	@Test(expected = IncompatibleRemoteResultReducerException.class)
+	public void broadcastRequest_shortCircuit_throwsExceptionOnProxyCreationIfReducerDoesNotSupportShortCircuiting() throws Exception {
+		RemotingProxy.create(ShortCircuitingBroadcastServiceWithIllegalReducer.class, ShortCircuitingBroadcastServiceWithIllegalReducer.class, 
+				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+	}
+	
+	@Test(timeout = 5000)
+	public void broadcastRequest_quorum_completesWhenQuorumHasResponded() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		AstrixServiceActivator partition3 = new AstrixServiceActivator();
+		QuorumPingService impl = new QuorumPingService() {
+			@Override
+			public List<String> ping(String msg) {
+				return Arrays.asList(msg);
+			}
+		};
+		partition1.register(impl, objectSerializer, QuorumPingService.class);
+		partition2.register(impl, objectSerializer, QuorumPingService.class);
+		partition3.register(impl, objectSerializer, QuorumPingService.class);
+
+		QuorumPingService broadcastService = RemotingProxy.create(QuorumPingService.class, QuorumPingService.class, 
+				directTransportWithUnresponsivePartition(0, partition1, partition2, partition3), objectSerializer, new NoRoutingStrategy());
+		assertEquals(Arrays.asList("foo", "foo"), broadcastService.ping("foo"));
+	}
+	
+	@Test
+	public void broadcastRequest_quorum_attachesPartitionFailuresWhenQuorumIsNotReached() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		AstrixServiceActivator partition3 = new AstrixServiceActivator();
+		QuorumPingService impl = new QuorumPingService() {
+			@Override
+			public List<String> ping(String msg) {
+				return Arrays.asList(msg);
+			}
+		};
+		partition1.register(impl, objectSerializer, QuorumPingService.class);
+		partition2.register(impl, objectSerializer, QuorumPingService.class);
+		partition3.register(impl, objectSerializer, QuorumPingService.class);
+		ServiceUnavailableException partitionFailure = new ServiceUnavailableException("partition down");
+
+		QuorumPingService broadcastService = RemotingProxy.create(QuorumPingService.class, QuorumPingService.class, 
+				directTransportWithFailingPartitions(partitionFailure, Arrays.asList(1, 2), partition1, partition2, partition3), objectSerializer, new NoRoutingStrategy());
+		try {
+			broadcastService.ping("foo");
+			fail("Expected ServiceUnavailableException when quorum is not reached");
+		} catch (ServiceUnavailableException e) {
+			assertThat(e.getMessage(), startsWith("Partitions did not respond"));
+			assertSame(partitionFailure, e.getCause());
+			assertEquals(1, e.getSuppressed().length);
+		}
+	}
+	
 	@Test
 	public void partitionedRequest() throws Exception {
 		AstrixServiceActivator evenPartition = new AstrixServiceActivator();
@@ -272,6 +787,29 @@ public class AstrixRemotingTest {
 		assertEquals(1 + 4 + 9 + 16 + 25, squareSum);
 	}
 	
+	@Test
+	public void partitionedRequest_reducesResultsUsingReducerLibrary() throws Exception {
+		AstrixServiceActivator evenPartition = new AstrixServiceActivator();
+		AstrixServiceActivator oddPartition = new AstrixServiceActivator();
+		CountingService countingService = new CountingService() {
+			@Override
+			public Long count(Collection<Integer> nums) {
+				return (long) nums.size();
+			}
+		};
+		evenPartition.register(countingService, objectSerializer, CountingService.class);
+		oddPartition.register(countingService, objectSerializer, CountingService.class);
+		
+		CountingService proxy = RemotingProxy.create(CountingService.class, CountingService.class, directTransport(evenPartition, oddPartition), objectSerializer, new NoRoutingStrategy());
+		assertEquals(Long.valueOf(5), proxy.count(Arrays.asList(1, 2, 3, 4, 5)));
+	}
+	
+	@Test(expected = IncompatibleRemoteResultReducerException.class)
+	public void throwsExceptionOnProxyCreationIfReturnTypeOfGenericReducerSubclassIsIncompatible() throws Exception {
+		RemotingProxy.create(BroadcastServiceWithIllegalGenericReducer.class, BroadcastServiceWithIllegalGenericReducer.class, 
+				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+	}
+	
 	@Test
 	public void partitionedRequest_GenericArrayArgument() throws Exception {
 		AstrixServiceActivator evenPartition = new AstrixServiceActivator();
@@ -292,46 +830,160 @@ public class AstrixRemotingTest {
 	}
 	
 	@Test
-	public void partitionedRequest_voidReturnType() throws Exception {
+	public void partitionedRequest_routesElementsWithNegativeHashCodes() throws Exception {
 		AstrixServiceActivator evenPartition = new AstrixServiceActivator();
 		AstrixServiceActivator oddPartition = new AstrixServiceActivator();
-		PartitionedPingService eventPartitionPing = new PartitionedPingServiceImpl();
-		PartitionedPingService oddPartitionPing = new PartitionedPingServiceImpl();
-		
-		evenPartition.register(eventPartitionPing, objectSerializer, PartitionedPingService.class);
-		oddPartition.register(oddPartitionPing, objectSerializer, PartitionedPingService.class);
+		evenPartition.register(new PartitionedPingServiceImpl(), objectSerializer, PartitionedPingService.class);
+		oddPartition.register(new PartitionedPingServiceImpl(), objectSerializer, PartitionedPingService.class);
 
 		PartitionedPingService partitionedPing = RemotingProxy.create(PartitionedPingService.class, PartitionedPingService.class, directTransport(evenPartition, oddPartition), objectSerializer, new NoRoutingStrategy());
-		partitionedPing.pingVoid(new String[]{"1", "2", "3"});
+		assertThat(partitionedPing.ping(new int[]{-1, -2, -3, Integer.MIN_VALUE}), containsInAnyOrder(-1, -2, -3, Integer.MIN_VALUE));
 	}
 	
 	@Test
-	public void partitionedRequest_emptyArgument() throws Exception {
-		AstrixServiceActivator evenPartition = new AstrixServiceActivator();
-		AstrixServiceActivator oddPartition = new AstrixServiceActivator();
-		PartitionedPingService evenPartitionPing = Mockito.mock(PartitionedPingService.class);
-		PartitionedPingService oddPartitionPing = Mockito.mock(PartitionedPingService.class);
-		
-		evenPartition.register(evenPartitionPing, objectSerializer, PartitionedPingService.class);
-		oddPartition.register(oddPartitionPing, objectSerializer, PartitionedPingService.class);
+	public void partitionedRequest_splitsPartitionsLargerThanMaxPartitionBatchSizeIntoSeveralRequests() throws Exception {
+		final List<Integer> receivedBatchSizes = new CopyOnWriteArrayList<>();
+		partition1.register(new PartitionedPingServiceImpl() {
+			@Override
+			public List<Integer> ping(int... nums) {
+				receivedBatchSizes.add(nums.length);
+				return super.ping(nums);
+			}
+		}, objectSerializer, PartitionedPingService.class);
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.setMaxPartitionBatchSize(new DynamicIntProperty(2));
 
-		PartitionedPingService partitionedPing = RemotingProxy.create(PartitionedPingService.class, PartitionedPingService.class, 
-				directTransport(evenPartition, oddPartition), objectSerializer, new NoRoutingStrategy());
-		partitionedPing.pingVoid(new String[]{});
-		Mockito.verifyZeroInteractions(evenPartitionPing, oddPartitionPing);
+		PartitionedPingService partitionedPing = RemotingProxy.create(PartitionedPingService.class, PartitionedPingService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy(), settings);
+		assertThat(partitionedPing.ping(new int[]{1, 2, 3, 4, 5}), containsInAnyOrder(1, 2, 3, 4, 5));
+		assertThat(receivedBatchSizes, containsInAnyOrder(2, 2, 1));
+		
+		receivedBatchSizes.clear();
+		settings.getMaxPartitionBatchSize().set(RemotingProxySettings.UNLIMITED_PARTITION_BATCH_SIZE);
+		assertThat(partitionedPing.ping(new int[]{1, 2, 3, 4, 5}), containsInAnyOrder(1, 2, 3, 4, 5));
+		assertThat(receivedBatchSizes, containsInAnyOrder(5));
 	}
 	
-	@Test(expected = RemoteServiceInvocationException.class)
-	public void partitoinedRoutingRequest_NonServiceInovcationExcpetion_WrappedInRemoteServiceInvocation() throws Exception {
+	@Test
+	public void partitionedRequest_unmarshallsResponsesInParallelWhenParallelUnmarshallThresholdIsReached() throws Exception {
 		AstrixServiceActivator evenPartition = new AstrixServiceActivator();
 		AstrixServiceActivator oddPartition = new AstrixServiceActivator();
-		PartitionedPingService evenPartitionPing = new PartitionedPingServiceImpl() {
+		evenPartition.register(new PartitionedPingServiceImpl(), objectSerializer, PartitionedPingService.class);
+		oddPartition.register(new PartitionedPingServiceImpl(), objectSerializer, PartitionedPingService.class);
+		final AtomicInteger executedUnmarshallTasks = new AtomicInteger();
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.setParallelUnmarshallThreshold(new DynamicIntProperty(3));
+		settings.setUnmarshallExecutor(new Executor() {
 			@Override
-			public List<String> ping(String... nums) {
-				throw new NullPointerException();
-			};
-		};
-		PartitionedPingService oddPartitionPing = new PartitionedPingServiceImpl();
+			public void execute(Runnable command) {
+				executedUnmarshallTasks.incrementAndGet();
+				new Thread(command).start();
+			}
+		});
+
+		PartitionedPingService partitionedPing = RemotingProxy.create(PartitionedPingService.class, PartitionedPingService.class, directTransport(evenPartition, oddPartition), objectSerializer, new NoRoutingStrategy(), settings);
+		assertThat(partitionedPing.ping(new int[]{1, 2, 3}), containsInAnyOrder(1, 2, 3));
+		assertEquals("Below threshold", 0, executedUnmarshallTasks.get());
+		
+		settings.getParallelUnmarshallThreshold().set(2);
+		assertThat(partitionedPing.ping(new int[]{1, 2, 3}), containsInAnyOrder(1, 2, 3));
+		assertEquals("First response is unmarshalled on invoking thread", 1, executedUnmarshallTasks.get());
+	}
+	
+	@Test
+	public void partitionedRequest_boundsNumberOfResponsesUnmarshalledInParallel() throws Exception {
+		partition1.register(new PartitionedPingServiceImpl(), objectSerializer, PartitionedPingService.class);
+		final List<Future<?>> submittedTasks = new ArrayList<>();
+		final AtomicInteger maxPendingTasks = new AtomicInteger();
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.setMaxPartitionBatchSize(new DynamicIntProperty(1));
+		settings.setParallelUnmarshallThreshold(new DynamicIntProperty(2));
+		settings.setMaxParallelUnmarshallTasks(new DynamicIntProperty(2));
+		settings.setUnmarshallExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				// Never runs the tasks, hence all responses are unmarshalled on the invoking thread
+				submittedTasks.add((Future<?>) command);
+				int pendingTasks = 0;
+				for (Future<?> task : submittedTasks) {
+					if (!task.isDone()) {
+						pendingTasks++;
+					}
+				}
+				maxPendingTasks.set(Math.max(maxPendingTasks.get(), pendingTasks));
+			}
+		});
+		
+		PartitionedPingService partitionedPing = RemotingProxy.create(PartitionedPingService.class, PartitionedPingService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy(), settings);
+		assertThat(partitionedPing.ping(new int[]{1, 2, 3, 4, 5, 6}), containsInAnyOrder(1, 2, 3, 4, 5, 6));
+		assertEquals(5, submittedTasks.size());
+		assertEquals("Response currently read and the responses submitted ahead of it", 3, maxPendingTasks.get());
+	}
+	
+	@Test
+	public void partitionedRequest_marshallsSharedArgumentsOncePerInvocation() throws Exception {
+		AstrixServiceActivator evenPartition = new AstrixServiceActivator();
+		AstrixServiceActivator oddPartition = new AstrixServiceActivator();
+		final AtomicInteger sharedArgumentMarshallCount = new AtomicInteger();
+		AstrixObjectSerializer countingSerializer = new AstrixObjectSerializer.NoVersioningSupport() {
+			@Override
+			public Object serialize(Object element, int version) {
+				if (element instanceof NumPojo) {
+					sharedArgumentMarshallCount.incrementAndGet();
+				}
+				return super.serialize(element, version);
+			}
+		};
+		evenPartition.register(new PartitionedServiceWithSharedArgumentImpl(), countingSerializer, PartitionedServiceWithSharedArgument.class);
+		oddPartition.register(new PartitionedServiceWithSharedArgumentImpl(), countingSerializer, PartitionedServiceWithSharedArgument.class);
+
+		PartitionedServiceWithSharedArgument partitionedService = RemotingProxy.create(PartitionedServiceWithSharedArgument.class, PartitionedServiceWithSharedArgument.class, 
+				directTransport(evenPartition, oddPartition), countingSerializer, new NoRoutingStrategy());
+		
+		assertThat(partitionedService.add(Arrays.asList(1, 2, 3, 4), new NumPojo(10)), containsInAnyOrder(11, 12, 13, 14));
+		assertEquals(1, sharedArgumentMarshallCount.get());
+	}
+	
+	@Test
+	public void partitionedRequest_voidReturnType() throws Exception {
+		AstrixServiceActivator evenPartition = new AstrixServiceActivator();
+		AstrixServiceActivator oddPartition = new AstrixServiceActivator();
+		PartitionedPingService eventPartitionPing = new PartitionedPingServiceImpl();
+		PartitionedPingService oddPartitionPing = new PartitionedPingServiceImpl();
+		
+		evenPartition.register(eventPartitionPing, objectSerializer, PartitionedPingService.class);
+		oddPartition.register(oddPartitionPing, objectSerializer, PartitionedPingService.class);
+
+		PartitionedPingService partitionedPing = RemotingProxy.create(PartitionedPingService.class, PartitionedPingService.class, directTransport(evenPartition, oddPartition), objectSerializer, new NoRoutingStrategy());
+		partitionedPing.pingVoid(new String[]{"1", "2", "3"});
+	}
+	
+	@Test
+	public void partitionedRequest_emptyArgument() throws Exception {
+		AstrixServiceActivator evenPartition = new AstrixServiceActivator();
+		AstrixServiceActivator oddPartition = new AstrixServiceActivator();
+		PartitionedPingService evenPartitionPing = Mockito.mock(PartitionedPingService.class);
+		PartitionedPingService oddPartitionPing = Mockito.mock(PartitionedPingService.class);
+		
+		evenPartition.register(evenPartitionPing, objectSerializer, PartitionedPingService.class);
+		oddPartition.register(oddPartitionPing, objectSerializer, PartitionedPingService.class);
+
+		PartitionedPingService partitionedPing = RemotingProxy.create(PartitionedPingService.class, PartitionedPingService.class, 
+				directTransport(evenPartition, oddPartition), objectSerializer, new NoRoutingStrategy());
+		partitionedPing.pingVoid(new String[]{});
+		Mockito.verifyZeroInteractions(evenPartitionPing, oddPartitionPing);
+	}
+	
+	@Test(expected = RemoteServiceInvocationException.class)
+	public void partitoinedRoutingRequest_NonServiceInovcationExcpetion_WrappedInRemoteServiceInvocation() throws Exception {
+		AstrixServiceActivator evenPartition = new AstrixServiceActivator();
+		AstrixServiceActivator oddPartition = new AstrixServiceActivator();
+		PartitionedPingService evenPartitionPing = new PartitionedPingServiceImpl() {
+			@Override
+			public List<String> ping(String... nums) {
+				throw new NullPointerException();
+			};
+		};
+		PartitionedPingService oddPartitionPing = new PartitionedPingServiceImpl();
 		
 		evenPartition.register(evenPartitionPing, objectSerializer, PartitionedPingService.class);
 		oddPartition.register(oddPartitionPing, objectSerializer, PartitionedPingService.class);
@@ -517,6 +1169,110 @@ public class AstrixRemotingTest {
 		missingRemoteService.hello(new HelloRequest("foo"));
 	}
 	
+	@Test
+	public void resolvesServiceMethodBySignatureWhenMethodIdDoesNotMatchServerSideMethodTable() throws Exception {
+		partition1.register(new TestServiceImpl(), objectSerializer, TestService.class);
+		
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest();
+		request.setApiVersion(1);
+		request.setServiceApi(TestService.class.getName());
+		request.setServiceMethodSignature("hello(" + HelloRequest.class.getName() + ")");
+		request.setServiceMethodId(1, 42); // Method table of another api version
+		request.setArguments(new Object[] { objectSerializer.serialize(new HelloRequest("kalle"), 1) });
+		
+		AstrixServiceInvocationResponse response = partition1.invokeService(request);
+		HelloResponse reply = objectSerializer.deserialize(response.getResponseBody(), HelloResponse.class, 1);
+		assertEquals("reply-kalle", reply.getGreeting());
+	}
+	
+	@Test
+	public void servesRequestsThatIdentifiesTargetServiceUsingHeaders() throws Exception {
+		partition1.register(new TestServiceImpl(), objectSerializer, TestService.class);
+		
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest();
+		request.setHeader(AstrixServiceInvocationRequestHeaders.API_VERSION, "1");
+		request.setHeader(AstrixServiceInvocationRequestHeaders.SERVICE_API, TestService.class.getName());
+		request.setHeader(AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE, "hello(" + HelloRequest.class.getName() + ")");
+		request.setArguments(new Object[] { objectSerializer.serialize(new HelloRequest("kalle"), 1) });
+		
+		AstrixServiceInvocationResponse response = partition1.invokeService(request);
+		HelloResponse reply = objectSerializer.deserialize(response.getResponseBody(), HelloResponse.class, 1);
+		assertEquals("reply-kalle", reply.getGreeting());
+	}
+	
+	@Test
+	public void methodIdIsOnlyUsedWhenItIdentifiesMethodWithRequestedSignature() throws Exception {
+		partition1.register(new TestServiceImpl(), objectSerializer, TestService.class);
+		ServiceMethodIndex methodIndex = ServiceMethodIndex.create(TestService.class);
+		String signature = "hello(" + HelloRequest.class.getName() + ")";
+		String overloadSignature = "hello(" + HelloRequest.class.getName() + ",java.lang.String)";
+		
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest();
+		request.setApiVersion(1);
+		request.setServiceApi(TestService.class.getName());
+		request.setServiceMethodSignature(signature);
+		// Method table with colliding checksum, where the id identifies another method
+		request.setServiceMethodId(methodIndex.getMethodId(overloadSignature), methodIndex.getChecksum());
+		request.setArguments(new Object[] { objectSerializer.serialize(new HelloRequest("kalle"), 1) });
+		
+		AstrixServiceInvocationResponse response = partition1.invokeService(request);
+		HelloResponse reply = objectSerializer.deserialize(response.getResponseBody(), HelloResponse.class, 1);
+		assertEquals("reply-kalle", reply.getGreeting());
+	}
+	
+	@Test
+	public void requestsAreServedByServersThatIdentifiesTargetServiceUsingHeaders() throws Exception {
+		partition1.register(new TestServiceImpl(), objectSerializer, TestService.class);
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				// Servers predating the compact envelope only reads the headers and the arguments
+				AstrixServiceInvocationRequest received = serializationRoundTrip(request);
+				AstrixServiceInvocationRequest legacyRequest = new AstrixServiceInvocationRequest();
+				for (Map.Entry<String, String> header : received.getHeaders().entrySet()) {
+					legacyRequest.setHeader(header.getKey(), header.getValue());
+				}
+				legacyRequest.setArguments(received.getArguments());
+				return super.invokeRoutedRequest(legacyRequest, routingKey);
+			}
+		});
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.setCompactEnvelopeSupported(false);
+		TestService testService = RemotingProxy.create(TestService.class, TestService.class, transport, objectSerializer, new NoRoutingStrategy(), settings);
+		
+		assertEquals("reply-kalle", testService.hello(new HelloRequest("kalle")).getGreeting());
+		assertEquals("hi-kalle", testService.hello(new HelloRequest("kalle"), "hi-"));
+	}
+	
+	@Test
+	public void requestsDoesNotCarryLegacyHeadersWhenServerSupportsCompactEnvelope() throws Exception {
+		partition1.register(new TestServiceImpl(), objectSerializer, TestService.class);
+		final List<Map<String, String>> headers = new CopyOnWriteArrayList<>();
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				headers.add(request.getHeaders());
+				return super.invokeRoutedRequest(request, routingKey);
+			}
+		});
+		TestService testService = RemotingProxy.create(TestService.class, TestService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		assertEquals("reply-kalle", testService.hello(new HelloRequest("kalle")).getGreeting());
+		assertEquals(Collections.<String, String>emptyMap(), headers.get(0));
+	}
+	
+	@Test
+	public void requestsCreatedFromTemplateShareHeadersUntilModified() throws Exception {
+		AstrixServiceInvocationRequest template = new AstrixServiceInvocationRequest();
+		template.setHeader("foo", "template");
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest(template);
+		
+		assertEquals("template", request.getHeader("foo"));
+		request.setHeader("foo", "request");
+		assertEquals("request", request.getHeader("foo"));
+		assertEquals("template", template.getHeader("foo"));
+	}
+	
 	@Test
 	public void useObservableVersionOfAService() throws Exception {
 		TestService impl = new TestService() {
@@ -557,6 +1313,153 @@ public class AstrixRemotingTest {
 		assertEquals("reply-kalle", response.get().getGreeting());
 	}
 	
+	@Test
+	public void cancellingFutureUnsubscribesFromTransport() throws Exception {
+		final AtomicBoolean unsubscribed = new AtomicBoolean(false);
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				return Observable.<AstrixServiceInvocationResponse>never().doOnUnsubscribe(new Action0() {
+					@Override
+					public void call() {
+						unsubscribed.set(true);
+					}
+				});
+			}
+		});
+		TestServiceAsync service = RemotingProxy.create(TestServiceAsync.class, TestService.class, transport, objectSerializer, new NoRoutingStrategy());
+		Future<HelloResponse> response = service.hello(new HelloRequest("kalle"));
+		
+		assertTrue(response.cancel(true));
+		assertTrue(unsubscribed.get());
+		assertTrue(response.isCancelled());
+		assertTrue(response.isDone());
+		assertFalse("Already cancelled", response.cancel(true));
+		try {
+			response.get();
+			fail("Expected CancellationException");
+		} catch (CancellationException e) {
+			// Expected
+		}
+	}
+	
+	@Test
+	public void futureInvocationIsReportedToBoundInvocationTrackerWhenTransportResponds() throws Exception {
+		partition1.register(new TestServiceImpl(), objectSerializer, TestService.class);
+		final PublishSubject<AstrixServiceInvocationResponse> response = PublishSubject.create();
+		final AtomicReference<AstrixServiceInvocationRequest> sentRequest = new AtomicReference<>();
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				sentRequest.set(request);
+				return response;
+			}
+		});
+		TestServiceAsync service = RemotingProxy.create(TestServiceAsync.class, TestService.class, transport, objectSerializer, new NoRoutingStrategy());
+		CountingInvocationTracker invocationTracker = new CountingInvocationTracker();
+		
+		AstrixInvocationTracking.Binding binding = AstrixInvocationTracking.bind(service, invocationTracker);
+		Future<HelloResponse> result = service.hello(new HelloRequest("kalle"));
+		assertTrue("Tracker should be claimed by proxy", binding.unbind());
+		assertEquals(1, invocationTracker.started.get());
+		assertEquals(0, invocationTracker.completed.get());
+		
+		response.onNext(partition1.invokeService(sentRequest.get()));
+		response.onCompleted();
+		assertEquals("Invocation should complete without retrieving the result", 1, invocationTracker.completed.get());
+		assertEquals("reply-kalle", result.get().getGreeting());
+		assertEquals(0, invocationTracker.abandoned.get());
+	}
+	
+	@Test
+	public void observableInvocationIsReportedToBoundInvocationTrackerForEachSubscription() throws Exception {
+		partition1.register(new TestServiceImpl(), objectSerializer, TestService.class);
+		ObservableTestService service = RemotingProxy.create(ObservableTestService.class, TestService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		CountingInvocationTracker invocationTracker = new CountingInvocationTracker();
+		
+		AstrixInvocationTracking.Binding binding = AstrixInvocationTracking.bind(service, invocationTracker);
+		Observable<HelloResponse> result = service.hello(new HelloRequest("kalle"));
+		assertTrue("Tracker should be claimed by proxy", binding.unbind());
+		assertEquals("Invocation should not start until subscribed", 0, invocationTracker.started.get());
+		
+		assertEquals("reply-kalle", result.toBlocking().first().getGreeting());
+		assertEquals("reply-kalle", result.toBlocking().first().getGreeting());
+		assertEquals(2, invocationTracker.started.get());
+		assertEquals(2, invocationTracker.completed.get());
+	}
+	
+	@Test
+	public void cancelledFutureInvocationIsAbandonedInBoundInvocationTracker() throws Exception {
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				return Observable.never();
+			}
+		});
+		TestServiceAsync service = RemotingProxy.create(TestServiceAsync.class, TestService.class, transport, objectSerializer, new NoRoutingStrategy());
+		CountingInvocationTracker invocationTracker = new CountingInvocationTracker();
+		
+		AstrixInvocationTracking.Binding binding = AstrixInvocationTracking.bind(service, invocationTracker);
+		Future<HelloResponse> result = service.hello(new HelloRequest("kalle"));
+		binding.unbind();
+		
+		assertTrue(result.cancel(true));
+		assertEquals(1, invocationTracker.abandoned.get());
+		assertEquals(0, invocationTracker.completed.get());
+	}
+	
+	@Test
+	public void blockingInvocationsDoesNotClaimBoundInvocationTracker() throws Exception {
+		partition1.register(new TestServiceImpl(), objectSerializer, TestService.class);
+		TestService service = RemotingProxy.create(TestService.class, TestService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		CountingInvocationTracker invocationTracker = new CountingInvocationTracker();
+		
+		AstrixInvocationTracking.Binding binding = AstrixInvocationTracking.bind(service, invocationTracker);
+		assertEquals("reply-kalle", service.hello(new HelloRequest("kalle")).getGreeting());
+		assertFalse(binding.unbind());
+		assertEquals(0, invocationTracker.started.get());
+	}
+	
+	@Test
+	public void deliversAsyncResultsOnCallbackExecutorWhenEnabled() throws Exception {
+		TestService impl = new TestService() {
+			@Override
+			public HelloResponse hello(HelloRequest message) {
+				return new HelloResponse("reply-" + message.getMesssage());
+			}
+			@Override
+			public String hello(HelloRequest message, String greeting) {
+				return "overload-" + message.getMesssage();
+			}
+		};
+		partition1.register(impl, objectSerializer, TestService.class);
+		final AtomicInteger executedCallbacks = new AtomicInteger();
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.setCallbackExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				executedCallbacks.incrementAndGet();
+				new Thread(command, "callback-thread").start();
+			}
+		});
+		ObservableTestService service = RemotingProxy.create(ObservableTestService.class, TestService.class,
+				directTransport(partition1), objectSerializer, new NoRoutingStrategy(), settings);
+		
+		assertEquals("reply-kalle", service.hello(new HelloRequest("kalle")).toBlocking().first().getGreeting());
+		assertEquals("Callback executor disabled by default", 0, executedCallbacks.get());
+		
+		settings.getCallbackExecutorEnabled().set(true);
+		final BlockingQueue<String> callbackThreads = new LinkedBlockingQueue<>();
+		HelloResponse response = service.hello(new HelloRequest("kalle")).doOnNext(new Action1<HelloResponse>() {
+			@Override
+			public void call(HelloResponse t1) {
+				callbackThreads.add(Thread.currentThread().getName());
+			}
+		}).toBlocking().first();
+		assertEquals("reply-kalle", response.getGreeting());
+		assertEquals("callback-thread", callbackThreads.poll(1, TimeUnit.SECONDS));
+	}
+	
 	@Test(expected = RuntimeException.class)
 	public void ioExceptionThrownDuringDeserializationAreProppagatedAsRuntimeExceptions() throws Exception {
 		AstrixObjectSerializer corruptDeserializer = new AstrixObjectSerializer.NoVersioningSupport() {
@@ -656,113 +1559,768 @@ public class AstrixRemotingTest {
 	}
 	
 	@Test
-	public void supportsServicesThatWithVoidReturnType() throws Exception {
-		final BlockingQueue<String> receivedRequest = new LinkedBlockingQueue<>();
-		VoidService impl = new VoidService() {
+	public void supportsServicesThatWithVoidReturnType() throws Exception {
+		final BlockingQueue<String> receivedRequest = new LinkedBlockingQueue<>();
+		VoidService impl = new VoidService() {
+			@Override
+			public void hello(String message) {
+				receivedRequest.add(message);
+			}
+		};
+		partition1.register(impl, objectSerializer, VoidService.class);
+		
+		VoidService testService = RemotingProxy.create(VoidService.class, VoidService.class,
+				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+
+		testService.hello("kalle");
+		String lastReceivedRequest = receivedRequest.poll(1, TimeUnit.SECONDS);
+		assertEquals("kalle", lastReceivedRequest);
+	}
+	
+	@Test
+	public void supportsBroadcastedServicesWithVoidReturnType() throws Exception {
+		final BlockingQueue<String> receivedRequest = new LinkedBlockingQueue<>();
+		BroadcastVoidService impl = new BroadcastVoidService() {
+			@Override
+			public void hello(String message) {
+				receivedRequest.add(message);
+			}
+		};
+		partition1.register(impl, objectSerializer, BroadcastVoidService.class);
+		
+		BroadcastVoidService testService = RemotingProxy.create(BroadcastVoidService.class, BroadcastVoidService.class,
+				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+
+		testService.hello("kalle");
+		String lastReceivedRequest = receivedRequest.poll(0, TimeUnit.SECONDS);
+		assertEquals("kalle", lastReceivedRequest);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionWhenRegisteringProviderForNonImplementedInterface() throws Exception {
+		partition1.register(new Object(), objectSerializer, TestService.class);
+	}
+	
+	@Test
+	public void remotingProxiesDoesNotDelegateMethodCallsForMethodsDefinedIn_java_lang_Object() throws Exception {
+		partition1.register(new VoidService() {
+			@Override
+			public void hello(String message) {
+			}
+			@Override
+			public String toString() {
+				return "RemotingServiceToString";
+			}
+		}, objectSerializer, VoidService.class);
+		
+		VoidService testService = RemotingProxy.create(VoidService.class, VoidService.class,
+				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		assertEquals("RemotingProxy[" + VoidService.class.getName() + "]", testService.toString());
+	}
+	
+	@Test
+	public void asyncBroadcastedService() throws Exception {
+		partition1.register(new BroadcastingGenericReturnTypeService() {
+			@Override
+			public List<HelloResponse> hello(List<HelloRequest> greeting) {
+				return Arrays.asList(new HelloResponse(greeting.get(0).getMesssage()));
+			}
+			
+		}, objectSerializer, BroadcastingGenericReturnTypeService.class);
+		
+		BroadcastingGenericReturnTypeServiceAsync service = RemotingProxy.create(BroadcastingGenericReturnTypeServiceAsync.class,
+				BroadcastingGenericReturnTypeService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		Future<List<HelloResponse>> resultFuture = service.hello(Arrays.asList(new HelloRequest("foo")));
+		List<HelloResponse> result = resultFuture.get();
+		assertEquals(1, result.size());
+	}
+	
+	@Test(expected = IncompatibleRemoteResultReducerException.class)
+	public void throwsExceptionOnProxyCreationIfRemoteResultReducerDoesNotHaveAMethodSignatureCompatibleWithServiceMethodSignature() throws Exception {
+		RemotingProxy.create(BroadcastServiceWithIllegalReducer.class, BroadcastServiceWithIllegalReducer.class, 
+				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+	}
+	
+//	@Test(expected = IncompatibleRemoteResultReducerException.class)
+//	public void throwsExceptionOnProxyCreationIfRemoteResultReducerDoesNotHaveAMethodSignatureCompatibleWithServiceMethodSignature_2() throws Exception {
+//		RemotingProxy.create(IllegalReducerHelloService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+//	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void throwsIllegalStateExceptionIfRoutingStrategyReturnsNull() throws Exception {
+		partition1.register(new VoidService() {
+			@Override
+			public void hello(String message) {
+			}
+		}, objectSerializer, VoidService.class);
+		
+		VoidService voidService = RemotingProxy.create(VoidService.class, VoidService.class, directTransport(partition1), objectSerializer, new RoutingStrategy() {
+			@Override
+			public Router create(Method serviceMethod) {
+				return new Router() {
+					@Override
+					public RoutingKey getRoutingKey(Object... args) throws Exception {
+						return null;
+					}
+				};
+			}
+		});
+		voidService.hello("foo");
+	}
+	
+	@Test
+	public void oneWayServiceMethodReturnsWithoutAwaitingResponse() throws Exception {
+		final BlockingQueue<AstrixServiceInvocationRequest> submittedRequests = new LinkedBlockingQueue<>();
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				submittedRequests.add(request);
+				return Observable.never();
+			}
+		});
+		OneWayService oneWayService = RemotingProxy.create(OneWayService.class, OneWayService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		oneWayService.publish("foo");
+		assertEquals(1, submittedRequests.size());
+	}
+	
+	@Test
+	public void exceptionsThrownByOneWayServiceMethodAreNotPropagatedToClient() throws Exception {
+		final BlockingQueue<String> receivedNotifications = new LinkedBlockingQueue<>();
+		partition1.register(new OneWayService() {
+			@Override
+			public void publish(String event) {
+				receivedNotifications.add(event);
+				throw new IllegalArgumentException("Failed to process: " + event);
+			}
+		}, objectSerializer, OneWayService.class);
+		OneWayService oneWayService = RemotingProxy.create(OneWayService.class, OneWayService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		
+		oneWayService.publish("foo");
+		assertEquals("foo", receivedNotifications.poll(1, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void serverDoesNotBuildResponseForOneWayInvocations() throws Exception {
+		final BlockingQueue<AstrixServiceInvocationResponse> responses = new LinkedBlockingQueue<>();
+		partition1.register(new OneWayService() {
+			@Override
+			public void publish(String event) {
+				if (event.equals("fail")) {
+					throw new IllegalArgumentException("Failed to process: " + event);
+				}
+			}
+		}, objectSerializer, OneWayService.class);
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				AstrixServiceInvocationResponse response = partition1.invokeService(request);
+				responses.add(response);
+				return Observable.just(response);
+			}
+		});
+		OneWayService oneWayService = RemotingProxy.create(OneWayService.class, OneWayService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		oneWayService.publish("foo");
+		oneWayService.publish("fail");
+		AstrixServiceInvocationResponse successResponse = responses.poll(1, TimeUnit.SECONDS);
+		AstrixServiceInvocationResponse failureResponse = responses.poll(1, TimeUnit.SECONDS);
+		assertSame(successResponse, failureResponse);
+		assertFalse(failureResponse.hasThrownException());
+		assertNull(failureResponse.getCorrelationId());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void oneWayServiceMethodsMustReturnVoid() throws Exception {
+		RemotingProxy.create(NonVoidOneWayService.class, NonVoidOneWayService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+	}
+	
+	@Test
+	public void cachedServiceMethodIsOnlyInvokedOnCacheMiss() throws Exception {
+		final AtomicInteger invocationCount = new AtomicInteger();
+		partition1.register(new CachedLookupService() {
+			@Override
+			public String lookup(String key) {
+				invocationCount.incrementAndGet();
+				return "value-" + key;
+			}
+		}, objectSerializer, CachedLookupService.class);
+		CachedLookupService lookupService = RemotingProxy.create(CachedLookupService.class, CachedLookupService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		
+		assertEquals("value-foo", lookupService.lookup("foo"));
+		assertEquals("value-foo", lookupService.lookup("foo"));
+		assertEquals("value-bar", lookupService.lookup("bar"));
+		assertEquals(2, invocationCount.get());
+		
+		AstrixCacheStatistics statistics = ((CachingAstrixBean) lookupService).getCacheStatistics();
+		assertEquals(1, statistics.getHitCount());
+		assertEquals(2, statistics.getMissCount());
+		assertEquals(2, statistics.getSize());
+		
+		((CachingAstrixBean) lookupService).invalidateCache();
+		assertEquals("value-foo", lookupService.lookup("foo"));
+		assertEquals(3, invocationCount.get());
+	}
+	
+	@Test
+	public void cacheSettingsCanBeOverriddenAtRuntime() throws Exception {
+		final AtomicInteger invocationCount = new AtomicInteger();
+		partition1.register(new CachedLookupService() {
+			@Override
+			public String lookup(String key) {
+				invocationCount.incrementAndGet();
+				return "value-" + key;
+			}
+		}, objectSerializer, CachedLookupService.class);
+		RemotingProxySettings settings = new RemotingProxySettings();
+		ObservableCachedLookupService lookupService = RemotingProxy.create(ObservableCachedLookupService.class, CachedLookupService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy(), settings);
+		
+		settings.getCacheMaxSize().set(1);
+		assertEquals("value-foo", lookupService.lookup("foo").toBlocking().first());
+		assertEquals("value-bar", lookupService.lookup("bar").toBlocking().first());
+		assertEquals("Evicted", "value-foo", lookupService.lookup("foo").toBlocking().first());
+		assertEquals(3, invocationCount.get());
+		
+		settings.getCacheEnabled().set(false);
+		assertEquals("value-foo", lookupService.lookup("foo").toBlocking().first());
+		assertEquals(4, invocationCount.get());
+	}
+	
+	@Test
+	public void cacheHitsAreUnmarshalledForEachInvocation() throws Exception {
+		partition1.register(new CachedListLookupService() {
+			@Override
+			public List<String> lookup(String key) {
+				return new ArrayList<>(Arrays.asList("value-" + key));
+			}
+		}, objectSerializer, CachedListLookupService.class);
+		CachedListLookupService lookupService = RemotingProxy.create(CachedListLookupService.class, CachedListLookupService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		
+		List<String> first = lookupService.lookup("foo");
+		first.add("modified");
+		List<String> hit1 = lookupService.lookup("foo");
+		List<String> hit2 = lookupService.lookup("foo");
+		assertEquals(Arrays.asList("value-foo"), hit1);
+		assertNotSame(hit1, hit2);
+		assertEquals(2, ((CachingAstrixBean) lookupService).getCacheStatistics().getHitCount());
+	}
+	
+	@Test
+	public void resultsFromInvocationsStartedBeforeCacheInvalidationAreNotCached() throws Exception {
+		partition1.register(new CachedLookupService() {
+			@Override
+			public String lookup(String key) {
+				return "value-" + key;
+			}
+		}, objectSerializer, CachedLookupService.class);
+		final List<AstrixServiceInvocationRequest> submittedRequests = new CopyOnWriteArrayList<>();
+		final ReplaySubject<Void> released = ReplaySubject.create();
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				submittedRequests.add(request);
+				// Responses are held back until released
+				return released.ignoreElements().cast(AstrixServiceInvocationResponse.class)
+							   .concatWith(super.submitRoutedRequest(request, routingKey));
+			}
+		});
+		ObservableCachedLookupService lookupService = RemotingProxy.create(ObservableCachedLookupService.class, CachedLookupService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		Observable<String> inFlight = lookupService.lookup("foo");
+		((CachingAstrixBean) lookupService).invalidateCache();
+		released.onCompleted();
+		assertEquals("value-foo", inFlight.toBlocking().first());
+		assertEquals(0, ((CachingAstrixBean) lookupService).getCacheStatistics().getSize());
+		
+		assertEquals("value-foo", lookupService.lookup("foo").toBlocking().first());
+		assertEquals(2, submittedRequests.size());
+	}
+	
+	@Test
+	public void proxiesWithoutCachedServiceMethodsAreNotCachingAstrixBeans() throws Exception {
+		TestService testService = RemotingProxy.create(TestService.class, TestService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		assertFalse(testService instanceof CachingAstrixBean);
+	}
+	
+	@Test
+	public void singleFlightServiceMethodSharesOutstandingRequestBetweenInvocationsWithEqualArguments() throws Exception {
+		partition1.register(new SingleFlightLookupService() {
+			@Override
+			public String lookup(String key) {
+				return "value-" + key;
+			}
+		}, objectSerializer, SingleFlightLookupService.class);
+		final List<AstrixServiceInvocationRequest> submittedRequests = new CopyOnWriteArrayList<>();
+		final ReplaySubject<Void> released = ReplaySubject.create();
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				submittedRequests.add(request);
+				// Responses are held back until released
+				return released.ignoreElements().cast(AstrixServiceInvocationResponse.class)
+							   .concatWith(super.submitRoutedRequest(request, routingKey));
+			}
+		});
+		ObservableSingleFlightLookupService lookupService = RemotingProxy.create(ObservableSingleFlightLookupService.class, SingleFlightLookupService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		Observable<String> first = lookupService.lookup("foo");
+		Observable<String> second = lookupService.lookup("foo");
+		Observable<String> other = lookupService.lookup("bar");
+		assertEquals(2, submittedRequests.size());
+		
+		released.onCompleted();
+		assertEquals("value-foo", first.toBlocking().first());
+		assertEquals("value-foo", second.toBlocking().first());
+		assertEquals("value-bar", other.toBlocking().first());
+		
+		assertEquals("value-foo", lookupService.lookup("foo").toBlocking().first());
+		assertEquals("Request completed before last invocation", 3, submittedRequests.size());
+	}
+	
+	@Test
+	public void requestsWithExpiredDeadlineAreRejectedWithoutInvokingService() throws Exception {
+		final AtomicBoolean invoked = new AtomicBoolean(false);
+		partition1.register(new DeadlineService() {
+			@Override
+			public Long remainingMillis(String id) {
+				invoked.set(true);
+				return AstrixDeadline.getRemainingMillis();
+			}
+		}, objectSerializer, DeadlineService.class);
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				request.setTimeBudget(0);
+				return super.invokeRoutedRequest(request, routingKey);
+			}
+		});
+		DeadlineService deadlineService = RemotingProxy.create(DeadlineService.class, DeadlineService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		try {
+			deadlineService.remainingMillis("foo");
+			fail("Expected ServiceUnavailableException");
+		} catch (ServiceUnavailableException e) {
+			// expected
+		}
+		assertFalse("Service should not be invoked when deadline is exceeded", invoked.get());
+	}
+	
+	@Test
+	public void remainingTimeBudgetIsBoundToThreadInvokingService() throws Exception {
+		partition1.register(new DeadlineService() {
+			@Override
+			public Long remainingMillis(String id) {
+				return AstrixDeadline.getRemainingMillis();
+			}
+		}, objectSerializer, DeadlineService.class);
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				request.setTimeBudget(10_000);
+				return super.invokeRoutedRequest(serializationRoundTrip(request), routingKey);
+			}
+		});
+		DeadlineService deadlineService = RemotingProxy.create(DeadlineService.class, DeadlineService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		long remainingMillis = deadlineService.remainingMillis("foo");
+		assertTrue("Expected remaining time budget in (5000, 10000], was: " + remainingMillis, remainingMillis > 5_000 && remainingMillis <= 10_000);
+		assertEquals("Deadline should be cleared after invocation", AstrixDeadline.UNBOUNDED, AstrixDeadline.getRemainingMillis());
+	}
+	
+	@Test
+	public void remainingTimeBudgetIsCapturedOnCallingThreadForBatchedRequests() throws Exception {
+		partition1.register(new DeadlineService() {
+			@Override
+			public Long remainingMillis(String id) {
+				return AstrixDeadline.getRemainingMillis();
+			}
+		}, objectSerializer, DeadlineService.class);
+		RemotingTransport transport = RemotingTransport.create(new BatchingDirectTransport(Arrays.asList(partition1)));
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.getMicroBatchWindowMicros().set(1_000);
+		DeadlineService deadlineService = RemotingProxy.create(DeadlineService.class, DeadlineService.class, transport, objectSerializer, new NoRoutingStrategy(), settings);
+		
+		AstrixDeadline.bind(System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+		try {
+			long remainingMillis = deadlineService.remainingMillis("foo");
+			assertTrue("Expected remaining time budget in (1000, 5000], was: " + remainingMillis, remainingMillis > 1_000 && remainingMillis <= 5_000);
+		} finally {
+			AstrixDeadline.clear();
+		}
+	}
+	
+	@Test
+	public void remainingTimeBudgetIsRoundedUpToWholeMillis() throws Exception {
+		assertEquals(1, AstrixDeadline.getRemainingMillis(System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(500)));
+		assertEquals(0, AstrixDeadline.getRemainingMillis(System.nanoTime()));
+	}
+	
+	@Test
+	public void priorityClassIsResolvedFromServiceMethodOrServiceApi() throws Exception {
+		partition1.register(new PrioritizedService() {
+			@Override
+			public String placeOrder(String id) {
+				return "order-" + id;
+			}
+			@Override
+			public String report(String id) {
+				return "report-" + id;
+			}
+		}, objectSerializer, PrioritizedService.class);
+		final List<AstrixPriorityClass> priorities = new CopyOnWriteArrayList<>();
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				priorities.add(request.getPriority());
+				return super.invokeRoutedRequest(serializationRoundTrip(request), routingKey);
+			}
+		});
+		PrioritizedService prioritizedService = RemotingProxy.create(PrioritizedService.class, PrioritizedService.class, transport, objectSerializer, new NoRoutingStrategy());
+		
+		assertEquals("order-1", prioritizedService.placeOrder("1"));
+		assertEquals("report-1", prioritizedService.report("1"));
+		assertEquals(Arrays.asList(AstrixPriorityClass.HIGH, AstrixPriorityClass.LOW), priorities);
+	}
+	
+	@Test
+	public void invocationsBeyondCapacityOfDispatchLaneAreRejectedWithoutAffectingOtherLanes() throws Exception {
+		final AtomicReference<PrioritizedService> proxy = new AtomicReference<>();
+		partition1.register(new PrioritizedService() {
+			@Override
+			public String placeOrder(String id) {
+				return "order-" + id;
+			}
+			@Override
+			public String report(String id) {
+				if (!id.equals("outer")) {
+					return "report-" + id;
+				}
+				// The LOW lane is fully occupied by the current invocation
+				String nestedReport;
+				try {
+					nestedReport = proxy.get().report("inner");
+				} catch (ServiceUnavailableException e) {
+					nestedReport = "rejected";
+				}
+				return nestedReport + "," + proxy.get().placeOrder("1");
+			}
+		}, objectSerializer, PrioritizedService.class);
+		partition1.setMaxConcurrentInvocations(AstrixPriorityClass.LOW, new DynamicIntProperty(1));
+		proxy.set(RemotingProxy.create(PrioritizedService.class, PrioritizedService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy()));
+		
+		assertEquals("rejected,order-1", proxy.get().report("outer"));
+		assertEquals("Lane should be released after invocation", "report-1", proxy.get().report("1"));
+	}
+	
+	@Test
+	public void invocationsInFullDispatchLaneAreRejectedWithoutWaitingForFreeSlot() throws Exception {
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		partition1.register(new PrioritizedService() {
+			@Override
+			public String placeOrder(String id) {
+				return "order-" + id;
+			}
+			@Override
+			public String report(String id) {
+				if (id.equals("blocking")) {
+					entered.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return "report-" + id;
+			}
+		}, objectSerializer, PrioritizedService.class);
+		partition1.setMaxConcurrentInvocations(AstrixPriorityClass.LOW, new DynamicIntProperty(1));
+		final PrioritizedService prioritizedService = RemotingProxy.create(PrioritizedService.class, PrioritizedService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> blocking = executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return prioritizedService.report("blocking");
+				}
+			});
+			assertTrue(entered.await(1, TimeUnit.SECONDS));
+			try {
+				prioritizedService.report("1");
+				fail("Expected invocation to be rejected while lane is full");
+			} catch (ServiceUnavailableException e) {
+				// expected
+			}
+			
+			release.countDown();
+			assertEquals("report-blocking", blocking.get(1, TimeUnit.SECONDS));
+			assertEquals("report-1", prioritizedService.report("1"));
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void dispatchLanesAreUnboundedByDefault() throws Exception {
+		final int concurrentInvocations = 16;
+		final CountDownLatch allEntered = new CountDownLatch(concurrentInvocations);
+		partition1.register(new PrioritizedService() {
+			@Override
+			public String placeOrder(String id) {
+				return "order-" + id;
+			}
+			@Override
+			public String report(String id) {
+				allEntered.countDown();
+				try {
+					allEntered.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return "report-" + id;
+			}
+		}, objectSerializer, PrioritizedService.class);
+		final PrioritizedService prioritizedService = RemotingProxy.create(PrioritizedService.class, PrioritizedService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
+		ExecutorService executor = Executors.newFixedThreadPool(concurrentInvocations);
+		try {
+			List<Future<String>> reports = new ArrayList<>();
+			for (int i = 0; i < concurrentInvocations; i++) {
+				final String id = Integer.toString(i);
+				reports.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return prioritizedService.report(id);
+					}
+				}));
+			}
+			for (int i = 0; i < concurrentInvocations; i++) {
+				assertEquals("report-" + i, reports.get(i).get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void requestsAreSentWithNormalPriorityWhenServerDoesNotSupportPriorityClasses() throws Exception {
+		partition1.register(new PrioritizedService() {
+			@Override
+			public String placeOrder(String id) {
+				return "order-" + id;
+			}
+			@Override
+			public String report(String id) {
+				return "report-" + id;
+			}
+		}, objectSerializer, PrioritizedService.class);
+		final List<AstrixPriorityClass> priorities = new CopyOnWriteArrayList<>();
+		RemotingTransport transport = RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+				priorities.add(request.getPriority());
+				return super.invokeRoutedRequest(request, routingKey);
+			}
+		});
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.setPriorityClassesSupported(false);
+		PrioritizedService prioritizedService = RemotingProxy.create(PrioritizedService.class, PrioritizedService.class, transport, objectSerializer, new NoRoutingStrategy(), settings);
+		
+		assertEquals("order-1", prioritizedService.placeOrder("1"));
+		assertEquals("report-1", prioritizedService.report("1"));
+		assertEquals(Arrays.asList(AstrixPriorityClass.NORMAL, AstrixPriorityClass.NORMAL), priorities);
+	}
+	
+	private static AstrixServiceInvocationRequest serializationRoundTrip(AstrixServiceInvocationRequest request) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(request);
+			}
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				return (AstrixServiceInvocationRequest) in.readObject();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	@Test
+	public void microBatchingCoalescesConcurrentRoutedRequestsToSamePartition() throws Exception {
+		TestService impl = new TestService() {
+			@Override
+			public HelloResponse hello(HelloRequest message) {
+				return new HelloResponse("reply-" + message.getMesssage());
+			}
+			@Override
+			public String hello(HelloRequest message, String greeting) {
+				return "overload-" + message.getMesssage();
+			}
+		};
+		partition1.register(impl, objectSerializer, TestService.class);
+		final BlockingQueue<Integer> batchSizes = new LinkedBlockingQueue<>();
+		RemotingTransport transport = RemotingTransport.create(new BatchingDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequestBatch(List<AstrixServiceInvocationRequest> requests, RoutingKey routingKey) {
+				batchSizes.add(requests.size());
+				return super.submitRoutedRequestBatch(requests, routingKey);
+			}
+		});
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.getMicroBatchWindowMicros().set(TimeUnit.MILLISECONDS.toMicros(50));
+		settings.getMicroBatchMaxSize().set(3);
+		ObservableTestService service = RemotingProxy.create(ObservableTestService.class, TestService.class, transport, objectSerializer, new NoRoutingStrategy(), settings);
+		
+		List<Observable<HelloResponse>> responses = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			Observable<HelloResponse> response = service.hello(new HelloRequest("kalle-" + i)).cache();
+			response.subscribe();
+			responses.add(response);
+		}
+		assertEquals("Full batch is sent immediately", Integer.valueOf(3), batchSizes.poll());
+		assertEquals("Remaining requests are sent when window has passed", Integer.valueOf(2), batchSizes.poll(1, TimeUnit.SECONDS));
+		for (int i = 0; i < 5; i++) {
+			assertEquals("reply-kalle-" + i, responses.get(i).toBlocking().first().getGreeting());
+		}
+	}
+	
+	@Test
+	public void microBatchingCompletesEachCallerIndividually() throws Exception {
+		TestService impl = new TestService() {
 			@Override
-			public void hello(String message) {
-				receivedRequest.add(message);
+			public HelloResponse hello(HelloRequest message) {
+				return new HelloResponse("reply-" + message.getMesssage());
+			}
+			@Override
+			public String hello(HelloRequest message, String greeting) {
+				return "overload-" + message.getMesssage();
 			}
 		};
-		partition1.register(impl, objectSerializer, VoidService.class);
+		partition1.register(impl, objectSerializer, TestService.class);
+		RemotingTransport transport = RemotingTransport.create(new BatchingDirectTransport(Arrays.asList(partition1)) {
+			@Override
+			public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequestBatch(List<AstrixServiceInvocationRequest> requests, RoutingKey routingKey) {
+				List<AstrixServiceInvocationResponse> responses = new ArrayList<>(partition1.invokeServices(requests));
+				responses.set(1, null);
+				return Observable.just(responses);
+			}
+		});
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.getMicroBatchWindowMicros().set(TimeUnit.SECONDS.toMicros(10));
+		settings.getMicroBatchMaxSize().set(2);
+		ObservableTestService service = RemotingProxy.create(ObservableTestService.class, TestService.class, transport, objectSerializer, new NoRoutingStrategy(), settings);
 		
-		VoidService testService = RemotingProxy.create(VoidService.class, VoidService.class,
-				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
-
-		testService.hello("kalle");
-		String lastReceivedRequest = receivedRequest.poll(1, TimeUnit.SECONDS);
-		assertEquals("kalle", lastReceivedRequest);
+		Observable<HelloResponse> first = service.hello(new HelloRequest("kalle-0")).cache();
+		first.subscribe();
+		Observable<HelloResponse> second = service.hello(new HelloRequest("kalle-1")).cache();
+		second.onErrorResumeNext(Observable.<HelloResponse>empty()).subscribe();
+		
+		assertEquals("reply-kalle-0", first.toBlocking().first().getGreeting());
+		try {
+			second.toBlocking().first();
+			fail("Expected missing response to fail caller");
+		} catch (ServiceUnavailableException e) {
+			// Expected
+		}
 	}
 	
 	@Test
-	public void supportsBroadcastedServicesWithVoidReturnType() throws Exception {
-		final BlockingQueue<String> receivedRequest = new LinkedBlockingQueue<>();
-		BroadcastVoidService impl = new BroadcastVoidService() {
+	public void destroyedRemotingProxyFlushesBatchedRequestsImmediately() throws Exception {
+		TestService impl = new TestService() {
 			@Override
-			public void hello(String message) {
-				receivedRequest.add(message);
+			public HelloResponse hello(HelloRequest message) {
+				return new HelloResponse("reply-" + message.getMesssage());
+			}
+			@Override
+			public String hello(HelloRequest message, String greeting) {
+				return "overload-" + message.getMesssage();
 			}
 		};
-		partition1.register(impl, objectSerializer, BroadcastVoidService.class);
+		partition1.register(impl, objectSerializer, TestService.class);
+		RemotingTransport transport = RemotingTransport.create(new BatchingDirectTransport(Arrays.asList(partition1)));
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.getMicroBatchWindowMicros().set(TimeUnit.SECONDS.toMicros(10));
+		settings.getMicroBatchMaxSize().set(10);
+		TestService service = RemotingProxy.create(TestService.class, TestService.class, transport, objectSerializer, new NoRoutingStrategy(), settings);
+		RemotingProxy.destroy(service);
 		
-		BroadcastVoidService testService = RemotingProxy.create(BroadcastVoidService.class, BroadcastVoidService.class,
-				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
-
-		testService.hello("kalle");
-		String lastReceivedRequest = receivedRequest.poll(0, TimeUnit.SECONDS);
-		assertEquals("kalle", lastReceivedRequest);
-	}
-	
-	@Test(expected = IllegalArgumentException.class)
-	public void throwsExceptionWhenRegisteringProviderForNonImplementedInterface() throws Exception {
-		partition1.register(new Object(), objectSerializer, TestService.class);
+		assertEquals("reply-kalle", service.hello(new HelloRequest("kalle")).getGreeting());
 	}
 	
 	@Test
-	public void remotingProxiesDoesNotDelegateMethodCallsForMethodsDefinedIn_java_lang_Object() throws Exception {
-		partition1.register(new VoidService() {
+	public void batchableServiceMethodInvocationsAreDispatchedAsBulkInvocation() throws Exception {
+		AstrixServiceActivator partition2 = new AstrixServiceActivator();
+		final BlockingQueue<List<Integer>> receivedKeys = new LinkedBlockingQueue<>();
+		BatchableLookupService impl = new BatchableLookupService() {
 			@Override
-			public void hello(String message) {
+			public String lookup(Integer key) {
+				throw new UnsupportedOperationException("Expected bulk invocation");
 			}
 			@Override
-			public String toString() {
-				return "RemotingServiceToString";
+			public Map<Integer, String> lookupAll(List<Integer> keys) {
+				receivedKeys.add(keys);
+				Map<Integer, String> result = new HashMap<>();
+				for (Integer key : keys) {
+					result.put(key, "value-" + key);
+				}
+				return result;
 			}
-		}, objectSerializer, VoidService.class);
+		};
+		partition1.register(impl, objectSerializer, BatchableLookupService.class);
+		partition2.register(impl, objectSerializer, BatchableLookupService.class);
+		ObservableBatchableLookupService lookupService = RemotingProxy.create(ObservableBatchableLookupService.class, BatchableLookupService.class, 
+				directTransport(partition1, partition2), objectSerializer, new NoRoutingStrategy());
 		
-		VoidService testService = RemotingProxy.create(VoidService.class, VoidService.class,
-				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
-		assertEquals("RemotingProxy[" + VoidService.class.getName() + "]", testService.toString());
+		List<Observable<String>> results = new ArrayList<>();
+		for (Integer key : Arrays.asList(1, 2, 1, 3)) {
+			Observable<String> result = lookupService.lookup(key).cache();
+			result.subscribe();
+			results.add(result);
+		}
+		assertEquals("Full batch is dispatched immediately, one request per partition", 2, receivedKeys.size());
+		assertThat(receivedKeys, containsInAnyOrder(Arrays.asList(1), Arrays.asList(2)));
+		assertEquals("value-1", results.get(0).toBlocking().first());
+		assertEquals("value-2", results.get(1).toBlocking().first());
+		assertEquals("value-1", results.get(2).toBlocking().first());
+		assertEquals("Remaining invocations are dispatched when window has passed", "value-3", results.get(3).toBlocking().first());
 	}
 	
 	@Test
-	public void asyncBroadcastedService() throws Exception {
-		partition1.register(new BroadcastingGenericReturnTypeService() {
+	public void batchableServiceMethod_skipsBulkMethodOverloadsAndUsesMaxBatchSizeFromSettings() throws Exception {
+		final BlockingQueue<List<Integer>> receivedKeys = new LinkedBlockingQueue<>();
+		OverloadedBatchableLookupService impl = new OverloadedBatchableLookupService() {
 			@Override
-			public List<HelloResponse> hello(List<HelloRequest> greeting) {
-				return Arrays.asList(new HelloResponse(greeting.get(0).getMesssage()));
+			public String lookup(Integer key) {
+				throw new UnsupportedOperationException("Expected bulk invocation");
 			}
-			
-		}, objectSerializer, BroadcastingGenericReturnTypeService.class);
-		
-		BroadcastingGenericReturnTypeServiceAsync service = RemotingProxy.create(BroadcastingGenericReturnTypeServiceAsync.class,
-				BroadcastingGenericReturnTypeService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
-		Future<List<HelloResponse>> resultFuture = service.hello(Arrays.asList(new HelloRequest("foo")));
-		List<HelloResponse> result = resultFuture.get();
-		assertEquals(1, result.size());
-	}
-	
-	@Test(expected = IncompatibleRemoteResultReducerException.class)
-	public void throwsExceptionOnProxyCreationIfRemoteResultReducerDoesNotHaveAMethodSignatureCompatibleWithServiceMethodSignature() throws Exception {
-		RemotingProxy.create(BroadcastServiceWithIllegalReducer.class, BroadcastServiceWithIllegalReducer.class, 
-				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
-	}
-	
-//	@Test(expected = IncompatibleRemoteResultReducerException.class)
-//	public void throwsExceptionOnProxyCreationIfRemoteResultReducerDoesNotHaveAMethodSignatureCompatibleWithServiceMethodSignature_2() throws Exception {
-//		RemotingProxy.create(IllegalReducerHelloService.class, directTransport(partition1), objectSerializer, new NoRoutingStrategy());
-//	}
-	
-	@Test(expected = IllegalStateException.class)
-	public void throwsIllegalStateExceptionIfRoutingStrategyReturnsNull() throws Exception {
-		partition1.register(new VoidService() {
 			@Override
-			public void hello(String message) {
+			public Map<Integer, String> lookupAll(List<Integer> keys) {
+				receivedKeys.add(keys);
+				Map<Integer, String> result = new HashMap<>();
+				for (Integer key : keys) {
+					result.put(key, "value-" + key);
+				}
+				return result;
 			}
-		}, objectSerializer, VoidService.class);
-		
-		VoidService voidService = RemotingProxy.create(VoidService.class, VoidService.class, directTransport(partition1), objectSerializer, new RoutingStrategy() {
 			@Override
-			public Router create(Method serviceMethod) {
-				return new Router() {
-					@Override
-					public RoutingKey getRoutingKey(Object... args) throws Exception {
-						return null;
-					}
-				};
+			public List<String> lookupAll(String pattern) {
+				throw new UnsupportedOperationException("Expected bulk invocation");
 			}
-		});
-		voidService.hello("foo");
+		};
+		partition1.register(impl, objectSerializer, OverloadedBatchableLookupService.class);
+		RemotingProxySettings settings = new RemotingProxySettings();
+		settings.getBatchableMaxBatchSize().set(1);
+		OverloadedBatchableLookupService lookupService = RemotingProxy.create(OverloadedBatchableLookupService.class, OverloadedBatchableLookupService.class, 
+				directTransport(partition1), objectSerializer, new NoRoutingStrategy(), settings);
+		
+		assertEquals("value-1", lookupService.lookup(1));
+		assertEquals("Batch is dispatched immediately when max batch size from settings is reached", Arrays.asList(1), receivedKeys.poll());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void batchableServiceMethod_throwsExceptionOnProxyCreationIfBulkResultIsNotAssignableToReturnType() throws Exception {
+		RemotingProxy.create(IncompatibleBatchableLookupService.class, IncompatibleBatchableLookupService.class, 
+				directTransport(partition1), objectSerializer, new NoRoutingStrategy());
 	}
 	
 	@SuppressWarnings("serial")
@@ -865,6 +2423,123 @@ public class AstrixRemotingTest {
 		List<String> ping(String msg);
 	}
 	
+	interface CountingPingService {
+		@AstrixBroadcast(reducer = AccumulatingSummingReducer.class)
+		Integer ping(String msg);
+	}
+	
+	interface ExistsService {
+		@AstrixBroadcast(reducer = AnyTrueReducer.class, shortCircuit = true)
+		Boolean exists(String key);
+	}
+	
+	interface NonShortCircuitingExistsService {
+		@AstrixBroadcast(reducer = AnyTrueReducer.class)
+		Boolean exists(String key);
+	}
+	
+	interface ShortCircuitingBroadcastServiceWithIllegalReducer {
+		@AstrixBroadcast(shortCircuit = true)
+		List<String> ping(String msg);
+	}
+	
+	interface QuorumPingService {
+		@AstrixBroadcast(quorum = 2)
+		List<String> ping(String msg);
+	}
+	
+	interface PartialPingService {
+		@AstrixBroadcast(reducer = MissingPartitionsReportingReducer.class, partialResultDeadlineMillis = 250)
+		List<String> ping(String msg);
+	}
+	
+	interface PartialBroadcastServiceWithIllegalReducer {
+		@AstrixBroadcast(reducer = BroadcastReducer.class, partialResultDeadlineMillis = 50)
+		String broadcast(BroadcastRequest request);
+	}
+	
+	public static class MissingPartitionsReportingReducer implements PartialRemoteResultReducer<List<String>> {
+		@Override
+		public List<String> reduce(List<AstrixRemoteResult<List<String>>> results) {
+			List<String> result = new ArrayList<>();
+			for (AstrixRemoteResult<List<String>> partitionResult : results) {
+				result.addAll(partitionResult.getResult());
+			}
+			return result;
+		}
+		@Override
+		public List<String> reducePartial(List<AstrixRemoteResult<List<String>>> results, Set<Integer> missingPartitions) {
+			List<String> result = reduce(results);
+			result.add("missing:" + missingPartitions);
+			return result;
+		}
+	}
+	
+	interface PagedNumberService {
+		@AstrixPagedBroadcast(defaultPageSize = 3)
+		AstrixPage<Integer> numbersGreaterThan(int min, AstrixPageRequest pageRequest);
+	}
+	
+	interface IteratingPagedNumberService {
+		@AstrixPagedBroadcast
+		CloseableIterator<Integer> numbersGreaterThan(int min, AstrixPageRequest pageRequest);
+	}
+	
+	interface BoundedPrefetchPagedNumberService {
+		@AstrixPagedBroadcast(prefetchedPartitions = 2)
+		CloseableIterator<Integer> numbersGreaterThan(int min, AstrixPageRequest pageRequest);
+	}
+	
+	interface ObservablePagedNumberService {
+		@AstrixPagedBroadcast
+		Observable<Integer> numbersGreaterThan(int min, AstrixPageRequest pageRequest);
+	}
+	
+	public static class PagedNumberServiceImpl implements PagedNumberService {
+		private final List<Integer> numbers;
+		private final AtomicInteger pageRequestCount = new AtomicInteger();
+		
+		public PagedNumberServiceImpl(Integer... numbers) {
+			this.numbers = Arrays.asList(numbers);
+		}
+
+		@Override
+		public AstrixPage<Integer> numbersGreaterThan(int min, AstrixPageRequest pageRequest) {
+			pageRequestCount.incrementAndGet();
+			int offset = pageRequest.getContinuationToken() != null ? Integer.parseInt(pageRequest.getContinuationToken()) : 0;
+			List<Integer> page = new ArrayList<>();
+			int next = offset;
+			while (next < numbers.size() && page.size() < pageRequest.getPageSize()) {
+				if (numbers.get(next) > min) {
+					page.add(numbers.get(next));
+				}
+				next++;
+			}
+			return AstrixPage.of(page, next < numbers.size() ? Integer.toString(next) : null);
+		}
+	}
+	
+	public static class AccumulatingSummingReducer implements AccumulatingRemoteResultReducer<Integer> {
+		@Override
+		public Integer reduce(List<AstrixRemoteResult<Integer>> result) {
+			throw new AssertionError("Accumulating reducers should be fed each result using an accumulator");
+		}
+		@Override
+		public RemoteResultAccumulator<Integer> newAccumulator(int expectedResultCount) {
+			return new RemoteResultAccumulator<Integer>() {
+				private int sum = 0;
+				@Override
+				public void accumulate(AstrixRemoteResult<Integer> result) {
+					sum += result.getResult();
+				}
+				@Override
+				public Integer finish() {
+					return sum;
+				}
+			};
+		}
+	}
+	
 	interface CalculatorListService {
 		Integer squareSum(@AstrixPartitionedRouting(reducer = SummingReducer.class) Collection<Integer> nums);
 	}
@@ -902,6 +2577,21 @@ public class AstrixRemotingTest {
 	}
 	
 	
+	interface PartitionedServiceWithSharedArgument {
+		List<Integer> add(@AstrixPartitionedRouting List<Integer> nums, NumPojo term);
+	}
+	
+	public static class PartitionedServiceWithSharedArgumentImpl implements PartitionedServiceWithSharedArgument {
+		@Override
+		public List<Integer> add(List<Integer> nums, NumPojo term) {
+			List<Integer> result = new ArrayList<>(nums.size());
+			for (Integer num : nums) {
+				result.add(num + term.getNum());
+			}
+			return result;
+		}
+	}
+	
 	public static class NumPojo implements Serializable {
 		private static final long serialVersionUID = 1L;
 		private int num;
@@ -1029,15 +2719,125 @@ public class AstrixRemotingTest {
 	}
 
 	
+	static class CountingInvocationTracker implements AstrixInvocationTracker {
+		
+		private final AtomicInteger started = new AtomicInteger();
+		private final AtomicInteger completed = new AtomicInteger();
+		private final AtomicInteger abandoned = new AtomicInteger();
+		
+		@Override
+		public Invocation start() {
+			started.incrementAndGet();
+			final AtomicBoolean done = new AtomicBoolean();
+			return new Invocation() {
+				@Override
+				public void complete(Throwable exception) {
+					if (done.compareAndSet(false, true)) {
+						completed.incrementAndGet();
+					}
+				}
+				@Override
+				public void abandon() {
+					if (done.compareAndSet(false, true)) {
+						abandoned.incrementAndGet();
+					}
+				}
+			};
+		}
+	}
+	
 	interface TestService {
 		HelloResponse hello(HelloRequest message);
 		String hello(HelloRequest message, String greeting);
 	}
 	
+	static class TestServiceImpl implements TestService {
+		@Override
+		public HelloResponse hello(HelloRequest message) {
+			return new HelloResponse("reply-" + message.getMesssage());
+		}
+		@Override
+		public String hello(HelloRequest message, String greeting) {
+			return greeting + message.getMesssage();
+		}
+	}
+	
 	interface VoidService {
 		void hello(String message);
 	}
 	
+	interface CachedLookupService {
+		@AstrixCached
+		String lookup(String key);
+	}
+	
+	interface CachedListLookupService {
+		@AstrixCached
+		List<String> lookup(String key);
+	}
+	
+	interface ObservableCachedLookupService {
+		Observable<String> lookup(String key);
+	}
+	
+	@AstrixPriority(AstrixPriorityClass.LOW)
+	interface PrioritizedService {
+		@AstrixPriority(AstrixPriorityClass.HIGH)
+		String placeOrder(String id);
+		
+		String report(String id);
+	}
+	
+	interface DeadlineService {
+		Long remainingMillis(String id);
+	}
+	
+	interface SingleFlightLookupService {
+		@AstrixSingleFlight
+		String lookup(String key);
+	}
+	
+	interface ObservableSingleFlightLookupService {
+		Observable<String> lookup(String key);
+	}
+	
+	interface BatchableLookupService {
+		@AstrixBatchable(bulkMethod = "lookupAll", windowMicros = 50_000, maxBatchSize = 3)
+		String lookup(Integer key);
+		
+		Map<Integer, String> lookupAll(@AstrixPartitionedRouting(reducer = GenericAstrixMapReducer.class) List<Integer> keys);
+	}
+	
+	interface OverloadedBatchableLookupService {
+		@AstrixBatchable(bulkMethod = "lookupAll", windowMicros = 10_000_000)
+		String lookup(Integer key);
+		
+		List<String> lookupAll(String pattern);
+		
+		Map<Integer, String> lookupAll(@AstrixPartitionedRouting(reducer = GenericAstrixMapReducer.class) List<Integer> keys);
+	}
+	
+	interface IncompatibleBatchableLookupService {
+		@AstrixBatchable(bulkMethod = "lookupAll")
+		Integer lookup(Integer key);
+		
+		Map<Integer, String> lookupAll(@AstrixPartitionedRouting(reducer = GenericAstrixMapReducer.class) List<Integer> keys);
+	}
+	
+	interface ObservableBatchableLookupService {
+		Observable<String> lookup(Integer key);
+	}
+	
+	interface OneWayService {
+		@AstrixOneWay
+		void publish(String event);
+	}
+	
+	interface NonVoidOneWayService {
+		@AstrixOneWay
+		String publish(String event);
+	}
+	
 	interface BroadcastVoidService {
 		@AstrixBroadcast
 		void hello(String message);
@@ -1060,6 +2860,15 @@ public class AstrixRemotingTest {
 		String broadcast(BroadcastRequest request);
 	}
 	
+	interface CountingService {
+		Long count(@AstrixPartitionedRouting(reducer = LongSumReducer.class) Collection<Integer> nums);
+	}
+	
+	interface BroadcastServiceWithIllegalGenericReducer {
+		@AstrixBroadcast(reducer = LongSumReducer.class)
+		String broadcast(BroadcastRequest request);
+	}
+	
 	interface BroadcastServiceWithIllegalReducer {
 		@AstrixBroadcast(reducer = StringToStringReducer.class)
 		Future<String> broadcast(BroadcastRequest request);
@@ -1072,6 +2881,25 @@ public class AstrixRemotingTest {
 		}
 	}
 	
+	interface StatefulBroadcastService {
+		@AstrixBroadcast(reducer = SingleUseReducer.class)
+		String broadcast(String msg);
+	}
+	
+	public static class SingleUseReducer implements RemoteResultReducer<String> {
+		
+		private boolean used = false;
+		
+		@Override
+		public String reduce(List<AstrixRemoteResult<String>> result) {
+			if (used) {
+				throw new IllegalStateException("Reducer reused");
+			}
+			used = true;
+			return result.get(0).getResult();
+		}
+	}
+	
 	public static class GenericReducer<T> implements RemoteResultReducer<T> {
 
 		@Override
@@ -1114,7 +2942,23 @@ public class AstrixRemotingTest {
 		
 	}
 	
-	private static class PartitionedDirectTransport implements RemotingTransportSpi {
+	private static class BatchingDirectTransport extends PartitionedDirectTransport implements BatchingRemotingTransportSpi {
+		
+		private final List<AstrixServiceActivator> partitions;
+
+		public BatchingDirectTransport(List<AstrixServiceActivator> partitions) {
+			super(partitions);
+			this.partitions = partitions;
+		}
+
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequestBatch(List<AstrixServiceInvocationRequest> requests, RoutingKey routingKey) {
+			return Observable.just(partitions.get(RoutingKey.partitionOf(routingKey.hashCode(), partitions.size())).invokeServices(requests));
+		}
+		
+	}
+	
+	private static class PartitionedDirectTransport extends AbstractRemotingTransportSpi {
 
 		private List<AstrixServiceActivator> partitions;
 		
@@ -1134,8 +2978,13 @@ public class AstrixRemotingTest {
 			});
 		}
 
+		@Override
+		public AstrixServiceInvocationResponse invokeRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+			return getActivator(routingKey).invokeService(request);
+		}
+
 		private AstrixServiceActivator getActivator(RoutingKey routingKey) {
-			return partitions.get(routingKey.hashCode() % partitions.size());
+			return partitions.get(RoutingKey.partitionOf(routingKey.hashCode(), partitions.size()));
 		}
 
 		@Override
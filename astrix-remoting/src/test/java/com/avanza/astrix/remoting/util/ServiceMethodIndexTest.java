@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+
+public class ServiceMethodIndexTest {
+	
+	@Test
+	public void assignsIdsInSignatureOrder() throws Exception {
+		ServiceMethodIndex index = ServiceMethodIndex.create(PingService.class);
+		assertEquals(3, index.size());
+		assertEquals("echo(java.lang.String)", index.getSignature(0));
+		assertEquals("ping(int)", index.getSignature(1));
+		assertEquals("ping(java.lang.String)", index.getSignature(2));
+		assertEquals(1, index.getMethodId("ping(int)"));
+	}
+	
+	@Test
+	public void returnsUndefinedMethodIdForUnknownSignatures() throws Exception {
+		ServiceMethodIndex index = ServiceMethodIndex.create(PingService.class);
+		assertEquals(ServiceMethodIndex.UNDEFINED_METHOD_ID, index.getMethodId("pong(int)"));
+		assertNull(index.getSignature(ServiceMethodIndex.UNDEFINED_METHOD_ID));
+		assertNull(index.getSignature(3));
+	}
+	
+	@Test
+	public void checksumIdentifiesMethodTable() throws Exception {
+		assertEquals(ServiceMethodIndex.create(PingService.class).getChecksum(), ServiceMethodIndex.create(PingServiceCopy.class).getChecksum());
+		assertFalse(ServiceMethodIndex.create(PingService.class).getChecksum() == ServiceMethodIndex.create(PingServiceV2.class).getChecksum());
+	}
+	
+	interface PingService {
+		String ping(String msg);
+		int ping(int msg);
+		String echo(String msg);
+	}
+	
+	interface PingServiceCopy {
+		String echo(String msg);
+		String ping(String msg);
+		int ping(int msg);
+	}
+	
+	interface PingServiceV2 {
+		String ping(String msg);
+		int ping(int msg);
+		String echo(String msg);
+		String echo(String msg, int times);
+	}
+
+}